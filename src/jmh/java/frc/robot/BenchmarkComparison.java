@@ -0,0 +1,98 @@
+package frc.robot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ *
+ * Compares two sets of benchmark results (the JSON files "./gradlew jmh"
+ * saves in build/reports/jmh), to see whether a change made anything slower.
+ *
+ * For every benchmark in both files it prints the old and new scores and how
+ * much they changed. Changes smaller than the two runs' error bars added
+ * together are marked "~", since they could just be noise. Anything that got
+ * slower by more than that is marked "SLOWER".
+ *
+ * Run it with "./gradlew jmhCompare -PjmhBaseline=build/reports/jmh/abc1234.json
+ * -PjmhResults=build/reports/jmh/def5678.json".
+ *
+ */
+public final class BenchmarkComparison {
+
+    private BenchmarkComparison() { }
+
+    public static void main(String... args) throws IOException {
+
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparison <baseline.json> <results.json>");
+            System.exit(2);
+        }
+
+        Map<String, JsonNode> baseline = load(new File(args[0]));
+        Map<String, JsonNode> results = load(new File(args[1]));
+
+        System.out.printf("%-70s %14s %14s %9s%n", "Benchmark", "Before", "After", "Change");
+        int slower = 0;
+        for (Map.Entry<String, JsonNode> entry : results.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            JsonNode after = entry.getValue();
+
+            double oldScore = before.get("score").asDouble();
+            double newScore = after.get("score").asDouble();
+            double noise = error(before) + error(after);
+            double change = (newScore - oldScore) / oldScore * 100;
+
+            // Every benchmark here is "time per operation", so bigger is slower
+            String verdict = "";
+            if (Math.abs(newScore - oldScore) <= noise) {
+                verdict = "~";
+            } else if (newScore > oldScore) {
+                verdict = "SLOWER";
+                slower++;
+            }
+
+            String unit = after.get("scoreUnit").asText();
+            System.out.printf("%-70s %9.3f %-4s %9.3f %-4s %+8.1f%% %s%n",
+                    entry.getKey(), oldScore, unit, newScore, unit, change, verdict);
+        }
+        System.out.printf("%d benchmark(s) got slower%n", slower);
+    }
+
+    // A benchmark's error bar, which is NaN if it only ran once
+    private static double error(JsonNode metric) {
+        double error = metric.get("scoreError").asDouble();
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    /**
+     * Reads a JMH results file.
+     *
+     * @return the primary result of each benchmark, by name and parameters
+     * (like "frc.robot.filter.VelocityEstimatorBenchmark.regression window=6")
+     */
+    public static Map<String, JsonNode> load(File file) throws IOException {
+        Map<String, JsonNode> metrics = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder name = new StringBuilder(run.get("benchmark").asText());
+            JsonNode params = run.get("params");
+            if (params != null) {
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> param = fields.next();
+                    name.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+                }
+            }
+            metrics.put(name.toString(), run.get("primaryMetric"));
+        }
+        return metrics;
+    }
+}
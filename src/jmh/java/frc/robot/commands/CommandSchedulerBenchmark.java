@@ -0,0 +1,113 @@
+package frc.robot.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+
+/**
+ *
+ * Measures how long one CommandScheduler.run() takes as the number of running
+ * commands grows. Each command has its own subsystem and does about as much
+ * work as a real one (a PID calculation), so what's left over is the cost of
+ * the scheduler itself.
+ *
+ * The robot loop has 20ms (20,000us) for everything, so this tells us how
+ * much of that the command-based framework uses up before any of our own
+ * code gets to run.
+ *
+ * Run with "./gradlew jmh -PjmhArgs='CommandSchedulerBenchmark -prof gc'" to
+ * see whether the scheduler makes garbage every loop, too.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CommandSchedulerBenchmark {
+
+    @Param({ "0", "1", "10", "50", "100", "500" })
+    public int commands;
+
+    private CommandScheduler scheduler;
+    private List<FakeSubsystem> subsystems;
+
+    @Setup
+    public void setup() {
+
+        // The scheduler checks whether the robot is enabled, which needs the HAL
+        HAL.initialize(500, 0);
+
+        scheduler = CommandScheduler.getInstance();
+        subsystems = new ArrayList<>();
+        for (int i = 0; i < commands; i++) {
+            FakeSubsystem subsystem = new FakeSubsystem();
+            subsystems.add(subsystem);
+            scheduler.schedule(new FakeCommand(subsystem));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.cancelAll();
+        for (FakeSubsystem subsystem : subsystems) {
+            scheduler.unregisterSubsystem(subsystem);
+        }
+    }
+
+    /**
+     * One robot loop's worth of scheduling.
+     */
+    @Benchmark
+    public void run() {
+        scheduler.run();
+    }
+
+    private static class FakeSubsystem extends SubsystemBase {
+
+        private final PIDController pid = new PIDController(1, 0, 0.1);
+        private double position;
+    }
+
+    // Never finishes, and keeps running while the robot is disabled (which it
+    // always is here)
+    private static class FakeCommand extends CommandBase {
+
+        private final FakeSubsystem subsystem;
+
+        FakeCommand(FakeSubsystem subsystem) {
+            this.subsystem = subsystem;
+            addRequirements(subsystem);
+        }
+
+        @Override
+        public void execute() {
+            subsystem.position += subsystem.pid.calculate(subsystem.position, 1) * 0.02;
+        }
+
+        @Override
+        public boolean runsWhenDisabled() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package frc.robot.examples;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.wpilibj.drive.DifferentialDrive;
+import edu.wpi.first.wpilibj.drive.DifferentialDrive.WheelSpeeds;
+
+/**
+ *
+ * The math that turns joystick inputs into wheel speeds for each of
+ * TripleModeDrivingRobot's drive modes, with squared inputs the way the
+ * robot uses them. This is only the math, not talking to the motors.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DriveMathBenchmark {
+
+    private double input;
+
+    // Joystick values that sweep back and forth across the whole range
+    private double next() {
+        input += 0.0137;
+        if (input > 1) {
+            input = -1;
+        }
+        return input;
+    }
+
+    @Benchmark
+    public WheelSpeeds tank() {
+        return DifferentialDrive.tankDriveIK(next(), -input, true);
+    }
+
+    @Benchmark
+    public WheelSpeeds arcade() {
+        return DifferentialDrive.arcadeDriveIK(next(), input * 0.5, true);
+    }
+
+    @Benchmark
+    public WheelSpeeds curvature() {
+        return DifferentialDrive.curvatureDriveIK(next(), input * 0.5, false);
+    }
+
+    @Benchmark
+    public WheelSpeeds curvatureTurnInPlace() {
+        return DifferentialDrive.curvatureDriveIK(next(), input * 0.5, true);
+    }
+}
@@ -0,0 +1,94 @@
+package frc.robot.examples;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.sim.RomiPlant;
+import frc.robot.sim.SimulatedRobot;
+
+/**
+ *
+ * How long one 20ms robot loop of each example takes, running enabled in
+ * teleop against the simulator (see {@link SimulatedRobot}), with the wheels
+ * driven by a {@link RomiPlant}. For the examples with a fast control loop,
+ * this includes all of its runs in those 20ms too.
+ *
+ * This is the whole loop: reading the sensors, the robot's own code,
+ * setting the motors and the simulated hardware underneath. Compare it to
+ * the 20,000us the loop is allowed.
+ *
+ * Each robot runs in its own forked JVM, since only one simulated robot can
+ * run at a time.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExampleLoopBenchmark {
+
+    @Param({
+        "frc.robot.examples.TripleModeDrivingRobot",
+        "frc.robot.examples.PadDrivingRobot",
+        "frc.robot.examples.PIDPositionControlledRobot",
+        "frc.robot.examples.PIDExperimentationRobot",
+        "frc.robot.examples.PIDTurningControlledRobot",
+        "frc.robot.examples.OnOffRobot",
+        "frc.robot.examples.ManualPositionControlledRobot",
+        "frc.robot.examples.TankDrivingRobot",
+        "frc.robot.EmptyRobot"
+    })
+    public String robot;
+
+    private SimulatedRobot sim;
+    private RomiPlant plant;
+    private double period;
+
+    @Setup
+    public void setup() {
+        // Nobody is going to connect, so don't spend time serving the
+        // dashboard. This has to come before the robot starts its server.
+        NetworkTableInstance.getDefault().startLocal();
+        sim = new SimulatedRobot(SimulatedRobot.forClass(robot));
+
+        plant = new RomiPlant();
+        period = sim.getRobot().getPeriod();
+        sim.zeroEncoders(0, 0);
+        sim.step(period);
+        sim.setEnabled(true);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        sim.close();
+    }
+
+    /**
+     * Moves the wheels on by one loop, then runs the robot for one loop.
+     */
+    @Benchmark
+    public long loop() {
+        plant.setOutputs(sim.getLeftOutput(), sim.getRightOutput());
+        plant.step(period);
+        sim.setEncoders(plant.getLeftDistance(), plant.getRightDistance(),
+                plant.getLeftRate(), plant.getRightRate());
+        sim.setGyro(plant.getHeading(), plant.getTurnRate());
+        sim.step(period);
+        return sim.getLoopCount();
+    }
+}
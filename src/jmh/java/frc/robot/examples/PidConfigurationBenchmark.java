@@ -0,0 +1,102 @@
+package frc.robot.examples;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.math.controller.PIDController;
+import frc.robot.ProfiledWheelController;
+import frc.robot.WheelVelocityController;
+import frc.robot.timing.ControlLoop;
+
+/**
+ *
+ * One PID calculation, set up the way each of the examples uses it:
+ *
+ * - positionP: P only, like PIDExperimentationRobot
+ * - positionPid: P, I and D, like PIDPositionControlledRobot
+ * - turning: continuous input from -180 to 180, like PIDTurningControlledRobot
+ * - profiled: a ProfiledWheelController (profile + PID + feedforward), like
+ * PadDrivingRobot
+ * - velocity: a WheelVelocityController, like TripleModeDrivingRobot
+ *
+ * The measurement moves a little every call, so the JIT can't work out the
+ * answer ahead of time.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PidConfigurationBenchmark {
+
+    private PIDController positionP;
+    private PIDController positionPid;
+    private PIDController turning;
+    private ProfiledWheelController profiled;
+    private WheelVelocityController velocity;
+    private double measurement;
+
+    @Setup
+    public void setup() {
+        positionP = new PIDController(1.0, 0, 0, ControlLoop.DEFAULT_PERIOD);
+        positionP.setTolerance(0.5);
+
+        positionPid = new PIDController(0.15, 0.03, 0.05, ControlLoop.DEFAULT_PERIOD);
+        positionPid.setTolerance(0.5);
+
+        turning = new PIDController(1.0, 0, 0, ControlLoop.DEFAULT_PERIOD);
+        turning.enableContinuousInput(-180, 180);
+        turning.setTolerance(1.0);
+
+        profiled = new ProfiledWheelController(18, 60, 0.02);
+        profiled.reset(0, 0);
+        profiled.setGoal(1e9);
+
+        velocity = new WheelVelocityController();
+    }
+
+    private double next() {
+        measurement += 0.001;
+        if (measurement > 100) {
+            measurement = -100;
+        }
+        return measurement;
+    }
+
+    @Benchmark
+    public double positionP() {
+        return positionP.calculate(next(), 12);
+    }
+
+    @Benchmark
+    public double positionPid() {
+        return positionPid.calculate(next(), 12);
+    }
+
+    @Benchmark
+    public double turning() {
+        return turning.calculate(next(), 90);
+    }
+
+    @Benchmark
+    public double profiled() {
+        return profiled.calculate(next());
+    }
+
+    @Benchmark
+    public double velocity() {
+        return velocity.calculate(next(), 15, 7.2);
+    }
+}
@@ -0,0 +1,88 @@
+package frc.robot.filter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frc.robot.RobotParts;
+
+/**
+ *
+ * The heading work RobotParts does every time it reads the sensors (see
+ * RobotParts#getAngle), with and without the wheel-based heading mixed in.
+ *
+ * "rounded" is the old getAngle: round the gyro to a whole degree, then wrap
+ * it with loops. It's here so we can see what the extra accuracy costs.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HeadingEstimatorBenchmark {
+
+    private HeadingEstimator gyroOnly;
+    private HeadingEstimator fused;
+    private double time;
+    private double angle;
+    private double left;
+    private double right;
+
+    @Setup
+    public void setup() {
+        gyroOnly = new HeadingEstimator(RobotParts.TRACK_WIDTH_INCHES);
+        fused = new HeadingEstimator(RobotParts.TRACK_WIDTH_INCHES);
+        fused.setEncoderTimeConstant(1.0);
+    }
+
+    // A robot spinning clockwise, read every 5ms. Every couple of turns the
+    // gyro goes back a few whole turns, so the old wrapping loops don't get
+    // slower and slower as the angle grows.
+    private void next() {
+        time += 0.005;
+        angle += 0.45;
+        if (angle > 720) {
+            angle -= 1440;
+        }
+        left += 0.02;
+        right -= 0.02;
+    }
+
+    @Benchmark
+    public double gyroOnly() {
+        next();
+        gyroOnly.update(angle, 90, left, right, time, false);
+        return gyroOnly.getHeading();
+    }
+
+    @Benchmark
+    public double fused() {
+        next();
+        fused.update(angle, 90, left, right, time, false);
+        return fused.getHeading();
+    }
+
+    @Benchmark
+    public double rounded() {
+        next();
+        double rounded = Math.round(angle);
+        while (rounded > 180) {
+            rounded = rounded - 360;
+        }
+        while (rounded < -180) {
+            rounded = rounded + 360;
+        }
+        return rounded;
+    }
+}
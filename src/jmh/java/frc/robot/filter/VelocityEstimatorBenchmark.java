@@ -0,0 +1,120 @@
+package frc.robot.filter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frc.robot.RobotParts;
+
+/**
+ *
+ * How long one wheel speed estimate takes. RobotParts does two of these
+ * (one per wheel) every loop.
+ *
+ * The regression estimator is run with a few window sizes to check that a
+ * bigger window doesn't cost any more per reading.
+ *
+ * Run with "./gradlew jmh -PjmhArgs='VelocityEstimatorBenchmark -prof gc'"
+ * to check that updates don't make any garbage.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VelocityEstimatorBenchmark {
+
+    // How many made-up readings to cycle through (a power of two, so
+    // wrapping around is cheap)
+    private static final int READINGS = 1024;
+
+    /**
+     * A wheel speeding up and slowing down, rounded to whole encoder pulses.
+     * Time keeps going up between trips through the readings, since the
+     * estimators ignore readings that go back in time.
+     */
+    @State(Scope.Thread)
+    public static class Readings {
+
+        double[] positions = new double[READINGS];
+        double[] times = new double[READINGS];
+        double offset;
+        int next;
+
+        @Setup
+        public void setupReadings() {
+            double position = 0;
+            for (int i = 0; i < READINGS; i++) {
+                double speed = 15 + 10 * Math.sin(i * 0.05);
+                position += speed * 0.02;
+                positions[i] = Math.round(position / RobotParts.DISTANCE_PER_PULSE) * RobotParts.DISTANCE_PER_PULSE;
+                times[i] = i * 0.02;
+            }
+        }
+
+        double time() {
+            return offset + times[next];
+        }
+
+        double position() {
+            return positions[next];
+        }
+
+        void advance() {
+            next = (next + 1) & (READINGS - 1);
+            if (next == 0) {
+                offset += READINGS * 0.02;
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class AlphaBetaState {
+
+        AlphaBetaVelocityEstimator estimator;
+
+        @Setup
+        public void setup() {
+            estimator = new AlphaBetaVelocityEstimator();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class RegressionState {
+
+        @Param({ "6", "24", "96" })
+        public int window;
+
+        RegressionVelocityEstimator estimator;
+
+        @Setup
+        public void setup() {
+            estimator = new RegressionVelocityEstimator(window);
+        }
+    }
+
+    @Benchmark
+    public double alphaBeta(AlphaBetaState state, Readings readings) {
+        double rate = state.estimator.update(readings.position(), readings.time());
+        readings.advance();
+        return rate;
+    }
+
+    @Benchmark
+    public double regression(RegressionState state, Readings readings) {
+        double rate = state.estimator.update(readings.position(), readings.time());
+        readings.advance();
+        return rate;
+    }
+}
@@ -0,0 +1,108 @@
+package frc.robot.sysid;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ *
+ * Compares our streaming {@link SysIdLoader} against the "obvious" way of
+ * reading a SysId file: have Jackson build a tree of the whole document and
+ * then walk it. The file is read into memory once up front so we're only
+ * measuring parsing, not the disk.
+ *
+ * Run with "./gradlew jmh -PjmhArgs='SysIdLoaderBenchmark -prof gc'" to see
+ * how much garbage each approach makes, too.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SysIdLoaderBenchmark {
+
+    @Param({
+        "data/dadbot-3000/sysid_data20221106-172256.json",
+        "data/dadbot-3000/sysid_data20221106-174834.json"
+    })
+    public String file;
+
+    private byte[] bytes;
+    private ObjectMapper mapper;
+
+    @Setup
+    public void setup() throws IOException {
+        bytes = Files.readAllBytes(Paths.get(file));
+        mapper = new ObjectMapper();
+    }
+
+    /**
+     * Streams every sample into column arrays.
+     */
+    @Benchmark
+    public SysIdData streamingLoad() throws IOException {
+        return SysIdLoader.load(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Streams every sample without keeping any of them, which is how we'd
+     * read a file too big to fit in memory.
+     */
+    @Benchmark
+    public void streamingVisit(Blackhole hole) throws IOException {
+        SysIdLoader.stream(new ByteArrayInputStream(bytes), (run, row) -> hole.consume(row[SysIdRun.TIMESTAMP]));
+    }
+
+    /**
+     * Builds a complete Jackson tree and then copies every sample out of it.
+     */
+    @Benchmark
+    public SysIdData jacksonTree() throws IOException {
+
+        SysIdData data = new SysIdData();
+        double[] row = new double[SysIdRun.COLUMNS];
+
+        JsonNode root = mapper.readTree(bytes);
+        Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getValue().isArray()) {
+                SysIdRun run = new SysIdRun(field.getKey());
+                for (JsonNode sample : field.getValue()) {
+                    for (int c = 0; c < SysIdRun.COLUMNS; c++) {
+                        row[c] = sample.get(c).asDouble();
+                    }
+                    run.add(row);
+                }
+                run.trim();
+                data.putRun(run);
+            } else {
+                data.putMetadata(field.getKey(), field.getValue().asText());
+            }
+        }
+
+        return data;
+    }
+}
@@ -0,0 +1,92 @@
+package frc.robot.vision;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * How long it takes to pack a frame's tags into a {@link VisionMessage} (on
+ * the camera's computer) and unpack it again (on the robot, every time a
+ * frame arrives).
+ *
+ * Run with "./gradlew jmh -PjmhArgs='VisionMessageBenchmark -prof gc'" to
+ * check that neither makes any garbage.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class VisionMessageBenchmark {
+
+    @Param({"0", "1", "4", "16"})
+    public int tags;
+
+    private VisionResult result;
+    private VisionMessage message;
+    private byte[] data;
+    private int length;
+
+    @Setup
+    public void setup() {
+        result = new VisionResult();
+        result.frameId = 1234;
+        result.captureTime = 987_654_321L;
+        result.latency = 0.035;
+        result.width = 640;
+        result.height = 480;
+        result.tagCount = tags;
+        if (tags > 0) {
+            result.cameraTags = tags;
+            result.cameraError = 0.6;
+            result.cameraX = 3.2;
+            result.cameraY = 2.7;
+            result.cameraZ = 0.5;
+            result.cameraYaw = 3.1;
+            result.cameraPitch = 0.08;
+            result.cameraRoll = 0.01;
+        }
+        for (int i = 0; i < tags; i++) {
+            TagDetection tag = result.tags[i];
+            tag.id = i + 1;
+            tag.centerX = 40 * i;
+            tag.centerY = 240;
+            tag.decisionMargin = 150;
+            tag.poseX = 0.1 * i;
+            tag.poseY = -0.2;
+            tag.poseZ = 2.5;
+            tag.rotationX = 0.01;
+            tag.rotationY = 3.1;
+            tag.rotationZ = 0.02;
+        }
+
+        message = new VisionMessage();
+        data = new byte[VisionMessage.MAX_BYTES];
+        length = VisionMessage.encode(result, data);
+    }
+
+    @Benchmark
+    public int encode() {
+        result.frameId++;
+        return VisionMessage.encode(result, data);
+    }
+
+    @Benchmark
+    public VisionMessage decode() {
+        message.decode(data, length);
+        return message;
+    }
+}
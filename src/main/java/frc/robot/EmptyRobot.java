@@ -2,6 +2,7 @@ package frc.robot;
 
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.XboxController;
+import frc.robot.telemetry.Telemetry;
 
 /**
  * 
@@ -19,6 +20,12 @@ public class EmptyRobot extends TimedRobot {
     controller = new XboxController(0);
   }
 
+  @Override
+  public void robotPeriodic() {
+    // hand the dashboard values to the background thread
+    Telemetry.capture();
+  }
+
   @Override
   public void autonomousInit() {
     parts.stop();
@@ -29,6 +36,12 @@ public class EmptyRobot extends TimedRobot {
     parts.stop();
   }
 
+  @Override
+  public void disabledPeriodic() {
+    // keep reading the sensors while disabled, so the gyro can measure its drift
+    parts.readSensors();
+  }
+
   @Override
   public void teleopInit() {
     parts.stop();
@@ -36,6 +49,9 @@ public class EmptyRobot extends TimedRobot {
 
   @Override
   public void teleopPeriodic() {
+    // read all the sensors once, then use parts.sensors for the rest of the loop
+    parts.readSensors();
+
     // what do we do now?
     if (controller.getAButtonPressed()) {
         
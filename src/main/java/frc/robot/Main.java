@@ -10,6 +10,7 @@ import frc.robot.examples.PIDPositionControlledRobot;
 import frc.robot.examples.PIDTurningControlledRobot;
 import frc.robot.examples.PadDrivingRobot;
 import frc.robot.examples.TankDrivingRobot;
+import frc.robot.timing.InstrumentedRobot;
 
 public final class Main {
 
@@ -22,5 +23,9 @@ public final class Main {
         // RobotBase.startRobot(OnOffRobot::new);
         // RobotBase.startRobot(ManualPositionControlledRobot::new);
         // RobotBase.startRobot(EmptyRobot::new);
+
+        // Wrap any of the robots like this to see how long each part of the loop
+        // takes (look under "Loop Timing" in the dashboard).
+        // RobotBase.startRobot(() -> new InstrumentedRobot(TripleModeDrivingRobot::new));
     }
 }
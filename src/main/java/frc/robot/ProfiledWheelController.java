@@ -0,0 +1,150 @@
+package frc.robot;
+
+import edu.wpi.first.math.controller.ProfiledPIDController;
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+
+/**
+ *
+ * Moves one wheel to a position smoothly, instead of slamming the motor to
+ * full power and hoping the PID sorts it out.
+ *
+ * - A TrapezoidProfile plans the move: speed up gently, cruise, then slow
+ * down gently so we arrive at the target already stopped. This stops the
+ * wheels slipping at the start and overshooting at the end.
+ *
+ * - A feedforward (from SysId) works out the voltage the wheel needs to
+ * follow that plan. If the model is good, this does almost all of the work.
+ *
+ * - A PID (inside the ProfiledPIDController) only has to fix the small
+ * difference between the plan and where the wheel actually is.
+ *
+ * Everything is in inches and volts.
+ *
+ */
+public class ProfiledWheelController {
+
+    // How far does the wheel go in one turn (in inches)?
+    public static final double INCHES_PER_ROTATION = Math.PI * RobotParts.WHEEL_DIAMETER_INCHES;
+
+    // The feedforward and position gains from the "Large" data set in
+    // data/dadbot-3000/summary.md. SysId measures in wheel rotations, so
+    // they're divided down to inches here.
+    public static final double KS = 0.12977;
+    public static final double KV = 2.3181 / INCHES_PER_ROTATION;
+    public static final double KA = 0.2372 / INCHES_PER_ROTATION;
+    public static final double KP = 44.437 / INCHES_PER_ROTATION;
+    public static final double KD = 4.4068 / INCHES_PER_ROTATION;
+
+    // How close to the target (inches) and how slow (inches/second) counts as done
+    public static final double POSITION_TOLERANCE = 0.25;
+    public static final double VELOCITY_TOLERANCE = 0.5;
+
+    private final ProfiledPIDController pid;
+    private final SimpleMotorFeedforward feedforward;
+    private final double period;
+    private double maxAcceleration;
+    private double lastVelocity;
+
+    /**
+     * @param maxVelocity top speed, in inches/second
+     * @param maxAcceleration how quickly to speed up and slow down, in inches/second/second
+     * @param period how often {@link #calculate} is called, in seconds
+     */
+    public ProfiledWheelController(double maxVelocity, double maxAcceleration, double period) {
+        this.period = period;
+        this.maxAcceleration = maxAcceleration;
+        pid = new ProfiledPIDController(KP, 0, KD, new TrapezoidProfile.Constraints(maxVelocity, maxAcceleration), period);
+        pid.setTolerance(POSITION_TOLERANCE, VELOCITY_TOLERANCE);
+        feedforward = new SimpleMotorFeedforward(KS, KV, KA);
+    }
+
+    /**
+     * Changes the speed limits. This takes effect straight away, even in the
+     * middle of a move.
+     */
+    public void setConstraints(double maxVelocity, double maxAcceleration) {
+        this.maxAcceleration = maxAcceleration;
+        pid.setConstraints(new TrapezoidProfile.Constraints(maxVelocity, maxAcceleration));
+    }
+
+    /**
+     * Forgets any move in progress, and starts planning from where the wheel
+     * is now. Call this before the first move, and whenever the encoder is reset.
+     */
+    public void reset(double position, double velocity) {
+        pid.reset(position, velocity);
+        pid.setGoal(position);
+        lastVelocity = velocity;
+    }
+
+    /**
+     * Sets where the wheel should end up, in inches.
+     */
+    public void setGoal(double position) {
+        pid.setGoal(position);
+    }
+
+    public double getGoal() {
+        return pid.getGoal().position;
+    }
+
+    /**
+     * Works out the voltage for the wheel. Call this once every period.
+     *
+     * @param position where the wheel is now, in inches
+     * @return the voltage to give the motor
+     */
+    public double calculate(double position) {
+
+        // This moves the plan along by one period, and works out the PID
+        // correction against the new spot in the plan
+        double feedback = pid.calculate(position);
+
+        // Then work out the voltage to follow the plan itself
+        TrapezoidProfile.State setpoint = pid.getSetpoint();
+        double acceleration = (setpoint.velocity - lastVelocity) / period;
+        lastVelocity = setpoint.velocity;
+
+        return feedback + feedforward.calculate(setpoint.velocity, acceleration);
+    }
+
+    /**
+     * @return true once the plan is finished and the wheel is where it should be
+     */
+    public boolean atGoal() {
+        return pid.atGoal();
+    }
+
+    /**
+     * Checks whether it's time to start the next move, so this wheel can
+     * carry straight on into it instead of stopping first. That's either:
+     *
+     * - now, because we've started slowing down for the current goal, or
+     * - now, because the next move is shorter in the direction we're going
+     * (e.g. this is the inside wheel going into a turn), and if we don't start
+     * slowing down for it straight away we'll go past it
+     *
+     * @param delta how far the next move moves this wheel, in inches
+     */
+    public boolean isReadyFor(double delta) {
+        TrapezoidProfile.State setpoint = pid.getSetpoint();
+        double stoppingDistance = setpoint.velocity * setpoint.velocity / (2 * maxAcceleration)
+                + Math.abs(setpoint.velocity) * period;
+
+        double toGoal = pid.getGoal().position - setpoint.position;
+        if (Math.abs(toGoal) <= stoppingDistance) {
+            return true;
+        }
+
+        double toNextGoal = toGoal + delta;
+        return Math.signum(toNextGoal) == Math.signum(setpoint.velocity) && Math.abs(toNextGoal) <= stoppingDistance;
+    }
+
+    /**
+     * @return the ProfiledPIDController, so it can go on the dashboard
+     */
+    public ProfiledPIDController getController() {
+        return pid;
+    }
+}
@@ -1,10 +1,26 @@
 package frc.robot;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Encoder;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.drive.DifferentialDrive;
 import edu.wpi.first.wpilibj.motorcontrol.Spark;
 import edu.wpi.first.wpilibj.romi.RomiGyro;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.filter.HeadingEstimator;
+import frc.robot.filter.VelocityEstimator;
+import frc.robot.filter.VelocityFilter;
+import frc.robot.logging.RingLog;
+import frc.robot.pose.PoseTracker;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.timing.TimedDifferentialDrive;
+import frc.robot.vision.TagLayout;
 
 /**
  *
@@ -14,61 +30,226 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
  * sure that the encoders are returning us the distance the wheel has travelled in inches.
  * This helps when we want to drive the robot a particular distance.
  * 
+ * Call {@link #readSensors()} once at the start of every loop, and then use the
+ * values in {@link #sensors} for the rest of it. Reading the sensors also moves
+ * {@link #pose} along, so it always knows where the robot is on the field.
+ * 
+ * The wheel speeds in {@link #sensors} are smoothed out from the encoder
+ * positions (see frc.robot.filter), because the encoders' own rates are too
+ * noisy to use with much D gain. Use {@link #setVelocityFilter} to pick how.
+ * 
+ * The heading comes from {@link #heading}, which takes the gyro's drift back
+ * out (measuring it whenever the robot is disabled) and can mix in the
+ * heading from the wheels too.
+ * 
  */
 public class RobotParts {
 
+    // Where everything is plugged in on the Romi
+    public static final int LEFT_MOTOR_CHANNEL = 0;
+    public static final int RIGHT_MOTOR_CHANNEL = 1;
+    public static final int LEFT_ENCODER_A = 4;
+    public static final int LEFT_ENCODER_B = 5;
+    public static final int RIGHT_ENCODER_A = 6;
+    public static final int RIGHT_ENCODER_B = 7;
+
     // How many times does each wheel's encoder pulse during a single revolution?
     public static final double PULSES_PER_REV = 1440.0;
 
     // How big are the wheels?
     public static final double WHEEL_DIAMETER_INCHES = 2.75591;
 
+    // How far apart are the wheels?
+    public static final double TRACK_WIDTH_INCHES = 5.551;
+
     // How far has the wheel travelled during a single pulse of the encoder?
     public static final double DISTANCE_PER_PULSE = (Math.PI * WHEEL_DIAMETER_INCHES) / PULSES_PER_REV;
 
+    // How many records does the data log keep? This is 10 minutes of a 200Hz
+    // control loop, and takes about 11MB of disk.
+    public static final int LOG_CAPACITY = 200 * 60 * 10;
+
+    // How wheel speeds are worked out, unless setVelocityFilter says otherwise.
+    // The alpha-beta filter adjusts itself to how often readSensors is called,
+    // so it suits both the 50Hz robot loop and the 200Hz control loops.
+    public static final VelocityFilter DEFAULT_VELOCITY_FILTER = VelocityFilter.ALPHA_BETA;
+
+    // Set this to false to make startLogging do nothing. Replays (see
+    // frc.robot.sim.Replay) do this so they don't log copies of old data.
+    public static volatile boolean loggingAllowed = true;
+
     public final Spark leftMotor;
     public final Spark rightMotor;
     public final Encoder leftEncoder;
     public final Encoder rightEncoder;
     public final DifferentialDrive drive;
     public final RomiGyro gyro;
+    public final SensorSnapshot sensors;
+    public final HeadingEstimator heading;
+    public final PoseTracker pose;
+
+    private RingLog log;
+    private VelocityFilter velocityFilter;
+    private VelocityEstimator leftVelocity;
+    private VelocityEstimator rightVelocity;
 
     public RobotParts() {
 
         // Sets up the left motor. Notice that we use DISTANCE_PER_PULSE so that
         // the encoder will record distance travelled in inches.
-        leftMotor = new Spark(0);
-        leftEncoder = new Encoder(4, 5);
+        leftMotor = new Spark(LEFT_MOTOR_CHANNEL);
+        leftEncoder = new Encoder(LEFT_ENCODER_A, LEFT_ENCODER_B);
         leftEncoder.setDistancePerPulse(DISTANCE_PER_PULSE);
         leftEncoder.reset();
 
         // Sets up the right motor. Notice that this one is inverted, because it's
         // mounted backwards compared to the left wheel.
-        rightMotor = new Spark(1);
+        rightMotor = new Spark(RIGHT_MOTOR_CHANNEL);
         rightMotor.setInverted(true);
-        rightEncoder = new Encoder(6, 7);
+        rightEncoder = new Encoder(RIGHT_ENCODER_A, RIGHT_ENCODER_B);
         rightEncoder.setDistancePerPulse(DISTANCE_PER_PULSE);
         rightEncoder.reset();
 
-        drive = new DifferentialDrive(leftMotor, rightMotor);
+        // This is a regular DifferentialDrive that also keeps track of how long it
+        // takes to talk to the motors (see frc.robot.timing).
+        drive = new TimedDifferentialDrive(leftMotor, rightMotor);
 
         gyro = new RomiGyro();
         gyro.reset();
 
-        SmartDashboard.putData("Robot Parts", (builder) -> {
-            builder.addDoubleProperty("Encoder Left (in)", leftEncoder::getDistance, null);
-            builder.addDoubleProperty("Encoder Right (in)", rightEncoder::getDistance, null);
-            builder.addDoubleProperty("Gyro Angle (deg)", this::getAngle, null);
-            builder.addDoubleProperty("Gyro Rate (dps)", gyro::getRate, null);
+        // Keeps track of which way we're facing. To mix in the heading from
+        // the wheels as well as the gyro, use heading.setEncoderTimeConstant(...).
+        heading = new HeadingEstimator(TRACK_WIDTH_INCHES);
+
+        sensors = new SensorSnapshot();
+        setVelocityFilter(DEFAULT_VELOCITY_FILTER);
+
+        // Keeps track of where we are on the field, using the wheels, the gyro
+        // and any tags the camera can see. It needs to know where the tags
+        // are to use them, so load the field's layout (see TagLayout).
+        pose = new PoseTracker();
+        Path layoutFile = Filesystem.getOperatingDirectory().toPath().resolve(TagLayout.FIELD_2023);
+        try {
+            pose.addTags(TagLayout.load(layoutFile));
+        } catch (IOException e) {
+            DriverStation.reportWarning("Couldn't load the tag layout, so the camera won't be used: "
+                    + e.getMessage(), false);
+        }
+        pose.startVision();
+
+        // The dashboard shows the latest snapshot, so it doesn't have to go back
+        // to the hardware for its own copy of every value.
+        Telemetry.putData("Robot Parts", (builder) -> {
+            builder.addDoubleProperty("Encoder Left (in)", () -> sensors.leftDistance, null);
+            builder.addDoubleProperty("Encoder Right (in)", () -> sensors.rightDistance, null);
+            builder.addDoubleProperty("Rate Left (in/s)", () -> sensors.leftRate, null);
+            builder.addDoubleProperty("Rate Right (in/s)", () -> sensors.rightRate, null);
+            builder.addDoubleProperty("Raw Rate Left (in/s)", () -> sensors.leftRawRate, null);
+            builder.addDoubleProperty("Raw Rate Right (in/s)", () -> sensors.rightRawRate, null);
+            builder.addDoubleProperty("Gyro Angle (deg)", () -> sensors.angle, null);
+            builder.addDoubleProperty("Gyro Rate (dps)", () -> sensors.gyroRate, null);
+            builder.addDoubleProperty("Gyro Bias (dps)", heading::getBias, null);
         });
+        Telemetry.putData("Pose", (builder) -> {
+            builder.addDoubleProperty("X (m)", pose::getX, null);
+            builder.addDoubleProperty("Y (m)", pose::getY, null);
+            builder.addDoubleProperty("Heading (deg)", () -> Math.toDegrees(pose.getHeading()), null);
+        });
+    }
+
+    /**
+     * Reads every sensor exactly once and saves the values in {@link #sensors}.
+     * Call this at the start of each loop, before anything needs a reading.
+     */
+    public void readSensors() {
+        sensors.timestamp = Timer.getFPGATimestamp();
+        sensors.leftDistance = leftEncoder.getDistance();
+        sensors.rightDistance = rightEncoder.getDistance();
+        sensors.leftRawRate = leftEncoder.getRate();
+        sensors.rightRawRate = rightEncoder.getRate();
+        if (leftVelocity == null) {
+            sensors.leftRate = sensors.leftRawRate;
+            sensors.rightRate = sensors.rightRawRate;
+        } else {
+            sensors.leftRate = leftVelocity.update(sensors.leftDistance, sensors.timestamp);
+            sensors.rightRate = rightVelocity.update(sensors.rightDistance, sensors.timestamp);
+        }
+
+        // The robot should be sitting still while it's disabled, so that's
+        // when we measure the gyro's drift
+        heading.update(gyro.getAngle(), gyro.getRate(), sensors.leftDistance, sensors.rightDistance,
+                sensors.timestamp, DriverStation.isDisabled());
+        sensors.angle = heading.getHeading();
+        sensors.gyroRate = heading.getRate();
+        pose.update(sensors);
+    }
+
+    /**
+     * Picks how the wheel speeds in {@link #sensors} are worked out. The new
+     * filter starts from scratch, so its speeds will read zero for a loop or
+     * two.
+     */
+    public void setVelocityFilter(VelocityFilter filter) {
+        velocityFilter = filter;
+        leftVelocity = filter.create();
+        rightVelocity = filter.create();
+    }
+
+    public VelocityFilter getVelocityFilter() {
+        return velocityFilter;
+    }
+
+    /**
+     * Starts recording everything to a log file in the "logs" directory, named
+     * after the current time (e.g. robot-20221106-172256.rlog). After this,
+     * each call to {@link #log(double, double)} adds a record.
+     */
+    public void startLogging() {
+        if (log != null || !loggingAllowed) {
+            return;
+        }
+
+        String name = "robot-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".rlog";
+        Path file = Filesystem.getOperatingDirectory().toPath().resolve("logs").resolve(name);
+        try {
+            log = RingLog.create(file, LOG_CAPACITY);
+        } catch (IOException e) {
+            DriverStation.reportError("Couldn't start the data log: " + e.getMessage(), false);
+        }
+    }
+
+    /**
+     * Records this loop's sensor readings and motor outputs, if logging has
+     * been started. Call this at the end of the loop, after setting the motors.
+     *
+     * @param leftSetpoint where the left wheel is trying to get to (or NaN)
+     * @param rightSetpoint where the right wheel is trying to get to (or NaN)
+     */
+    public void log(double leftSetpoint, double rightSetpoint) {
+        if (log != null) {
+            log.record(sensors, leftMotor.get(), rightMotor.get(), leftSetpoint, rightSetpoint,
+                    RobotController.getBatteryVoltage());
+        }
     }
 
     /**
      * Convenience method that resets both encoders at the same time.
      */
     public void resetEncoders() {
+
+        // The wheels haven't actually moved, so tell the speed filters not to
+        // count the jump back to zero
+        if (leftVelocity != null) {
+            leftVelocity.shift(-sensors.leftDistance);
+            rightVelocity.shift(-sensors.rightDistance);
+        }
+
         leftEncoder.reset();
         rightEncoder.reset();
+        sensors.leftDistance = 0;
+        sensors.rightDistance = 0;
+        heading.resetEncoders();
+        pose.resetEncoders();
     }
 
     /**
@@ -86,17 +267,11 @@ public class RobotParts {
     }
 
     /**
-     * Convenience method to read the current angle from the gyro to within a degree. This
-     * is handy because fractions of degrees are usually too small to worry about.
+     * Convenience method to read which way the robot is facing, in degrees
+     * between -180 and 180 (clockwise is positive). This is as of the last
+     * {@link #readSensors()}, with the gyro's drift taken out.
      */
     public double getAngle() {
-        double angle = Math.round(gyro.getAngle());
-        while (angle > 180) {
-            angle = angle - 360;
-        }
-        while (angle < -180) {
-            angle = angle + 360;
-        }
-        return angle;
+        return heading.getHeading();
     }
 }
@@ -0,0 +1,41 @@
+package frc.robot;
+
+/**
+ *
+ * This holds a copy of every sensor reading on the robot, taken all at once
+ * at the start of a loop (see {@link RobotParts#readSensors()}).
+ *
+ * Why bother? Every call to something like leftEncoder.getDistance() goes
+ * all the way out to the hardware layer. If we ask three times in the same
+ * loop, we do that work three times, and we might even get three slightly
+ * different answers. Reading everything once and then using these plain
+ * numbers for the rest of the loop is faster and more consistent.
+ *
+ * There's only ever one of these per RobotParts, and it's reused every loop,
+ * so reading the sensors never creates any garbage for Java to clean up.
+ *
+ */
+public class SensorSnapshot {
+
+    // When was this snapshot taken (in seconds)?
+    public double timestamp;
+
+    // How far has each wheel travelled (in inches)?
+    public double leftDistance;
+    public double rightDistance;
+
+    // How fast is each wheel going (in inches per second)? These are
+    // smoothed out (see RobotParts#setVelocityFilter), so use these ones.
+    public double leftRate;
+    public double rightRate;
+
+    // The encoders' own, unfiltered, idea of the wheel speeds
+    public double leftRawRate;
+    public double rightRawRate;
+
+    // Which way is the robot pointing (in degrees, between -180 and 180)?
+    public double angle;
+
+    // How fast is the robot turning (in degrees per second)?
+    public double gyroRate;
+}
@@ -0,0 +1,97 @@
+package frc.robot;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+
+/**
+ *
+ * Keeps one wheel turning at a set speed, no matter how flat the battery is
+ * or how much friction that side of the robot has.
+ *
+ * - A feedforward (from SysId) works out the voltage the wheel needs to go at
+ * the speed we want. This does most of the work.
+ *
+ * - A PID adds a few more volts if the wheel is going slower than it should
+ * (or takes a few off if it's too fast).
+ *
+ * The answer is in volts, not in "percent output". Giving it to the motor
+ * with setVoltage() turns it into a percent using the battery voltage we just
+ * measured, so a tired battery gets asked for a bigger share of what it has
+ * left, and the wheel speed stays the same.
+ *
+ * Everything is in inches and volts.
+ *
+ */
+public class WheelVelocityController {
+
+    // The feedforward and velocity gains from the "Large" data set in
+    // data/dadbot-3000/summary.md. SysId measures in wheel rotations, so
+    // they're divided down to inches here. We don't use Ka: joystick inputs
+    // jump around too much for it to help.
+    public static final double KS = ProfiledWheelController.KS;
+    public static final double KV = ProfiledWheelController.KV;
+    public static final double KP = 2.7912 / ProfiledWheelController.INCHES_PER_ROTATION;
+
+    // The most voltage we plan to use for cruising. The Romi's batteries start
+    // out at around 7.2 volts, so this leaves the PID some room to catch up
+    // even once they've run down a bit.
+    public static final double MAX_CRUISE_VOLTAGE = 6;
+
+    // The fastest speed we ask for (in inches/second): whatever the
+    // feedforward says we can reach with MAX_CRUISE_VOLTAGE
+    public static final double MAX_SPEED = (MAX_CRUISE_VOLTAGE - KS) / KV;
+
+    private final PIDController pid;
+    private final SimpleMotorFeedforward feedforward;
+    private double setpoint;
+
+    public WheelVelocityController() {
+        pid = new PIDController(KP, 0, 0);
+        feedforward = new SimpleMotorFeedforward(KS, KV);
+    }
+
+    /**
+     * Forgets the last speed, so the PID starts fresh.
+     */
+    public void reset() {
+        pid.reset();
+        setpoint = 0;
+    }
+
+    /**
+     * Works out the voltage for the wheel. Call this once every loop.
+     *
+     * @param speed how fast the wheel is turning now, in inches/second
+     * @param targetSpeed how fast it should be turning, in inches/second
+     * @param batteryVolts the battery voltage, which is the most the motor can get
+     * @return the voltage to give the motor
+     */
+    public double calculate(double speed, double targetSpeed, double batteryVolts) {
+        setpoint = targetSpeed;
+
+        // A wheel that's meant to be stopped gets no power at all, instead of
+        // the PID buzzing it back and forth around zero
+        if (targetSpeed == 0) {
+            pid.reset();
+            return 0;
+        }
+
+        double volts = feedforward.calculate(targetSpeed) + pid.calculate(speed, targetSpeed);
+        return MathUtil.clamp(volts, -batteryVolts, batteryVolts);
+    }
+
+    /**
+     * @return the last speed we were asked for, in inches/second
+     */
+    public double getSetpoint() {
+        return setpoint;
+    }
+
+    /**
+     * @return the PIDController, so it can go on the dashboard
+     */
+    public PIDController getController() {
+        return pid;
+    }
+}
@@ -0,0 +1,69 @@
+package frc.robot.auto;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+
+/**
+ *
+ * One autonomous path: where it starts, the points it goes through on the
+ * way, and where (and which way round) it ends up. Positions are in meters,
+ * measured from where the robot starts, with X straight ahead and Y to the
+ * left.
+ *
+ * The actual path is made by {@link #generate()}, which fits a smooth curve
+ * through the points and works out how fast to go along it. That's too slow
+ * to do while the robot is waiting to move, so it's done ahead of time (see
+ * {@link TrajectoryCache}).
+ *
+ */
+public class AutoRoutine {
+
+    public final String name;
+    public final Pose2d start;
+    public final List<Translation2d> interior;
+    public final Pose2d end;
+
+    // Set this to drive the whole path backwards
+    public final boolean reversed;
+
+    public AutoRoutine(String name, Pose2d start, List<Translation2d> interior, Pose2d end, boolean reversed) {
+        this.name = name;
+        this.start = start;
+        this.interior = List.copyOf(interior);
+        this.end = end;
+        this.reversed = reversed;
+    }
+
+    /**
+     * Works out the path (this takes a while, see the class comment).
+     */
+    public Trajectory generate() {
+        return TrajectoryGenerator.generateTrajectory(start, interior, end, AutoRoutines.createConfig(reversed));
+    }
+
+    // Writes out everything that changes the path, so the cache can tell
+    // when it's out of date
+    void writeDefinition(DataOutputStream out) throws IOException {
+        out.writeUTF(name);
+        writePose(out, start);
+        out.writeInt(interior.size());
+        for (Translation2d point : interior) {
+            out.writeDouble(point.getX());
+            out.writeDouble(point.getY());
+        }
+        writePose(out, end);
+        out.writeBoolean(reversed);
+    }
+
+    private static void writePose(DataOutputStream out, Pose2d pose) throws IOException {
+        out.writeDouble(pose.getX());
+        out.writeDouble(pose.getY());
+        out.writeDouble(pose.getRotation().getRadians());
+    }
+}
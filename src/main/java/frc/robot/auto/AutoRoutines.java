@@ -0,0 +1,83 @@
+package frc.robot.auto;
+
+import java.util.List;
+
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.DifferentialDriveKinematics;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.constraint.DifferentialDriveVoltageConstraint;
+import edu.wpi.first.math.util.Units;
+import frc.robot.RobotParts;
+
+/**
+ *
+ * The autonomous routines the robot knows, and the numbers that decide how
+ * fast it can follow them.
+ *
+ * The feedforward and feedback gains come from our SysId runs (see the
+ * sysid_data20221106-174834.json section of data/dadbot-3000/characterization.md).
+ * SysId measured the wheels in rotations, so they're converted to meters
+ * here, since that's what WPILib's path following works in.
+ *
+ * If you change anything in here, the cached paths are automatically
+ * regenerated the next time they're loaded (see {@link TrajectoryCache}).
+ *
+ */
+public final class AutoRoutines {
+
+    // How far does the robot go for each turn of a wheel (in meters)?
+    public static final double WHEEL_CIRCUMFERENCE_METERS = Math.PI * Units.inchesToMeters(RobotParts.WHEEL_DIAMETER_INCHES);
+
+    // How far apart are the wheels (in meters)?
+    public static final double TRACK_WIDTH_METERS = Units.inchesToMeters(RobotParts.TRACK_WIDTH_INCHES);
+
+    // Feedforward, in volts, volts per meter/second and volts per meter/second/second
+    public static final double KS = 0.10515;
+    public static final double KV = 2.34092 / WHEEL_CIRCUMFERENCE_METERS;
+    public static final double KA = 0.26473 / WHEEL_CIRCUMFERENCE_METERS;
+
+    // How many extra volts to use for each meter/second the wheel is too slow
+    public static final double VELOCITY_KP = 2.8575 / WHEEL_CIRCUMFERENCE_METERS;
+
+    // Speed limits for the paths. The voltage limit leaves some headroom for
+    // the feedback to catch up when the robot falls behind.
+    public static final double MAX_SPEED = 0.5;
+    public static final double MAX_ACCELERATION = 0.5;
+    public static final double MAX_VOLTAGE = 6;
+
+    public static final DifferentialDriveKinematics KINEMATICS = new DifferentialDriveKinematics(TRACK_WIDTH_METERS);
+    public static final SimpleMotorFeedforward FEEDFORWARD = new SimpleMotorFeedforward(KS, KV, KA);
+
+    // Every routine. The first one is the default on the dashboard.
+    public static final List<AutoRoutine> ROUTINES = List.of(
+            new AutoRoutine("Straight",
+                    new Pose2d(0, 0, new Rotation2d()),
+                    List.of(),
+                    new Pose2d(1.0, 0, new Rotation2d()),
+                    false),
+            new AutoRoutine("S Curve",
+                    new Pose2d(0, 0, new Rotation2d()),
+                    List.of(new Translation2d(0.4, 0.2), new Translation2d(0.8, -0.2)),
+                    new Pose2d(1.2, 0, new Rotation2d()),
+                    false),
+            new AutoRoutine("Back Up",
+                    new Pose2d(0, 0, new Rotation2d()),
+                    List.of(),
+                    new Pose2d(-0.5, 0, new Rotation2d()),
+                    true));
+
+    private AutoRoutines() { }
+
+    /**
+     * The limits every path is made with.
+     */
+    public static TrajectoryConfig createConfig(boolean reversed) {
+        return new TrajectoryConfig(MAX_SPEED, MAX_ACCELERATION)
+                .setKinematics(KINEMATICS)
+                .addConstraint(new DifferentialDriveVoltageConstraint(FEEDFORWARD, KINEMATICS, MAX_VOLTAGE))
+                .setReversed(reversed);
+    }
+}
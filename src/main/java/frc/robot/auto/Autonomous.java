@@ -0,0 +1,160 @@
+package frc.robot.auto;
+
+import java.util.Map;
+
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.controller.RamseteController;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Transform2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.DifferentialDriveWheelSpeeds;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.RobotParts;
+import frc.robot.telemetry.Telemetry;
+
+/**
+ *
+ * Drives one of the paths in {@link AutoRoutines} during autonomous. Pick
+ * the routine with "Autonomous Routine" on the dashboard.
+ *
+ * Following a path takes three pieces, working together:
+ *
+ * - A RamseteController compares where we are with where the path says we
+ * should be right now, and works out how fast we should be going and turning
+ * to get back on track.
+ *
+ * - A feedforward (from SysId) turns the speed each wheel should be going
+ * into a voltage. This does most of the work.
+ *
+ * - A PID controller on each wheel adds a bit more voltage if the wheel is
+ * going slower than it should (and a bit less if it's too fast).
+ *
+ * The paths are measured from wherever the robot starts, not from a spot on
+ * the field, so "where we are" here is how far we've come since the start,
+ * from the wheels and gyro alone (parts.pose's odometry). parts.pose's own
+ * guess is left alone: it's in field coordinates, and it gets pulled around
+ * by the camera whenever a tag comes into view, which is fine for knowing
+ * where we are but would make the path follower jerk after every jump.
+ *
+ * All of the paths are loaded when this is created (in robotInit), so the
+ * robot can start moving on the very first loop of autonomous.
+ *
+ * Use it like this:
+ *
+ * - autonomousInit: call {@link #start()}
+ * - autonomousPeriodic: call parts.readSensors(), then {@link #periodic()}
+ *
+ */
+public class Autonomous {
+
+    private final RobotParts parts;
+    private final Map<String, Trajectory> trajectories;
+    private final SendableChooser<String> routineChooser;
+    private final RamseteController ramsete;
+    private final PIDController leftPid;
+    private final PIDController rightPid;
+
+    private Trajectory trajectory;
+    private Pose2d startPose;
+    private double startTime;
+    private double elapsed;
+
+    public Autonomous(RobotParts parts) {
+        this.parts = parts;
+
+        trajectories = TrajectoryCache.loadOrGenerate(
+                Filesystem.getDeployDirectory().toPath().resolve(TrajectoryCache.FILE_NAME),
+                AutoRoutines.ROUTINES);
+
+        ramsete = new RamseteController();
+        leftPid = new PIDController(AutoRoutines.VELOCITY_KP, 0, 0);
+        rightPid = new PIDController(AutoRoutines.VELOCITY_KP, 0, 0);
+
+        routineChooser = new SendableChooser<>();
+        for (AutoRoutine routine : AutoRoutines.ROUTINES) {
+            if (routine == AutoRoutines.ROUTINES.get(0)) {
+                routineChooser.setDefaultOption(routine.name, routine.name);
+            } else {
+                routineChooser.addOption(routine.name, routine.name);
+            }
+        }
+
+        SmartDashboard.putData("Autonomous Routine", routineChooser);
+        Telemetry.putData("Autonomous", (builder) -> {
+            builder.addDoubleProperty("Time (s)", () -> elapsed, null);
+            builder.addBooleanProperty("Finished?", this::isFinished, null);
+        });
+    }
+
+    /**
+     * Starts following the routine picked on the dashboard, from wherever the
+     * robot is now.
+     */
+    public void start() {
+        trajectory = trajectories.get(routineChooser.getSelected());
+        elapsed = 0;
+        if (trajectory == null) {
+            return;
+        }
+
+        // The path is measured from where the robot starts
+        parts.resetEncoders();
+        startPose = parts.pose.getOdometryPose();
+        leftPid.reset();
+        rightPid.reset();
+        startTime = Timer.getFPGATimestamp();
+    }
+
+    /**
+     * Drives the motors to follow the path. Call this every loop, after
+     * reading the sensors.
+     */
+    public void periodic() {
+
+        if (isFinished()) {
+            parts.stop();
+            return;
+        }
+
+        elapsed = parts.sensors.timestamp - startTime;
+        Trajectory.State goal = trajectory.sample(elapsed);
+
+        // Where are we on the path? That's how far we've come since the
+        // start, added on to where the path starts.
+        Pose2d here = trajectory.getInitialPose().transformBy(
+                new Transform2d(startPose, parts.pose.getOdometryPose()));
+
+        // How fast should each wheel be going to stay on (or get back on) the path?
+        ChassisSpeeds speeds = ramsete.calculate(here, goal);
+        DifferentialDriveWheelSpeeds wheels = AutoRoutines.KINEMATICS.toWheelSpeeds(speeds);
+
+        // On a curve, the outside wheel has to speed up faster than the inside one
+        double turn = goal.curvatureRadPerMeter * AutoRoutines.TRACK_WIDTH_METERS / 2;
+        double leftAcceleration = goal.accelerationMetersPerSecondSq * (1 - turn);
+        double rightAcceleration = goal.accelerationMetersPerSecondSq * (1 + turn);
+
+        double leftVolts = AutoRoutines.FEEDFORWARD.calculate(wheels.leftMetersPerSecond, leftAcceleration)
+                + leftPid.calculate(Units.inchesToMeters(parts.sensors.leftRate), wheels.leftMetersPerSecond);
+        double rightVolts = AutoRoutines.FEEDFORWARD.calculate(wheels.rightMetersPerSecond, rightAcceleration)
+                + rightPid.calculate(Units.inchesToMeters(parts.sensors.rightRate), wheels.rightMetersPerSecond);
+
+        parts.leftMotor.setVoltage(leftVolts);
+        parts.rightMotor.setVoltage(rightVolts);
+
+        // We're setting the motors ourselves, so let the drive know
+        // everything is still OK
+        parts.drive.feed();
+    }
+
+    /**
+     * @return true once the path is done (or if there wasn't one)
+     */
+    public boolean isFinished() {
+        return trajectory == null || elapsed > trajectory.getTotalTimeSeconds();
+    }
+}
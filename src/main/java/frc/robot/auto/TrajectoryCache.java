@@ -0,0 +1,230 @@
+package frc.robot.auto;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ *
+ * Saves the autonomous paths to a small binary file, so the robot can load
+ * them in a few milliseconds instead of working them out again (which takes
+ * hundreds of milliseconds on a slow computer).
+ *
+ * The file is made when the code is built ("./gradlew generateTrajectories",
+ * which the simulator runs for you) and lives in src/main/deploy. If it's
+ * missing or out of date when the robot starts, the robot makes the paths
+ * itself and saves a new copy for next time.
+ *
+ * The layout is:
+ *
+ * - a header: MAGIC, VERSION, a fingerprint of the routines and settings that
+ * made the paths, and how many paths there are
+ * - then for each path: its name, how many points it has, and seven numbers
+ * for each point (time, velocity, acceleration, x, y, heading, curvature)
+ *
+ */
+public final class TrajectoryCache {
+
+    // The file name, inside the deploy directory
+    public static final String FILE_NAME = "trajectories.bin";
+
+    // "ROMT", so we don't try to read some other file
+    public static final int MAGIC = 0x524F4D54;
+    public static final int VERSION = 1;
+
+    private TrajectoryCache() { }
+
+    /**
+     * Regenerates the cache file. The file name is the first argument
+     * (default src/main/deploy/trajectories.bin).
+     */
+    public static void main(String... args) throws IOException {
+
+        Path file = Paths.get(args.length > 0 ? args[0] : "src/main/deploy/" + FILE_NAME);
+
+        long start = System.nanoTime();
+        Map<String, Trajectory> trajectories = generate(AutoRoutines.ROUTINES);
+        double millis = (System.nanoTime() - start) / 1e6;
+
+        write(file, fingerprint(AutoRoutines.ROUTINES), trajectories);
+
+        for (Map.Entry<String, Trajectory> entry : trajectories.entrySet()) {
+            System.out.printf("%-12s %4d points, %.2fs%n", entry.getKey(),
+                    entry.getValue().getStates().size(), entry.getValue().getTotalTimeSeconds());
+        }
+        System.out.printf("Generated %d paths in %.1fms, wrote %d bytes to %s%n",
+                trajectories.size(), millis, Files.size(file), file);
+    }
+
+    /**
+     * Loads the paths from a cache file, or makes them (and tries to save
+     * them) if the file is missing, broken or out of date.
+     */
+    public static Map<String, Trajectory> loadOrGenerate(Path file, List<AutoRoutine> routines) {
+
+        long fingerprint = fingerprint(routines);
+        if (Files.exists(file)) {
+            try {
+                Map<String, Trajectory> trajectories = read(file, fingerprint);
+                if (trajectories != null) {
+                    return trajectories;
+                }
+            } catch (IOException e) {
+                // Fall through and make a new one
+            }
+        }
+
+        Map<String, Trajectory> trajectories = generate(routines);
+        try {
+            write(file, fingerprint, trajectories);
+        } catch (IOException e) {
+            // We've still got the paths, they'll just be slow again next time
+            DriverStation.reportWarning("Couldn't save the autonomous paths: " + e.getMessage(), false);
+        }
+        return trajectories;
+    }
+
+    /**
+     * Makes the path for each routine (this is the slow part).
+     */
+    public static Map<String, Trajectory> generate(List<AutoRoutine> routines) {
+        Map<String, Trajectory> trajectories = new LinkedHashMap<>();
+        for (AutoRoutine routine : routines) {
+            trajectories.put(routine.name, routine.generate());
+        }
+        return trajectories;
+    }
+
+    /**
+     * Works out a number that changes whenever anything that goes into making
+     * the paths changes (the routines, the speed limits or the gains).
+     */
+    public static long fingerprint(List<AutoRoutine> routines) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(VERSION);
+            out.writeDouble(AutoRoutines.TRACK_WIDTH_METERS);
+            out.writeDouble(AutoRoutines.KS);
+            out.writeDouble(AutoRoutines.KV);
+            out.writeDouble(AutoRoutines.KA);
+            out.writeDouble(AutoRoutines.MAX_SPEED);
+            out.writeDouble(AutoRoutines.MAX_ACCELERATION);
+            out.writeDouble(AutoRoutines.MAX_VOLTAGE);
+            out.writeInt(routines.size());
+            for (AutoRoutine routine : routines) {
+                routine.writeDefinition(out);
+            }
+            out.flush();
+
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            return crc.getValue();
+        } catch (IOException e) {
+            // Can't happen, it's all in memory
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Saves the paths. The file is written under a temporary name and then
+     * renamed, so a robot that's reading it never sees half a file.
+     */
+    public static void write(Path file, long fingerprint, Map<String, Trajectory> trajectories) throws IOException {
+
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, FILE_NAME, ".tmp");
+
+        try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(temp));
+             DataOutputStream out = new DataOutputStream(stream)) {
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(trajectories.size());
+
+            for (Map.Entry<String, Trajectory> entry : trajectories.entrySet()) {
+                List<Trajectory.State> states = entry.getValue().getStates();
+                out.writeUTF(entry.getKey());
+                out.writeInt(states.size());
+                for (Trajectory.State state : states) {
+                    out.writeDouble(state.timeSeconds);
+                    out.writeDouble(state.velocityMetersPerSecond);
+                    out.writeDouble(state.accelerationMetersPerSecondSq);
+                    out.writeDouble(state.poseMeters.getX());
+                    out.writeDouble(state.poseMeters.getY());
+                    out.writeDouble(state.poseMeters.getRotation().getRadians());
+                    out.writeDouble(state.curvatureRadPerMeter);
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the paths from a file.
+     *
+     * @param fingerprint what {@link #fingerprint(List)} says the paths should
+     * have been made from
+     * @return the paths by name, or null if the file was made from different
+     * routines or settings
+     * @throws IOException if the file can't be read, or isn't a cache file
+     */
+    public static Map<String, Trajectory> read(Path file, long fingerprint) throws IOException {
+
+        // The whole file is only a few tens of KB, so it's quickest to read it in one go
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)));
+
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a trajectory cache: " + file);
+        }
+        if (in.readInt() != VERSION || in.readLong() != fingerprint) {
+            return null;
+        }
+
+        int count = in.readInt();
+        Map<String, Trajectory> trajectories = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+
+            String name = in.readUTF();
+            int size = in.readInt();
+            List<Trajectory.State> states = new ArrayList<>(size);
+            for (int j = 0; j < size; j++) {
+                double time = in.readDouble();
+                double velocity = in.readDouble();
+                double acceleration = in.readDouble();
+                double x = in.readDouble();
+                double y = in.readDouble();
+                double heading = in.readDouble();
+                double curvature = in.readDouble();
+                states.add(new Trajectory.State(time, velocity, acceleration,
+                        new Pose2d(x, y, new Rotation2d(heading)), curvature));
+            }
+            trajectories.put(name, new Trajectory(states));
+        }
+        return trajectories;
+    }
+}
@@ -0,0 +1,40 @@
+package frc.robot.commands;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.subsystems.Drivetrain;
+
+/**
+ *
+ * Arcade drive: one stick drives forward and back, the other sets how fast
+ * to turn. This runs until something else needs the drivetrain.
+ *
+ */
+public class ArcadeDriveCommand extends CommandBase {
+
+    private final Drivetrain drivetrain;
+    private final DoubleSupplier speed;
+    private final DoubleSupplier rotation;
+    private final BooleanSupplier squareInputs;
+
+    public ArcadeDriveCommand(Drivetrain drivetrain, DoubleSupplier speed, DoubleSupplier rotation,
+            BooleanSupplier squareInputs) {
+        this.drivetrain = drivetrain;
+        this.speed = speed;
+        this.rotation = rotation;
+        this.squareInputs = squareInputs;
+        addRequirements(drivetrain);
+    }
+
+    @Override
+    public void execute() {
+        drivetrain.arcadeDrive(speed.getAsDouble(), rotation.getAsDouble(), squareInputs.getAsBoolean());
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        drivetrain.stop();
+    }
+}
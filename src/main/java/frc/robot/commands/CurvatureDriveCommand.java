@@ -0,0 +1,42 @@
+package frc.robot.commands;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.subsystems.Drivetrain;
+
+/**
+ *
+ * Curvature drive: one stick drives forward and back, the other sets how
+ * tight a curve to drive in (like steering a car). You can't turn without
+ * moving unless turnInPlace is true. This runs until something else needs
+ * the drivetrain.
+ *
+ */
+public class CurvatureDriveCommand extends CommandBase {
+
+    private final Drivetrain drivetrain;
+    private final DoubleSupplier speed;
+    private final DoubleSupplier rotation;
+    private final BooleanSupplier turnInPlace;
+
+    public CurvatureDriveCommand(Drivetrain drivetrain, DoubleSupplier speed, DoubleSupplier rotation,
+            BooleanSupplier turnInPlace) {
+        this.drivetrain = drivetrain;
+        this.speed = speed;
+        this.rotation = rotation;
+        this.turnInPlace = turnInPlace;
+        addRequirements(drivetrain);
+    }
+
+    @Override
+    public void execute() {
+        drivetrain.curvatureDrive(speed.getAsDouble(), rotation.getAsDouble(), turnInPlace.getAsBoolean());
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        drivetrain.stop();
+    }
+}
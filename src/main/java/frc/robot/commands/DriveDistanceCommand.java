@@ -0,0 +1,46 @@
+package frc.robot.commands;
+
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.subsystems.Drivetrain;
+
+/**
+ *
+ * Drives straight forward (or backward, for a negative distance) a set
+ * number of inches, with a smooth motion profile on each wheel.
+ *
+ */
+public class DriveDistanceCommand extends CommandBase {
+
+    private final Drivetrain drivetrain;
+    private final double distance;
+
+    /**
+     * @param distance how far to go, in inches
+     */
+    public DriveDistanceCommand(Drivetrain drivetrain, double distance) {
+        this.drivetrain = drivetrain;
+        this.distance = distance;
+        addRequirements(drivetrain);
+    }
+
+    @Override
+    public void initialize() {
+        drivetrain.resetWheels();
+        drivetrain.moveWheels(distance, distance);
+    }
+
+    @Override
+    public void execute() {
+        drivetrain.followWheels();
+    }
+
+    @Override
+    public boolean isFinished() {
+        return drivetrain.atWheelGoals();
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        drivetrain.stop();
+    }
+}
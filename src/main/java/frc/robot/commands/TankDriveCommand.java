@@ -0,0 +1,40 @@
+package frc.robot.commands;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.subsystems.Drivetrain;
+
+/**
+ *
+ * Tank drive: each joystick drives the wheel on its side forward and back.
+ * This runs until something else needs the drivetrain.
+ *
+ */
+public class TankDriveCommand extends CommandBase {
+
+    private final Drivetrain drivetrain;
+    private final DoubleSupplier leftSpeed;
+    private final DoubleSupplier rightSpeed;
+    private final BooleanSupplier squareInputs;
+
+    public TankDriveCommand(Drivetrain drivetrain, DoubleSupplier leftSpeed, DoubleSupplier rightSpeed,
+            BooleanSupplier squareInputs) {
+        this.drivetrain = drivetrain;
+        this.leftSpeed = leftSpeed;
+        this.rightSpeed = rightSpeed;
+        this.squareInputs = squareInputs;
+        addRequirements(drivetrain);
+    }
+
+    @Override
+    public void execute() {
+        drivetrain.tankDrive(leftSpeed.getAsDouble(), rightSpeed.getAsDouble(), squareInputs.getAsBoolean());
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        drivetrain.stop();
+    }
+}
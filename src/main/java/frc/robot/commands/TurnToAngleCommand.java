@@ -0,0 +1,48 @@
+package frc.robot.commands;
+
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.subsystems.Drivetrain;
+
+/**
+ *
+ * Turns in place to face a heading (in degrees, clockwise is positive, like
+ * the gyro).
+ *
+ * The wheels do the turn with a smooth motion profile, moving the same
+ * distance in opposite directions. Once they stop, the gyro checks the
+ * result, and if the wheels slipped we turn a bit more to make up for it.
+ *
+ */
+public class TurnToAngleCommand extends CommandBase {
+
+    private final Drivetrain drivetrain;
+    private final double heading;
+
+    public TurnToAngleCommand(Drivetrain drivetrain, double heading) {
+        this.drivetrain = drivetrain;
+        this.heading = heading;
+        addRequirements(drivetrain);
+    }
+
+    @Override
+    public void initialize() {
+        drivetrain.resetWheels();
+        double arc = Drivetrain.turnArc(drivetrain.getHeadingError(heading));
+        drivetrain.moveWheels(arc, -arc);
+    }
+
+    @Override
+    public void execute() {
+        drivetrain.followWheels();
+    }
+
+    @Override
+    public boolean isFinished() {
+        return drivetrain.atWheelGoals() && drivetrain.finishTurn(heading);
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        drivetrain.stop();
+    }
+}
@@ -2,8 +2,9 @@ package frc.robot.examples;
 
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.XboxController;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.RobotParts;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.tuning.Tuning;
 
 /**
  * 
@@ -56,7 +57,7 @@ public class ManualPositionControlledRobot extends TimedRobot {
         reversePower = 0.7;
         tolerance = 0.1;
 
-        SmartDashboard.putData("Lousy Controller", (builder) -> {
+        Tuning.putData(this, "Lousy Controller", (builder) -> {
 
             // Read only properties
             builder.addDoubleProperty("Distance - Current", () -> currentDistance, null);
@@ -72,6 +73,12 @@ public class ManualPositionControlledRobot extends TimedRobot {
         });
     }
 
+    @Override
+    public void robotPeriodic() {
+        // hand the dashboard values to the background thread
+        Telemetry.capture();
+    }
+
     @Override
     public void autonomousInit() {
         parts.stop();
@@ -82,6 +89,13 @@ public class ManualPositionControlledRobot extends TimedRobot {
         parts.stop();
     }
 
+    @Override
+    public void disabledPeriodic() {
+
+        // Keep reading the gyro while we sit still, so it can measure its drift.
+        parts.readSensors();
+    }
+
     @Override
     public void teleopInit() {
         
@@ -90,14 +104,15 @@ public class ManualPositionControlledRobot extends TimedRobot {
 
         // We use the left wheel's encoder to represent position. The left and right
         // wheels should report roughly the same position.
-        targetDistance = parts.leftEncoder.getDistance();
+        targetDistance = parts.sensors.leftDistance;
     }
 
     @Override
     public void teleopPeriodic() {
 
         // Capture the current position of the wheels.
-        currentDistance = parts.leftEncoder.getDistance();
+        parts.readSensors();
+        currentDistance = parts.sensors.leftDistance;
 
         // Adjust the target distance based on button presses.
         if (controller.getYButtonPressed()) {
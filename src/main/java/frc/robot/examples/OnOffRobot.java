@@ -3,8 +3,9 @@ package frc.robot.examples;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.XboxController;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.RobotParts;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.tuning.Tuning;
 
 /**
  * 
@@ -42,7 +43,7 @@ public class OnOffRobot extends TimedRobot {
         maxSpeed = 0.7;
         speedIncrement = 0.1;
 
-        SmartDashboard.putData("On-Off Robot", (builder) -> {
+        Tuning.putData(this, "On-Off Robot", (builder) -> {
 
             // Read only properties
             builder.addDoubleProperty("Current Speed", () -> currentSpeed, null);
@@ -54,6 +55,12 @@ public class OnOffRobot extends TimedRobot {
         });
     }
 
+    @Override
+    public void robotPeriodic() {
+        // hand the dashboard values to the background thread
+        Telemetry.capture();
+    }
+
     @Override
     public void autonomousInit() {
         parts.stop();
@@ -64,6 +71,13 @@ public class OnOffRobot extends TimedRobot {
         parts.stop();
     }
 
+    @Override
+    public void disabledPeriodic() {
+
+        // Reading the sensors while disabled lets the gyro measure its drift.
+        parts.readSensors();
+    }
+
     @Override
     public void teleopInit() {
         parts.stop();
@@ -74,6 +88,9 @@ public class OnOffRobot extends TimedRobot {
     @Override
     public void teleopPeriodic() {
 
+        // Read the sensors so the dashboard stays up to date.
+        parts.readSensors();
+
         // Read the control and invert the "spinning" flag if necessary.
         if (controller.getBButtonPressed()) {
 
@@ -4,8 +4,10 @@ import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.XboxController;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.RobotParts;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.timing.ControlLoop;
+import frc.robot.tuning.Tuning;
 
 /**
  * 
@@ -17,6 +19,9 @@ import frc.robot.RobotParts;
  * and desired state of the robot to tell you exactly how to drive the motors
  * to where they should be.
  * 
+ * - The PID math runs in its own fast loop (200 times a second by default),
+ * so try different control rates and see how they change the tuning.
+ * 
  */
 public class PIDExperimentationRobot extends TimedRobot {
 
@@ -29,6 +34,17 @@ public class PIDExperimentationRobot extends TimedRobot {
     private double maxSpeed;
     private double tolerance;
 
+    // How often the PID math runs, in seconds
+    private final double controlPeriod;
+
+    public PIDExperimentationRobot() {
+        this(ControlLoop.DEFAULT_PERIOD);
+    }
+
+    public PIDExperimentationRobot(double controlPeriod) {
+        this.controlPeriod = controlPeriod;
+    }
+
     @Override
     public void robotInit() {
 
@@ -40,24 +56,34 @@ public class PIDExperimentationRobot extends TimedRobot {
         maxSpeed = 0.8;
         tolerance = 0.5;
 
-        leftPid = new PIDController(1.0, 0, 0);        
+        // The PIDs need to know how often they run, so the I and D math comes out right
+        leftPid = new PIDController(1.0, 0, 0, controlPeriod);
         leftPid.setTolerance(tolerance);
 
-        rightPid = new PIDController(1.0, 0, 0);
+        rightPid = new PIDController(1.0, 0, 0, controlPeriod);
         rightPid.setTolerance(tolerance);
 
-        SmartDashboard.putData("PID Controller/Left", leftPid);
-        SmartDashboard.putData("PID Controller/Right", rightPid);
-        SmartDashboard.putData("PID Robot", (builder) -> {
+        ControlLoop.start(this, this::controlPeriodic, controlPeriod);
+
+        Tuning.putPid(this, "PID Controller/Left", leftPid);
+        Tuning.putPid(this, "PID Controller/Right", rightPid);
+        Tuning.putData(this, "PID Robot", (builder) -> {
             builder.addDoubleProperty("Max Speed", () -> maxSpeed, (v) -> maxSpeed = v);
             builder.addDoubleProperty("Tolerance", () -> tolerance, (v) -> {
                 tolerance = v;
                 leftPid.setTolerance(tolerance);
                 rightPid.setTolerance(tolerance);
             });
+            builder.addDoubleProperty("Control Rate (Hz)", () -> 1.0 / controlPeriod, null);
         });
     }
 
+    @Override
+    public void robotPeriodic() {
+        // hand the dashboard values to the background thread
+        Telemetry.capture();
+    }
+
     @Override
     public void autonomousInit() {
         parts.stop();
@@ -79,11 +105,11 @@ public class PIDExperimentationRobot extends TimedRobot {
         
         leftPid.reset();
         leftPid.setTolerance(tolerance);
-        leftPid.setSetpoint(parts.leftEncoder.getDistance());
+        leftPid.setSetpoint(parts.sensors.leftDistance);
 
         rightPid.reset();
         leftPid.setTolerance(tolerance);
-        rightPid.setSetpoint(parts.rightEncoder.getDistance());
+        rightPid.setSetpoint(parts.sensors.rightDistance);
     }
 
     @Override
@@ -93,12 +119,23 @@ public class PIDExperimentationRobot extends TimedRobot {
         if (controller.getBButtonPressed()) {
             parts.stop();
             resetPids();
+        }
+    }
+
+    // This runs every controlPeriod seconds, which is a lot more often than
+    // teleopPeriodic. It keeps the sensors up to date all the time, but only
+    // drives the motors during teleop.
+    private void controlPeriodic() {
+
+        // Read all of the sensors once for this loop.
+        parts.readSensors();
+        if (!isTeleop() || !isEnabled()) {
             return;
         }
 
         // Determine the correct wheel speed based on the current and target distance
-        double leftSpeed = leftPid.calculate(parts.leftEncoder.getDistance());
-        double rightSpeed = rightPid.calculate(parts.rightEncoder.getDistance());
+        double leftSpeed = leftPid.calculate(parts.sensors.leftDistance);
+        double rightSpeed = rightPid.calculate(parts.sensors.rightDistance);
 
         // Clamp the speed so we don't go too fast
         leftSpeed = MathUtil.clamp(leftSpeed, -maxSpeed, maxSpeed);
@@ -4,8 +4,10 @@ import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.XboxController;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.RobotParts;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.timing.ControlLoop;
+import frc.robot.tuning.Tuning;
 
 /**
  * 
@@ -18,6 +20,10 @@ import frc.robot.RobotParts;
  * and desired state of the robot to tell you exactly how to drive the motors
  * to where they should be.
  * 
+ * - The PID math runs in its own fast loop (200 times a second by default),
+ * while the buttons are still checked in teleopPeriodic. The faster a PID
+ * runs, the quicker it can catch and correct mistakes.
+ * 
  */
 public class PIDPositionControlledRobot extends TimedRobot {
 
@@ -33,11 +39,23 @@ public class PIDPositionControlledRobot extends TimedRobot {
     private PIDController leftPid;
     private PIDController rightPid;
 
+    // How often the PID math runs, in seconds
+    private final double controlPeriod;
+
+    public PIDPositionControlledRobot() {
+        this(ControlLoop.DEFAULT_PERIOD);
+    }
+
+    public PIDPositionControlledRobot(double controlPeriod) {
+        this.controlPeriod = controlPeriod;
+    }
+
     @Override
     public void robotInit() {
 
         parts = new RobotParts();
         parts.drive.setSafetyEnabled(false);
+        parts.startLogging();
 
         controller = new XboxController(0);
 
@@ -45,15 +63,24 @@ public class PIDPositionControlledRobot extends TimedRobot {
         maxSpeed = 0.7;
         tolerance = 0.5;
 
-        leftPid = new PIDController(0.15, 0.03, 0.05);        
+        // The PIDs need to know how often they run, so the I and D math comes out right
+        leftPid = new PIDController(0.15, 0.03, 0.05, controlPeriod);
         leftPid.setTolerance(0.5);
 
-        rightPid = new PIDController(0.15, 0.03, 0.05);
+        rightPid = new PIDController(0.15, 0.03, 0.05, controlPeriod);
         rightPid.setTolerance(0.5);
 
-        SmartDashboard.putData("PID Controller/Left", leftPid);
-        SmartDashboard.putData("PID Controller/Right", rightPid);
-        SmartDashboard.putData("PID Robot", (builder) -> {
+        // Only let the I part add a little bit of power. For most of a move
+        // the wheels are already going as fast as we let them, and anything
+        // it added up then would carry us well past the target at the end.
+        leftPid.setIntegratorRange(-0.02, 0.02);
+        rightPid.setIntegratorRange(-0.02, 0.02);
+
+        ControlLoop.start(this, this::controlPeriodic, controlPeriod);
+
+        Tuning.putPid(this, "PID Controller/Left", leftPid);
+        Tuning.putPid(this, "PID Controller/Right", rightPid);
+        Tuning.putData(this, "PID Robot", (builder) -> {
             builder.addDoubleProperty("Distance Increment", () -> increment, (v) -> increment = v);
             builder.addDoubleProperty("Max Speed", () -> maxSpeed, (v) -> maxSpeed = v);
             builder.addDoubleProperty("Tolerance", () -> tolerance, (v) -> {
@@ -61,9 +88,16 @@ public class PIDPositionControlledRobot extends TimedRobot {
                 leftPid.setTolerance(tolerance);
                 rightPid.setTolerance(tolerance);
             });
+            builder.addDoubleProperty("Control Rate (Hz)", () -> 1.0 / controlPeriod, null);
         });
     }
 
+    @Override
+    public void robotPeriodic() {
+        // hand the dashboard values to the background thread
+        Telemetry.capture();
+    }
+
     @Override
     public void autonomousInit() {
         parts.stop();
@@ -87,8 +121,8 @@ public class PIDPositionControlledRobot extends TimedRobot {
     }
 
     private void resetPids() {
-        leftPid.setSetpoint(parts.leftEncoder.getDistance());
-        rightPid.setSetpoint(parts.rightEncoder.getDistance());
+        leftPid.setSetpoint(parts.sensors.leftDistance);
+        rightPid.setSetpoint(parts.sensors.rightDistance);
     }
 
     @Override
@@ -107,10 +141,22 @@ public class PIDPositionControlledRobot extends TimedRobot {
         } else if (controller.getAButtonPressed()) {
             incrementPids(-increment);
         }
+    }
+
+    // This runs every controlPeriod seconds, which is a lot more often than
+    // teleopPeriodic. It keeps the sensors up to date all the time, but only
+    // drives the motors during teleop.
+    private void controlPeriodic() {
+
+        // Read all of the sensors once for this loop.
+        parts.readSensors();
+        if (!isTeleop() || !isEnabled()) {
+            return;
+        }
 
         // Determine the correct wheel speed based on the current and target distance
-        double leftSpeed = leftPid.calculate(parts.leftEncoder.getDistance());
-        double rightSpeed = rightPid.calculate(parts.rightEncoder.getDistance());
+        double leftSpeed = leftPid.calculate(parts.sensors.leftDistance);
+        double rightSpeed = rightPid.calculate(parts.sensors.rightDistance);
 
         // Clamp the speed so we don't go too fast
         leftSpeed = MathUtil.clamp(leftSpeed, -maxSpeed, maxSpeed);
@@ -119,5 +165,8 @@ public class PIDPositionControlledRobot extends TimedRobot {
         // Let's do this thing.
         parts.leftMotor.set(leftSpeed);
         parts.rightMotor.set(rightSpeed);
+
+        // Save everything to the data log (if it's been started)
+        parts.log(leftPid.getSetpoint(), rightPid.getSetpoint());
     }
 }
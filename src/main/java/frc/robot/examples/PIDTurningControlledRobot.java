@@ -4,8 +4,10 @@ import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.XboxController;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.RobotParts;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.timing.ControlLoop;
+import frc.robot.tuning.Tuning;
 
 /**
  * 
@@ -18,6 +20,15 @@ import frc.robot.RobotParts;
  * and desired state of the robot to tell you exactly how to drive the motors
  * to where they should be.
  * 
+ * - The PID math runs in its own fast loop (200 times a second by default),
+ * while the buttons are still checked in teleopPeriodic.
+ * 
+ * - The heading is accurate to a fraction of a degree (see
+ * frc.robot.filter.HeadingEstimator), so we can stop within a degree of the
+ * target. Close to the target the PID asks for so little power that the
+ * wheels wouldn't move at all, so we always give them at least "Min Speed"
+ * until we're there.
+ * 
  */
 public class PIDTurningControlledRobot extends TimedRobot {
 
@@ -27,6 +38,7 @@ public class PIDTurningControlledRobot extends TimedRobot {
     // Adjustable properties: how far to turn with each push of a button, and top speed
     private double angleIncrement;
     private double maxSpeed;
+    private double minSpeed;
 
     // These capture the state of the robot - where we want to be, where we are, how
     // current speed of the wheels.
@@ -38,6 +50,17 @@ public class PIDTurningControlledRobot extends TimedRobot {
     // This is the controller we use to calculate the adjustment required
     private PIDController pidController;
 
+    // How often the PID math runs, in seconds
+    private final double controlPeriod;
+
+    public PIDTurningControlledRobot() {
+        this(ControlLoop.DEFAULT_PERIOD);
+    }
+
+    public PIDTurningControlledRobot(double controlPeriod) {
+        this.controlPeriod = controlPeriod;
+    }
+
     @Override
     public void robotInit() {
 
@@ -46,17 +69,21 @@ public class PIDTurningControlledRobot extends TimedRobot {
 
         angleIncrement = 90;
         maxSpeed = 0.6;
+        minSpeed = 0.06;
         targetAngle = 0;
         currentAngle = 0;
         desiredSpeed = 0;
-        tolerance = 5.0;
+        tolerance = 1.0;
 
-        pidController = new PIDController(1.0, 0, 0);
+        // The PID needs to know how often it runs, so the I and D math comes out right
+        pidController = new PIDController(1.0, 0, 0, controlPeriod);
         pidController.enableContinuousInput(-180, 180);
         pidController.setTolerance(tolerance);
 
-        SmartDashboard.putData("PID Controller", pidController);
-        SmartDashboard.putData("PID Robot", (builder) -> {
+        ControlLoop.start(this, this::controlPeriodic, controlPeriod);
+
+        Tuning.putPid(this, "PID Controller", pidController);
+        Tuning.putData(this, "PID Robot", (builder) -> {
 
             // Read only properties
             builder.addDoubleProperty("Target Angle", () -> targetAngle, null);
@@ -66,13 +93,21 @@ public class PIDTurningControlledRobot extends TimedRobot {
             // Read-write properties
             builder.addDoubleProperty("Angle Increment", () -> angleIncrement, (v) -> angleIncrement = v);
             builder.addDoubleProperty("Max Speed", () -> maxSpeed, (v) -> maxSpeed = v);
+            builder.addDoubleProperty("Min Speed", () -> minSpeed, (v) -> minSpeed = v);
             builder.addDoubleProperty("Tolerance", () -> tolerance, (v) -> {
                 tolerance = v;
                 pidController.setTolerance(tolerance);
             });
+            builder.addDoubleProperty("Control Rate (Hz)", () -> 1.0 / controlPeriod, null);
         });
     }
 
+    @Override
+    public void robotPeriodic() {
+        // hand the dashboard values to the background thread
+        Telemetry.capture();
+    }
+
     @Override
     public void autonomousInit() {
         parts.stop();
@@ -87,11 +122,12 @@ public class PIDTurningControlledRobot extends TimedRobot {
     public void teleopInit() {       
         parts.stop();
         parts.resetEncoders();
+        parts.readSensors();
         resetPids();
     }
 
     private void resetPids() {
-        targetAngle = parts.getAngle();
+        targetAngle = parts.sensors.angle;
         pidController.reset();
         pidController.setTolerance(tolerance);
         pidController.setSetpoint(targetAngle);
@@ -107,9 +143,6 @@ public class PIDTurningControlledRobot extends TimedRobot {
             return;
         }
 
-        // Capture the current position of the wheels.
-        currentAngle = parts.getAngle();
-
         // Adjust the target angle based on button presses. Note that we are 
         // "wrapping" the angle to make sure it's between -180 and 180.
         if (controller.getYButtonPressed()) {
@@ -123,12 +156,32 @@ public class PIDTurningControlledRobot extends TimedRobot {
                 targetAngle = targetAngle + 360;
             }
         }
+    }
+
+    // This runs every controlPeriod seconds, which is a lot more often than
+    // teleopPeriodic. It keeps the sensors up to date all the time, but only
+    // drives the motors during teleop.
+    private void controlPeriodic() {
+
+        // Read all of the sensors once for this loop.
+        parts.readSensors();
+        if (!isTeleop() || !isEnabled()) {
+            return;
+        }
+
+        // Capture the current heading of the robot.
+        currentAngle = parts.sensors.angle;
 
         // Determine the correct wheel speed based on the current and target distance
-        desiredSpeed = pidController.calculate(currentAngle, targetAngle);
+        desiredSpeed = pidController.calculate(currentAngle, targetAngle) / angleIncrement;
+
+        // Make sure there's enough power to actually move the wheels, until we get there
+        if (!pidController.atSetpoint() && pidController.getPositionError() != 0) {
+            desiredSpeed += Math.copySign(minSpeed, pidController.getPositionError());
+        }
 
-        // Clamp the speed so we don't go too fast
-        desiredSpeed = MathUtil.clamp(desiredSpeed / angleIncrement, -maxSpeed, maxSpeed);
+        // Clamp the speed so we don't go too fast (even with the extra bit)
+        desiredSpeed = MathUtil.clamp(desiredSpeed, -maxSpeed, maxSpeed);
 
         // Let's do this thing.
         parts.leftMotor.set(desiredSpeed / 2);
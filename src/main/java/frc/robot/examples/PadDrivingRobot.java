@@ -8,23 +8,69 @@
                                                              __/ |                  
                                                             |___/                   
 
-This robot is work in progress; it's got bugs in it. You have been warned.
-
  */
 
 package frc.robot.examples;
 
-import java.util.function.BooleanSupplier;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
 
 import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.XboxController;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
+import frc.robot.ProfiledWheelController;
 import frc.robot.RobotParts;
-
+import frc.robot.commands.DriveDistanceCommand;
+import frc.robot.commands.TurnToAngleCommand;
+import frc.robot.subsystems.Drivetrain;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.tuning.Tuning;
+
+/**
+ * 
+ * This robot moves in fixed steps, like a game piece on a board: Y drives
+ * forward a foot, A drives back a foot, and X and B turn 90 degrees left and
+ * right.
+ * 
+ * This example shows you the following things:
+ * 
+ * - Each wheel has its own {@link ProfiledWheelController}, which plans a
+ * smooth move (speed up, cruise, slow down) and uses the SysId feedforward to
+ * follow it. That means no wheel slip at the start and no overshoot at the end.
+ * 
+ * - Turning is just moving the wheels the same distance in opposite
+ * directions. The gyro checks the result once the robot stops, and tops up
+ * the turn if the wheels slipped.
+ * 
+ * - Each move is a Command that uses the Drivetrain subsystem, run by WPILib's
+ * CommandScheduler. Button presses
+ * go into a queue, so you can press a whole sequence of moves without waiting
+ * for each one to finish.
+ * 
+ * - When there's another move waiting, the next one starts while the current
+ * one is still slowing down, so the robot flows from one move into the next
+ * instead of stopping in between. A drive and then a turn becomes one smooth
+ * curve.
+ * 
+ * - In autonomous, the robot drives round a square on its own, using the
+ * DriveDistanceCommand and TurnToAngleCommand from frc.robot.commands one
+ * after the other.
+ * 
+ * - Run "./gradlew comparePadMoves" to see how much better this is than
+ * driving the motors straight from a PID, or stopping between moves (see
+ * frc.robot.sim.PadMoveComparison).
+ * 
+ */
 public class PadDrivingRobot extends TimedRobot {
 
+    // How many button presses can be waiting at once? Any more are ignored.
+    public static final int MAX_QUEUED_MOVES = 8;
+
     public static enum Direction {
 
         FORWARD, LEFT, BACKWARD, RIGHT;
@@ -35,77 +81,118 @@ public class PadDrivingRobot extends TimedRobot {
     }
 
     private RobotParts parts;
+    private Drivetrain drivetrain;
     private XboxController controller;
-    private BooleanSupplier command;
 
-    private PIDController leftDrivePid;
-    private PIDController rightDrivePid;
-    private double driveIncrement;
-    private double driveSpeed;
-    private double leftSpeed;
-    private double rightSpeed;
+    // The moves waiting to run, and the one that's running now (if any).
+    // We only ever need one command for each direction, so we make them once
+    // up front and reuse them instead of making new ones for every button push.
+    private Deque<Direction> queue;
+    private Map<Direction, MoveCommand> moves;
+    private MoveCommand current;
 
-    private PIDController turnPid;
-    private double turnSpeed;
+    private double driveIncrement;
+    private double maxSpeed;
+    private double maxAcceleration;
     private double targetHeading;
 
     @Override
     public void robotInit() {
 
         parts = new RobotParts();
+        drivetrain = new Drivetrain(parts);
         controller = new XboxController(0);
 
-        leftDrivePid = new PIDController(1.0, 0, 0);
-        rightDrivePid = new PIDController(1.0, 0, 0);
         driveIncrement = 12.0;
-        driveSpeed = 0.8;
-
-        turnPid = new PIDController(1.0, 0, 0);
-        turnPid.enableContinuousInput(-180, 180);
-        turnPid.setTolerance(5.0);
-        turnSpeed = 0.8;
+        maxSpeed = Drivetrain.DEFAULT_MAX_SPEED;
+        maxAcceleration = Drivetrain.DEFAULT_MAX_ACCELERATION;
         targetHeading = Double.NaN;
 
-        SmartDashboard.putData("Pad Driver", (builder) -> {
-            builder.addDoubleProperty("Drive Speed", () -> driveSpeed, (v) -> driveSpeed = v);
+        queue = new ArrayDeque<>();
+        moves = new EnumMap<>(Direction.class);
+        for (Direction direction : Direction.values()) {
+            moves.put(direction, new MoveCommand(direction));
+        }
+
+        Tuning.putData(this, "Pad Driver", (builder) -> {
+            builder.addDoubleProperty("Max Speed (in/s)", () -> maxSpeed, (v) -> {
+                maxSpeed = v;
+                drivetrain.setWheelConstraints(maxSpeed, maxAcceleration);
+            });
+            builder.addDoubleProperty("Max Acceleration (in/s/s)", () -> maxAcceleration, (v) -> {
+                maxAcceleration = v;
+                drivetrain.setWheelConstraints(maxSpeed, maxAcceleration);
+            });
             builder.addDoubleProperty("Drive Distance", () -> driveIncrement, (v) -> driveIncrement = v);
-            builder.addDoubleProperty("Speed (Left)", () -> leftSpeed, null);
-            builder.addDoubleProperty("Speed (Right)", () -> rightSpeed, null);
+            builder.addDoubleProperty("Moves Waiting", () -> queue.size(), null);
+            builder.addDoubleProperty("Volts (Left)", drivetrain::getLeftVolts, null);
+            builder.addDoubleProperty("Volts (Right)", drivetrain::getRightVolts, null);
             builder.addDoubleProperty("Heading - Target", () -> targetHeading, null);
-            builder.addDoubleProperty("Heading - Current", parts::getAngle, null);
-            builder.addDoubleProperty("Turn Speed", () -> turnSpeed, (v) -> turnSpeed = v);
+            builder.addDoubleProperty("Heading - Current", () -> parts.sensors.angle, null);
         });
-        SmartDashboard.putData("PID - Left Drive", leftDrivePid);
-        SmartDashboard.putData("PID - Right Drive", rightDrivePid);
-        SmartDashboard.putData("PID - Turn", turnPid);
+        Tuning.putPid(this, "PID - Left Wheel", drivetrain.getLeftWheel().getController());
+        Tuning.putPid(this, "PID - Right Wheel", drivetrain.getRightWheel().getController());
+    }
+
+    @Override
+    public void robotPeriodic() {
+
+        // Reads the sensors (in Drivetrain.periodic), then runs the current
+        // move (if there is one).
+        CommandScheduler.getInstance().run();
+
+        // hand the dashboard values to the background thread
+        Telemetry.capture();
     }
 
     @Override
     public void autonomousInit() {
-        parts.stop();
+
+        // In autonomous we drive round a square, one side of the pad at a
+        // time, and end up back where we started, facing the same way. This
+        // time each drive and turn is its own command, and the next one only
+        // starts once the last one has finished.
+        CommandScheduler.getInstance().cancelAll();
+        queue.clear();
+        current = null;
+
+        double heading = parts.sensors.angle;
+        SequentialCommandGroup square = new SequentialCommandGroup();
+        for (int side = 0; side < 4; side++) {
+            heading = MathUtil.inputModulus(heading + turnAngle(Direction.RIGHT), -180, 180);
+            square.addCommands(
+                    new DriveDistanceCommand(drivetrain, driveIncrement),
+                    new TurnToAngleCommand(drivetrain, heading));
+        }
+        square.schedule();
     }
 
     @Override
     public void disabledInit() {
-        parts.stop();
+        CommandScheduler.getInstance().cancelAll();
+        queue.clear();
+        drivetrain.stop();
     }
 
     @Override
     public void teleopInit() {
+        reset();
+    }
 
-        // reset the wheel encoders and drive PIDs to 0
-        parts.resetEncoders();
-        leftDrivePid.reset();
-        rightDrivePid.reset();
+    private void reset() {
 
-        // set the turn PID to the current angle heading
-        turnPid.setSetpoint(parts.getAngle());
+        // throw away any moves that haven't happened yet
+        CommandScheduler.getInstance().cancelAll();
+        queue.clear();
+        current = null;
 
-        // no command to fullow right now
-        command = null;
+        // reset the wheel encoders, and plan the next moves from there
+        parts.resetEncoders();
+        drivetrain.resetWheels();
+        targetHeading = parts.sensors.angle;
 
         // tell the wheels to stop
-        parts.stop();
+        drivetrain.stop();
     }
 
     @Override
@@ -114,38 +201,22 @@ public class PadDrivingRobot extends TimedRobot {
         // If someone presses the start button, we'll stop right where we are and reset
         // everything, just like it's the beginning of the round.
         if (controller.getRawButtonPressed(5)) {
-            teleopInit();
+            reset();
             return;
         }
 
-        // If we're in the middle of running a command, let's do it. If it finishes,
-        // reset everything and we're done. Otherwise, the command has set the motors,
-        // so we don't have anything to do here.
-        if (command != null) {
-            if (command.getAsBoolean()) {
-                teleopInit();
-                return;
-            }
-            return;
-        }
-
-        // If we have no command, check for a button press. If there isn't one,
-        // we'll just sit here in place and be done.
+        // Add any button press to the end of the queue.
         Direction next = readDirection();
-        if (next != null) switch (next) {
-
-            case FORWARD:
-            case BACKWARD:
-                command = new DriveCommand(next == Direction.FORWARD);
-                break;
-        
-            case LEFT:
-            case RIGHT:
-                command = new TurnCommand(next == Direction.RIGHT);
-                break;
+        if (next != null && queue.size() < MAX_QUEUED_MOVES) {
+            queue.add(next);
         }
 
-        parts.stop();
+        // If the last move has finished (or handed over to the next one),
+        // start the next move in the queue.
+        if ((current == null || !current.isScheduled()) && !queue.isEmpty()) {
+            current = moves.get(queue.poll());
+            current.schedule();
+        }
     }
 
     private Direction readDirection() {
@@ -161,56 +232,87 @@ public class PadDrivingRobot extends TimedRobot {
         return null;
     }
 
-    public class DriveCommand implements BooleanSupplier {
+    // How far a move turns the robot, in degrees (clockwise, like the gyro)
+    private static double turnAngle(Direction direction) {
+        switch (direction) {
+            case RIGHT:
+                return 90;
+            case LEFT:
+                return -90;
+            default:
+                return 0;
+        }
+    }
 
-        public DriveCommand(boolean forward) {
-            double delta = forward ? driveIncrement : -driveIncrement;
-            leftDrivePid.setSetpoint(parts.leftEncoder.getDistance() + delta);
-            rightDrivePid.setSetpoint(parts.leftEncoder.getDistance() + delta);
+    // How far a move takes the left wheel, in inches
+    private double leftDelta(Direction direction) {
+        switch (direction) {
+            case FORWARD:
+                return driveIncrement;
+            case BACKWARD:
+                return -driveIncrement;
+            default:
+                return Drivetrain.turnArc(turnAngle(direction));
         }
-            
-        public boolean getAsBoolean() {
+    }
 
-            leftSpeed = leftDrivePid.calculate(parts.leftEncoder.getDistance());
-            leftSpeed = MathUtil.clamp(leftSpeed, -driveSpeed, driveSpeed);
+    // How far a move takes the right wheel, in inches
+    private double rightDelta(Direction direction) {
+        return direction.isDrive() ? leftDelta(direction) : -leftDelta(direction);
+    }
 
-            rightSpeed = leftDrivePid.calculate(parts.leftEncoder.getDistance());
-            rightSpeed = MathUtil.clamp(rightSpeed, -driveSpeed, driveSpeed);
-    
-            if (leftSpeed < 0.25 || rightSpeed < 0.25) {
-                return true;
-            }
-            
-            parts.drive.tankDrive(leftSpeed, rightSpeed);
-            return false;
+    /**
+     * Moves the robot one step on the pad. The wheel goals are moved on from
+     * where the last move was going to end up (not from where the robot is
+     * now), so moves can start before the one before them has finished.
+     */
+    public class MoveCommand extends CommandBase {
+
+        private final Direction direction;
+
+        public MoveCommand(Direction direction) {
+            this.direction = direction;
+            addRequirements(drivetrain);
         }
-    }
 
-    public class TurnCommand implements BooleanSupplier {
+        @Override
+        public void initialize() {
+            drivetrain.moveWheels(leftDelta(direction), rightDelta(direction));
+            targetHeading = MathUtil.inputModulus(targetHeading + turnAngle(direction), -180, 180);
+        }
 
-        public TurnCommand(boolean right) {
-            double angleDelta = right ? -90 : 90;
-            targetHeading = MathUtil.angleModulus(parts.getAngle() + angleDelta);
-            turnPid.setSetpoint(targetHeading);
+        @Override
+        public void execute() {
+            drivetrain.followWheels();
         }
-            
-        // 1 2 3 4
-        // a b x y
-        public boolean getAsBoolean() {
-
-            // Determine the correct wheel speed based on the current and target distance.
-            // If we're there, we're done.
-            double desiredSpeed = turnPid.calculate(parts.getAngle());
-            if (turnPid.atSetpoint()) {
-                return true;
+
+        @Override
+        public boolean isFinished() {
+
+            boolean stopped = drivetrain.atWheelGoals();
+
+            // If there's another move waiting, hand over to it as soon as the
+            // wheels would otherwise start slowing down
+            Direction next = queue.peek();
+            if (next != null) {
+                return stopped || drivetrain.isReadyFor(leftDelta(next), rightDelta(next));
+            }
+            if (!stopped) {
+                return false;
             }
 
-            // Clamp the speed so we don't go too fast
-            desiredSpeed = MathUtil.clamp(desiredSpeed, -turnSpeed, turnSpeed);
-            leftSpeed = turnSpeed / 2;
-            rightSpeed = -turnSpeed / 2;
-            parts.drive.tankDrive(leftSpeed, rightSpeed);
-            return false;
+            // That was the last move, so check with the gyro. If the wheels
+            // slipped, we'll turn a bit more to make up for it.
+            return drivetrain.finishTurn(targetHeading);
+        }
+
+        @Override
+        public void end(boolean interrupted) {
+
+            // Only stop if nothing's going to carry on from here
+            if (interrupted || queue.isEmpty()) {
+                drivetrain.stop();
+            }
         }
     }
-}
\ No newline at end of file
+}
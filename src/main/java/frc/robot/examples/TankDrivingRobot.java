@@ -3,8 +3,9 @@ package frc.robot.examples;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.XboxController;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.RobotParts;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.tuning.Tuning;
 
 /**
  * 
@@ -45,7 +46,7 @@ public class TankDrivingRobot extends TimedRobot {
         leftPower = 0.0;
         rightPower = 0.0;
 
-        SmartDashboard.putData("Tank Drive", (builder) -> {
+        Tuning.putData(this, "Tank Drive", (builder) -> {
 
             // These are "read only" properties. The part with the () is code telling the
             // dashboard how to get the values we want to send to the console.
@@ -61,6 +62,12 @@ public class TankDrivingRobot extends TimedRobot {
         });
     }
 
+    @Override
+    public void robotPeriodic() {
+        // hand the dashboard values to the background thread
+        Telemetry.capture();
+    }
+
     @Override
     public void autonomousInit() {
         parts.stop();
@@ -71,6 +78,14 @@ public class TankDrivingRobot extends TimedRobot {
         parts.stop();
     }
 
+    @Override
+    public void disabledPeriodic() {
+
+        // The robot is sitting still, so this is when the gyro's drift gets
+        // measured (see RobotParts.readSensors).
+        parts.readSensors();
+    }
+
     @Override
     public void teleopInit() {
         parts.stop();
@@ -89,7 +104,8 @@ public class TankDrivingRobot extends TimedRobot {
         // Find out the difference between the two wheels, and calculate an adjustment.
         // If the left wheel is farther ahead (robot drifts right), adjustment is
         // positive.
-        driftAmount = parts.leftEncoder.getDistance() - parts.rightEncoder.getDistance();
+        parts.readSensors();
+        driftAmount = parts.sensors.leftDistance - parts.sensors.rightDistance;
         driftAdjustment = driftFactor * driftAmount;
 
         // Set the desired speed based on the joysticks. We "deadband" a little bit
@@ -4,7 +4,17 @@ import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import frc.robot.RobotParts;
+import frc.robot.auto.Autonomous;
+import frc.robot.commands.ArcadeDriveCommand;
+import frc.robot.commands.CurvatureDriveCommand;
+import frc.robot.commands.TankDriveCommand;
+import frc.robot.subsystems.Drivetrain;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.tuning.Tuning;
 
 /**
  * 
@@ -25,27 +35,38 @@ import frc.robot.RobotParts;
  * - We use a "SendableChooser" to put a control on the dashboard that lets us
  * select our drive mode without having to redeploy new code to the robot.
  * 
+ * - It's "command-based": each drive mode is a Command (see frc.robot.commands)
+ * that uses the Drivetrain subsystem, and WPILib's CommandScheduler runs
+ * whichever one is picked. The CommandScheduler makes sure only one command
+ * drives the wheels at a time.
+ * 
+ * - The joysticks can pick a speed for each wheel instead of a motor power
+ * ("Closed Loop?" on the dashboard). The drivetrain then uses the encoders to
+ * hold that speed, so the robot is just as fast on a nearly flat battery as
+ * on a fresh one, and doesn't pull to one side.
+ * 
  * - We deal with the weird mapping of the Y coordinate for XBox joysticks.
  * 
  * - We put values on the smart dashboard that show what the robot is doing in
  * realtime. A couple of the values can actually be changed from the dashboard
  * to tweak behavior without having to reload the code.
  * 
+ * - In autonomous, the robot follows a path picked on the dashboard (see
+ * frc.robot.auto.Autonomous).
+ * 
  */
 public class TripleModeDrivingRobot extends TimedRobot {
 
-    public static enum DriveMode {
-        TANK_DRIVE,
-        ARCADE_DRIVE,
-        CURVATURE_DRIVE
-    }
-
     private RobotParts parts;
+    private Drivetrain drivetrain;
+    private Autonomous autonomous;
+    private Command autonomousCommand;
     private XboxController controller;
-    private SendableChooser<DriveMode> modeChooser;
+    private SendableChooser<Command> modeChooser;
     private double maxOutput;
     private double deadband;
     private boolean squareInputs;
+    private boolean closedLoop;
 
     @Override
     public void robotInit() {
@@ -64,72 +85,102 @@ public class TripleModeDrivingRobot extends TimedRobot {
         // at low speeds. Squaring the input value from the joystick does this.
         squareInputs = true;
 
+        // Control the wheel speeds with the encoders, rather than just setting
+        // the motor power and hoping for the best
+        closedLoop = true;
+
         parts = new RobotParts();
+        drivetrain = new Drivetrain(parts);
         controller = new XboxController(0);
 
+        // Record every drive to a log file, so we can look at it (or run it
+        // through SysId) afterwards.
+        parts.startLogging();
+
+        // This loads the autonomous paths now, so there's no waiting around
+        // once autonomous starts.
+        autonomous = new Autonomous(parts);
+        autonomousCommand = new FunctionalCommand(
+                autonomous::start,
+                autonomous::periodic,
+                (interrupted) -> drivetrain.stop(),
+                autonomous::isFinished,
+                drivetrain);
+
+        // Full forward on the joystick is Y = -1, but negative rotation spins
+        // motors backwards. So we'll just flip the Y inputs.
+        //
+        // Normally in curvature mode, you can't turn unless you're moving.
+        // If you hold down the A button, we'll let you turn in place.
         modeChooser = new SendableChooser<>();
-        modeChooser.setDefaultOption("Tank Drive", DriveMode.TANK_DRIVE);
-        modeChooser.addOption("Arcade Drive", DriveMode.ARCADE_DRIVE);
-        modeChooser.addOption("Curvature Drive", DriveMode.CURVATURE_DRIVE);
+        modeChooser.setDefaultOption("Tank Drive", new TankDriveCommand(drivetrain,
+                () -> -controller.getLeftY(), () -> -controller.getRightY(), () -> squareInputs));
+        modeChooser.addOption("Arcade Drive", new ArcadeDriveCommand(drivetrain,
+                () -> -controller.getLeftY(), controller::getRightX, () -> squareInputs));
+        modeChooser.addOption("Curvature Drive", new CurvatureDriveCommand(drivetrain,
+                () -> -controller.getLeftY(), controller::getRightX, controller::getAButton));
 
         SmartDashboard.putData("Drive Mode", modeChooser);
-        SmartDashboard.putData("Drive Properties", (builder) -> {
+        Tuning.putData(this, "Drive Properties", (builder) -> {
             builder.addDoubleProperty("Deadband", () -> deadband, (v) -> deadband = v);
             builder.addDoubleProperty("Max Output", () -> maxOutput, (v) -> maxOutput = v);
             builder.addBooleanProperty("Square Input?", () -> squareInputs, (v) -> squareInputs = v);
+            builder.addBooleanProperty("Closed Loop?", () -> closedLoop, (v) -> closedLoop = v);
+            builder.addDoubleProperty("Speed Setpoint (Left)", () -> drivetrain.getLeftSpeed().getSetpoint(), null);
+            builder.addDoubleProperty("Speed Setpoint (Right)", () -> drivetrain.getRightSpeed().getSetpoint(), null);
+            builder.addDoubleProperty("Volts (Left)", drivetrain::getLeftVolts, null);
+            builder.addDoubleProperty("Volts (Right)", drivetrain::getRightVolts, null);
         });
+        Tuning.putPid(this, "Velocity PID - Left Wheel", drivetrain.getLeftSpeed().getController());
+        Tuning.putPid(this, "Velocity PID - Right Wheel", drivetrain.getRightSpeed().getController());
     }
 
     @Override
     public void robotPeriodic() {
-        parts.drive.setDeadband(deadband);
-        parts.drive.setMaxOutput(maxOutput);
+        drivetrain.setDeadband(deadband);
+        drivetrain.setMaxOutput(maxOutput);
+        drivetrain.setClosedLoop(closedLoop);
+
+        // Reads the sensors (in Drivetrain.periodic) and then runs the
+        // commands. Commands that don't say they can run while the robot is
+        // disabled get stopped automatically.
+        CommandScheduler.getInstance().run();
+
+        // There aren't any setpoints when a person is driving
+        if (isEnabled()) {
+            parts.log(Double.NaN, Double.NaN);
+        }
+
+        // hand the dashboard values to the background thread
+        Telemetry.capture();
     }
 
     @Override
     public void autonomousInit() {
-        parts.stop();
+        drivetrain.stop();
+        autonomousCommand.schedule();
     }
 
     @Override
     public void disabledInit() {
-        parts.stop();
+        drivetrain.stop();
     }
 
     @Override
     public void teleopInit() {
-        parts.stop();
+        autonomousCommand.cancel();
+        drivetrain.stop();
     }
 
     @Override
     public void teleopPeriodic() {
 
-        // Full forward on the joystick is Y = -1, but negative rotation spins
-        // motors backwards. So we'll just flip the Y inputs.
-        double ly = -controller.getLeftY();
-        double rx = controller.getRightX();
-        double ry = -controller.getRightY();
-
-        // Normally in curvature mode, you can't turn unless you're moving.
-        // If you hold down the A button, we'll let you turn in place.
-        boolean turnInPlace = controller.getAButton();
-
-        // The DifferentialDrive class will handle updating the motors for us. We
-        // always want to supply a value, even if it's 0 - if the motors go too
-        // long without getting an instruction then warnings will start firing.
-        switch (modeChooser.getSelected()) {
-
-            case TANK_DRIVE:
-                parts.drive.tankDrive(ly, ry, squareInputs);
-                break;
-
-            case ARCADE_DRIVE:
-                parts.drive.arcadeDrive(ly, rx, squareInputs);
-                break;
-            
-            case CURVATURE_DRIVE:
-                parts.drive.curvatureDrive(ly, rx, turnInPlace);
-                break;
+        // Start the drive mode picked on the dashboard, if it isn't already
+        // running. Starting it stops whichever mode was running before, since
+        // they both need the drivetrain.
+        Command mode = modeChooser.getSelected();
+        if (!mode.isScheduled()) {
+            mode.schedule();
         }
     }
 }
@@ -0,0 +1,113 @@
+package frc.robot.filter;
+
+/**
+ *
+ * An alpha-beta filter, which is the simplest kind of Kalman filter.
+ *
+ * It keeps its own guess of the position and speed. Each time a reading comes
+ * in, it predicts where we should be by now (last position + speed * time),
+ * and looks at how far off that prediction was:
+ *
+ * - alpha is how much of the miss goes into the position guess
+ * - beta is how much of the miss (per second) goes into the speed guess
+ *
+ * Small values trust the prediction more, so they're smoother but slower to
+ * notice a real change in speed.
+ *
+ * How much to trust each reading depends on how often they come in: at 200Hz
+ * the filter gets four readings in the time it gets one at 50Hz, so each one
+ * should count for less. Instead of fixed values, we give the filter a time
+ * constant (how long it takes to catch up with a change, in seconds), and it
+ * works out alpha and beta from the time since the last reading. That way it
+ * behaves the same whatever rate it runs at, and copes with loops that come
+ * in a bit early or late.
+ *
+ * It only remembers two numbers, so each update is a handful of
+ * multiplications and one exp().
+ *
+ */
+public class AlphaBetaVelocityEstimator implements VelocityEstimator {
+
+    // A default that gives a good balance of noise and lag for the Romi's
+    // encoders, picked at the 200Hz rate the control loops read them (see
+    // frc.robot.sim.VelocityFilterComparison). At 200Hz it's as smooth as
+    // alpha = 0.5 was at 50Hz, and catches up 20ms sooner.
+    public static final double DEFAULT_TIME_CONSTANT = 0.02;
+
+    private final double timeConstant;
+    private boolean started;
+    private double position;
+    private double rate;
+    private double time;
+
+    public AlphaBetaVelocityEstimator() {
+        this(DEFAULT_TIME_CONSTANT);
+    }
+
+    /**
+     * @param timeConstant how quickly the estimate follows a change (in
+     * seconds). Bigger is smoother but slower.
+     */
+    public AlphaBetaVelocityEstimator(double timeConstant) {
+        this.timeConstant = timeConstant;
+    }
+
+    /**
+     * @return how much of the miss goes into the position guess, for
+     * readings a given time apart (in seconds)
+     */
+    public static double alphaFor(double dt, double timeConstant) {
+        return 1 - Math.exp(-dt / timeConstant);
+    }
+
+    /**
+     * @return how much of the miss (per second) goes into the speed guess.
+     * Beta is picked from alpha (beta = alpha^2 / (2 - alpha)) so the filter
+     * settles quickly without overshooting.
+     */
+    public static double betaFor(double alpha) {
+        return alpha * alpha / (2 - alpha);
+    }
+
+    @Override
+    public double update(double position, double time) {
+        if (!started) {
+            this.position = position;
+            this.time = time;
+            rate = 0;
+            started = true;
+            return rate;
+        }
+
+        double dt = time - this.time;
+        if (dt <= 0) {
+            return rate;
+        }
+        this.time = time;
+
+        double alpha = alphaFor(dt, timeConstant);
+        double beta = betaFor(alpha);
+
+        double predicted = this.position + rate * dt;
+        double miss = position - predicted;
+        this.position = predicted + alpha * miss;
+        rate += beta * miss / dt;
+        return rate;
+    }
+
+    @Override
+    public double getRate() {
+        return rate;
+    }
+
+    @Override
+    public void shift(double delta) {
+        position += delta;
+    }
+
+    @Override
+    public void reset() {
+        started = false;
+        rate = 0;
+    }
+}
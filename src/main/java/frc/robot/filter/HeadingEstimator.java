@@ -0,0 +1,183 @@
+package frc.robot.filter;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ *
+ * Works out which way the robot is facing, to a fraction of a degree.
+ *
+ * Gyros "drift": even sitting perfectly still, they report a tiny bit of
+ * turning (the "bias"), and over a couple of minutes that adds up to several
+ * degrees. So whenever the robot is disabled (and so should be sitting
+ * still), we average the gyro's turn rate to measure the bias, and from then
+ * on take it back out of every reading.
+ *
+ * Optionally, we can also work out the heading from the wheels: if the left
+ * wheel has gone further than the right one, we must have turned right. The
+ * gyro is better over a fraction of a second (wheels slip when they start
+ * and stop), but the wheels don't drift. A "complementary filter" mixes them:
+ * it follows the gyro from moment to moment, and slowly pulls towards the
+ * wheels' answer. See {@link #setEncoderTimeConstant}.
+ *
+ * Everything is in degrees, clockwise positive (like the gyro). Nothing is
+ * rounded, so call {@link #update} as often as the sensors are read - the
+ * faster the better.
+ *
+ */
+public class HeadingEstimator {
+
+    // A reading that's more than this far (in degrees/second) from the bias
+    // means someone's picked the robot up or bumped it, so we don't use it
+    // to calibrate
+    public static final double MOTION_THRESHOLD = 2.0;
+
+    // Once we've got this many calibration readings, newer ones count for a
+    // bit more than older ones, so the bias can follow slow changes (like
+    // the gyro warming up)
+    public static final int MAX_CALIBRATION_SAMPLES = 2000;
+
+    private final double trackWidth;
+    private double encoderTimeConstant;
+
+    private boolean started;
+    private double lastTime;
+    private double lastGyroAngle;
+    private double lastLeftDistance;
+    private double lastRightDistance;
+
+    // The heading is kept "unwrapped" (it can go past 180) so the filter
+    // maths works, and only wrapped when someone asks for it
+    private double heading;
+    private double encoderHeading;
+    private double rate;
+
+    private double bias;
+    private int calibrationSamples;
+
+    /**
+     * @param trackWidth how far apart the wheels are, in the same units as the
+     * encoder distances
+     */
+    public HeadingEstimator(double trackWidth) {
+        this.trackWidth = trackWidth;
+    }
+
+    /**
+     * Turns on the wheel-based heading. The heading moves towards what the
+     * wheels say with this time constant (in seconds): bigger numbers trust
+     * the gyro for longer. Zero (the default) turns it off and uses only the
+     * gyro.
+     */
+    public void setEncoderTimeConstant(double seconds) {
+        if (seconds > 0 && encoderTimeConstant <= 0) {
+            encoderHeading = heading;
+        }
+        encoderTimeConstant = Math.max(0, seconds);
+    }
+
+    public double getEncoderTimeConstant() {
+        return encoderTimeConstant;
+    }
+
+    /**
+     * Adds a new set of sensor readings.
+     *
+     * @param gyroAngle the gyro's angle, in degrees (not wrapped)
+     * @param gyroRate the gyro's turn rate, in degrees/second
+     * @param leftDistance how far the left wheel has gone
+     * @param rightDistance how far the right wheel has gone
+     * @param time when the readings were taken, in seconds
+     * @param calibrate true if the robot is sitting still, so the gyro bias can be measured
+     */
+    public void update(double gyroAngle, double gyroRate, double leftDistance, double rightDistance,
+            double time, boolean calibrate) {
+
+        if (!started) {
+            started = true;
+            heading = gyroAngle;
+            encoderHeading = gyroAngle;
+            remember(gyroAngle, leftDistance, rightDistance, time);
+            return;
+        }
+
+        double dt = time - lastTime;
+        if (dt <= 0) {
+            return;
+        }
+
+        if (calibrate && Math.abs(gyroRate - bias) < MOTION_THRESHOLD) {
+            if (calibrationSamples < MAX_CALIBRATION_SAMPLES) {
+                calibrationSamples++;
+            }
+            bias += (gyroRate - bias) / calibrationSamples;
+        }
+        rate = gyroRate - bias;
+
+        heading += (gyroAngle - lastGyroAngle) - bias * dt;
+
+        if (encoderTimeConstant > 0) {
+            double left = leftDistance - lastLeftDistance;
+            double right = rightDistance - lastRightDistance;
+            encoderHeading += Math.toDegrees((left - right) / trackWidth);
+
+            double alpha = encoderTimeConstant / (encoderTimeConstant + dt);
+            heading = alpha * heading + (1 - alpha) * encoderHeading;
+        }
+
+        remember(gyroAngle, leftDistance, rightDistance, time);
+    }
+
+    private void remember(double gyroAngle, double leftDistance, double rightDistance, double time) {
+        lastGyroAngle = gyroAngle;
+        lastLeftDistance = leftDistance;
+        lastRightDistance = rightDistance;
+        lastTime = time;
+    }
+
+    /**
+     * Call this when the encoders are reset to zero, so the jump doesn't look
+     * like the robot turning.
+     */
+    public void resetEncoders() {
+        lastLeftDistance = 0;
+        lastRightDistance = 0;
+    }
+
+    /**
+     * Says which way the robot is facing now.
+     *
+     * @param degrees the new heading (clockwise positive)
+     */
+    public void setHeading(double degrees) {
+        heading = degrees;
+        encoderHeading = degrees;
+    }
+
+    /**
+     * @return which way the robot is facing, in degrees between -180 and 180
+     */
+    public double getHeading() {
+        return Math.toDegrees(MathUtil.angleModulus(Math.toRadians(heading)));
+    }
+
+    /**
+     * @return how fast the robot is turning, in degrees/second, with the bias taken out
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * @return how much the gyro drifts, in degrees/second
+     */
+    public double getBias() {
+        return bias;
+    }
+
+    /**
+     * @return how many readings the bias has been measured from
+     */
+    public int getCalibrationSamples() {
+        return calibrationSamples;
+    }
+}
@@ -0,0 +1,141 @@
+package frc.robot.filter;
+
+/**
+ *
+ * Fits a straight line through the last few position readings (a "line of
+ * best fit", like in frc.robot.sysid.OlsAccumulator), and uses its slope as
+ * the speed. Averaging over a window smooths out the tick-to-tick noise, and
+ * because it fits the actual reading times it doesn't care if a loop ran a
+ * bit late.
+ *
+ * A line fit only needs a few running sums (of the times, the positions,
+ * times squared and times * positions). When a new reading comes in we add
+ * it to the sums and take the oldest reading back out, so every update costs
+ * the same no matter how big the window is.
+ *
+ * Adding and taking away slowly builds up rounding error, and the sums of
+ * squared times get big as the clock runs, which makes that worse. So once
+ * per trip around the window we rebuild the sums from scratch, measuring time
+ * from the newest reading. That's one extra pass over a few numbers every
+ * few loops.
+ *
+ */
+public class RegressionVelocityEstimator implements VelocityEstimator {
+
+    // How many readings to fit the line through. At 50Hz, 6 readings is the
+    // last 0.1 seconds, so the estimate lags about 0.05 seconds behind (see
+    // frc.robot.sim.VelocityFilterComparison).
+    public static final int DEFAULT_WINDOW = 6;
+
+    private final double[] times;
+    private final double[] positions;
+    private int next;
+    private int size;
+
+    // The time all the sums are measured from
+    private double origin;
+    private double sumT;
+    private double sumX;
+    private double sumTT;
+    private double sumTX;
+    private double rate;
+
+    public RegressionVelocityEstimator() {
+        this(DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param window how many readings to fit the line through (at least 2)
+     */
+    public RegressionVelocityEstimator(int window) {
+        if (window < 2) {
+            throw new IllegalArgumentException("The window needs at least 2 readings, not " + window);
+        }
+        times = new double[window];
+        positions = new double[window];
+    }
+
+    @Override
+    public double update(double position, double time) {
+
+        // Ignore readings that don't move the clock on
+        if (size > 0 && time <= times[(next + times.length - 1) % times.length]) {
+            return rate;
+        }
+
+        if (size == times.length) {
+            remove(times[next], positions[next]);
+        } else {
+            size++;
+        }
+        times[next] = time;
+        positions[next] = position;
+        next = (next + 1) % times.length;
+
+        if (next == 0) {
+            rebuild(time);
+        } else {
+            add(time, position);
+        }
+
+        double n = size;
+        double denominator = n * sumTT - sumT * sumT;
+        if (size >= 2 && denominator > 0) {
+            rate = (n * sumTX - sumT * sumX) / denominator;
+        }
+        return rate;
+    }
+
+    private void add(double time, double position) {
+        double t = time - origin;
+        sumT += t;
+        sumX += position;
+        sumTT += t * t;
+        sumTX += t * position;
+    }
+
+    private void remove(double time, double position) {
+        double t = time - origin;
+        sumT -= t;
+        sumX -= position;
+        sumTT -= t * t;
+        sumTX -= t * position;
+    }
+
+    private void rebuild(double newOrigin) {
+        origin = newOrigin;
+        sumT = 0;
+        sumX = 0;
+        sumTT = 0;
+        sumTX = 0;
+        for (int i = 0; i < size; i++) {
+            add(times[i], positions[i]);
+        }
+    }
+
+    @Override
+    public double getRate() {
+        return rate;
+    }
+
+    @Override
+    public void shift(double delta) {
+        for (int i = 0; i < size; i++) {
+            positions[i] += delta;
+        }
+        sumX += size * delta;
+        sumTX += sumT * delta;
+    }
+
+    @Override
+    public void reset() {
+        next = 0;
+        size = 0;
+        origin = 0;
+        sumT = 0;
+        sumX = 0;
+        sumTT = 0;
+        sumTX = 0;
+        rate = 0;
+    }
+}
@@ -0,0 +1,46 @@
+package frc.robot.filter;
+
+/**
+ *
+ * Works out how fast something is moving from a stream of position readings.
+ *
+ * Encoders measure position very precisely, but the speed they report is
+ * noisy: over one 20ms loop a wheel only moves a few encoder ticks, so being
+ * off by a single tick (or reading the encoder a millisecond late) makes a big
+ * difference to the speed. That noise gets multiplied by the D gain of any
+ * PID that uses it. An estimator smooths it out, at the cost of reacting a
+ * little later to real changes in speed.
+ *
+ * Every update takes the same (tiny) amount of time no matter how long the
+ * robot has been running, and never creates any garbage, so it's fine to
+ * call from the robot loop.
+ *
+ */
+public interface VelocityEstimator {
+
+    /**
+     * Adds a position reading.
+     *
+     * @param position where we are now (any units)
+     * @param time when the reading was taken, in seconds
+     * @return the new speed estimate, in position units per second
+     */
+    double update(double position, double time);
+
+    /**
+     * @return the latest speed estimate, in position units per second
+     */
+    double getRate();
+
+    /**
+     * Tells the estimator that the position reading is about to jump by
+     * delta without anything actually moving (like when an encoder is reset
+     * to zero), so it doesn't mistake the jump for a burst of speed.
+     */
+    void shift(double delta);
+
+    /**
+     * Forgets everything, and starts again from the next reading.
+     */
+    void reset();
+}
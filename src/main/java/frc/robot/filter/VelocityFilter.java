@@ -0,0 +1,33 @@
+package frc.robot.filter;
+
+/**
+ *
+ * The ways RobotParts can work out wheel speeds (see
+ * {@link frc.robot.RobotParts#setVelocityFilter}).
+ *
+ */
+public enum VelocityFilter {
+
+    // The encoder's own getRate(), with no filtering
+    RAW,
+
+    // See AlphaBetaVelocityEstimator
+    ALPHA_BETA,
+
+    // See RegressionVelocityEstimator
+    REGRESSION;
+
+    /**
+     * @return a new estimator of this kind, or null for RAW
+     */
+    public VelocityEstimator create() {
+        switch (this) {
+            case ALPHA_BETA:
+                return new AlphaBetaVelocityEstimator();
+            case REGRESSION:
+                return new RegressionVelocityEstimator();
+            default:
+                return null;
+        }
+    }
+}
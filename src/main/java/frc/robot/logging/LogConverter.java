@@ -0,0 +1,129 @@
+package frc.robot.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultIndenter;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+
+import frc.robot.sim.RomiPlant;
+import frc.robot.sysid.SysIdData;
+import frc.robot.sysid.SysIdRun;
+
+/**
+ *
+ * Turns a {@link RingLog} file into a JSON file laid out just like the ones
+ * SysId writes, so it can be loaded by SysIdLoader, run through
+ * "./gradlew characterize", or opened in the SysId tool itself.
+ *
+ * SysId only has 9 columns, so the setpoints are left out, and the values
+ * are changed into the units SysId uses:
+ *
+ * - Motor outputs (-1 to 1) become volts, using the battery voltage
+ * - Distances and rates in inches become wheel rotations
+ * - The gyro (degrees, clockwise positive) becomes radians, counter-clockwise
+ * positive
+ *
+ * Run it with "./gradlew convertLog -Dlog.file=logs/robot-20221106-172256.rlog".
+ * The JSON goes next to the log unless -Dlog.out is set, and the records are
+ * saved as a "fast-forward" test unless -Dlog.run names a different one. The
+ * Romi doesn't measure its battery, so by default the outputs are turned
+ * into volts using {@link RomiPlant#BATTERY_VOLTS}; set -Dlog.battery=0 to
+ * use the voltage that was recorded in the log instead.
+ *
+ */
+public final class LogConverter {
+
+    private LogConverter() { }
+
+    public static void main(String... args) throws IOException {
+
+        String file = System.getProperty("log.file", args.length > 0 ? args[0] : null);
+        if (file == null) {
+            System.err.println("Which log? Use -Dlog.file=<path to the .rlog file>");
+            System.exit(1);
+        }
+
+        Path log = Paths.get(file);
+        String defaultOut = log.getFileName().toString().replaceFirst("\\.rlog$", "") + ".json";
+        Path out = Paths.get(System.getProperty("log.out", log.resolveSibling(defaultOut).toString()));
+        String run = System.getProperty("log.run", SysIdData.FAST_FORWARD);
+        double battery = Double.parseDouble(System.getProperty("log.battery", Double.toString(RomiPlant.BATTERY_VOLTS)));
+
+        RingLogReader reader = RingLogReader.open(log);
+        try (OutputStream stream = Files.newOutputStream(out)) {
+            convert(reader, run, battery, stream);
+        }
+
+        System.out.printf("Wrote %d records to %s%n", reader.size(), out);
+        if (reader.getDropped() > 0) {
+            System.out.printf("(the ring filled up, so the oldest %d records were lost)%n", reader.getDropped());
+        }
+    }
+
+    /**
+     * Writes the whole log as a single SysId test.
+     *
+     * @param reader the log to convert
+     * @param run the name of the test (e.g. "slow-forward")
+     * @param batteryVolts the battery voltage to turn motor outputs into
+     * volts, or 0 to use the voltage recorded in the log
+     * @param out where to write the JSON
+     */
+    public static void convert(RingLogReader reader, String run, double batteryVolts, OutputStream out)
+            throws IOException {
+
+        // One number per line, like SysId does it
+        DefaultPrettyPrinter printer = new DefaultPrettyPrinter();
+        printer.indentArraysWith(DefaultIndenter.SYSTEM_LINEFEED_INSTANCE);
+
+        double[] record = new double[RingLog.FIELDS];
+        double[] row = new double[SysIdRun.COLUMNS];
+
+        try (JsonGenerator json = new JsonFactory().createGenerator(out)) {
+            json.setPrettyPrinter(printer);
+            json.writeStartObject();
+
+            json.writeArrayFieldStart(run);
+            for (int i = 0; i < reader.size(); i++) {
+                reader.read(i, record);
+                toSysId(record, batteryVolts, row);
+                json.writeStartArray();
+                for (double value : row) {
+                    json.writeNumber(value);
+                }
+                json.writeEndArray();
+            }
+            json.writeEndArray();
+
+            json.writeBooleanField("sysid", true);
+            json.writeStringField("test", "Drivetrain");
+            json.writeStringField("units", "Rotations");
+            json.writeNumberField("unitsPerRotation", 1.0);
+            json.writeEndObject();
+        }
+    }
+
+    /**
+     * Turns one log record into one row of a SysId test.
+     */
+    public static void toSysId(double[] record, double batteryVolts, double[] row) {
+
+        double volts = batteryVolts > 0 ? batteryVolts : record[RingLog.BATTERY_VOLTS];
+
+        row[SysIdRun.TIMESTAMP] = record[RingLog.TIMESTAMP];
+        row[SysIdRun.LEFT_VOLTS] = record[RingLog.LEFT_OUTPUT] * volts;
+        row[SysIdRun.RIGHT_VOLTS] = record[RingLog.RIGHT_OUTPUT] * volts;
+        row[SysIdRun.LEFT_POSITION] = record[RingLog.LEFT_DISTANCE] / RomiPlant.INCHES_PER_ROTATION;
+        row[SysIdRun.RIGHT_POSITION] = record[RingLog.RIGHT_DISTANCE] / RomiPlant.INCHES_PER_ROTATION;
+        row[SysIdRun.LEFT_VELOCITY] = record[RingLog.LEFT_RATE] / RomiPlant.INCHES_PER_ROTATION;
+        row[SysIdRun.RIGHT_VELOCITY] = record[RingLog.RIGHT_RATE] / RomiPlant.INCHES_PER_ROTATION;
+        row[SysIdRun.GYRO_ANGLE] = -Math.toRadians(record[RingLog.ANGLE]);
+        row[SysIdRun.GYRO_RATE] = -Math.toRadians(record[RingLog.GYRO_RATE]);
+    }
+}
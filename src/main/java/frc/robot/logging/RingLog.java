@@ -0,0 +1,207 @@
+package frc.robot.logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import frc.robot.SensorSnapshot;
+
+/**
+ *
+ * A very fast data logger. Every call to {@link #record} writes one
+ * fixed-size record of numbers straight into a memory-mapped file, which is
+ * about as cheap as writing into an array: no text formatting, no objects,
+ * and no waiting for the disk. A background thread asks the operating system
+ * to save the file every so often.
+ *
+ * The file is a "ring": it has room for a fixed number of records, and once
+ * it's full the newest record replaces the oldest one. That way it never
+ * grows past the size we picked, and it always holds the most recent part of
+ * the run.
+ *
+ * The file layout is:
+ *
+ * - A 64 byte header: the magic number, the version, how many fields are in
+ * each record, how many records fit in the ring, and how many records have
+ * been written in total.
+ * - The records, each one FIELDS doubles (little endian), in the order of the
+ * field constants below.
+ *
+ * Use {@link RingLogReader} to read it back, or {@link LogConverter} to turn
+ * it into a SysId style JSON file.
+ *
+ */
+public class RingLog implements Closeable {
+
+    // The order of the fields in each record
+    public static final int TIMESTAMP = 0;
+    public static final int LEFT_OUTPUT = 1;
+    public static final int RIGHT_OUTPUT = 2;
+    public static final int LEFT_DISTANCE = 3;
+    public static final int RIGHT_DISTANCE = 4;
+
+    // The encoders' own wheel speeds, not the smoothed out ones the
+    // controllers use. Anything that reads the log (SysId, replays) does its
+    // own smoothing, and smoothing twice would make the robot look slower to
+    // speed up than it really is.
+    public static final int LEFT_RATE = 5;
+    public static final int RIGHT_RATE = 6;
+    public static final int ANGLE = 7;
+    public static final int GYRO_RATE = 8;
+    public static final int LEFT_SETPOINT = 9;
+    public static final int RIGHT_SETPOINT = 10;
+    public static final int BATTERY_VOLTS = 11;
+
+    // How many numbers are in each record?
+    public static final int FIELDS = 12;
+
+    // "ROMILOG1" in ASCII, so we can tell a log file from anything else
+    static final long MAGIC = 0x31474F4C494D4F52L;
+    static final int VERSION = 1;
+
+    // Where things are in the header
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 8;
+    static final int FIELDS_OFFSET = 12;
+    static final int CAPACITY_OFFSET = 16;
+    static final int COUNT_OFFSET = 24;
+    static final int HEADER_BYTES = 64;
+
+    static final int RECORD_BYTES = FIELDS * Double.BYTES;
+
+    // How often the background thread saves the file (in seconds)
+    public static final double FLUSH_PERIOD = 1.0;
+
+    private static ScheduledExecutorService flusher;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long capacity;
+    private final ScheduledFuture<?> flushTask;
+    private long count;
+
+    private RingLog(FileChannel channel, MappedByteBuffer buffer, long capacity) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.count = 0;
+        this.flushTask = flusher().scheduleAtFixedRate(this::flush,
+                (long) (FLUSH_PERIOD * 1000), (long) (FLUSH_PERIOD * 1000), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new log file (replacing it if it's already there).
+     *
+     * @param file where to put the log
+     * @param capacity how many records the ring holds before it starts
+     * replacing the oldest ones (50 records a second for 10 minutes is 30,000)
+     */
+    public static RingLog create(Path file, int capacity) throws IOException {
+
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * RECORD_BYTES);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putLong(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(FIELDS_OFFSET, FIELDS);
+        buffer.putLong(CAPACITY_OFFSET, capacity);
+        buffer.putLong(COUNT_OFFSET, 0);
+
+        return new RingLog(channel, buffer, capacity);
+    }
+
+    /**
+     * Writes one record. This is meant to be called every loop, so it doesn't
+     * allocate anything or touch the disk.
+     *
+     * @param sensors this loop's sensor readings
+     * @param leftOutput what the left motor was set to (-1 to 1)
+     * @param rightOutput what the right motor was set to (-1 to 1)
+     * @param leftSetpoint where the left PID was trying to go (or NaN if there isn't one)
+     * @param rightSetpoint where the right PID was trying to go (or NaN)
+     * @param batteryVolts the battery voltage
+     */
+    public void record(SensorSnapshot sensors, double leftOutput, double rightOutput,
+            double leftSetpoint, double rightSetpoint, double batteryVolts) {
+
+        int offset = HEADER_BYTES + (int) (count % capacity) * RECORD_BYTES;
+        buffer.putDouble(offset + TIMESTAMP * Double.BYTES, sensors.timestamp);
+        buffer.putDouble(offset + LEFT_OUTPUT * Double.BYTES, leftOutput);
+        buffer.putDouble(offset + RIGHT_OUTPUT * Double.BYTES, rightOutput);
+        buffer.putDouble(offset + LEFT_DISTANCE * Double.BYTES, sensors.leftDistance);
+        buffer.putDouble(offset + RIGHT_DISTANCE * Double.BYTES, sensors.rightDistance);
+        buffer.putDouble(offset + LEFT_RATE * Double.BYTES, sensors.leftRawRate);
+        buffer.putDouble(offset + RIGHT_RATE * Double.BYTES, sensors.rightRawRate);
+        buffer.putDouble(offset + ANGLE * Double.BYTES, sensors.angle);
+        buffer.putDouble(offset + GYRO_RATE * Double.BYTES, sensors.gyroRate);
+        buffer.putDouble(offset + LEFT_SETPOINT * Double.BYTES, leftSetpoint);
+        buffer.putDouble(offset + RIGHT_SETPOINT * Double.BYTES, rightSetpoint);
+        buffer.putDouble(offset + BATTERY_VOLTS * Double.BYTES, batteryVolts);
+
+        // Update the count last, so a reader never sees a half written record
+        count++;
+        buffer.putLong(COUNT_OFFSET, count);
+    }
+
+    /**
+     * @return how many records have been written (including ones that have
+     * since been replaced)
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Asks the operating system to save everything to disk. The background
+     * thread calls this every {@link #FLUSH_PERIOD} seconds.
+     */
+    public void flush() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushTask.cancel(false);
+        flush();
+        channel.close();
+    }
+
+    private static synchronized ScheduledExecutorService flusher() {
+        if (flusher == null) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Log Flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return flusher;
+    }
+}
@@ -0,0 +1,90 @@
+package frc.robot.logging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *
+ * Reads back a file written by {@link RingLog}. The records come out oldest
+ * first, even if the ring wrapped around and the newest records were written
+ * over the start of the file.
+ *
+ */
+public class RingLogReader {
+
+    private final ByteBuffer buffer;
+    private final long capacity;
+    private final int size;
+    private final long first;
+
+    private RingLogReader(ByteBuffer buffer) throws IOException {
+
+        if (buffer.capacity() < RingLog.HEADER_BYTES || buffer.getLong(RingLog.MAGIC_OFFSET) != RingLog.MAGIC) {
+            throw new IOException("not a robot log file");
+        }
+        if (buffer.getInt(RingLog.VERSION_OFFSET) != RingLog.VERSION
+                || buffer.getInt(RingLog.FIELDS_OFFSET) != RingLog.FIELDS) {
+            throw new IOException("log file was written by a different version of the logger");
+        }
+
+        this.buffer = buffer;
+        this.capacity = buffer.getLong(RingLog.CAPACITY_OFFSET);
+        long count = buffer.getLong(RingLog.COUNT_OFFSET);
+        this.size = (int) Math.min(count, capacity);
+        this.first = count - size;
+
+        if (RingLog.HEADER_BYTES + capacity * RingLog.RECORD_BYTES > buffer.capacity()) {
+            throw new IOException("log file is truncated");
+        }
+    }
+
+    /**
+     * Opens a log file. The file is memory-mapped rather than read in, so
+     * even a big log opens instantly.
+     */
+    public static RingLogReader open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new RingLogReader(buffer.order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    /**
+     * @return how many records are in the file
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return how many records were dropped because the ring filled up
+     */
+    public long getDropped() {
+        return first;
+    }
+
+    /**
+     * @return a single value out of the log (row 0 is the oldest record)
+     */
+    public double get(int row, int field) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + " of " + size);
+        }
+        int slot = (int) ((first + row) % capacity);
+        return buffer.getDouble(RingLog.HEADER_BYTES + slot * RingLog.RECORD_BYTES + field * Double.BYTES);
+    }
+
+    /**
+     * Copies a whole record into the supplied array (which needs room for
+     * {@link RingLog#FIELDS} values).
+     */
+    public void read(int row, double[] record) {
+        for (int field = 0; field < RingLog.FIELDS; field++) {
+            record[field] = get(row, field);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package frc.robot.pose;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ *
+ * Remembers where the robot was over the last little while, so that when a
+ * camera frame shows up late we can look up where the robot was when the
+ * picture was actually taken.
+ *
+ * It holds a fixed number of samples in plain arrays (the oldest sample gets
+ * replaced once it's full), so adding a sample never allocates anything.
+ * Samples are added in time order, which means they're always sorted, so
+ * finding a time is a binary search instead of a walk through every sample.
+ *
+ */
+public class PoseHistory {
+
+    private final double[] times;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] headings;
+    private int start;
+    private int size;
+
+    /**
+     * @param capacity how many samples to remember
+     */
+    public PoseHistory(int capacity) {
+        times = new double[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        headings = new double[capacity];
+        start = 0;
+        size = 0;
+    }
+
+    /**
+     * Adds a sample. Times need to keep going up; a sample that's older than
+     * the newest one throws away everything after it.
+     *
+     * @param time when the robot was here, in seconds
+     * @param x field position, in meters
+     * @param y field position, in meters
+     * @param heading which way the robot was facing, in radians (counter-clockwise positive)
+     */
+    public void add(double time, double x, double y, double heading) {
+
+        // If time went backwards (e.g. the robot restarted its clock), start over
+        while (size > 0 && times[index(size - 1)] >= time) {
+            size--;
+        }
+
+        int i;
+        if (size < times.length) {
+            i = index(size);
+            size++;
+        } else {
+            i = start;
+            start = (start + 1) % times.length;
+        }
+        times[i] = time;
+        xs[i] = x;
+        ys[i] = y;
+        headings[i] = heading;
+    }
+
+    /**
+     * Forgets everything.
+     */
+    public void clear() {
+        start = 0;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the time of the oldest sample we still have (or NaN if there aren't any)
+     */
+    public double getOldestTime() {
+        return size == 0 ? Double.NaN : times[start];
+    }
+
+    /**
+     * Finds where the robot was at a given time, blending between the samples
+     * on either side of it.
+     *
+     * @param time when we want to know about
+     * @param pose gets the x, y and heading (in that order)
+     * @return false if the time is older than anything we remember (or we
+     * don't have any samples yet)
+     */
+    public boolean sample(double time, double[] pose) {
+
+        if (size == 0 || time < times[start]) {
+            return false;
+        }
+
+        // Newer than the newest sample: the newest is the best we have
+        int newest = index(size - 1);
+        if (time >= times[newest]) {
+            pose[0] = xs[newest];
+            pose[1] = ys[newest];
+            pose[2] = headings[newest];
+            return true;
+        }
+
+        // Find the first sample after the time we want
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (times[index(middle)] <= time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        int after = index(low);
+        int before = index(low - 1);
+        double t = (time - times[before]) / (times[after] - times[before]);
+        pose[0] = xs[before] + (xs[after] - xs[before]) * t;
+        pose[1] = ys[before] + (ys[after] - ys[before]) * t;
+        pose[2] = headings[before] + MathUtil.angleModulus(headings[after] - headings[before]) * t;
+        return true;
+    }
+
+    // Where the nth oldest sample is in the arrays
+    private int index(int n) {
+        return (start + n) % times.length;
+    }
+}
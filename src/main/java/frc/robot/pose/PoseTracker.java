@@ -0,0 +1,393 @@
+package frc.robot.pose;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.EntryListenerFlags;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.SensorSnapshot;
+import frc.robot.vision.TagLayout;
+import frc.robot.vision.VisionMessage;
+
+/**
+ *
+ * Keeps track of where the robot is on the field.
+ *
+ * Most of the work is odometry: adding up how far each wheel has gone, in
+ * whichever direction the gyro says we're facing (the same maths as WPILib's
+ * DifferentialDriveOdometry, but kept in plain numbers so that the robot
+ * loop doesn't make any garbage). That drifts over time (wheels slip, encoders miss a pulse), so we also use
+ * the AprilTags the camera sees (published to the "Vision" table by
+ * detectChiefDelphi.py or frc.robot.vision.VisionService) to pull the
+ * position back into line.
+ *
+ * The camera only tells us which way a tag is from the robot, not how far
+ * away it is, and the picture is already a little old by the time we get it.
+ * So when a frame arrives we:
+ *
+ * 1. Look up where we were when the picture was taken (see {@link PoseHistory})
+ * 2. Work out which way the tag should have been from there
+ * 3. Slide the robot sideways (relative to the tag) to make up part of the
+ * difference. We trust the gyro for which way we're facing, so that's left
+ * alone.
+ *
+ * When VisionService can see two or more tags it works out where the camera
+ * is on the field from all of them at once (see
+ * frc.robot.vision.CameraPoseSolver), which is much better than one
+ * direction at a time. Then we pull the position towards where that says we
+ * were instead. Its field layout has to match the tags added with
+ * {@link #addTag}.
+ *
+ * The correction is kept separately from the odometry (which never gets
+ * reset behind its back), and added on top of it. {@link #getPose} puts the
+ * two together when it's asked, and {@link #getX}, {@link #getY} and
+ * {@link #getHeading} give the same numbers without making a Pose2d.
+ *
+ * All positions are in meters, and headings are counter-clockwise positive,
+ * like the rest of WPILib's field math.
+ *
+ */
+public class PoseTracker {
+
+    // How much history to keep. At 200 updates a second this is over a second,
+    // which is more than the camera should ever be behind.
+    public static final int HISTORY_SIZE = 256;
+
+    // How long it takes from the camera taking a picture to us hearing about
+    // the tags in it (capture, processing and the network), in seconds. Only
+    // used for the Python script: VisionService tells us.
+    public static final double VISION_LATENCY = 0.1;
+
+    // How long a result takes to get from the camera's computer to us, on top
+    // of the latency it tells us about, in seconds
+    public static final double NETWORK_LATENCY = 0.005;
+
+    // How wide the camera can see, side to side
+    public static final double CAMERA_FOV_DEGREES = 62.2;
+
+    // How much of the difference between where a tag is and where we expected
+    // it to be we fix with each frame. Small values smooth out noisy frames.
+    public static final double VISION_GAIN = 0.2;
+
+    // Where the camera is on the robot, in meters from the middle of the robot
+    public static final double CAMERA_FORWARD = 0.0;
+    public static final double CAMERA_LEFT = 0.0;
+
+    // How many tags the camera's position has to be worked out from before we
+    // use it. With only one tag it's easily fooled, so we use the direction
+    // to the tag instead.
+    public static final int MIN_POSE_TAGS = 2;
+
+    // Tags closer than this don't tell us much about where we are
+    private static final double MIN_TAG_DISTANCE = 0.1;
+
+    private final PoseHistory history;
+    private final Map<Integer, Translation2d> tags;
+    private final AtomicReference<VisionFrame> pendingFrame;
+    private final double[] past;
+
+    // Unpacking VisionService's frames into this doesn't create any garbage
+    private final VisionMessage message;
+
+    // Where the odometry says we are. The heading is the gyro's (counter-
+    // clockwise) plus gyroOffset, which lines it up with the field.
+    private double odometryX;
+    private double odometryY;
+    private double odometryHeading;
+    private double gyroOffset;
+    private double gyroAngle;
+    private double lastLeft;
+    private double lastRight;
+
+    // Added on top of the odometry to get our best guess of the position
+    private double correctionX;
+    private double correctionY;
+
+    // The tags found in one camera frame: either a packed VisionMessage, or
+    // the Python script's arrays
+    private static class VisionFrame {
+
+        final double time;
+        final byte[] data;
+        final double[] x;
+        final double[] id;
+
+        VisionFrame(double time, byte[] data, double[] x, double[] id) {
+            this.time = time;
+            this.data = data;
+            this.x = x;
+            this.id = id;
+        }
+    }
+
+    public PoseTracker() {
+        history = new PoseHistory(HISTORY_SIZE);
+        tags = new HashMap<>();
+        pendingFrame = new AtomicReference<>();
+        past = new double[3];
+        message = new VisionMessage();
+    }
+
+    /**
+     * Starts listening for tags from the camera. NetworkTables tells us about
+     * new frames on its own thread, so the frame is just saved here, and used
+     * during the next {@link #update}.
+     *
+     * VisionService sends each frame as one packed message ("frame", see
+     * {@link VisionMessage}), which says how old the picture is. The Python
+     * script sends target_x and target_id separately, and we have to guess
+     * how old they are.
+     */
+    public void startVision() {
+        NetworkTable vision = NetworkTableInstance.getDefault().getTable("Vision");
+        vision.addEntryListener("frame", (table, key, entry, value, flags) -> {
+            pendingFrame.set(new VisionFrame(Timer.getFPGATimestamp(), value.getRaw(), null, null));
+        }, EntryListenerFlags.kNew | EntryListenerFlags.kUpdate);
+        vision.addEntryListener("target_id", (table, key, entry, value, flags) -> {
+            double[] x = table.getEntry("target_x").getDoubleArray(new double[0]);
+            double[] id = value.getDoubleArray();
+            pendingFrame.set(new VisionFrame(Timer.getFPGATimestamp() - VISION_LATENCY, null, x, id));
+        }, EntryListenerFlags.kNew | EntryListenerFlags.kUpdate);
+    }
+
+    /**
+     * Tells the tracker where a tag is on the field.
+     */
+    public void addTag(int id, double x, double y) {
+        tags.put(id, new Translation2d(x, y));
+    }
+
+    /**
+     * Tells the tracker where all of the tags in a field layout are.
+     */
+    public void addTags(TagLayout layout) {
+        for (int id = 0; id <= layout.getMaxId(); id++) {
+            if (layout.contains(id)) {
+                double[] center = layout.getCenter(id);
+                addTag(id, center[0], center[1]);
+            }
+        }
+    }
+
+    /**
+     * Moves the odometry forward using this loop's sensor readings, and
+     * blends in the latest camera frame if there is one. Call this every loop,
+     * right after the sensors have been read.
+     */
+    public void update(SensorSnapshot sensors) {
+
+        // The Romi's gyro is clockwise positive
+        gyroAngle = -Math.toRadians(sensors.angle);
+        double left = Units.inchesToMeters(sensors.leftDistance);
+        double right = Units.inchesToMeters(sensors.rightDistance);
+        double distance = ((left - lastLeft) + (right - lastRight)) / 2;
+        double heading = gyroAngle + gyroOffset;
+
+        // The gyro's angle jumps from 180 to -180 degrees as we turn past it,
+        // so take the short way round
+        double turn = MathUtil.angleModulus(heading - odometryHeading);
+        lastLeft = left;
+        lastRight = right;
+
+        // Assume we drove along an arc, from the old heading to the new one.
+        // How far forward and sideways did that take us (compared to the old
+        // heading)? For a tiny turn the arc's as good as straight, and the
+        // exact formula would divide by zero.
+        double forward;
+        double sideways;
+        if (Math.abs(turn) < 1e-9) {
+            forward = distance * (1 - turn * turn / 6);
+            sideways = distance * turn / 2;
+        } else {
+            forward = distance * Math.sin(turn) / turn;
+            sideways = distance * (1 - Math.cos(turn)) / turn;
+        }
+        double cos = Math.cos(odometryHeading);
+        double sin = Math.sin(odometryHeading);
+        odometryX += forward * cos - sideways * sin;
+        odometryY += forward * sin + sideways * cos;
+        odometryHeading = heading;
+        history.add(sensors.timestamp, odometryX, odometryY, odometryHeading);
+
+        VisionFrame frame = pendingFrame.getAndSet(null);
+        if (frame != null) {
+            addVision(frame);
+        }
+    }
+
+    /**
+     * Uses the direction to a tag, seen by the camera at a given time, to
+     * fix up our position.
+     *
+     * @param id which tag it was
+     * @param bearing which way the tag was from the camera, in radians
+     * (counter-clockwise positive, 0 is straight ahead)
+     * @param time when the picture was taken (FPGA time, in seconds)
+     * @return true if the tag was used
+     */
+    public boolean addVisionBearing(int id, double bearing, double time) {
+
+        Translation2d tag = tags.get(id);
+        if (tag == null || !history.sample(time, past)) {
+            return false;
+        }
+
+        // Where did we think we were when the picture was taken?
+        double x = past[0] + correctionX;
+        double y = past[1] + correctionY;
+        double dx = tag.getX() - x;
+        double dy = tag.getY() - y;
+        double distance = Math.hypot(dx, dy);
+        if (distance < MIN_TAG_DISTANCE) {
+            return false;
+        }
+
+        // If we were where we thought, the tag would have been this way
+        double expected = MathUtil.angleModulus(Math.atan2(dy, dx) - past[2]);
+        double error = MathUtil.angleModulus(bearing - expected);
+
+        // Seeing the tag further to the left than we expected means we're
+        // really further to the right of it, so slide right (perpendicular to
+        // the line to the tag) by the matching distance
+        double slide = -VISION_GAIN * distance * Math.tan(error);
+        correctionX += slide * -dy / distance;
+        correctionY += slide * dx / distance;
+        return true;
+    }
+
+    /**
+     * Uses where the camera was on the field, when a picture was taken, to
+     * fix up our position.
+     *
+     * @param x where the camera was, in meters
+     * @param y where the camera was, in meters
+     * @param time when the picture was taken (FPGA time, in seconds)
+     * @return true if it was used
+     */
+    public boolean addVisionPosition(double x, double y, double time) {
+        if (!history.sample(time, past)) {
+            return false;
+        }
+
+        // Where was the middle of the robot? We trust the gyro for which way
+        // we were facing.
+        double cos = Math.cos(past[2]);
+        double sin = Math.sin(past[2]);
+        double robotX = x - (CAMERA_FORWARD * cos - CAMERA_LEFT * sin);
+        double robotY = y - (CAMERA_FORWARD * sin + CAMERA_LEFT * cos);
+
+        correctionX += VISION_GAIN * (robotX - (past[0] + correctionX));
+        correctionY += VISION_GAIN * (robotY - (past[1] + correctionY));
+        return true;
+    }
+
+    private void addVision(VisionFrame frame) {
+        double halfFov = Math.toRadians(CAMERA_FOV_DEGREES) / 2;
+        if (frame.data != null) {
+            addVision(frame.data, frame.time, halfFov);
+            return;
+        }
+
+        int count = Math.min(frame.x.length, frame.id.length);
+        for (int i = 0; i < count; i++) {
+
+            // target_x goes from -1 (left edge) to 1 (right edge)
+            double bearing = -Math.atan(frame.x[i] * Math.tan(halfFov));
+            addVisionBearing((int) frame.id[i], bearing, frame.time);
+        }
+    }
+
+    private void addVision(byte[] data, double arrivalTime, double halfFov) {
+        if (!message.decode(data, data.length)) {
+            return;
+        }
+        double time = arrivalTime - message.latency - NETWORK_LATENCY;
+        if (message.cameraTags >= MIN_POSE_TAGS) {
+            addVisionPosition(message.cameraX, message.cameraY, time);
+            return;
+        }
+        for (int i = 0; i < message.tagCount; i++) {
+
+            // If we know where the tag is from the camera (x to the right, z
+            // straight ahead), that gives the most accurate direction
+            double bearing;
+            if (message.hasPose(i) && message.poseZ[i] > 0) {
+                bearing = Math.atan2(-message.poseX[i], message.poseZ[i]);
+            } else {
+                bearing = -Math.atan(message.getTargetX(i) * Math.tan(halfFov));
+            }
+            addVisionBearing(message.id[i], bearing, time);
+        }
+    }
+
+    /**
+     * Tells the tracker the encoders were just reset to zero.
+     */
+    public void resetEncoders() {
+        lastLeft = 0;
+        lastRight = 0;
+    }
+
+    /**
+     * Puts the robot at a known spot on the field (e.g. where it starts for
+     * autonomous). Only call this right after resetting the encoders.
+     */
+    public void resetPose(Pose2d newPose) {
+        correctionX = 0;
+        correctionY = 0;
+        odometryX = newPose.getX();
+        odometryY = newPose.getY();
+        odometryHeading = newPose.getRotation().getRadians();
+        gyroOffset = odometryHeading - gyroAngle;
+        lastLeft = 0;
+        lastRight = 0;
+        history.clear();
+    }
+
+    /**
+     * @return our best guess of where the robot is. This makes a new Pose2d
+     * each time, so if you only need the numbers use {@link #getX} and so on.
+     */
+    public Pose2d getPose() {
+        return new Pose2d(getX(), getY(), new Rotation2d(odometryHeading));
+    }
+
+    /**
+     * @return where the wheels and gyro alone say the robot is, without the
+     * camera's corrections. This never jumps when a tag comes into view, so
+     * it's the one to steer by when following a path (see
+     * frc.robot.auto.Autonomous).
+     */
+    public Pose2d getOdometryPose() {
+        return new Pose2d(odometryX, odometryY, new Rotation2d(odometryHeading));
+    }
+
+    /**
+     * @return our best guess of where the robot is along the field, in meters
+     */
+    public double getX() {
+        return odometryX + correctionX;
+    }
+
+    /**
+     * @return our best guess of where the robot is across the field, in meters
+     */
+    public double getY() {
+        return odometryY + correctionY;
+    }
+
+    /**
+     * @return which way the robot is facing, in radians (counter-clockwise positive)
+     */
+    public double getHeading() {
+        return odometryHeading;
+    }
+}
@@ -0,0 +1,95 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.PIDController;
+import frc.robot.filter.HeadingEstimator;
+
+/**
+ *
+ * Simulates the PID example robots' moves on a {@link RomiPlant}, with
+ * whatever gains and control period we like, and scores how well they went
+ * (see {@link StepResponse}):
+ *
+ * - {@link #position}: the PIDPositionControlledRobot driving forward
+ * - {@link #turn}: the PIDTurningControlledRobot turning on the spot
+ *
+ * These are quick copies of the robots' control math, so {@link PidAutotuner}
+ * can try thousands of gains in the time it takes to start one simulated
+ * robot. Try stiffer gains here before trying them on the carpet, and keep
+ * them in step with the robots (ControlRateTest runs the robots themselves).
+ *
+ */
+public final class ExampleMoves {
+
+    // How long we let each move run, in seconds
+    public static final double DURATION = 5.0;
+
+    private ExampleMoves() { }
+
+    /**
+     * Simulates PIDPositionControlledRobot driving a fixed distance.
+     */
+    public static StepResponse position(double period, double distance, double kp, double ki, double kd,
+            double maxSpeed, double tolerance) {
+
+        RomiPlant plant = new RomiPlant();
+        PIDController leftPid = new PIDController(kp, ki, kd, period);
+        PIDController rightPid = new PIDController(kp, ki, kd, period);
+        leftPid.setIntegratorRange(-0.02, 0.02);
+        rightPid.setIntegratorRange(-0.02, 0.02);
+
+        leftPid.setSetpoint(distance);
+        rightPid.setSetpoint(distance);
+
+        StepResponse response = new StepResponse(0, distance, tolerance);
+        while (plant.getTime() < DURATION) {
+            double left = MathUtil.clamp(leftPid.calculate(plant.getLeftDistance()), -maxSpeed, maxSpeed);
+            double right = MathUtil.clamp(rightPid.calculate(plant.getRightDistance()), -maxSpeed, maxSpeed);
+            plant.setOutputs(left, right);
+            plant.step(period);
+            response.sample(plant.getTime(), (plant.getLeftDistance() + plant.getRightDistance()) / 2);
+        }
+        return response;
+    }
+
+    /**
+     * Simulates PIDTurningControlledRobot turning in place, with the gains
+     * from the example.
+     */
+    public static StepResponse turn(double period, double angle) {
+        return turn(period, angle, 1.0, 0, 0, 0.6, 0.06, 1.0);
+    }
+
+    /**
+     * Simulates PIDTurningControlledRobot turning in place: the heading comes
+     * from a HeadingEstimator (like RobotParts.readSensors), and the wheels
+     * get at least minSpeed until the turn is within the tolerance.
+     */
+    public static StepResponse turn(double period, double angle, double kp, double ki, double kd,
+            double maxSpeed, double minSpeed, double tolerance) {
+
+        RomiPlant plant = new RomiPlant();
+        HeadingEstimator heading = new HeadingEstimator(RomiPlant.TRACK_WIDTH_INCHES);
+        PIDController pid = new PIDController(kp, ki, kd, period);
+        pid.enableContinuousInput(-180, 180);
+        pid.setTolerance(tolerance);
+        double angleIncrement = 90;
+
+        StepResponse response = new StepResponse(0, angle, tolerance);
+        while (plant.getTime() < DURATION) {
+
+            heading.update(plant.getHeading(), plant.getTurnRate(), plant.getLeftDistance(),
+                    plant.getRightDistance(), plant.getTime(), false);
+            double speed = pid.calculate(heading.getHeading(), angle) / angleIncrement;
+            if (!pid.atSetpoint() && pid.getPositionError() != 0) {
+                speed += Math.copySign(minSpeed, pid.getPositionError());
+            }
+            speed = MathUtil.clamp(speed, -maxSpeed, maxSpeed);
+
+            plant.setOutputs(speed / 2, -speed / 2);
+            plant.step(period);
+            response.sample(plant.getTime(), plant.getHeading());
+        }
+        return response;
+    }
+}
@@ -0,0 +1,202 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.PIDController;
+import frc.robot.ProfiledWheelController;
+import frc.robot.subsystems.Drivetrain;
+
+/**
+ *
+ * Compares the old and new ways PadDrivingRobot moves, on a simulated
+ * {@link RomiPlant}:
+ *
+ * - Old: a P-only PID with the output clamped, which stops the motors once
+ * the PID output gets small (drives), or spins at a fixed speed until the
+ * gyro is within 5 degrees (turns)
+ * - New: a {@link ProfiledWheelController} on each wheel
+ *
+ * Both run at the normal 50Hz loop. For each, it prints how long the 12 inch
+ * drive and the 90 degree turn took to settle, and how far they overshot.
+ *
+ * It also drives a 12 inch square (drive, turn right, four times) with the
+ * profiled moves, first stopping after every move, and then blending each
+ * move into the next the way PadDrivingRobot's move queue does.
+ *
+ * Run it with "./gradlew comparePadMoves".
+ *
+ */
+public final class PadMoveComparison {
+
+    // How often the robot loop runs (seconds)
+    public static final double PERIOD = 0.02;
+
+    // How long we let each move run, in seconds
+    public static final double DURATION = 3.0;
+
+    // How close counts as "there" when scoring
+    public static final double DRIVE_TOLERANCE = 0.25;
+    public static final double TURN_TOLERANCE = 2.0;
+
+    private PadMoveComparison() { }
+
+    public static void main(String... args) {
+        System.out.println("12 inch drive        Settled(s)  Overshoot(%)      ITAE");
+        print("Old (P, clamped)", oldDrive(12));
+        print("New (profiled)", newDrive(12));
+        System.out.println();
+        System.out.println("90 degree turn       Settled(s)  Overshoot(%)      ITAE");
+        print("Old (fixed speed)", oldTurn(90));
+        print("New (profiled)", newTurn(90));
+        System.out.println();
+        System.out.println("12 inch square          Time(s)  Heading error(deg)");
+        printSquare("Stop after each move", false);
+        printSquare("Blended moves", true);
+    }
+
+    private static void printSquare(String name, boolean blend) {
+        RomiPlant plant = new RomiPlant();
+        double time = square(plant, blend);
+        System.out.printf("%-20s  %9.3f  %18.1f%n", name, time, plant.getHeading() - 360);
+    }
+
+    private static void print(String name, StepResponse response) {
+        System.out.printf("%-18s  %10s  %12.1f  %8.2f%n",
+                name,
+                response.isSettled() ? String.format("%.3f", response.getSettlingTime()) : "never",
+                response.getOvershootPercent(),
+                response.getItae());
+    }
+
+    /**
+     * The old DriveCommand: P=1, clamped to 0.8, and stop once the output
+     * drops below 0.25.
+     */
+    public static StepResponse oldDrive(double distance) {
+
+        RomiPlant plant = new RomiPlant();
+        PIDController pid = new PIDController(1.0, 0, 0, PERIOD);
+        pid.setSetpoint(distance);
+
+        StepResponse response = new StepResponse(0, distance, DRIVE_TOLERANCE);
+        boolean done = false;
+        while (plant.getTime() < DURATION) {
+            double speed = MathUtil.clamp(pid.calculate(plant.getLeftDistance()), -0.8, 0.8);
+            done = done || speed < 0.25;
+            plant.setOutputs(done ? 0 : speed, done ? 0 : speed);
+            plant.step(PERIOD);
+            response.sample(plant.getTime(), (plant.getLeftDistance() + plant.getRightDistance()) / 2);
+        }
+        return response;
+    }
+
+    /**
+     * The new DriveCommand: a profiled move on each wheel.
+     */
+    public static StepResponse newDrive(double distance) {
+
+        RomiPlant plant = new RomiPlant();
+        ProfiledWheelController left = newWheel();
+        ProfiledWheelController right = newWheel();
+        left.setGoal(distance);
+        right.setGoal(distance);
+
+        StepResponse response = new StepResponse(0, distance, DRIVE_TOLERANCE);
+        while (plant.getTime() < DURATION) {
+            drive(plant, left, right);
+            response.sample(plant.getTime(), (plant.getLeftDistance() + plant.getRightDistance()) / 2);
+        }
+        return response;
+    }
+
+    /**
+     * The old TurnCommand: spin at half of the turn speed (0.8) until the
+     * gyro is within 5 degrees.
+     */
+    public static StepResponse oldTurn(double angle) {
+
+        RomiPlant plant = new RomiPlant();
+        StepResponse response = new StepResponse(0, angle, TURN_TOLERANCE);
+        boolean done = false;
+        while (plant.getTime() < DURATION) {
+            done = done || Math.abs(angle - Math.round(plant.getHeading())) < 5;
+            plant.setOutputs(done ? 0 : 0.4, done ? 0 : -0.4);
+            plant.step(PERIOD);
+            response.sample(plant.getTime(), plant.getHeading());
+        }
+        return response;
+    }
+
+    /**
+     * The new TurnCommand: a profiled move on each wheel (in opposite
+     * directions), topped up from the gyro if the wheels slipped.
+     */
+    public static StepResponse newTurn(double angle) {
+
+        RomiPlant plant = new RomiPlant();
+        ProfiledWheelController left = newWheel();
+        ProfiledWheelController right = newWheel();
+        double arc = Drivetrain.turnArc(angle);
+        left.setGoal(arc);
+        right.setGoal(-arc);
+
+        StepResponse response = new StepResponse(0, angle, TURN_TOLERANCE);
+        while (plant.getTime() < DURATION) {
+
+            // RobotParts.getAngle rounds to the nearest degree
+            double error = angle - Math.round(plant.getHeading());
+            if (left.atGoal() && right.atGoal() && Math.abs(error) > Drivetrain.TURN_TOLERANCE) {
+                double extra = Drivetrain.turnArc(error);
+                left.setGoal(left.getGoal() + extra);
+                right.setGoal(right.getGoal() - extra);
+            }
+
+            drive(plant, left, right);
+            response.sample(plant.getTime(), plant.getHeading());
+        }
+        return response;
+    }
+
+    /**
+     * Drives a square with the profiled moves.
+     *
+     * @param blend if true, start each move once the one before starts
+     * slowing down, instead of waiting for it to stop
+     * @return how long it took, in seconds
+     */
+    public static double square(RomiPlant plant, boolean blend) {
+
+        ProfiledWheelController left = newWheel();
+        ProfiledWheelController right = newWheel();
+        double arc = Drivetrain.turnArc(90);
+
+        // Even moves drive forward, odd moves turn right
+        for (int move = 0; move < 8; move++) {
+            left.setGoal(left.getGoal() + (move % 2 == 1 ? arc : 12));
+            right.setGoal(right.getGoal() + (move % 2 == 1 ? -arc : 12));
+
+            boolean last = move == 7;
+            double nextLeft = move % 2 == 0 ? arc : 12;
+            double nextRight = move % 2 == 0 ? -arc : 12;
+            do {
+                drive(plant, left, right);
+            } while (!(left.atGoal() && right.atGoal())
+                    && !(blend && !last && (left.isReadyFor(nextLeft) || right.isReadyFor(nextRight)))
+                    && plant.getTime() < 10 * DURATION);
+        }
+        return plant.getTime();
+    }
+
+    private static ProfiledWheelController newWheel() {
+        ProfiledWheelController wheel = new ProfiledWheelController(
+                Drivetrain.DEFAULT_MAX_SPEED, Drivetrain.DEFAULT_MAX_ACCELERATION, PERIOD);
+        wheel.reset(0, 0);
+        return wheel;
+    }
+
+    private static void drive(RomiPlant plant, ProfiledWheelController left, ProfiledWheelController right) {
+        double leftVolts = left.calculate(plant.getLeftDistance());
+        double rightVolts = right.calculate(plant.getRightDistance());
+        plant.setOutputs(leftVolts / RomiPlant.BATTERY_VOLTS, rightVolts / RomiPlant.BATTERY_VOLTS);
+        plant.step(PERIOD);
+    }
+}
@@ -0,0 +1,260 @@
+package frc.robot.sim;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import frc.robot.timing.ControlLoop;
+
+/**
+ *
+ * Finds good PID gains for the example robots without anyone having to drive
+ * back and forth on the carpet. For each example, we simulate its move on a
+ * {@link RomiPlant} (which is built from the SysId gains in
+ * data/dadbot-3000/summary.md) with lots of different gains, and keep the
+ * ones that score best.
+ *
+ * Each try gets a score (lower is better) that adds up:
+ *
+ * - How long it took to settle, in seconds
+ * - The overshoot, where 10% costs as much as an extra 0.2 seconds
+ * - The ITAE divided by the size of the move, so it's about the same size
+ * for inches and degrees
+ *
+ * and anything that never settles is thrown out. The search starts with a
+ * coarse grid over Kp, Ki and Kd, then zooms in on the best spot a few times
+ * with finer grids. Every grid is split up across all of the computer's cores
+ * with a fork-join pool, so a search of tens of thousands of tries only takes
+ * a few seconds.
+ *
+ * Run it with "./gradlew autotune", then copy the gains into the examples
+ * (and check them on the real robot!). The simulated Romi has no backlash or
+ * sensor noise, so it tends to like bigger gains than the real one will put
+ * up with. Start with the suggestion and back off if the robot chatters.
+ *
+ */
+public final class PidAutotuner {
+
+    // How much each part of the score counts
+    public static final double OVERSHOOT_WEIGHT = 0.02;
+    public static final double ITAE_WEIGHT = 1.0;
+
+    // How many points along each gain in the first grid, and in each zoom
+    public static final int COARSE_STEPS = 24;
+    public static final int FINE_STEPS = 9;
+    public static final int ZOOMS = 3;
+
+    // Below this many tries, a task just does them itself instead of splitting up
+    private static final int SPLIT_THRESHOLD = 32;
+
+    /**
+     * Something we can simulate with a given set of gains.
+     */
+    @FunctionalInterface
+    public interface Move {
+        StepResponse run(double kp, double ki, double kd);
+    }
+
+    /**
+     * A set of gains and how well they did.
+     */
+    public static class Candidate {
+
+        public final double kp;
+        public final double ki;
+        public final double kd;
+        public final double score;
+        public final StepResponse response;
+
+        Candidate(double kp, double ki, double kd, double score, StepResponse response) {
+            this.kp = kp;
+            this.ki = ki;
+            this.kd = kd;
+            this.score = score;
+            this.response = response;
+        }
+
+        boolean isBetterThan(Candidate other) {
+            return other == null || score < other.score;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Kp=%.4f Ki=%.4f Kd=%.4f  settled %s, overshoot %.1f%%, ITAE %.2f (score %.3f)",
+                    kp, ki, kd,
+                    response.isSettled() ? String.format("%.3fs", response.getSettlingTime()) : "never",
+                    response.getOvershootPercent(), response.getItae(), score);
+        }
+    }
+
+    /**
+     * The range of gains to search. Kp is spaced out logarithmically, since
+     * going from 0.01 to 0.02 matters as much as going from 1 to 2.
+     */
+    public static class Range {
+
+        public final double kpMin;
+        public final double kpMax;
+        public final double kiMax;
+        public final double kdMax;
+
+        public Range(double kpMin, double kpMax, double kiMax, double kdMax) {
+            this.kpMin = kpMin;
+            this.kpMax = kpMax;
+            this.kiMax = kiMax;
+            this.kdMax = kdMax;
+        }
+    }
+
+    private PidAutotuner() { }
+
+    public static void main(String... args) {
+
+        double period = ControlLoop.DEFAULT_PERIOD;
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        System.out.printf("Searching with %d threads, control period %.3fs%n", pool.getParallelism(), period);
+
+        tune("PIDPositionControlledRobot (12 inch move, max speed 0.7, tolerance 0.5in)",
+                12, new Range(0.01, 5.0, 0.2, 0.2), 0.15, 0.03, 0.05,
+                (kp, ki, kd) -> ExampleMoves.position(period, 12, kp, ki, kd, 0.7, 0.5));
+
+        tune("PIDExperimentationRobot (12 inch move, max speed 0.8, tolerance 0.5in)",
+                12, new Range(0.01, 5.0, 0.2, 0.2), 1.0, 0, 0,
+                (kp, ki, kd) -> ExampleMoves.position(period, 12, kp, ki, kd, 0.8, 0.5));
+
+        tune("PIDTurningControlledRobot (90 degree turn, max speed 0.6, min speed 0.06, tolerance 1deg)",
+                90, new Range(0.1, 50.0, 5.0, 2.0), 1.0, 0, 0,
+                (kp, ki, kd) -> ExampleMoves.turn(period, 90, kp, ki, kd, 0.6, 0.06, 1.0));
+    }
+
+    private static void tune(String name, double distance, Range range,
+            double kp, double ki, double kd, Move move) {
+
+        long start = System.nanoTime();
+        int[] tries = new int[1];
+        Candidate best = search(move, distance, range, tries);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println();
+        System.out.println(name);
+        System.out.println("  Current: " + evaluate(move, distance, kp, ki, kd));
+        System.out.println("  Best:    " + (best == null ? "nothing settled" : best));
+        System.out.printf("  (%d tries in %.2fs)%n", tries[0], seconds);
+    }
+
+    /**
+     * Searches for the best gains: a coarse grid first, then a few finer
+     * grids around the best point so far.
+     *
+     * @param distance the size of the move (used to scale the ITAE)
+     * @param tries gets the number of simulations that were run added to it
+     * @return the best gains, or null if none of them settled
+     */
+    public static Candidate search(Move move, double distance, Range range, int[] tries) {
+
+        double[] kps = logSpace(range.kpMin, range.kpMax, COARSE_STEPS);
+        double[] kis = linearSpace(0, range.kiMax, COARSE_STEPS / 2);
+        double[] kds = linearSpace(0, range.kdMax, COARSE_STEPS / 2);
+        Candidate best = grid(move, distance, kps, kis, kds, tries);
+
+        for (int zoom = 0; zoom < ZOOMS && best != null; zoom++) {
+
+            // Look between the neighbouring points of the last grid
+            double kpRatio = Math.pow(range.kpMax / range.kpMin, 1.0 / (COARSE_STEPS - 1) / Math.pow(2, zoom));
+            double kiStep = range.kiMax / (COARSE_STEPS / 2 - 1) / Math.pow(2, zoom);
+            double kdStep = range.kdMax / (COARSE_STEPS / 2 - 1) / Math.pow(2, zoom);
+
+            kps = logSpace(best.kp / kpRatio, best.kp * kpRatio, FINE_STEPS);
+            kis = linearSpace(Math.max(0, best.ki - kiStep), best.ki + kiStep, FINE_STEPS);
+            kds = linearSpace(Math.max(0, best.kd - kdStep), best.kd + kdStep, FINE_STEPS);
+
+            Candidate zoomed = grid(move, distance, kps, kis, kds, tries);
+            if (zoomed != null && zoomed.isBetterThan(best)) {
+                best = zoomed;
+            }
+        }
+        return best;
+    }
+
+    private static Candidate grid(Move move, double distance, double[] kps, double[] kis, double[] kds, int[] tries) {
+        int size = kps.length * kis.length * kds.length;
+        tries[0] += size;
+        return ForkJoinPool.commonPool().invoke(new GridSearch(move, distance, kps, kis, kds, 0, size));
+    }
+
+    /**
+     * Simulates one set of gains and scores it.
+     */
+    public static Candidate evaluate(Move move, double distance, double kp, double ki, double kd) {
+        StepResponse response = move.run(kp, ki, kd);
+        double score = response.isSettled()
+                ? response.getSettlingTime()
+                    + OVERSHOOT_WEIGHT * response.getOvershootPercent()
+                    + ITAE_WEIGHT * response.getItae() / Math.abs(distance)
+                : Double.POSITIVE_INFINITY;
+        return new Candidate(kp, ki, kd, score, response);
+    }
+
+    // Tries every combination of gains between two positions in the grid,
+    // splitting the work in half until each piece is small.
+    private static class GridSearch extends RecursiveTask<Candidate> {
+
+        private final Move move;
+        private final double distance;
+        private final double[] kps;
+        private final double[] kis;
+        private final double[] kds;
+        private final int from;
+        private final int to;
+
+        GridSearch(Move move, double distance, double[] kps, double[] kis, double[] kds, int from, int to) {
+            this.move = move;
+            this.distance = distance;
+            this.kps = kps;
+            this.kis = kis;
+            this.kds = kds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Candidate compute() {
+
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                GridSearch left = new GridSearch(move, distance, kps, kis, kds, from, middle);
+                GridSearch right = new GridSearch(move, distance, kps, kis, kds, middle, to);
+                left.fork();
+                Candidate rightBest = right.compute();
+                Candidate leftBest = left.join();
+                return leftBest != null && leftBest.isBetterThan(rightBest) ? leftBest : rightBest;
+            }
+
+            Candidate best = null;
+            for (int i = from; i < to; i++) {
+                int p = i / (kis.length * kds.length);
+                int rest = i % (kis.length * kds.length);
+                Candidate candidate = evaluate(move, distance, kps[p], kis[rest / kds.length], kds[rest % kds.length]);
+                if (candidate.score < Double.POSITIVE_INFINITY && candidate.isBetterThan(best)) {
+                    best = candidate;
+                }
+            }
+            return best;
+        }
+    }
+
+    private static double[] logSpace(double min, double max, int steps) {
+        double[] values = new double[steps];
+        for (int i = 0; i < steps; i++) {
+            values[i] = min * Math.pow(max / min, (double) i / (steps - 1));
+        }
+        return values;
+    }
+
+    private static double[] linearSpace(double min, double max, int steps) {
+        double[] values = new double[steps];
+        for (int i = 0; i < steps; i++) {
+            values[i] = min + (max - min) * i / (steps - 1);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,136 @@
+package frc.robot.sim;
+
+import java.util.function.Supplier;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+
+/**
+ *
+ * Runs one of the example robots against recorded sensor readings, using the
+ * WPILib simulator. The encoders and gyro say exactly what they said when the
+ * trace was recorded, and we save what the robot did with the motors in
+ * response.
+ *
+ * The simulator's clock is paused, and we move it forward ourselves from one
+ * sample to the next with SimHooks.stepTiming. The robot's loops (and any
+ * addPeriodic control loops) still run at exactly the right simulated times,
+ * but we don't have to wait for real time to pass, so a minute of driving
+ * replays in a fraction of a second. Because nothing depends on the real
+ * clock, running the same trace twice gives exactly the same motor outputs,
+ * which means a change in outputs is a change in the robot code.
+ *
+ * The robot is started once, and each trace gets a fresh teleop period: the
+ * robot is disabled for a loop, then enabled so teleopInit runs again.
+ *
+ */
+public class Replay implements AutoCloseable {
+
+    /**
+     * Called before each sample is replayed, in case the replay needs to do
+     * something extra, like pretend to push buttons on the controller.
+     */
+    @FunctionalInterface
+    public interface StepListener {
+        void onStep(SensorTrace trace, int row);
+    }
+
+    /**
+     * What the robot did with the motors during a trace.
+     */
+    public static class Result {
+
+        public final String name;
+        public final double[] leftOutputs;
+        public final double[] rightOutputs;
+        public final double simulatedSeconds;
+        public final long wallNanos;
+
+        Result(String name, double[] leftOutputs, double[] rightOutputs, double simulatedSeconds, long wallNanos) {
+            this.name = name;
+            this.leftOutputs = leftOutputs;
+            this.rightOutputs = rightOutputs;
+            this.simulatedSeconds = simulatedSeconds;
+            this.wallNanos = wallNanos;
+        }
+
+        /**
+         * @return a fingerprint of every motor output. If this changes, the robot
+         * did something different with the same sensor readings.
+         */
+        public long getChecksum() {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < leftOutputs.length; i++) {
+                hash = (hash ^ Double.doubleToLongBits(leftOutputs[i])) * 0x100000001b3L;
+                hash = (hash ^ Double.doubleToLongBits(rightOutputs[i])) * 0x100000001b3L;
+            }
+            return hash;
+        }
+    }
+
+    private final SimulatedRobot sim;
+
+    /**
+     * Starts up the simulator and the robot. Only one Replay can be running
+     * in a program at a time, since the robot claims the simulated hardware.
+     */
+    public Replay(Supplier<? extends TimedRobot> factory) {
+        sim = new SimulatedRobot(factory);
+    }
+
+    /**
+     * Replays a trace in teleop, with nobody touching the controller.
+     */
+    public Result run(SensorTrace trace) {
+        return run(trace, (t, row) -> { });
+    }
+
+    /**
+     * Replays a trace in teleop.
+     */
+    public Result run(SensorTrace trace, StepListener listener) {
+
+        long start = System.nanoTime();
+        int size = trace.size();
+        double[] leftOutputs = new double[size];
+        double[] rightOutputs = new double[size];
+        if (size == 0) {
+            return new Result(trace.getName(), leftOutputs, rightOutputs, 0, 0);
+        }
+
+        // The encoders count from wherever they were when the robot turned on
+        sim.zeroEncoders(trace.getLeftDistance(0), trace.getRightDistance(0));
+
+        // Spend a loop disabled, then enable so that teleopInit runs
+        double period = sim.getRobot().getPeriod();
+        setSensors(trace, 0);
+        sim.setEnabled(false);
+        sim.step(period);
+        sim.setEnabled(true);
+
+        for (int i = 0; i < size; i++) {
+
+            listener.onStep(trace, i);
+            setSensors(trace, i);
+
+            // Run the robot up until the next sample was recorded
+            sim.step(i + 1 < size ? trace.getTime(i + 1) - trace.getTime(i) : period);
+
+            leftOutputs[i] = sim.getLeftOutput();
+            rightOutputs[i] = sim.getRightOutput();
+        }
+
+        sim.setEnabled(false);
+        return new Result(trace.getName(), leftOutputs, rightOutputs, trace.getDuration(), System.nanoTime() - start);
+    }
+
+    private void setSensors(SensorTrace trace, int row) {
+        sim.setEncoders(trace.getLeftDistance(row), trace.getRightDistance(row),
+                trace.getLeftRate(row), trace.getRightRate(row));
+        sim.setGyro(trace.getAngle(row), trace.getGyroRate(row));
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        sim.close();
+    }
+}
@@ -0,0 +1,147 @@
+package frc.robot.sim;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ *
+ * Replays every data log and SysId file it can find through one of the
+ * example robots (see {@link Replay}), and prints a fingerprint of the motor
+ * outputs for each trace.
+ *
+ * Save the fingerprints once as a "baseline", and after that the runner will
+ * tell you (and fail) whenever a code change makes the robot respond
+ * differently to any of the recordings. That makes it easy to check that a
+ * clean-up didn't change how the robot drives.
+ *
+ * Run it with "./gradlew replay". It replays everything under "data" (and
+ * "logs", if it's there) unless you list other directories, and settings can
+ * be changed with system properties:
+ *
+ * - replay.robot: the robot class (default PIDPositionControlledRobot)
+ * - replay.baseline: a file of fingerprints to check against
+ * - replay.update: set to true to (re)write the baseline file instead
+ *
+ */
+public final class ReplayRunner {
+
+    private ReplayRunner() { }
+
+    public static void main(String... args) throws Exception {
+
+        String robotClass = System.getProperty("replay.robot", "frc.robot.examples.PIDPositionControlledRobot");
+        String baselineFile = System.getProperty("replay.baseline");
+        boolean update = Boolean.getBoolean("replay.update");
+
+        List<Path> roots = new ArrayList<>();
+        for (String arg : args) {
+            roots.add(Paths.get(arg));
+        }
+        if (roots.isEmpty()) {
+            roots.add(Paths.get("data"));
+            if (Files.isDirectory(Paths.get("logs"))) {
+                roots.add(Paths.get("logs"));
+            }
+        }
+
+        Map<String, Long> checksums = new TreeMap<>();
+        double simulated = 0;
+        long start = System.nanoTime();
+
+        try (Replay replay = new Replay(SimulatedRobot.forClass(robotClass))) {
+            for (Path file : findTraceFiles(roots)) {
+                for (SensorTrace trace : SensorTrace.load(file)) {
+                    Replay.Result result = replay.run(trace);
+                    checksums.put(result.name, result.getChecksum());
+                    simulated += result.simulatedSeconds;
+                    System.out.printf("%016x  %7.2fs in %6.1fms  %s%n",
+                            result.getChecksum(), result.simulatedSeconds, result.wallNanos / 1e6, result.name);
+                }
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println();
+        System.out.printf("Replayed %d traces (%.1fs of driving) in %.2fs, %.0fx faster than real time%n",
+                checksums.size(), simulated, seconds, simulated / seconds);
+
+        if (baselineFile == null) {
+            return;
+        }
+
+        Path baseline = Paths.get(baselineFile);
+        if (update) {
+            List<String> lines = checksums.entrySet().stream()
+                    .map(e -> String.format("%016x %s", e.getValue(), e.getKey()))
+                    .collect(Collectors.toList());
+            Files.write(baseline, lines, StandardCharsets.UTF_8);
+            System.out.println("Wrote the baseline to " + baseline);
+            return;
+        }
+
+        int differences = compare(readBaseline(baseline), checksums);
+        if (differences > 0) {
+            System.out.printf("%d traces don't match %s%n", differences, baseline);
+            System.exit(1);
+        }
+        System.out.println("Everything matches " + baseline);
+    }
+
+    private static int compare(Map<String, Long> expected, Map<String, Long> actual) {
+        int differences = 0;
+        for (Map.Entry<String, Long> entry : expected.entrySet()) {
+            Long checksum = actual.get(entry.getKey());
+            if (checksum == null) {
+                System.out.println("Missing: " + entry.getKey());
+                differences++;
+            } else if (!checksum.equals(entry.getValue())) {
+                System.out.println("Changed: " + entry.getKey());
+                differences++;
+            }
+        }
+        for (String name : actual.keySet()) {
+            if (!expected.containsKey(name)) {
+                System.out.println("New (not in the baseline): " + name);
+            }
+        }
+        return differences;
+    }
+
+    private static Map<String, Long> readBaseline(Path file) throws IOException {
+        Map<String, Long> checksums = new TreeMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            int space = line.indexOf(' ');
+            if (space > 0) {
+                checksums.put(line.substring(space + 1), Long.parseUnsignedLong(line.substring(0, space), 16));
+            }
+        }
+        return checksums;
+    }
+
+    // Data logs and SysId files (at any depth)
+    private static List<Path> findTraceFiles(List<Path> roots) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path root : roots) {
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.filter(Files::isRegularFile)
+                     .filter(path -> {
+                         String name = path.getFileName().toString();
+                         return name.endsWith(".rlog") || (name.startsWith("sysid_data") && name.endsWith(".json"));
+                     })
+                     .forEach(files::add);
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+}
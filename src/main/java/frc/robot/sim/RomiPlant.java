@@ -0,0 +1,170 @@
+package frc.robot.sim;
+
+import frc.robot.RobotParts;
+
+/**
+ *
+ * A simple physics model of the Romi's two wheels, built from the gains SysId
+ * measured (see data/dadbot-3000/summary.md). Each wheel follows:
+ *
+ *     volts = Ks * sign(velocity) + Kv * velocity + Ka * acceleration
+ *
+ * which we turn around to get the acceleration for a given voltage. The
+ * heading comes from the difference between the two wheels.
+ *
+ * This doesn't need the robot hardware (or even the WPILib simulator), so we
+ * can run thousands of seconds of "driving" in a fraction of a second.
+ *
+ */
+public class RomiPlant {
+
+    // Feedforward gains from the "Large" data set in summary.md, in volts
+    // per rotation of the wheel
+    public static final double KS = 0.12977;
+    public static final double KV = 2.3181;
+    public static final double KA = 0.2372;
+
+    // The Romi runs on 6 AA batteries
+    public static final double BATTERY_VOLTS = 7.2;
+
+    // Distance between the wheels
+    public static final double TRACK_WIDTH_INCHES = RobotParts.TRACK_WIDTH_INCHES;
+
+    public static final double INCHES_PER_ROTATION = Math.PI * RobotParts.WHEEL_DIAMETER_INCHES;
+
+    // How small are the physics steps (in seconds)?
+    public static final double PHYSICS_STEP = 0.0005;
+
+    private final double ks;
+    private final double kv;
+    private final double ka;
+
+    // Wheel positions (rotations) and velocities (rotations/second)
+    private double leftPosition;
+    private double rightPosition;
+    private double leftVelocity;
+    private double rightVelocity;
+
+    // Motor outputs, from -1 to 1
+    private double leftOutput;
+    private double rightOutput;
+
+    private double time;
+
+    public RomiPlant() {
+        this(KS, KV, KA);
+    }
+
+    public RomiPlant(double ks, double kv, double ka) {
+        this.ks = ks;
+        this.kv = kv;
+        this.ka = ka;
+    }
+
+    /**
+     * Sets the motor outputs, just like Spark.set (from -1 to 1).
+     */
+    public void setOutputs(double left, double right) {
+        leftOutput = Math.max(-1, Math.min(1, left));
+        rightOutput = Math.max(-1, Math.min(1, right));
+    }
+
+    /**
+     * Moves the simulation forward in time.
+     */
+    public void step(double seconds) {
+        double end = time + seconds;
+        while (time < end - 1e-12) {
+            double dt = Math.min(PHYSICS_STEP, end - time);
+            leftVelocity = nextVelocity(leftVelocity, leftOutput * BATTERY_VOLTS, dt);
+            rightVelocity = nextVelocity(rightVelocity, rightOutput * BATTERY_VOLTS, dt);
+            leftPosition += leftVelocity * dt;
+            rightPosition += rightVelocity * dt;
+            time += dt;
+        }
+    }
+
+    private double nextVelocity(double velocity, double volts, double dt) {
+
+        // Not enough voltage to overcome static friction
+        if (velocity == 0 && Math.abs(volts) <= ks) {
+            return 0;
+        }
+
+        double friction = ks * Math.signum(velocity == 0 ? volts : velocity);
+        double next = velocity + (volts - friction - kv * velocity) / ka * dt;
+
+        // Friction can stop the wheel, but it can't push it backwards
+        if (velocity != 0 && Math.signum(next) != Math.signum(velocity) && Math.abs(volts) <= ks) {
+            return 0;
+        }
+        return next;
+    }
+
+    /**
+     * Resets everything to zero, like turning the robot off and on again.
+     */
+    public void reset() {
+        leftPosition = rightPosition = 0;
+        leftVelocity = rightVelocity = 0;
+        leftOutput = rightOutput = 0;
+        time = 0;
+    }
+
+    /**
+     * @return how long the simulation has been running, in seconds
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * @return the left wheel distance in inches, rounded to a whole encoder
+     * pulse like a real encoder would be
+     */
+    public double getLeftDistance() {
+        return quantize(leftPosition * INCHES_PER_ROTATION);
+    }
+
+    /**
+     * @return the right wheel distance in inches, rounded to a whole encoder pulse
+     */
+    public double getRightDistance() {
+        return quantize(rightPosition * INCHES_PER_ROTATION);
+    }
+
+    /**
+     * @return the left wheel speed in inches/second
+     */
+    public double getLeftRate() {
+        return leftVelocity * INCHES_PER_ROTATION;
+    }
+
+    /**
+     * @return the right wheel speed in inches/second
+     */
+    public double getRightRate() {
+        return rightVelocity * INCHES_PER_ROTATION;
+    }
+
+    /**
+     * @return the heading in degrees (clockwise is positive, like the gyro),
+     * without wrapping around at 180
+     */
+    public double getHeading() {
+        double difference = (leftPosition - rightPosition) * INCHES_PER_ROTATION;
+        return Math.toDegrees(difference / TRACK_WIDTH_INCHES);
+    }
+
+    /**
+     * @return the turning rate in degrees/second (clockwise is positive)
+     */
+    public double getTurnRate() {
+        double difference = (leftVelocity - rightVelocity) * INCHES_PER_ROTATION;
+        return Math.toDegrees(difference / TRACK_WIDTH_INCHES);
+    }
+
+    private static double quantize(double inches) {
+        return Math.round(inches / RobotParts.DISTANCE_PER_PULSE) * RobotParts.DISTANCE_PER_PULSE;
+    }
+}
@@ -0,0 +1,150 @@
+package frc.robot.sim;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import frc.robot.logging.RingLog;
+import frc.robot.logging.RingLogReader;
+import frc.robot.sysid.SysIdData;
+import frc.robot.sysid.SysIdLoader;
+import frc.robot.sysid.SysIdRun;
+
+/**
+ *
+ * A recording of what the Romi's sensors said over time, in the same units
+ * RobotParts uses: inches, inches/second, and degrees (clockwise positive).
+ * This is what {@link Replay} feeds back into a robot.
+ *
+ * Traces can come from our own data logs (see {@link RingLog}) or from SysId
+ * data files, where each test ("fast-forward", "slow-backward", etc.) becomes
+ * its own trace.
+ *
+ */
+public class SensorTrace {
+
+    private final String name;
+    private final double[] time;
+    private final double[] leftDistance;
+    private final double[] rightDistance;
+    private final double[] leftRate;
+    private final double[] rightRate;
+    private final double[] angle;
+    private final double[] gyroRate;
+
+    private SensorTrace(String name, int size) {
+        this.name = name;
+        this.time = new double[size];
+        this.leftDistance = new double[size];
+        this.rightDistance = new double[size];
+        this.leftRate = new double[size];
+        this.rightRate = new double[size];
+        this.angle = new double[size];
+        this.gyroRate = new double[size];
+    }
+
+    /**
+     * Loads every trace in a file. Data logs (".rlog") have a single trace,
+     * and SysId files (".json") have one for each test.
+     */
+    public static List<SensorTrace> load(Path file) throws IOException {
+
+        // Use forward slashes everywhere, so the names match on every computer
+        String name = file.toString().replace('\\', '/');
+        List<SensorTrace> traces = new ArrayList<>();
+        if (name.endsWith(".rlog")) {
+            traces.add(fromLog(name, RingLogReader.open(file)));
+        } else {
+            SysIdData data = SysIdLoader.load(file);
+            for (SysIdRun run : data.getRuns()) {
+                traces.add(fromSysId(name + "/" + run.getName(), run, data.getUnitsPerRotation()));
+            }
+        }
+        return traces;
+    }
+
+    /**
+     * Makes a trace out of one of our data logs.
+     */
+    public static SensorTrace fromLog(String name, RingLogReader log) {
+        SensorTrace trace = new SensorTrace(name, log.size());
+        for (int i = 0; i < log.size(); i++) {
+            trace.time[i] = log.get(i, RingLog.TIMESTAMP);
+            trace.leftDistance[i] = log.get(i, RingLog.LEFT_DISTANCE);
+            trace.rightDistance[i] = log.get(i, RingLog.RIGHT_DISTANCE);
+            trace.leftRate[i] = log.get(i, RingLog.LEFT_RATE);
+            trace.rightRate[i] = log.get(i, RingLog.RIGHT_RATE);
+            trace.angle[i] = log.get(i, RingLog.ANGLE);
+            trace.gyroRate[i] = log.get(i, RingLog.GYRO_RATE);
+        }
+        return trace;
+    }
+
+    /**
+     * Makes a trace out of a SysId test. SysId records wheel rotations and
+     * radians (counter-clockwise positive), so we change those back.
+     *
+     * @param unitsPerRotation how many of the file's units are in one wheel rotation
+     */
+    public static SensorTrace fromSysId(String name, SysIdRun run, double unitsPerRotation) {
+        double inches = RomiPlant.INCHES_PER_ROTATION / unitsPerRotation;
+        SensorTrace trace = new SensorTrace(name, run.size());
+        for (int i = 0; i < run.size(); i++) {
+            trace.time[i] = run.get(SysIdRun.TIMESTAMP, i);
+            trace.leftDistance[i] = run.get(SysIdRun.LEFT_POSITION, i) * inches;
+            trace.rightDistance[i] = run.get(SysIdRun.RIGHT_POSITION, i) * inches;
+            trace.leftRate[i] = run.get(SysIdRun.LEFT_VELOCITY, i) * inches;
+            trace.rightRate[i] = run.get(SysIdRun.RIGHT_VELOCITY, i) * inches;
+            trace.angle[i] = -Math.toDegrees(run.get(SysIdRun.GYRO_ANGLE, i));
+            trace.gyroRate[i] = -Math.toDegrees(run.get(SysIdRun.GYRO_RATE, i));
+        }
+        return trace;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return how many samples are in the trace
+     */
+    public int size() {
+        return time.length;
+    }
+
+    /**
+     * @return how long the trace lasts, in seconds
+     */
+    public double getDuration() {
+        return time.length < 2 ? 0 : time[time.length - 1] - time[0];
+    }
+
+    public double getTime(int i) {
+        return time[i];
+    }
+
+    public double getLeftDistance(int i) {
+        return leftDistance[i];
+    }
+
+    public double getRightDistance(int i) {
+        return rightDistance[i];
+    }
+
+    public double getLeftRate(int i) {
+        return leftRate[i];
+    }
+
+    public double getRightRate(int i) {
+        return rightRate[i];
+    }
+
+    public double getAngle(int i) {
+        return angle[i];
+    }
+
+    public double getGyroRate(int i) {
+        return gyroRate[i];
+    }
+}
@@ -0,0 +1,155 @@
+package frc.robot.sim;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * Runs lots of simulated robots at once, with no GUI, to see how many robot
+ * loops per second the computer can get through. Every robot is a separate
+ * Java process (see {@link SimWorker}) with its own working directory, so
+ * their simulators and NetworkTables can't interfere with each other.
+ *
+ * Run it with "./gradlew simFarm". Settings can be changed with system
+ * properties:
+ *
+ * - farm.robots: a comma separated list of robot classes (default: every
+ * example robot in Main). Robots are handed out to the instances in turn.
+ * - farm.instances: how many robots to run at once (default: one per core)
+ * - farm.seconds: how much simulated time each robot runs for (default 60)
+ *
+ * Each robot's output goes to build/simfarm/&lt;number&gt;-&lt;robot&gt;/output.txt.
+ *
+ */
+public final class SimFarm {
+
+    // The robots Main can start
+    public static final String DEFAULT_ROBOTS = String.join(",",
+            "frc.robot.examples.TripleModeDrivingRobot",
+            "frc.robot.examples.PadDrivingRobot",
+            "frc.robot.examples.PIDPositionControlledRobot",
+            "frc.robot.examples.PIDExperimentationRobot",
+            "frc.robot.examples.PIDTurningControlledRobot",
+            "frc.robot.examples.OnOffRobot",
+            "frc.robot.examples.ManualPositionControlledRobot",
+            "frc.robot.examples.TankDrivingRobot",
+            "frc.robot.EmptyRobot");
+
+    private SimFarm() { }
+
+    // A running robot
+    private static class Instance {
+
+        final String robot;
+        final Path output;
+        final Process process;
+
+        Instance(String robot, Path output, Process process) {
+            this.robot = robot;
+            this.output = output;
+            this.process = process;
+        }
+    }
+
+    public static void main(String... args) throws IOException, InterruptedException {
+
+        String[] robots = System.getProperty("farm.robots", DEFAULT_ROBOTS).split(",");
+        int instances = Integer.getInteger("farm.instances", Runtime.getRuntime().availableProcessors());
+        String seconds = System.getProperty("farm.seconds", "60");
+        Path root = Paths.get("build", "simfarm");
+
+        // Every robot gets the same Java, classes and native libraries we have
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        String classpath = System.getProperty("java.class.path");
+        String libraryPath = System.getProperty("java.library.path");
+
+        System.out.printf("Starting %d robots for %s simulated seconds each%n", instances, seconds);
+        long start = System.nanoTime();
+
+        List<Instance> running = new ArrayList<>();
+        for (int i = 0; i < instances; i++) {
+
+            String robot = robots[i % robots.length].trim();
+            String simpleName = robot.substring(robot.lastIndexOf('.') + 1);
+            Path dir = root.resolve(i + "-" + simpleName).toAbsolutePath();
+            Files.createDirectories(dir);
+            Path output = dir.resolve("output.txt");
+
+            Process process = new ProcessBuilder(java,
+                    "-cp", classpath,
+                    "-Djava.library.path=" + libraryPath,
+                    SimWorker.class.getName(), robot, seconds)
+                    .directory(dir.toFile())
+                    .redirectErrorStream(true)
+                    .redirectOutput(output.toFile())
+                    .start();
+            running.add(new Instance(robot, output, process));
+        }
+
+        // Add up the results for each kind of robot
+        Map<String, double[]> totals = new LinkedHashMap<>();
+        long loops = 0;
+        double simulated = 0;
+        int failed = 0;
+        for (Instance instance : running) {
+
+            int exit = instance.process.waitFor();
+            String[] result = findResult(instance.output);
+            if (exit != 0 || result == null) {
+                System.out.printf("%s failed (exit code %d), see %s%n", instance.robot, exit, instance.output);
+                failed++;
+                continue;
+            }
+
+            long robotLoops = Long.parseLong(result[1]);
+            double robotSeconds = Double.parseDouble(result[2]);
+            double wallSeconds = Long.parseLong(result[3]) / 1e9;
+            loops += robotLoops;
+            simulated += robotSeconds;
+
+            double[] total = totals.computeIfAbsent(instance.robot, name -> new double[4]);
+            total[0]++;
+            total[1] += robotLoops;
+            total[2] += robotSeconds;
+            total[3] += wallSeconds;
+        }
+        double wall = (System.nanoTime() - start) / 1e9;
+
+        System.out.println();
+        System.out.println("  Robots     Loops   Loops/s each   Real time   Robot");
+        for (Map.Entry<String, double[]> entry : totals.entrySet()) {
+            double[] total = entry.getValue();
+            System.out.printf("%8.0f  %8.0f  %13.0f  %9.1fx   %s%n",
+                    total[0], total[1], total[1] / total[3], total[2] / total[3], entry.getKey());
+        }
+        System.out.println();
+        System.out.printf("%d loops (%.0fs of driving) in %.2fs: %.0f loops/s across the farm, %.0fx real time%n",
+                loops, simulated, wall, loops / wall, simulated / wall);
+
+        if (failed > 0) {
+            System.out.printf("%d robots failed%n", failed);
+            System.exit(1);
+        }
+    }
+
+    // The worker's result line, split on spaces (or null if it never got that far)
+    private static String[] findResult(Path output) throws IOException {
+        if (!Files.exists(output)) {
+            return null;
+        }
+        String[] result = null;
+        for (String line : Files.readAllLines(output, StandardCharsets.UTF_8)) {
+            if (line.startsWith(SimWorker.RESULT_PREFIX + " ")) {
+                result = line.trim().split(" ");
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,69 @@
+package frc.robot.sim;
+
+import java.util.Locale;
+
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+/**
+ *
+ * One robot in the {@link SimFarm}. This runs in its own Java process, so it
+ * gets its own copy of the simulator and NetworkTables, and can't get mixed
+ * up with any of the other robots.
+ *
+ * The robot drives a {@link RomiPlant} in teleop for a fixed amount of
+ * simulated time, as fast as it can, and then prints a single line for the
+ * farm to pick up:
+ *
+ *     SIMFARM <loops> <simulated seconds> <wall clock nanoseconds>
+ *
+ */
+public final class SimWorker {
+
+    // The start of the line with the results
+    public static final String RESULT_PREFIX = "SIMFARM";
+
+    // How far apart are the physics updates (in seconds)?
+    public static final double STEP = 0.005;
+
+    private SimWorker() { }
+
+    /**
+     * @param args the robot class, and how many seconds to simulate
+     */
+    public static void main(String... args) throws Exception {
+
+        if (args.length < 2) {
+            System.err.println("Usage: SimWorker <robot class> <seconds>");
+            System.exit(2);
+        }
+
+        double duration = Double.parseDouble(args[1]);
+
+        // Nobody is going to connect to this robot, and the other robots
+        // want the NetworkTables port too. This has to happen before the
+        // robot is made, because the robot starts a server, and once
+        // NetworkTables is running locally it won't.
+        NetworkTableInstance.getDefault().startLocal();
+
+        RomiPlant plant = new RomiPlant();
+        try (SimulatedRobot sim = new SimulatedRobot(SimulatedRobot.forClass(args[0]))) {
+            sim.zeroEncoders(0, 0);
+            sim.step(sim.getRobot().getPeriod());
+            sim.setEnabled(true);
+
+            long start = System.nanoTime();
+            long firstLoop = sim.getLoopCount();
+            while (plant.getTime() < duration) {
+                plant.setOutputs(sim.getLeftOutput(), sim.getRightOutput());
+                plant.step(STEP);
+                sim.setEncoders(plant.getLeftDistance(), plant.getRightDistance(),
+                        plant.getLeftRate(), plant.getRightRate());
+                sim.setGyro(plant.getHeading(), plant.getTurnRate());
+                sim.step(STEP);
+            }
+            long wallNanos = System.nanoTime() - start;
+
+            System.out.printf(Locale.ROOT, "%s %d %.3f %d%n", RESULT_PREFIX, sim.getLoopCount() - firstLoop, plant.getTime(), wallNanos);
+        }
+    }
+}
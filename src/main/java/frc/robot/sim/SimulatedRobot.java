@@ -0,0 +1,246 @@
+package frc.robot.sim;
+
+import java.util.function.Supplier;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.hal.SimDouble;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.EncoderSim;
+import edu.wpi.first.wpilibj.simulation.PWMSim;
+import edu.wpi.first.wpilibj.simulation.SimDeviceSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.RobotParts;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.tuning.Tuning;
+
+/**
+ *
+ * Runs one of the robots in the WPILib simulator with no GUI and no Romi,
+ * with the simulator's clock under our control. Nothing happens until we call
+ * {@link #step(double)}, which runs every robot loop (and addPeriodic control
+ * loop) that's due in that much simulated time, as quickly as the computer
+ * can go.
+ *
+ * This also gives us the Romi's simulated hardware, so we can decide what
+ * the encoders and gyro say and see what the robot did with the motors.
+ *
+ * Only one of these can run in a program, since the robot claims the
+ * simulated hardware (and the command scheduler) until the program ends.
+ * Tests that try several robots run each one in a program of its own.
+ *
+ */
+public class SimulatedRobot implements AutoCloseable {
+
+    private final TimedRobot robot;
+    private final Thread thread;
+    private final EncoderSim leftEncoder;
+    private final EncoderSim rightEncoder;
+    private final SimDouble gyroAngle;
+    private final SimDouble gyroRate;
+    private final PWMSim leftMotor;
+    private final PWMSim rightMotor;
+
+    private volatile long loops;
+
+    // Encoders count from wherever they were last reset
+    private double leftOffset;
+    private double rightOffset;
+    private double lastLeft;
+    private double lastRight;
+
+    /**
+     * Starts up the simulator and the robot (which starts out disabled).
+     */
+    public SimulatedRobot(Supplier<? extends TimedRobot> factory) {
+
+        // Don't fill the disk with logs of simulated driving
+        RobotParts.loggingAllowed = false;
+
+        // Start every run from the same values, whatever's been changed on
+        // the dashboard
+        Tuning.persistenceAllowed = false;
+
+        HAL.initialize(500, 0);
+        SimHooks.pauseTiming();
+        DriverStationSim.resetData();
+        DriverStationSim.setDsAttached(true);
+        DriverStationSim.setAutonomous(false);
+        DriverStationSim.setTest(false);
+        DriverStationSim.setEnabled(false);
+        DriverStationSim.notifyNewData();
+
+        robot = factory.get();
+
+        // Count the loops by running alongside the robot's own loop. This has
+        // to be added before the robot starts: its list of things to run
+        // isn't safe to change from another thread once it's going.
+        robot.addPeriodic(() -> loops++, robot.getPeriod());
+
+        thread = new Thread(robot::startCompetition, "Simulated Robot");
+        thread.setDaemon(true);
+        thread.start();
+        SimHooks.waitForProgramStart();
+
+        // RobotParts has been set up by now (in robotInit), so the simulated
+        // hardware exists
+        leftEncoder = EncoderSim.createForChannel(RobotParts.LEFT_ENCODER_A);
+        rightEncoder = EncoderSim.createForChannel(RobotParts.RIGHT_ENCODER_A);
+        SimDeviceSim gyro = new SimDeviceSim("Gyro:RomiGyro");
+        gyroAngle = gyro.getDouble("angle_z");
+        gyroRate = gyro.getDouble("rate_z");
+        leftMotor = new PWMSim(RobotParts.LEFT_MOTOR_CHANNEL);
+        rightMotor = new PWMSim(RobotParts.RIGHT_MOTOR_CHANNEL);
+    }
+
+    /**
+     * @return something that makes a new robot of the named class (which
+     * needs a constructor with no arguments)
+     */
+    public static Supplier<TimedRobot> forClass(String className) {
+        Class<? extends TimedRobot> type;
+        try {
+            type = Class.forName(className).asSubclass(TimedRobot.class);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IllegalArgumentException(className + " isn't a robot class", e);
+        }
+
+        return () -> {
+            try {
+                return type.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("can't create a " + className, e);
+            }
+        };
+    }
+
+    public TimedRobot getRobot() {
+        return robot;
+    }
+
+    /**
+     * @return the id of the thread the robot runs on (all of its loops run
+     * there, including the addPeriodic ones)
+     */
+    public long getThreadId() {
+        return thread.getId();
+    }
+
+    /**
+     * Runs the robot for some amount of simulated time.
+     */
+    public void step(double seconds) {
+        SimHooks.stepTiming(Math.max(0, seconds));
+    }
+
+    /**
+     * Runs the robot on a simulated Romi for some amount of time: the plant
+     * moves on with the motor outputs the robot last set, the sensors are set
+     * to where that left it, and then the robot runs for the same time.
+     * Keep the time no longer than the robot's fastest loop, so each loop
+     * sees fresh sensors.
+     */
+    public void step(RomiPlant plant, double seconds) {
+        plant.setOutputs(getLeftOutput(), getRightOutput());
+        plant.step(seconds);
+        setEncoders(plant.getLeftDistance(), plant.getRightDistance(), plant.getLeftRate(), plant.getRightRate());
+        setGyro(plant.getHeading(), plant.getTurnRate());
+        step(seconds);
+    }
+
+    /**
+     * Enables or disables the robot (in teleop, unless it's been switched to
+     * autonomous).
+     */
+    public void setEnabled(boolean enabled) {
+        DriverStationSim.setEnabled(enabled);
+        DriverStationSim.notifyNewData();
+    }
+
+    /**
+     * Switches the robot between autonomous and teleop. This doesn't enable
+     * it: call {@link #setEnabled} for that.
+     */
+    public void setAutonomous(boolean autonomous) {
+        DriverStationSim.setAutonomous(autonomous);
+        DriverStationSim.notifyNewData();
+    }
+
+    /**
+     * Makes the encoders count from here, as if the robot had just been turned on.
+     *
+     * @param leftDistance how far the left wheel has gone (in inches) so far
+     * @param rightDistance how far the right wheel has gone so far
+     */
+    public void zeroEncoders(double leftDistance, double rightDistance) {
+        leftOffset = lastLeft = leftDistance;
+        rightOffset = lastRight = rightDistance;
+        leftEncoder.setReset(false);
+        rightEncoder.setReset(false);
+    }
+
+    /**
+     * Sets how far the wheels have gone (in inches) and how fast they're
+     * going (in inches/second). If the robot reset its encoders during the
+     * last step, they count from where the wheels were then, just like the
+     * real ones would.
+     */
+    public void setEncoders(double leftDistance, double rightDistance, double leftRate, double rightRate) {
+
+        if (leftEncoder.getReset()) {
+            leftOffset = lastLeft;
+            leftEncoder.setReset(false);
+        }
+        if (rightEncoder.getReset()) {
+            rightOffset = lastRight;
+            rightEncoder.setReset(false);
+        }
+        lastLeft = leftDistance;
+        lastRight = rightDistance;
+
+        leftEncoder.setDistance(leftDistance - leftOffset);
+        rightEncoder.setDistance(rightDistance - rightOffset);
+        leftEncoder.setRate(leftRate);
+        rightEncoder.setRate(rightRate);
+    }
+
+    /**
+     * Sets what the gyro says, in degrees and degrees/second (clockwise is positive).
+     */
+    public void setGyro(double angle, double rate) {
+        gyroAngle.set(angle);
+        gyroRate.set(rate);
+    }
+
+    /**
+     * @return what the left motor is set to (-1 to 1)
+     */
+    public double getLeftOutput() {
+        return leftMotor.getSpeed();
+    }
+
+    /**
+     * @return what the right motor is set to (-1 to 1). The right motor is
+     * inverted, so we flip it back to "positive is forward".
+     */
+    public double getRightOutput() {
+        return -rightMotor.getSpeed();
+    }
+
+    /**
+     * @return how many robot loops have run so far
+     */
+    public long getLoopCount() {
+        return loops;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        robot.endCompetition();
+        thread.join(1000);
+        robot.close();
+
+        // Let go of the robot's dashboard values, so the next robot has room
+        Telemetry.reset();
+    }
+}
@@ -0,0 +1,90 @@
+package frc.robot.sim;
+
+/**
+ *
+ * Scores how well a controller moved something to a target. Feed it a sample
+ * every time step and it keeps track of:
+ *
+ * - Settling time: when did we get within tolerance of the target, and stay there?
+ * - Overshoot: how far past the target did we go, as a percent of the move?
+ * - ITAE: the "integral of time times absolute error". This adds up the error
+ * over time, but counts late errors more than early ones, so a controller that
+ * gets close quickly and stays there scores best (lowest).
+ *
+ */
+public class StepResponse {
+
+    private final double start;
+    private final double target;
+    private final double tolerance;
+
+    private double lastOutside;
+    private double peak;
+    private double itae;
+    private double lastTime;
+
+    /**
+     * @param start where we started
+     * @param target where we want to end up
+     * @param tolerance how close counts as "there"
+     */
+    public StepResponse(double start, double target, double tolerance) {
+        this.start = start;
+        this.target = target;
+        this.tolerance = tolerance;
+        this.lastOutside = 0;
+        this.peak = 0;
+        this.itae = 0;
+        this.lastTime = 0;
+    }
+
+    /**
+     * Adds a sample: where we were at a given time (in seconds since the move started).
+     */
+    public void sample(double time, double value) {
+
+        double error = target - value;
+        if (Math.abs(error) > tolerance) {
+            lastOutside = time;
+        }
+
+        // How far have we gone past the target, in the direction of the move?
+        double past = (value - target) * Math.signum(target - start);
+        if (past > peak) {
+            peak = past;
+        }
+
+        itae += time * Math.abs(error) * (time - lastTime);
+        lastTime = time;
+    }
+
+    /**
+     * @return the time we got within tolerance and stayed there (or the last
+     * sample time, if we never settled)
+     */
+    public double getSettlingTime() {
+        return lastOutside;
+    }
+
+    /**
+     * @return true if we were within tolerance at the last sample
+     */
+    public boolean isSettled() {
+        return lastOutside < lastTime;
+    }
+
+    /**
+     * @return how far past the target we went, as a percent of the move
+     */
+    public double getOvershootPercent() {
+        double distance = Math.abs(target - start);
+        return distance == 0 ? 0 : 100.0 * peak / distance;
+    }
+
+    /**
+     * @return the integral of time times absolute error (lower is better)
+     */
+    public double getItae() {
+        return itae;
+    }
+}
@@ -0,0 +1,171 @@
+package frc.robot.sim;
+
+import java.util.Random;
+
+import frc.robot.filter.VelocityEstimator;
+import frc.robot.filter.VelocityFilter;
+import frc.robot.timing.ControlLoop;
+
+/**
+ *
+ * Compares the wheel speed estimators in frc.robot.filter against the raw
+ * encoder rate, on a simulated {@link RomiPlant}.
+ *
+ * The wheel is driven at a slow speed, then a fast one, then let go. Every
+ * loop we read the (tick-rounded) encoder position, the way the robot does.
+ * The reading is a few milliseconds older than the loop's timestamp, and how
+ * old varies from loop to loop, just like the readings that come over the
+ * network from the real Romi. "Raw" is the change in position over one loop,
+ * which is what an unfiltered rate looks like at that loop rate.
+ *
+ * We try both of the rates the robots read their sensors at: 50Hz (the
+ * normal TimedRobot loop) and 200Hz (the PID examples' control loop). A
+ * filter tuned at one rate can behave quite differently at the other.
+ *
+ * For each estimator it prints:
+ *
+ * - Noise: how far (RMS) the estimate wanders from the true speed while the
+ * wheel is cruising, at each speed
+ * - Lag: how much later than the true speed the estimate gets halfway to
+ * the new speed, when we speed up
+ * - Error: the RMS error over the whole run, which counts both
+ *
+ * Run it with "./gradlew compareVelocityFilters".
+ *
+ */
+public final class VelocityFilterComparison {
+
+    // How often the robot loops run (seconds)
+    public static final double[] PERIODS = { 0.02, ControlLoop.DEFAULT_PERIOD };
+
+    // The most a reading can lag behind its timestamp (seconds)
+    public static final double MAX_JITTER = 0.005;
+
+    // When each part of the run starts, and the voltage we use for it
+    private static final double[] SEGMENT_START = { 0.0, 0.5, 2.0, 3.5 };
+    private static final double[] SEGMENT_VOLTS = { 0.0, 2.0, 5.0, 0.0 };
+    private static final double END = 5.0;
+
+    // The last half second of the slow and fast parts, when the wheel speed is steady
+    private static final double[][] CRUISE = { { 1.5, 2.0 }, { 3.0, 3.5 } };
+
+    private VelocityFilterComparison() { }
+
+    public static void main(String... args) {
+        for (double period : PERIODS) {
+            System.out.printf("At %.0fHz:%n", 1 / period);
+            System.out.println("Estimator     Noise slow (in/s)  Noise fast (in/s)  Lag (ms)  Error (in/s)");
+            print("Raw", null, period);
+            for (VelocityFilter filter : VelocityFilter.values()) {
+                if (filter != VelocityFilter.RAW) {
+                    print(filter.toString(), filter.create(), period);
+                }
+            }
+            System.out.println();
+        }
+    }
+
+    private static void print(String name, VelocityEstimator estimator, double period) {
+        Result result = run(estimator, period);
+        System.out.printf("%-12s  %17.3f  %17.3f  %8.0f  %12.3f%n",
+                name, result.noise[0], result.noise[1], result.lag * 1000, result.error);
+    }
+
+    private static class Result {
+        double[] noise = new double[CRUISE.length];
+        double lag;
+        double error;
+    }
+
+    /**
+     * Drives the simulated wheel through the whole run.
+     *
+     * @param estimator the estimator to try, or null for the raw rate
+     * @param period how often the loop runs, in seconds (no shorter than
+     * MAX_JITTER)
+     */
+    public static Result run(VelocityEstimator estimator, double period) {
+
+        RomiPlant plant = new RomiPlant();
+
+        // Always the same "random" jitter, so every estimator sees the same readings
+        Random random = new Random(1234);
+
+        double[] cruiseSquares = new double[CRUISE.length];
+        int[] cruiseCount = new int[CRUISE.length];
+        double errorSquares = 0;
+        int count = 0;
+
+        double stepTime = SEGMENT_START[2];
+        double halfway = (speedFor(SEGMENT_VOLTS[1]) + speedFor(SEGMENT_VOLTS[2])) / 2;
+        double trueCrossing = Double.NaN;
+        double estimateCrossing = Double.NaN;
+
+        double lastPosition = 0;
+        double lastTime = 0;
+
+        for (int loop = 1; loop * period <= END + 1e-9; loop++) {
+            double time = loop * period;
+
+            // Run the wheel up until the reading is taken, read it, then
+            // catch up to the loop time
+            double jitter = random.nextDouble() * MAX_JITTER;
+            plant.setOutputs(voltsAt(time - period) / RomiPlant.BATTERY_VOLTS, 0);
+            plant.step(time - jitter - plant.getTime());
+            double position = plant.getLeftDistance();
+            double trueRate = plant.getLeftRate();
+            plant.step(time - plant.getTime());
+
+            double estimate;
+            if (estimator == null) {
+                estimate = (position - lastPosition) / (time - lastTime);
+            } else {
+                estimate = estimator.update(position, time);
+            }
+            lastPosition = position;
+            lastTime = time;
+
+            double error = estimate - trueRate;
+            errorSquares += error * error;
+            count++;
+            for (int c = 0; c < CRUISE.length; c++) {
+                if (time > CRUISE[c][0] && time <= CRUISE[c][1]) {
+                    cruiseSquares[c] += error * error;
+                    cruiseCount[c]++;
+                }
+            }
+
+            if (time > stepTime) {
+                if (Double.isNaN(trueCrossing) && trueRate >= halfway) {
+                    trueCrossing = time;
+                }
+                if (Double.isNaN(estimateCrossing) && estimate >= halfway) {
+                    estimateCrossing = time;
+                }
+            }
+        }
+
+        Result result = new Result();
+        for (int c = 0; c < CRUISE.length; c++) {
+            result.noise[c] = Math.sqrt(cruiseSquares[c] / cruiseCount[c]);
+        }
+        result.lag = estimateCrossing - trueCrossing;
+        result.error = Math.sqrt(errorSquares / count);
+        return result;
+    }
+
+    private static double voltsAt(double time) {
+        double volts = 0;
+        for (int i = 0; i < SEGMENT_START.length; i++) {
+            if (time >= SEGMENT_START[i]) {
+                volts = SEGMENT_VOLTS[i];
+            }
+        }
+        return volts;
+    }
+
+    // The speed the wheel settles at for a voltage, in inches/second
+    private static double speedFor(double volts) {
+        return (volts - RomiPlant.KS) / RomiPlant.KV * RomiPlant.INCHES_PER_ROTATION;
+    }
+}
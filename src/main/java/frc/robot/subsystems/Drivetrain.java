@@ -0,0 +1,281 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.drive.DifferentialDrive;
+import edu.wpi.first.wpilibj.drive.DifferentialDrive.WheelSpeeds;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.ProfiledWheelController;
+import frc.robot.RobotParts;
+import frc.robot.SensorSnapshot;
+import frc.robot.WheelVelocityController;
+
+/**
+ *
+ * The Romi's wheels, as a command-based "subsystem". A subsystem is a part of
+ * the robot that only one command can use at a time: if a new command that
+ * needs the drivetrain starts, the CommandScheduler stops the old one first.
+ * That way two commands can never fight over the motors.
+ *
+ * The drivetrain reads the sensors at the start of every loop (in
+ * {@link #periodic()}), before any commands run, so commands can just use
+ * {@link #getSensors()}.
+ *
+ * There are two ways to drive it:
+ *
+ * - Straight from the joysticks, with the usual DifferentialDrive methods
+ * ({@link #tankDrive}, {@link #arcadeDrive}, {@link #curvatureDrive}). With
+ * {@link #setClosedLoop} turned on, the joysticks pick a speed for each wheel
+ * instead of a motor power, and a {@link WheelVelocityController} on each
+ * side holds that speed. That way the top speed doesn't drop as the battery
+ * runs down, and the robot drives straight even if one side is stiffer.
+ * - By moving each wheel a set distance, with a smooth motion profile (see
+ * {@link ProfiledWheelController}): {@link #resetWheels()}, then
+ * {@link #moveWheels}, then {@link #followWheels()} every loop until
+ * {@link #atWheelGoals()}
+ *
+ */
+public class Drivetrain extends SubsystemBase {
+
+    // Speed limits for the profiled moves, in inches/second and inches/second/second
+    public static final double DEFAULT_MAX_SPEED = 18;
+    public static final double DEFAULT_MAX_ACCELERATION = 60;
+
+    // How close to the target heading counts as done (in degrees)?
+    public static final double TURN_TOLERANCE = 1.0;
+
+    // How often the robot loop runs, in seconds
+    public static final double PERIOD = 0.02;
+
+    private final RobotParts parts;
+    private final ProfiledWheelController leftWheel;
+    private final ProfiledWheelController rightWheel;
+    private final WheelVelocityController leftSpeed;
+    private final WheelVelocityController rightSpeed;
+    private boolean closedLoop;
+    private double maxOutput = 1;
+    private double deadband = 0.02;
+    private double leftVolts;
+    private double rightVolts;
+
+    public Drivetrain(RobotParts parts) {
+        this.parts = parts;
+        leftWheel = new ProfiledWheelController(DEFAULT_MAX_SPEED, DEFAULT_MAX_ACCELERATION, PERIOD);
+        rightWheel = new ProfiledWheelController(DEFAULT_MAX_SPEED, DEFAULT_MAX_ACCELERATION, PERIOD);
+        leftSpeed = new WheelVelocityController();
+        rightSpeed = new WheelVelocityController();
+    }
+
+    /**
+     * How far each wheel has to go (in opposite directions) to turn the robot
+     * in place.
+     *
+     * @param degrees how far to turn (clockwise is positive, like the gyro)
+     * @return how far the left wheel goes forward, in inches
+     */
+    public static double turnArc(double degrees) {
+        return Math.toRadians(degrees) * RobotParts.TRACK_WIDTH_INCHES / 2;
+    }
+
+    @Override
+    public void periodic() {
+        parts.readSensors();
+    }
+
+    public RobotParts getParts() {
+        return parts;
+    }
+
+    public SensorSnapshot getSensors() {
+        return parts.sensors;
+    }
+
+    /**
+     * @return how far we have to turn to face a heading, in degrees between
+     * -180 and 180 (clockwise is positive)
+     */
+    public double getHeadingError(double targetHeading) {
+        return MathUtil.inputModulus(targetHeading - parts.sensors.angle, -180, 180);
+    }
+
+    public void tankDrive(double left, double right, boolean squareInputs) {
+        if (closedLoop) {
+            driveWheelSpeeds(DifferentialDrive.tankDriveIK(
+                    MathUtil.applyDeadband(left, deadband),
+                    MathUtil.applyDeadband(right, deadband),
+                    squareInputs));
+        } else {
+            parts.drive.tankDrive(left, right, squareInputs);
+        }
+    }
+
+    public void arcadeDrive(double speed, double rotation, boolean squareInputs) {
+        if (closedLoop) {
+            driveWheelSpeeds(DifferentialDrive.arcadeDriveIK(
+                    MathUtil.applyDeadband(speed, deadband),
+                    MathUtil.applyDeadband(rotation, deadband),
+                    squareInputs));
+        } else {
+            parts.drive.arcadeDrive(speed, rotation, squareInputs);
+        }
+    }
+
+    public void curvatureDrive(double speed, double rotation, boolean turnInPlace) {
+        if (closedLoop) {
+            driveWheelSpeeds(DifferentialDrive.curvatureDriveIK(
+                    MathUtil.applyDeadband(speed, deadband),
+                    MathUtil.applyDeadband(rotation, deadband),
+                    turnInPlace));
+        } else {
+            parts.drive.curvatureDrive(speed, rotation, turnInPlace);
+        }
+    }
+
+    /**
+     * Holds each wheel at a fraction of {@link WheelVelocityController#MAX_SPEED}.
+     */
+    private void driveWheelSpeeds(WheelSpeeds speeds) {
+        double maxSpeed = maxOutput * WheelVelocityController.MAX_SPEED;
+        double battery = RobotController.getBatteryVoltage();
+        leftVolts = leftSpeed.calculate(parts.sensors.leftRate, speeds.left * maxSpeed, battery);
+        rightVolts = rightSpeed.calculate(parts.sensors.rightRate, speeds.right * maxSpeed, battery);
+        parts.leftMotor.setVoltage(leftVolts);
+        parts.rightMotor.setVoltage(rightVolts);
+
+        // We're setting the motors ourselves, so let the drive know
+        // everything is still OK
+        parts.drive.feed();
+    }
+
+    /**
+     * Turns wheel speed control on or off for the joystick driving methods.
+     */
+    public void setClosedLoop(boolean closedLoop) {
+        if (closedLoop != this.closedLoop) {
+            leftSpeed.reset();
+            rightSpeed.reset();
+            leftVolts = 0;
+            rightVolts = 0;
+        }
+        this.closedLoop = closedLoop;
+    }
+
+    public boolean isClosedLoop() {
+        return closedLoop;
+    }
+
+    public void setMaxOutput(double maxOutput) {
+        this.maxOutput = maxOutput;
+        parts.drive.setMaxOutput(maxOutput);
+    }
+
+    public void setDeadband(double deadband) {
+        this.deadband = deadband;
+        parts.drive.setDeadband(deadband);
+    }
+
+    public void stop() {
+        leftVolts = 0;
+        rightVolts = 0;
+        leftSpeed.reset();
+        rightSpeed.reset();
+        parts.stop();
+    }
+
+    /**
+     * Changes the speed limits for the profiled moves.
+     */
+    public void setWheelConstraints(double maxSpeed, double maxAcceleration) {
+        leftWheel.setConstraints(maxSpeed, maxAcceleration);
+        rightWheel.setConstraints(maxSpeed, maxAcceleration);
+    }
+
+    /**
+     * Starts planning profiled moves from where (and how fast) the wheels are
+     * now.
+     */
+    public void resetWheels() {
+        leftWheel.reset(parts.sensors.leftDistance, parts.sensors.leftRate);
+        rightWheel.reset(parts.sensors.rightDistance, parts.sensors.rightRate);
+    }
+
+    /**
+     * Moves the wheel goals on by a distance. This adds on to the last goals,
+     * not to where the wheels are now, so a move can be added before the one
+     * before it has finished.
+     */
+    public void moveWheels(double leftDistance, double rightDistance) {
+        leftWheel.setGoal(leftWheel.getGoal() + leftDistance);
+        rightWheel.setGoal(rightWheel.getGoal() + rightDistance);
+    }
+
+    /**
+     * Drives the motors to follow the profiled moves. Call this every loop.
+     */
+    public void followWheels() {
+        leftVolts = leftWheel.calculate(parts.sensors.leftDistance);
+        rightVolts = rightWheel.calculate(parts.sensors.rightDistance);
+        parts.leftMotor.setVoltage(leftVolts);
+        parts.rightMotor.setVoltage(rightVolts);
+
+        // We're setting the motors ourselves, so let the drive know
+        // everything is still OK
+        parts.drive.feed();
+    }
+
+    /**
+     * @return true once both wheels have finished their moves
+     */
+    public boolean atWheelGoals() {
+        return leftWheel.atGoal() && rightWheel.atGoal();
+    }
+
+    /**
+     * Checks the gyro once a turn's wheel moves have finished. If the wheels
+     * slipped and we aren't facing the heading yet, this adds a little more
+     * turn to the wheel goals to make up for it.
+     *
+     * @return true if we're facing the heading (within {@link #TURN_TOLERANCE})
+     */
+    public boolean finishTurn(double targetHeading) {
+        double error = getHeadingError(targetHeading);
+        if (Math.abs(error) <= TURN_TOLERANCE) {
+            return true;
+        }
+        double extra = turnArc(error);
+        moveWheels(extra, -extra);
+        return false;
+    }
+
+    /**
+     * @return true if it's time to add the next move, so the wheels can
+     * carry straight on into it (see {@link ProfiledWheelController#isReadyFor})
+     */
+    public boolean isReadyFor(double leftDistance, double rightDistance) {
+        return leftWheel.isReadyFor(leftDistance) || rightWheel.isReadyFor(rightDistance);
+    }
+
+    public ProfiledWheelController getLeftWheel() {
+        return leftWheel;
+    }
+
+    public ProfiledWheelController getRightWheel() {
+        return rightWheel;
+    }
+
+    public WheelVelocityController getLeftSpeed() {
+        return leftSpeed;
+    }
+
+    public WheelVelocityController getRightSpeed() {
+        return rightSpeed;
+    }
+
+    public double getLeftVolts() {
+        return leftVolts;
+    }
+
+    public double getRightVolts() {
+        return rightVolts;
+    }
+}
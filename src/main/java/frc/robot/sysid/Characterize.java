@@ -0,0 +1,222 @@
+package frc.robot.sysid;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ *
+ * Runs the feedforward and feedback analysis over every SysId data file in
+ * a directory (by default, everything under "data") and writes the gains out
+ * to a "characterization.md" file next to the data. This replaces copying the
+ * numbers out of the SysId tool by hand.
+ *
+ * Run it with "./gradlew characterize". Each data file is analysed with its
+ * own settings (see {@link Settings}), like in the SysId tool.
+ *
+ */
+public final class Characterize {
+
+    private Characterize() { }
+
+    public static void main(String... args) throws IOException {
+
+        List<Path> roots = new ArrayList<>();
+        for (String arg : args) {
+            roots.add(Paths.get(arg));
+        }
+        if (roots.isEmpty()) {
+            roots.add(Paths.get("data"));
+        }
+
+        for (Path dir : findDataDirectories(roots)) {
+
+            StringWriter report = new StringWriter();
+            PrintWriter out = new PrintWriter(report);
+            out.println("# Characterization");
+            out.println();
+            out.println("Generated by frc.robot.sysid.Characterize - don't edit by hand.");
+
+            for (Path file : findDataFiles(dir)) {
+
+                long start = System.nanoTime();
+                Result result = characterize(file);
+                double millis = (System.nanoTime() - start) / 1e6;
+
+                Settings settings = result.settings;
+                FeedforwardGains ff = result.feedforward;
+                out.println();
+                out.printf("## %s%n", file.getFileName());
+                out.println();
+                out.printf("%s velocity threshold%n", settings.velocityThreshold);
+                out.printf("%d window size%n", settings.windowSize);
+                out.printf("%s test duration (s, 0 for all of it)%n", settings.testDuration);
+                out.printf("%s max position error%n", settings.maxPositionError);
+                out.printf("%s max velocity error%n", settings.maxVelocityError);
+                out.printf("%s max control effort (v)%n", settings.maxEffort);
+                out.printf("%s controller period (s)%n", settings.period);
+                out.println();
+                out.println("### Feedforward");
+                out.println();
+                out.printf("%.5f Ks%n", ff.ks);
+                out.printf("%.5f Kv%n", ff.kv);
+                out.printf("%.5f Ka%n", ff.ka);
+                out.printf("%.5f response timescale (s)%n", ff.getResponseTimescale());
+                out.printf("%.4f r-squared%n", ff.rSquared);
+                out.printf("%d samples%n", ff.samples);
+                out.println();
+                out.println("### Velocity");
+                out.println();
+                out.printf("%.4f Kp%n", result.velocity.kp);
+                out.printf("%.4f Kd%n", result.velocity.kd);
+                out.println();
+                out.println("### Position");
+                out.println();
+                out.printf("%.4f Kp%n", result.position.kp);
+                out.printf("%.4f Kd%n", result.position.kd);
+
+                System.out.printf("%s: %s, velocity %s, position %s (%.1f ms)%n",
+                        file, ff, result.velocity, result.position, millis);
+            }
+
+            out.flush();
+            Path summary = dir.resolve("characterization.md");
+            Files.write(summary, report.toString().getBytes(StandardCharsets.UTF_8));
+            System.out.println("wrote " + summary);
+        }
+    }
+
+    /**
+     * The analysis settings for one data file. SysId keeps its settings per
+     * data set, and the test runs in data/dadbot-3000 were analysed with
+     * different ones (see its summary.md), so each data file can have a
+     * .properties file next to it with the same name (e.g.
+     * sysid_data20221106-172256.properties). Anything it doesn't set uses
+     * the defaults here, and system properties (e.g.
+     * -Dsysid.velocityThreshold=0.011) override both.
+     */
+    public static class Settings {
+
+        public final double velocityThreshold;
+        public final int windowSize;
+        public final double testDuration;
+        public final double maxPositionError;
+        public final double maxVelocityError;
+        public final double maxEffort;
+        public final double period;
+
+        private final Properties properties;
+
+        private Settings(Properties properties) {
+            this.properties = properties;
+            velocityThreshold = setting("velocityThreshold", 0.016);
+            windowSize = (int) setting("windowSize", 1);
+            testDuration = setting("testDuration", 0);
+            maxPositionError = setting("maxPositionError", 0.125);
+            maxVelocityError = setting("maxVelocityError", 1.2802);
+            maxEffort = setting("maxEffort", 7);
+            period = setting("period", 0.02);
+        }
+
+        /**
+         * Reads the settings for a data file.
+         */
+        public static Settings forDataFile(Path file) throws IOException {
+            Properties properties = new Properties();
+            String name = file.getFileName().toString();
+            if (name.endsWith(".json")) {
+                name = name.substring(0, name.length() - ".json".length());
+            }
+            Path settingsFile = file.resolveSibling(name + ".properties");
+            if (Files.exists(settingsFile)) {
+                try (Reader reader = Files.newBufferedReader(settingsFile, StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                }
+            }
+            return new Settings(properties);
+        }
+
+        private double setting(String name, double defaultValue) {
+            String value = System.getProperty("sysid." + name, properties.getProperty(name));
+            return value == null ? defaultValue : Double.parseDouble(value.trim());
+        }
+    }
+
+    /**
+     * The gains worked out from one data file.
+     */
+    public static class Result {
+
+        public final Settings settings;
+        public final FeedforwardGains feedforward;
+        public final FeedbackAnalysis.Gains velocity;
+        public final FeedbackAnalysis.Gains position;
+
+        Result(Settings settings, FeedforwardGains feedforward,
+                FeedbackAnalysis.Gains velocity, FeedbackAnalysis.Gains position) {
+            this.settings = settings;
+            this.feedforward = feedforward;
+            this.velocity = velocity;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Works out the feedforward and feedback gains for one data file, with
+     * its own settings.
+     */
+    public static Result characterize(Path file) throws IOException {
+        Settings settings = Settings.forDataFile(file);
+        FeedforwardAnalysis analysis = new FeedforwardAnalysis(settings.velocityThreshold,
+                settings.windowSize, settings.testDuration);
+        analysis.add(SysIdLoader.load(file));
+        FeedforwardGains ff = analysis.solve();
+        FeedbackAnalysis.Gains position = FeedbackAnalysis.position(ff.kv, ff.ka,
+                settings.maxPositionError, settings.maxVelocityError, settings.maxEffort, settings.period);
+        FeedbackAnalysis.Gains velocity = FeedbackAnalysis.velocity(ff.kv, ff.ka,
+                settings.maxVelocityError, settings.maxEffort, settings.period);
+        return new Result(settings, ff, velocity, position);
+    }
+
+    // Any directory (at any depth) that has at least one SysId file in it
+    private static List<Path> findDataDirectories(List<Path> roots) throws IOException {
+        List<Path> dirs = new ArrayList<>();
+        for (Path root : roots) {
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.filter(Files::isDirectory)
+                     .filter(dir -> !findDataFilesQuietly(dir).isEmpty())
+                     .forEach(dirs::add);
+            }
+        }
+        Collections.sort(dirs);
+        return dirs;
+    }
+
+    private static List<Path> findDataFilesQuietly(Path dir) {
+        try {
+            return findDataFiles(dir);
+        } catch (IOException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    private static List<Path> findDataFiles(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "sysid_data*.json")) {
+            stream.forEach(files::add);
+        }
+        Collections.sort(files);
+        return files;
+    }
+}
@@ -0,0 +1,153 @@
+package frc.robot.sysid;
+
+/**
+ *
+ * Works out PID gains from feedforward gains, the same way the "Feedback
+ * Analysis" panel in SysId does.
+ *
+ * Once we know Kv and Ka, we have a model of how the wheels respond to
+ * voltage. A "linear quadratic regulator" (LQR) then picks the gains that
+ * balance two things we tell it about: how much error we're willing to put
+ * up with, and how much voltage we're willing to use to fix it.
+ *
+ * WPILib has an LQR class, but it calls into native code. The systems here
+ * only have one or two states, so it's easy enough to do the math in plain
+ * Java, which means this runs anywhere (including on a build server).
+ *
+ * This matches SysId's "time-normalized" gains with no measurement delay.
+ *
+ */
+public final class FeedbackAnalysis {
+
+    // When do we decide the Riccati iteration has settled down?
+    private static final double TOLERANCE = 1e-12;
+    private static final int MAX_ITERATIONS = 100_000;
+
+    /**
+     * The gains for a position or velocity controller.
+     */
+    public static class Gains {
+
+        public final double kp;
+        public final double kd;
+
+        public Gains(double kp, double kd) {
+            this.kp = kp;
+            this.kd = kd;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Kp=%.4f Kd=%.4f", kp, kd);
+        }
+    }
+
+    private FeedbackAnalysis() { }
+
+    /**
+     * Calculates gains for a position controller.
+     *
+     * @param kv feedforward velocity gain
+     * @param ka feedforward acceleration gain
+     * @param maxPositionError largest position error we're happy with
+     * @param maxVelocityError largest velocity error we're happy with
+     * @param maxEffort largest voltage we're happy to use
+     * @param period how often the controller runs, in seconds
+     */
+    public static Gains position(double kv, double ka, double maxPositionError,
+            double maxVelocityError, double maxEffort, double period) {
+
+        // Turn the continuous model (x' = Ax + Bu) into one that steps forward
+        // one period at a time. For this model we can do it exactly:
+        //   velocity' = -(Kv/Ka) velocity + (1/Ka) volts
+        //   position' = velocity
+        double a = -kv / ka;
+        double b = 1 / ka;
+        double e = Math.exp(a * period);
+        double integral = (e - 1) / a;
+
+        double a00 = 1, a01 = integral;
+        double a10 = 0, a11 = e;
+        double b0 = b * (integral - period) / a;
+        double b1 = b * integral;
+
+        // Bryson's rule: weight each thing by 1 / (max allowed)^2
+        double q0 = 1 / (maxPositionError * maxPositionError);
+        double q1 = 1 / (maxVelocityError * maxVelocityError);
+        double r = 1 / (maxEffort * maxEffort);
+
+        // Iterate the discrete Riccati equation until it stops changing.
+        //   P = Q + A'PA - A'PB (R + B'PB)^-1 B'PA
+        double p00 = q0, p01 = 0, p11 = q1;
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+
+            // PA and PB
+            double pa00 = p00 * a00 + p01 * a10, pa01 = p00 * a01 + p01 * a11;
+            double pa10 = p01 * a00 + p11 * a10, pa11 = p01 * a01 + p11 * a11;
+            double pb0 = p00 * b0 + p01 * b1;
+            double pb1 = p01 * b0 + p11 * b1;
+
+            // A'PA, B'PA, B'PB
+            double apa00 = a00 * pa00 + a10 * pa10;
+            double apa01 = a00 * pa01 + a10 * pa11;
+            double apa11 = a01 * pa01 + a11 * pa11;
+            double bpa0 = b0 * pa00 + b1 * pa10;
+            double bpa1 = b0 * pa01 + b1 * pa11;
+            double s = r + b0 * pb0 + b1 * pb1;
+
+            double n00 = q0 + apa00 - bpa0 * bpa0 / s;
+            double n01 = apa01 - bpa0 * bpa1 / s;
+            double n11 = q1 + apa11 - bpa1 * bpa1 / s;
+
+            double change = Math.abs(n00 - p00) + Math.abs(n01 - p01) + Math.abs(n11 - p11);
+            p00 = n00;
+            p01 = n01;
+            p11 = n11;
+            if (change < TOLERANCE * (Math.abs(p00) + Math.abs(p11))) {
+                break;
+            }
+        }
+
+        // K = (R + B'PB)^-1 B'PA
+        double pa00 = p00 * a00 + p01 * a10, pa01 = p00 * a01 + p01 * a11;
+        double pa10 = p01 * a00 + p11 * a10, pa11 = p01 * a01 + p11 * a11;
+        double s = r + b0 * (p00 * b0 + p01 * b1) + b1 * (p01 * b0 + p11 * b1);
+        double kp = (b0 * pa00 + b1 * pa10) / s;
+        double kd = (b0 * pa01 + b1 * pa11) / s;
+        return new Gains(kp, kd);
+    }
+
+    /**
+     * Calculates gains for a velocity controller. Velocity controllers only
+     * need a P gain, so Kd is always zero.
+     *
+     * @param kv feedforward velocity gain
+     * @param ka feedforward acceleration gain
+     * @param maxVelocityError largest velocity error we're happy with
+     * @param maxEffort largest voltage we're happy to use
+     * @param period how often the controller runs, in seconds
+     */
+    public static Gains velocity(double kv, double ka, double maxVelocityError,
+            double maxEffort, double period) {
+
+        double a = -kv / ka;
+        double ad = Math.exp(a * period);
+        double bd = (1 / ka) * (ad - 1) / a;
+
+        double q = 1 / (maxVelocityError * maxVelocityError);
+        double r = 1 / (maxEffort * maxEffort);
+
+        double p = q;
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            double next = q + ad * p * ad - (ad * p * bd) * (ad * p * bd) / (r + bd * p * bd);
+            double change = Math.abs(next - p);
+            p = next;
+            if (change < TOLERANCE * Math.abs(p)) {
+                break;
+            }
+        }
+
+        double kp = (bd * p * ad) / (r + bd * p * bd);
+        return new Gains(kp, 0);
+    }
+}
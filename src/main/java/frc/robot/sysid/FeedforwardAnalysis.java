@@ -0,0 +1,160 @@
+package frc.robot.sysid;
+
+import java.util.Arrays;
+
+/**
+ *
+ * Works out Ks, Kv and Ka from SysId test runs, the way the SysId tool
+ * describes. The model we're fitting is:
+ *
+ *     volts = Ks * sign(velocity) + Kv * velocity + Ka * acceleration
+ *
+ * Acceleration is really noisy to measure directly, so (like SysId) we fit
+ * the model one sample period at a time instead:
+ *
+ *     nextVelocity = alpha * velocity + beta * volts + gamma * sign(velocity)
+ *
+ * and then convert alpha, beta and gamma back into Ks, Kv and Ka. Samples are
+ * added to an {@link OlsAccumulator} one at a time, so it doesn't matter how
+ * many runs we feed in.
+ *
+ * A couple of details about which samples we use:
+ *
+ * - Samples where the robot is barely moving (below the velocity threshold)
+ * are skipped, because friction makes them unreliable.
+ *
+ * - For "dynamic" (fast) tests, everything before the biggest acceleration
+ * is skipped, since that's just the voltage step still getting started.
+ *
+ * - Both wheels go into the same fit. Their gains should be about the same.
+ *
+ * On runs from a robot we know the gains of, this gets them back (see
+ * CharacterizeTest). On the data/dadbot-3000 runs it doesn't quite agree with
+ * SysId itself: Ks comes out about 0.025 V lower and Ka 10-20% different,
+ * so SysId must clean up the data in some way that isn't described here.
+ *
+ */
+public class FeedforwardAnalysis {
+
+    private final double velocityThreshold;
+    private final int windowSize;
+    private final double testDuration;
+    private final OlsAccumulator ols;
+    private final double[] window;
+    private double periodSum;
+
+    /**
+     * @param velocityThreshold samples slower than this are ignored
+     * @param windowSize size of the median filter applied to velocity (1 means no filtering)
+     * @param testDuration how many seconds of each dynamic test to use (0 means all of it)
+     */
+    public FeedforwardAnalysis(double velocityThreshold, int windowSize, double testDuration) {
+        if (windowSize < 1 || windowSize % 2 == 0) {
+            throw new IllegalArgumentException("window size must be a positive odd number: " + windowSize);
+        }
+        this.velocityThreshold = velocityThreshold;
+        this.windowSize = windowSize;
+        this.testDuration = testDuration;
+        this.ols = new OlsAccumulator(3);
+        this.window = new double[windowSize];
+    }
+
+    /**
+     * Adds every test run in a data file.
+     */
+    public void add(SysIdData data) {
+        for (SysIdRun run : data.getRuns()) {
+            add(run);
+        }
+    }
+
+    /**
+     * Adds a single test run (both the left and right wheel).
+     */
+    public void add(SysIdRun run) {
+        addSide(run, SysIdRun.LEFT_VOLTS, SysIdRun.LEFT_VELOCITY);
+        addSide(run, SysIdRun.RIGHT_VOLTS, SysIdRun.RIGHT_VELOCITY);
+    }
+
+    /**
+     * @return the best-fit gains for everything added so far
+     */
+    public FeedforwardGains solve() {
+
+        double[] b = ols.solve();
+        double alpha = b[0];
+        double beta = b[1];
+        double gamma = b[2];
+        double period = periodSum / ols.getCount();
+
+        double ks = -gamma / beta;
+        double kv = (1 - alpha) / beta;
+        double ka = (alpha - 1) * period / (beta * Math.log(alpha));
+        return new FeedforwardGains(ks, kv, ka, ols.rSquared(b), ols.getCount());
+    }
+
+    private void addSide(SysIdRun run, int voltsColumn, int velocityColumn) {
+
+        double[] time = run.column(SysIdRun.TIMESTAMP);
+        double[] volts = run.column(voltsColumn);
+        double[] velocity = run.column(velocityColumn);
+        int size = run.size();
+
+        // Each sample is paired with the one after it, and we need a sample on
+        // each side to find the peak acceleration, so the first and last samples
+        // never get used.
+        int start = 1;
+        int end = size - 1;
+
+        // Dynamic tests start when the acceleration peaks
+        if (!run.isQuasistatic()) {
+            double maxAccel = 0;
+            for (int i = start; i < end; i++) {
+                double accel = Math.abs(acceleration(time, velocity, size, i));
+                if (accel > maxAccel) {
+                    maxAccel = accel;
+                    start = i;
+                }
+            }
+            if (testDuration > 0) {
+                double stopTime = time[start] + testDuration;
+                while (end > start && time[end - 1] > stopTime) {
+                    end--;
+                }
+            }
+        }
+
+        for (int i = start; i < end; i++) {
+            double dt = time[i + 1] - time[i];
+            double v = velocity(velocity, size, i);
+            if (dt <= 0 || Math.abs(v) < velocityThreshold) {
+                continue;
+            }
+            ols.add(v, volts[i], Math.signum(v), velocity(velocity, size, i + 1));
+            periodSum += dt;
+        }
+    }
+
+    // Central difference of the (filtered) velocity around sample i
+    private double acceleration(double[] time, double[] velocity, int size, int i) {
+        double dt = time[i + 1] - time[i - 1];
+        if (dt <= 0) {
+            return 0;
+        }
+        return (velocity(velocity, size, i + 1) - velocity(velocity, size, i - 1)) / dt;
+    }
+
+    // Median of the velocities in a window centered on sample i
+    private double velocity(double[] velocity, int size, int i) {
+        if (windowSize == 1) {
+            return velocity[i];
+        }
+        int half = windowSize / 2;
+        int from = Math.max(0, i - half);
+        int to = Math.min(size, i + half + 1);
+        int count = to - from;
+        System.arraycopy(velocity, from, window, 0, count);
+        Arrays.sort(window, 0, count);
+        return window[count / 2];
+    }
+}
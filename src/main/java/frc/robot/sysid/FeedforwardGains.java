@@ -0,0 +1,41 @@
+package frc.robot.sysid;
+
+/**
+ *
+ * The result of a feedforward analysis. These are the three numbers that go
+ * into a SimpleMotorFeedforward:
+ *
+ * - Ks is the voltage it takes to just barely get the wheels moving
+ * - Kv is the voltage it takes to hold each unit/second of velocity
+ * - Ka is the voltage it takes to get each unit/second/second of acceleration
+ *
+ */
+public class FeedforwardGains {
+
+    public final double ks;
+    public final double kv;
+    public final double ka;
+    public final double rSquared;
+    public final long samples;
+
+    public FeedforwardGains(double ks, double kv, double ka, double rSquared, long samples) {
+        this.ks = ks;
+        this.kv = kv;
+        this.ka = ka;
+        this.rSquared = rSquared;
+        this.samples = samples;
+    }
+
+    /**
+     * @return roughly how long it takes the wheels to respond to a change in
+     * voltage, in seconds (this is just Ka / Kv)
+     */
+    public double getResponseTimescale() {
+        return ka / kv;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Ks=%.5f Kv=%.5f Ka=%.5f (r2=%.4f, %d samples)", ks, kv, ka, rSquared, samples);
+    }
+}
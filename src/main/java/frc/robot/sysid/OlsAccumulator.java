@@ -0,0 +1,163 @@
+package frc.robot.sysid;
+
+/**
+ *
+ * Ordinary least squares ("line of best fit") for any number of inputs.
+ *
+ * The textbook way to do this is to build a big matrix X with one row per
+ * sample, and solve (X'X) b = X'y. But X'X and X'y are just sums over the
+ * samples, so we can add each sample into those sums as it arrives and throw
+ * the sample away. No matter how many samples we see, we only ever hold a
+ * tiny k-by-k matrix (where k is the number of inputs).
+ *
+ */
+public class OlsAccumulator {
+
+    private final int k;
+    private final double[][] xtx;
+    private final double[] xty;
+    private double yty;
+    private double ySum;
+    private long count;
+
+    /**
+     * @param k how many inputs (columns of X) each sample has
+     */
+    public OlsAccumulator(int k) {
+        this.k = k;
+        this.xtx = new double[k][k];
+        this.xty = new double[k];
+    }
+
+    /**
+     * @return how many samples have been added
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Adds a single sample: the inputs x and the output y.
+     */
+    public void add(double[] x, double y) {
+        for (int i = 0; i < k; i++) {
+            double xi = x[i];
+            for (int j = i; j < k; j++) {
+                xtx[i][j] += xi * x[j];
+            }
+            xty[i] += xi * y;
+        }
+        yty += y * y;
+        ySum += y;
+        count++;
+    }
+
+    /**
+     * Adds a single sample with three inputs. This saves callers from having
+     * to fill in an array for the very common feedforward case.
+     */
+    public void add(double x0, double x1, double x2, double y) {
+        xtx[0][0] += x0 * x0;
+        xtx[0][1] += x0 * x1;
+        xtx[0][2] += x0 * x2;
+        xtx[1][1] += x1 * x1;
+        xtx[1][2] += x1 * x2;
+        xtx[2][2] += x2 * x2;
+        xty[0] += x0 * y;
+        xty[1] += x1 * y;
+        xty[2] += x2 * y;
+        yty += y * y;
+        ySum += y;
+        count++;
+    }
+
+    /**
+     * Adds all of the samples from another accumulator into this one.
+     */
+    public void addAll(OlsAccumulator other) {
+        for (int i = 0; i < k; i++) {
+            for (int j = i; j < k; j++) {
+                xtx[i][j] += other.xtx[i][j];
+            }
+            xty[i] += other.xty[i];
+        }
+        yty += other.yty;
+        ySum += other.ySum;
+        count += other.count;
+    }
+
+    /**
+     * Solves for the coefficients that best fit the samples so far, using
+     * Gaussian elimination on the normal equations.
+     *
+     * @throws IllegalStateException if there isn't enough data to solve
+     */
+    public double[] solve() {
+
+        // Copy the normal equations (filling in the lower triangle) into
+        // an augmented matrix [X'X | X'y].
+        double[][] m = new double[k][k + 1];
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j < k; j++) {
+                m[i][j] = i <= j ? xtx[i][j] : xtx[j][i];
+            }
+            m[i][k] = xty[i];
+        }
+
+        // Forward elimination with partial pivoting
+        for (int col = 0; col < k; col++) {
+
+            int pivot = col;
+            for (int row = col + 1; row < k; row++) {
+                if (Math.abs(m[row][col]) > Math.abs(m[pivot][col])) {
+                    pivot = row;
+                }
+            }
+            if (Math.abs(m[pivot][col]) < 1e-12) {
+                throw new IllegalStateException("not enough data to solve (" + count + " samples)");
+            }
+            double[] tmp = m[col];
+            m[col] = m[pivot];
+            m[pivot] = tmp;
+
+            for (int row = col + 1; row < k; row++) {
+                double factor = m[row][col] / m[col][col];
+                for (int j = col; j <= k; j++) {
+                    m[row][j] -= factor * m[col][j];
+                }
+            }
+        }
+
+        // Back substitution
+        double[] b = new double[k];
+        for (int row = k - 1; row >= 0; row--) {
+            double sum = m[row][k];
+            for (int j = row + 1; j < k; j++) {
+                sum -= m[row][j] * b[j];
+            }
+            b[row] = sum / m[row][row];
+        }
+        return b;
+    }
+
+    /**
+     * @return the R-squared value for the supplied coefficients (1 is a
+     * perfect fit, 0 is no better than guessing the average)
+     */
+    public double rSquared(double[] b) {
+
+        // SSE = y'y - 2 b'X'y + b'X'X b, all of which we have in our sums
+        double sse = yty;
+        for (int i = 0; i < k; i++) {
+            sse -= 2 * b[i] * xty[i];
+            for (int j = 0; j < k; j++) {
+                double xtxij = i <= j ? xtx[i][j] : xtx[j][i];
+                sse += b[i] * xtxij * b[j];
+            }
+        }
+
+        double mean = ySum / count;
+        double sst = yty - count * mean * mean;
+        return 1.0 - sse / sst;
+    }
+}
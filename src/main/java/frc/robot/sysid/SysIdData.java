@@ -0,0 +1,81 @@
+package frc.robot.sysid;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ *
+ * Everything we read out of a single SysId data file: the individual test
+ * runs, plus the handful of extra values SysId writes at the end of the file
+ * (which kind of test it was, what units were used, etc.)
+ *
+ */
+public class SysIdData {
+
+    // The names SysId uses for its four tests
+    public static final String FAST_FORWARD = "fast-forward";
+    public static final String FAST_BACKWARD = "fast-backward";
+    public static final String SLOW_FORWARD = "slow-forward";
+    public static final String SLOW_BACKWARD = "slow-backward";
+
+    private final Map<String, SysIdRun> runs;
+    private final Map<String, String> metadata;
+
+    public SysIdData() {
+        runs = new LinkedHashMap<>();
+        metadata = new LinkedHashMap<>();
+    }
+
+    /**
+     * @return the test with the supplied name, or null if it's not in the file
+     */
+    public SysIdRun getRun(String name) {
+        return runs.get(name);
+    }
+
+    /**
+     * @return all of the tests in the order they appeared in the file
+     */
+    public Collection<SysIdRun> getRuns() {
+        return Collections.unmodifiableCollection(runs.values());
+    }
+
+    /**
+     * @return the kind of test (e.g. "Drivetrain")
+     */
+    public String getTest() {
+        return metadata.get("test");
+    }
+
+    /**
+     * @return the units the positions and velocities were recorded in (e.g. "Rotations")
+     */
+    public String getUnits() {
+        return metadata.get("units");
+    }
+
+    /**
+     * @return the number of units in a single rotation of the wheel
+     */
+    public double getUnitsPerRotation() {
+        String value = metadata.get("unitsPerRotation");
+        return value == null ? 1.0 : Double.parseDouble(value);
+    }
+
+    /**
+     * @return all of the extra values from the file, exactly as they were written
+     */
+    public Map<String, String> getMetadata() {
+        return Collections.unmodifiableMap(metadata);
+    }
+
+    void putRun(SysIdRun run) {
+        runs.put(run.getName(), run);
+    }
+
+    void putMetadata(String key, String value) {
+        metadata.put(key, value);
+    }
+}
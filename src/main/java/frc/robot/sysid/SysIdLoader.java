@@ -0,0 +1,160 @@
+package frc.robot.sysid;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ *
+ * Reads SysId data files (like the ones in data/dadbot-3000).
+ *
+ * The easy way to read JSON is to load the whole file into a "tree" of
+ * objects and then pick through it. That works for small files, but every
+ * single number in the file turns into its own object, and on a file with
+ * hundreds of MB of samples we run out of memory long before we're done.
+ *
+ * Instead, we use Jackson's "streaming" parser. It hands us the file one
+ * token at a time (a bracket, a field name, a number...) and we copy each
+ * number straight into a reusable row of doubles. Nothing is kept around
+ * unless we decide to keep it.
+ *
+ */
+public final class SysIdLoader {
+
+    /**
+     * Receives samples from {@link SysIdLoader#stream} as they are read. The
+     * row array is reused for every sample, so copy anything you want to keep.
+     */
+    @FunctionalInterface
+    public interface SampleHandler {
+
+        void onSample(String run, double[] row);
+
+        default void onRunStart(String run) { }
+
+        default void onRunEnd(String run) { }
+
+        default void onMetadata(String key, String value) { }
+    }
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private SysIdLoader() { }
+
+    /**
+     * Loads an entire file into memory as column arrays.
+     */
+    public static SysIdData load(Path path) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            return load(in);
+        }
+    }
+
+    /**
+     * Loads an entire stream into memory as column arrays.
+     */
+    public static SysIdData load(InputStream in) throws IOException {
+
+        SysIdData data = new SysIdData();
+
+        stream(in, new SampleHandler() {
+
+            private SysIdRun current;
+
+            @Override
+            public void onRunStart(String run) {
+                current = new SysIdRun(run);
+            }
+
+            @Override
+            public void onSample(String run, double[] row) {
+                current.add(row);
+            }
+
+            @Override
+            public void onRunEnd(String run) {
+                current.trim();
+                data.putRun(current);
+                current = null;
+            }
+
+            @Override
+            public void onMetadata(String key, String value) {
+                data.putMetadata(key, value);
+            }
+        });
+
+        return data;
+    }
+
+    /**
+     * Reads a stream one sample at a time, handing each one to the supplied
+     * handler. This never holds more than a single row in memory, so it can
+     * handle files of any size.
+     */
+    public static void stream(InputStream in, SampleHandler handler) throws IOException {
+
+        double[] row = new double[SysIdRun.COLUMNS];
+
+        try (JsonParser parser = FACTORY.createParser(in)) {
+
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("expected a JSON object at " + parser.getCurrentLocation());
+            }
+
+            // The top level of the file is an object. Arrays are test runs, and
+            // anything else ("test", "units", etc.) is metadata.
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+
+                if (token == JsonToken.START_ARRAY) {
+                    handler.onRunStart(field);
+                    readRun(parser, field, row, handler);
+                    handler.onRunEnd(field);
+                } else if (token.isScalarValue()) {
+                    handler.onMetadata(field, parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    // Reads an array of rows, where each row is an array of 9 numbers
+    private static void readRun(JsonParser parser, String name, double[] row, SampleHandler handler) throws IOException {
+
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.START_ARRAY) {
+
+            int column = 0;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null || !token.isNumeric()) {
+                    throw new IOException("expected a number in " + name + " at " + parser.getCurrentLocation());
+                }
+                if (column < row.length) {
+                    row[column] = parser.getDoubleValue();
+                }
+                column++;
+            }
+
+            if (column != SysIdRun.COLUMNS) {
+                throw new IOException("expected " + SysIdRun.COLUMNS + " columns in " + name
+                        + " but found " + column + " at " + parser.getCurrentLocation());
+            }
+
+            handler.onSample(name, row);
+        }
+
+        if (token != JsonToken.END_ARRAY) {
+            throw new IOException("expected a row in " + name + " at " + parser.getCurrentLocation());
+        }
+    }
+}
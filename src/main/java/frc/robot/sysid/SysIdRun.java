@@ -0,0 +1,123 @@
+package frc.robot.sysid;
+
+import java.util.Arrays;
+
+/**
+ *
+ * This is one test out of a SysId data file (e.g. "fast-forward" or
+ * "slow-backward"). SysId records a row of 9 numbers every time it samples
+ * the robot, and we keep each of those numbers in its own column array
+ * instead of building an object for every row.
+ *
+ * Column arrays are a lot friendlier to memory: a run with 10,000 samples is
+ * just 9 arrays of 10,000 doubles, instead of 10,000 little lists that each
+ * carry their own overhead.
+ *
+ */
+public class SysIdRun {
+
+    // The order of the columns in each row of a "Drivetrain" SysId file.
+    public static final int TIMESTAMP = 0;
+    public static final int LEFT_VOLTS = 1;
+    public static final int RIGHT_VOLTS = 2;
+    public static final int LEFT_POSITION = 3;
+    public static final int RIGHT_POSITION = 4;
+    public static final int LEFT_VELOCITY = 5;
+    public static final int RIGHT_VELOCITY = 6;
+    public static final int GYRO_ANGLE = 7;
+    public static final int GYRO_RATE = 8;
+
+    // How many numbers are in each row?
+    public static final int COLUMNS = 9;
+
+    // How many rows do we make room for before we have to grow the columns?
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final String name;
+    private double[][] columns;
+    private int size;
+
+    public SysIdRun(String name) {
+        this.name = name;
+        this.columns = new double[COLUMNS][INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * @return the name of the test (e.g. "fast-forward")
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return true if this is a "quasistatic" test (slowly ramping voltage),
+     * false if it's a "dynamic" test (a sudden step in voltage)
+     */
+    public boolean isQuasistatic() {
+        return name.startsWith("slow");
+    }
+
+    /**
+     * @return true if the robot was driving forward during this test
+     */
+    public boolean isForward() {
+        return name.endsWith("forward");
+    }
+
+    /**
+     * @return how many rows are in this test
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return a single value out of the test
+     */
+    public double get(int column, int row) {
+        return columns[column][row];
+    }
+
+    /**
+     * Returns the array holding an entire column (e.g. all of the timestamps).
+     * Only the first {@link #size()} entries are real data. This is the actual
+     * storage for the run, not a copy, so please don't change it.
+     */
+    public double[] column(int column) {
+        return columns[column];
+    }
+
+    /**
+     * Adds a row to the end of the test. The row is copied, so it's safe for
+     * the caller to reuse the same array for the next row.
+     */
+    public void add(double[] row) {
+        if (size == columns[0].length) {
+            for (int c = 0; c < COLUMNS; c++) {
+                columns[c] = Arrays.copyOf(columns[c], size * 2);
+            }
+        }
+        for (int c = 0; c < COLUMNS; c++) {
+            columns[c][size] = row[c];
+        }
+        size++;
+    }
+
+    /**
+     * Shrinks the columns down so they don't hold any spare room. The loader
+     * calls this once a test has been completely read.
+     */
+    public void trim() {
+        if (size < columns[0].length) {
+            for (int c = 0; c < COLUMNS; c++) {
+                columns[c] = Arrays.copyOf(columns[c], size);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + size + " samples)";
+    }
+}
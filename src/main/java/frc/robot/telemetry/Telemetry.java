@@ -0,0 +1,284 @@
+package frc.robot.telemetry;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.networktables.EntryListenerFlags;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.function.BooleanConsumer;
+
+/**
+ *
+ * A faster way to put values on the dashboard than SmartDashboard.putData.
+ *
+ * With SmartDashboard, every value gets sent to NetworkTables from inside
+ * the robot loop, every single loop, even if it hasn't changed. That takes
+ * time away from actually controlling the robot.
+ *
+ * Here, the robot loop just copies the current values into a buffer (which
+ * is very quick), by calling {@link #capture()} from robotPeriodic. A separate
+ * background thread picks up the newest copy a few times a second and sends
+ * only the values that changed.
+ *
+ * Values use the same keys as SmartDashboard.putData ("SmartDashboard/Pad
+ * Driver/Drive Speed" and so on), so dashboards don't need to change. When
+ * someone edits a value on the dashboard, the change is handed back to the
+ * robot thread and applied during the next capture, so the robot's fields are
+ * only ever touched by the robot thread.
+ *
+ * Everything registered stays registered (and keeps the robot it reads from
+ * alive) until {@link #reset()}. A real robot never needs that, but anything
+ * that makes more than one robot in the same program (tests, simulations,
+ * benchmarks) should call it when it's done with each one.
+ *
+ */
+public final class Telemetry {
+
+    // How often do we send values to the dashboard by default (in seconds)?
+    public static final double DEFAULT_PERIOD = 0.1;
+
+    // How many values can we keep track of?
+    public static final int MAX_VALUES = 512;
+
+    // How many captured frames do we keep around? The publisher only needs the
+    // newest one, but a few spares mean the robot never has to wait for it.
+    private static final int FRAMES = 8;
+
+    private static final Property[] properties = new Property[MAX_VALUES];
+    private static final double[][] frames = new double[FRAMES][MAX_VALUES];
+    private static final Queue<PendingWrite> writes = new ConcurrentLinkedQueue<>();
+
+    private static volatile int count;
+    private static volatile long sequence;
+
+    // Goes up every reset, so the publisher knows to start again
+    private static volatile int generation;
+    private static ScheduledExecutorService publisher;
+
+    private Telemetry() { }
+
+    /**
+     * Starts sending values to the dashboard in the background. This is
+     * called automatically (with the default period) the first time anything
+     * calls {@link #putData}, so you only need it to pick a different rate.
+     *
+     * @param period how often to send values, in seconds
+     */
+    public static synchronized void start(double period) {
+        if (publisher != null) {
+            return;
+        }
+
+        Publisher task = new Publisher();
+        publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Telemetry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long micros = (long) (period * 1_000_000);
+        publisher.scheduleAtFixedRate(task, micros, micros, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Registers a group of values to show on the dashboard, just like
+     * SmartDashboard.putData. Call this from robotInit.
+     */
+    public static void putData(String name, TelemetrySource source) {
+        putData(name, null, source);
+    }
+
+    /**
+     * Registers a group of values, and tells the dashboard what kind of
+     * widget to show them with (like "PIDController"). The values need to
+     * use the same keys WPILib does for that kind of widget.
+     */
+    public static synchronized void putData(String name, String type, TelemetrySource source) {
+
+        start(DEFAULT_PERIOD);
+
+        NetworkTable table = NetworkTableInstance.getDefault().getTable("SmartDashboard").getSubTable(name);
+        table.getEntry(".name").setString(name);
+        if (type != null) {
+            table.getEntry(".type").setString(type);
+        }
+
+        source.initTelemetry(new TelemetryBuilder() {
+
+            @Override
+            public void addDoubleProperty(String key, DoubleSupplier getter, DoubleConsumer setter) {
+                add(table, key, false, getter, setter);
+            }
+
+            @Override
+            public void addBooleanProperty(String key, BooleanSupplier getter, BooleanConsumer setter) {
+                add(table, key, true,
+                        () -> getter.getAsBoolean() ? 1.0 : 0.0,
+                        setter == null ? null : (v) -> setter.accept(v != 0));
+            }
+        });
+    }
+
+    /**
+     * Forgets every value that's been registered, so they can all be
+     * registered again (by a new robot) without running out of room. The
+     * dashboard entries are left where they are, but changes to them aren't
+     * passed on any more. Don't call this while a robot is still running.
+     */
+    public static synchronized void reset() {
+        int n = count;
+        count = 0;
+        generation = generation + 1;
+        for (int i = 0; i < n; i++) {
+            Property property = properties[i];
+            if (property.listener != 0) {
+                property.table.removeEntryListener(property.listener);
+            }
+            properties[i] = null;
+        }
+        writes.clear();
+    }
+
+    /**
+     * Copies every value into the buffer for the background thread to send,
+     * and applies any changes that came in from the dashboard. Call this once
+     * per loop from robotPeriodic.
+     */
+    public static void capture() {
+
+        PendingWrite write;
+        while ((write = writes.poll()) != null) {
+            write.property.setter.accept(write.value);
+        }
+
+        long next = sequence;
+        double[] frame = frames[(int) (next % FRAMES)];
+        int n = count;
+        for (int i = 0; i < n; i++) {
+            frame[i] = properties[i].getter.getAsDouble();
+        }
+
+        // Writing the sequence number last "publishes" the frame
+        sequence = next + 1;
+    }
+
+    private static void add(NetworkTable table, String key, boolean isBoolean,
+            DoubleSupplier getter, DoubleConsumer setter) {
+
+        if (count == MAX_VALUES) {
+            throw new IllegalStateException("too many telemetry values (max " + MAX_VALUES + ")");
+        }
+
+        Property property = new Property(table, table.getEntry(key), isBoolean, getter, setter);
+        if (setter != null) {
+            property.listener = table.addEntryListener(key, (t, k, entry, value, flags) -> {
+                writes.add(new PendingWrite(property,
+                        isBoolean ? (value.getBoolean() ? 1.0 : 0.0) : value.getDouble()));
+            }, EntryListenerFlags.kUpdate);
+        }
+
+        properties[count] = property;
+        count = count + 1;
+    }
+
+    // A single value on the dashboard
+    private static class Property {
+
+        final NetworkTable table;
+        final NetworkTableEntry entry;
+        final boolean isBoolean;
+        final DoubleSupplier getter;
+        final DoubleConsumer setter;
+
+        // Which listener passes on changes from the dashboard (0 if none)
+        int listener;
+
+        Property(NetworkTable table, NetworkTableEntry entry, boolean isBoolean, DoubleSupplier getter,
+                DoubleConsumer setter) {
+            this.table = table;
+            this.entry = entry;
+            this.isBoolean = isBoolean;
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+
+    // A change from the dashboard waiting for the robot thread to apply it
+    private static class PendingWrite {
+
+        final Property property;
+        final double value;
+
+        PendingWrite(Property property, double value) {
+            this.property = property;
+            this.value = value;
+        }
+    }
+
+    // Runs on the background thread and sends the newest frame
+    private static class Publisher implements Runnable {
+
+        private final double[] latest = new double[MAX_VALUES];
+        private final double[] published = new double[MAX_VALUES];
+        private int publishedCount;
+        private long lastSequence;
+        private int lastGeneration;
+
+        @Override
+        public void run() {
+
+            // After a reset, the values are all new ones. Wait for them to be
+            // captured, and then send them all.
+            if (generation != lastGeneration) {
+                lastGeneration = generation;
+                lastSequence = sequence;
+                publishedCount = 0;
+                return;
+            }
+
+            long seq = sequence;
+            if (seq == lastSequence) {
+                return;
+            }
+
+            // Copy the newest frame. If the robot wrote so many frames while we
+            // were copying that it came back around to this one, try again.
+            int n;
+            do {
+                seq = sequence;
+                n = count;
+                System.arraycopy(frames[(int) ((seq - 1) % FRAMES)], 0, latest, 0, n);
+            } while (sequence - seq >= FRAMES - 1);
+            lastSequence = seq;
+
+            // Only send values that changed (or are brand new)
+            for (int i = 0; i < n; i++) {
+                double value = latest[i];
+                if (i < publishedCount && Double.doubleToLongBits(value) == Double.doubleToLongBits(published[i])) {
+                    continue;
+                }
+                Property property = properties[i];
+                if (property == null) {
+                    // Reset while we were sending
+                    break;
+                }
+                if (property.isBoolean) {
+                    property.entry.setBoolean(value != 0);
+                } else {
+                    property.entry.setDouble(value);
+                }
+                published[i] = value;
+            }
+            publishedCount = n;
+
+            NetworkTableInstance.getDefault().flush();
+        }
+    }
+}
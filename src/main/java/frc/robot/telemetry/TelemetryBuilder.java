@@ -0,0 +1,24 @@
+package frc.robot.telemetry;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.util.function.BooleanConsumer;
+
+/**
+ *
+ * Used to describe the values a part of the robot wants on the dashboard.
+ * This has the same methods as WPILib's SendableBuilder, so code written for
+ * SmartDashboard.putData works here without any changes.
+ *
+ * A getter is how the dashboard reads a value. A setter (which can be null)
+ * is what happens when someone changes the value on the dashboard.
+ *
+ */
+public interface TelemetryBuilder {
+
+    void addDoubleProperty(String key, DoubleSupplier getter, DoubleConsumer setter);
+
+    void addBooleanProperty(String key, BooleanSupplier getter, BooleanConsumer setter);
+}
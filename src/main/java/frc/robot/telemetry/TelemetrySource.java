@@ -0,0 +1,13 @@
+package frc.robot.telemetry;
+
+/**
+ *
+ * Anything that can describe its dashboard values to a {@link TelemetryBuilder}.
+ * Usually this is just a lambda passed to {@link Telemetry#putData}.
+ *
+ */
+@FunctionalInterface
+public interface TelemetrySource {
+
+    void initTelemetry(TelemetryBuilder builder);
+}
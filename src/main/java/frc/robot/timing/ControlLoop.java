@@ -0,0 +1,65 @@
+package frc.robot.timing;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+
+/**
+ *
+ * Runs a robot's control math (PID, feedforward) faster than the normal 20ms
+ * loop, using TimedRobot.addPeriodic.
+ *
+ * Why? A PID controller can only react as often as it runs. Our Romi responds
+ * to a change in voltage in about 0.1-0.2 seconds (see the "response timescale"
+ * in data/dadbot-3000/summary.md), which is only 5-10 of the normal 20ms loops.
+ * Running the controller at 200Hz or more gives it a lot more chances to
+ * correct itself. Reading the joystick and updating the dashboard can stay
+ * on the normal loop, since people don't move that fast.
+ *
+ * The fast loop runs on the same thread as the normal loop, so it's safe to
+ * share fields between the two without any locking.
+ *
+ */
+public final class ControlLoop {
+
+    // 200Hz is a good compromise between control quality and CPU on the Pi
+    public static final double DEFAULT_PERIOD = 0.005;
+
+    // The fastest we'll allow (1kHz)
+    public static final double MIN_PERIOD = 0.001;
+
+    // If a robot is wrapped by an InstrumentedRobot, its fast loop has to be
+    // added to the wrapper, since that's the one actually running.
+    private static final Map<TimedRobot, TimedRobot> HOSTS = new WeakHashMap<>();
+
+    private ControlLoop() { }
+
+    /**
+     * Adds a fast control loop to a robot. Call this from robotInit.
+     *
+     * @param robot the robot the loop belongs to
+     * @param callback the control code to run
+     * @param period how often to run it, in seconds
+     */
+    public static void start(TimedRobot robot, Runnable callback, double period) {
+        if (period < MIN_PERIOD) {
+            throw new IllegalArgumentException("control period must be at least " + MIN_PERIOD + "s: " + period);
+        }
+        TimedRobot host;
+        synchronized (HOSTS) {
+            host = HOSTS.getOrDefault(robot, robot);
+        }
+        host.addPeriodic(() -> {
+            long start = System.nanoTime();
+            callback.run();
+            LoopTiming.record(Phase.CONTROL, start);
+        }, period);
+    }
+
+    static void setHost(TimedRobot robot, TimedRobot host) {
+        synchronized (HOSTS) {
+            HOSTS.put(robot, host);
+        }
+    }
+}
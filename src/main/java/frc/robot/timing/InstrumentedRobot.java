@@ -0,0 +1,129 @@
+package frc.robot.timing;
+
+import java.util.function.Supplier;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+
+/**
+ *
+ * Wraps one of the example robots and measures how long each part of every
+ * loop takes (see {@link Phase} and {@link LoopTiming}). The example robot
+ * runs exactly like it normally would; this just passes every call along
+ * and times it on the way through.
+ *
+ * To use it, wrap your robot in Main:
+ *
+ *     RobotBase.startRobot(() -> new InstrumentedRobot(PadDrivingRobot::new));
+ *
+ * and watch the "Loop Timing" table in the dashboard.
+ *
+ */
+public class InstrumentedRobot extends TimedRobot {
+
+    // How often do we publish timing numbers (in seconds)?
+    public static final double PUBLISH_PERIOD = 0.5;
+
+    private final TimedRobot robot;
+    private long lastLoopStart;
+    private long robotPeriodicEnd;
+
+    public InstrumentedRobot(Supplier<? extends TimedRobot> factory) {
+        robot = factory.get();
+
+        // We're the robot that's actually running, so any fast control loops
+        // the wrapped robot starts need to be added to us.
+        ControlLoop.setHost(robot, this);
+    }
+
+    @Override
+    protected void loopFunc() {
+
+        long start = System.nanoTime();
+        if (lastLoopStart != 0) {
+            LoopTiming.record(Phase.PERIOD, lastLoopStart);
+        }
+        lastLoopStart = start;
+        robotPeriodicEnd = 0;
+
+        // This calls all of the methods below. Once robotPeriodic is done,
+        // WPILib updates the dashboard, so everything after that counts as
+        // dashboard time.
+        super.loopFunc();
+
+        if (robotPeriodicEnd != 0) {
+            LoopTiming.record(Phase.DASHBOARD, robotPeriodicEnd);
+        }
+        LoopTiming.record(Phase.LOOP, start);
+    }
+
+    @Override
+    public void robotInit() {
+        LoopTiming.start(PUBLISH_PERIOD);
+        robot.robotInit();
+    }
+
+    @Override
+    public void robotPeriodic() {
+        long start = System.nanoTime();
+        robot.robotPeriodic();
+        robotPeriodicEnd = LoopTiming.record(Phase.ROBOT_PERIODIC, start);
+    }
+
+    @Override
+    public void simulationInit() {
+        robot.simulationInit();
+    }
+
+    @Override
+    public void simulationPeriodic() {
+        robot.simulationPeriodic();
+    }
+
+    @Override
+    public void disabledInit() {
+        robot.disabledInit();
+    }
+
+    @Override
+    public void disabledPeriodic() {
+        long start = System.nanoTime();
+        robot.disabledPeriodic();
+        LoopTiming.record(Phase.MODE_PERIODIC, start);
+    }
+
+    @Override
+    public void autonomousInit() {
+        robot.autonomousInit();
+    }
+
+    @Override
+    public void autonomousPeriodic() {
+        long start = System.nanoTime();
+        robot.autonomousPeriodic();
+        LoopTiming.record(Phase.MODE_PERIODIC, start);
+    }
+
+    @Override
+    public void teleopInit() {
+        robot.teleopInit();
+    }
+
+    @Override
+    public void teleopPeriodic() {
+        long start = System.nanoTime();
+        robot.teleopPeriodic();
+        LoopTiming.record(Phase.MODE_PERIODIC, start);
+    }
+
+    @Override
+    public void testInit() {
+        robot.testInit();
+    }
+
+    @Override
+    public void testPeriodic() {
+        long start = System.nanoTime();
+        robot.testPeriodic();
+        LoopTiming.record(Phase.MODE_PERIODIC, start);
+    }
+}
@@ -0,0 +1,119 @@
+package frc.robot.timing;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *
+ * Counts how long something took (in nanoseconds), so we can ask questions
+ * like "what's the slowest 1% of loops?" without saving every measurement.
+ *
+ * This works like an HDR histogram: every power of two (1-2us, 2-4us, 4-8us,
+ * etc.) is split into 16 equal buckets, so every measurement is counted to
+ * within about 6% of its real value, no matter how big or small it is. A
+ * thousand buckets covers everything from 1 nanosecond to years.
+ *
+ * Recording is "lock-free": the robot thread just bumps a counter, and a
+ * different thread can read the counts at the same time without either of
+ * them ever having to wait on the other.
+ *
+ */
+public class LatencyHistogram {
+
+    // Each power of two is split into 2^SUB_BITS / 2 buckets
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF_COUNT = SUB_COUNT / 2;
+
+    // How many buckets does it take to cover every positive long?
+    public static final int BUCKETS = SUB_COUNT + (63 - SUB_BITS) * HALF_COUNT;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong max;
+
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(BUCKETS);
+        max = new AtomicLong();
+    }
+
+    /**
+     * Records a single measurement.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucketFor(nanos));
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Copies the current count for every bucket into the supplied array,
+     * which must have room for {@link #BUCKETS} entries.
+     */
+    public void copyCounts(long[] dest) {
+        for (int i = 0; i < BUCKETS; i++) {
+            dest[i] = counts.get(i);
+        }
+    }
+
+    /**
+     * Returns the biggest measurement since the last time this was called,
+     * and starts over.
+     */
+    public long takeMax() {
+        return max.getAndSet(0);
+    }
+
+    /**
+     * @return which bucket a measurement goes in
+     */
+    public static int bucketFor(long nanos) {
+        if (nanos < SUB_COUNT) {
+            return (int) nanos;
+        }
+        int highBit = 63 - Long.numberOfLeadingZeros(nanos);
+        int shift = highBit - (SUB_BITS - 1);
+        int top = (int) (nanos >>> shift);
+        return SUB_COUNT + (shift - 1) * HALF_COUNT + (top - HALF_COUNT);
+    }
+
+    /**
+     * @return the largest measurement that would go in a bucket
+     */
+    public static long highestValueIn(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_COUNT) / HALF_COUNT + 1;
+        long top = (bucket - SUB_COUNT) % HALF_COUNT + HALF_COUNT;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * Finds a percentile in a set of bucket counts (like the ones from
+     * {@link #copyCounts(long[])}).
+     *
+     * @param counts how many measurements are in each bucket
+     * @param total the total of all of the counts
+     * @param percentile which percentile we want (e.g. 99.0)
+     * @return the measurement at that percentile, or 0 if there aren't any
+     */
+    public static long percentile(long[] counts, long total, double percentile) {
+        if (total <= 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return highestValueIn(i);
+            }
+        }
+        return highestValueIn(BUCKETS - 1);
+    }
+}
@@ -0,0 +1,113 @@
+package frc.robot.timing;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
+
+/**
+ *
+ * Sums up a {@link LatencyHistogram} (p50, p99, max, jitter and count) for
+ * just the measurements since the last summary, and optionally publishes
+ * the numbers to a NetworkTables table.
+ *
+ */
+public class LatencySummary {
+
+    private final LatencyHistogram histogram;
+    private final long[] previous;
+    private final long[] current;
+    private final NetworkTableEntry p50Entry;
+    private final NetworkTableEntry p99Entry;
+    private final NetworkTableEntry maxEntry;
+    private final NetworkTableEntry jitterEntry;
+    private final NetworkTableEntry countEntry;
+
+    private long p50;
+    private long p99;
+    private long max;
+    private long count;
+
+    /**
+     * @param table where to publish the numbers, or null to not publish them
+     */
+    public LatencySummary(LatencyHistogram histogram, NetworkTable table) {
+        this.histogram = histogram;
+        this.previous = new long[LatencyHistogram.BUCKETS];
+        this.current = new long[LatencyHistogram.BUCKETS];
+        if (table != null) {
+            p50Entry = table.getEntry("p50 (us)");
+            p99Entry = table.getEntry("p99 (us)");
+            maxEntry = table.getEntry("Max (us)");
+            jitterEntry = table.getEntry("Jitter (us)");
+            countEntry = table.getEntry("Count");
+        } else {
+            p50Entry = null;
+            p99Entry = null;
+            maxEntry = null;
+            jitterEntry = null;
+            countEntry = null;
+        }
+    }
+
+    /**
+     * Works out the numbers for everything recorded since the last update.
+     */
+    public void update() {
+
+        // Work out the counts since last time, and save the new totals
+        histogram.copyCounts(current);
+        long total = 0;
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            long now = current[i];
+            current[i] = now - previous[i];
+            previous[i] = now;
+            total += current[i];
+        }
+
+        p50 = LatencyHistogram.percentile(current, total, 50.0);
+        p99 = LatencyHistogram.percentile(current, total, 99.0);
+        max = histogram.takeMax();
+        count = total;
+    }
+
+    /**
+     * Updates the numbers, and sends them to NetworkTables.
+     */
+    public void publish() {
+        update();
+        if (p50Entry != null) {
+            p50Entry.setDouble(p50 / 1000.0);
+            p99Entry.setDouble(p99 / 1000.0);
+            maxEntry.setDouble(max / 1000.0);
+            jitterEntry.setDouble((p99 - p50) / 1000.0);
+            countEntry.setDouble(count);
+        }
+    }
+
+    /**
+     * @return the median of the last update, in nanoseconds
+     */
+    public long getP50() {
+        return p50;
+    }
+
+    /**
+     * @return the 99th percentile of the last update, in nanoseconds
+     */
+    public long getP99() {
+        return p99;
+    }
+
+    /**
+     * @return the biggest measurement in the last update, in nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return how many measurements the last update covered
+     */
+    public long getCount() {
+        return count;
+    }
+}
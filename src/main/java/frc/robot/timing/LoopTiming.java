@@ -0,0 +1,101 @@
+package frc.robot.timing;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+/**
+ *
+ * Keeps track of how long each {@link Phase} of the robot loop takes, and
+ * every so often publishes a summary to NetworkTables under "Loop Timing":
+ *
+ * - p50: half of the loops were faster than this (the "typical" loop)
+ * - p99: only 1 in 100 loops were slower than this (the "bad" loops)
+ * - Max: the very slowest loop
+ * - Jitter: the gap between p99 and p50 (how unpredictable the timing is)
+ *
+ * The numbers cover just the time since the last update, so you can watch
+ * them change as you drive. Publishing happens on a background thread, so
+ * it doesn't add any time to the loop we're trying to measure.
+ *
+ * Nothing is recorded until {@link #start(double)} is called, so leaving the
+ * calls to {@link #record(Phase, long)} in place costs almost nothing.
+ *
+ */
+public final class LoopTiming {
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final LatencyHistogram[] HISTOGRAMS = new LatencyHistogram[PHASES.length];
+    static {
+        for (int i = 0; i < PHASES.length; i++) {
+            HISTOGRAMS[i] = new LatencyHistogram();
+        }
+    }
+
+    private static volatile boolean enabled;
+    private static ScheduledExecutorService publisher;
+
+    private LoopTiming() { }
+
+    /**
+     * Starts recording, and publishes a summary every so often.
+     *
+     * @param publishPeriod how often to publish, in seconds
+     */
+    public static synchronized void start(double publishPeriod) {
+        if (publisher != null) {
+            return;
+        }
+
+        LatencySummary[] summaries = new LatencySummary[PHASES.length];
+        NetworkTable table = NetworkTableInstance.getDefault().getTable("Loop Timing");
+        for (int i = 0; i < PHASES.length; i++) {
+            summaries[i] = new LatencySummary(HISTOGRAMS[i], table.getSubTable(PHASES[i].label));
+        }
+
+        publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Loop Timing");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long micros = (long) (publishPeriod * 1_000_000);
+        publisher.scheduleAtFixedRate(() -> {
+            for (LatencySummary summary : summaries) {
+                summary.publish();
+            }
+        }, micros, micros, TimeUnit.MICROSECONDS);
+
+        enabled = true;
+    }
+
+    /**
+     * @return true if we're recording timings
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the histogram for a phase (handy for tests and benchmarks)
+     */
+    public static LatencyHistogram get(Phase phase) {
+        return HISTOGRAMS[phase.ordinal()];
+    }
+
+    /**
+     * Records how long a phase took, given the time it started (from
+     * System.nanoTime()).
+     *
+     * @return the time now, so it can be used as the start of the next phase
+     */
+    public static long record(Phase phase, long startNanos) {
+        long now = System.nanoTime();
+        if (enabled) {
+            HISTOGRAMS[phase.ordinal()].record(now - startNanos);
+        }
+        return now;
+    }
+}
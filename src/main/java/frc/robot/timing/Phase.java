@@ -0,0 +1,37 @@
+package frc.robot.timing;
+
+/**
+ *
+ * The different parts of a robot loop that we keep track of.
+ *
+ */
+public enum Phase {
+
+    // From the start of one loop to the start of the next. This should be
+    // 20ms; if it isn't, something is making us late.
+    PERIOD("Period"),
+
+    // The whole loop, start to finish
+    LOOP("Loop"),
+
+    // teleopPeriodic, autonomousPeriodic, disabledPeriodic or testPeriodic
+    MODE_PERIODIC("Mode Periodic"),
+
+    // robotPeriodic
+    ROBOT_PERIODIC("Robot Periodic"),
+
+    // Everything WPILib does after robotPeriodic (mostly sending SmartDashboard values)
+    DASHBOARD("Dashboard"),
+
+    // Sending speeds to the motors through the DifferentialDrive
+    DRIVE("Drive"),
+
+    // One pass of a fast control loop (see ControlLoop)
+    CONTROL("Control Loop");
+
+    public final String label;
+
+    private Phase(String label) {
+        this.label = label;
+    }
+}
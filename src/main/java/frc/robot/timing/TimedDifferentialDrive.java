@@ -0,0 +1,46 @@
+package frc.robot.timing;
+
+import edu.wpi.first.wpilibj.drive.DifferentialDrive;
+import edu.wpi.first.wpilibj.motorcontrol.MotorController;
+
+/**
+ *
+ * A DifferentialDrive that records how long it takes to send speeds to the
+ * motors (the {@link Phase#DRIVE} phase). It works exactly like a regular
+ * DifferentialDrive otherwise.
+ *
+ */
+public class TimedDifferentialDrive extends DifferentialDrive {
+
+    public TimedDifferentialDrive(MotorController leftMotor, MotorController rightMotor) {
+        super(leftMotor, rightMotor);
+    }
+
+    @Override
+    public void tankDrive(double leftSpeed, double rightSpeed, boolean squareInputs) {
+        long start = System.nanoTime();
+        super.tankDrive(leftSpeed, rightSpeed, squareInputs);
+        LoopTiming.record(Phase.DRIVE, start);
+    }
+
+    @Override
+    public void arcadeDrive(double xSpeed, double zRotation, boolean squareInputs) {
+        long start = System.nanoTime();
+        super.arcadeDrive(xSpeed, zRotation, squareInputs);
+        LoopTiming.record(Phase.DRIVE, start);
+    }
+
+    @Override
+    public void curvatureDrive(double xSpeed, double zRotation, boolean allowTurnInPlace) {
+        long start = System.nanoTime();
+        super.curvatureDrive(xSpeed, zRotation, allowTurnInPlace);
+        LoopTiming.record(Phase.DRIVE, start);
+    }
+
+    @Override
+    public void stopMotor() {
+        long start = System.nanoTime();
+        super.stopMotor();
+        LoopTiming.record(Phase.DRIVE, start);
+    }
+}
@@ -0,0 +1,296 @@
+package frc.robot.tuning;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.controller.ProfiledPIDController;
+import edu.wpi.first.util.function.BooleanConsumer;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.TimedRobot;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.TelemetryBuilder;
+import frc.robot.telemetry.TelemetrySource;
+
+/**
+ *
+ * Remembers the values people change on the dashboard, so they're still
+ * there after the robot restarts.
+ *
+ * Use {@link #putData} instead of Telemetry.putData for a group of values.
+ * Every value with a setter becomes a "tunable" value:
+ *
+ * - When it's registered (in robotInit), it's set to whatever it was last
+ * time, if it was ever changed. The file is read once, the first time
+ * anything is registered.
+ * - Whenever someone changes it on the dashboard, it's saved. Saves wait
+ * until the values have stopped changing for {@link #SAVE_DELAY} seconds, so
+ * dragging a slider doesn't write the file fifty times, and they happen on a
+ * background thread so the robot loop never waits for the disk.
+ *
+ * Use {@link #putPid} instead of SmartDashboard.putData for PID controllers,
+ * so their gains are remembered too. Their setpoints can be changed from the
+ * dashboard, but aren't remembered: they're where the robot is going right
+ * now, not a setting.
+ *
+ * Values are remembered separately for each robot class, since several of
+ * the examples use the same names (like "PID Robot/Tolerance") for different
+ * things. Every robot's values are kept in the same file.
+ *
+ * The robot code doesn't change at all: dashboard changes still arrive
+ * through Telemetry.capture() on the robot thread and go straight into the
+ * robot's own fields, so the loop never looks anything up. This class just
+ * keeps its own copy of each value for the background saver. That copy is
+ * an array that's replaced (never changed) whenever a value changes, so the
+ * saver can read it without any locking.
+ *
+ * The values live in {@link #FILE_NAME} in the deploy directory (see
+ * {@link TuningFile} for the layout). Delete it to go back to the defaults.
+ *
+ */
+public final class Tuning {
+
+    // The file name, inside the deploy directory
+    public static final String FILE_NAME = "tuning.bin";
+
+    // How long the values have to stay the same before we save them (seconds)
+    public static final double SAVE_DELAY = 1.0;
+
+    // How many values can we keep track of?
+    public static final int MAX_VALUES = 256;
+
+    // Set this to false to ignore the saved values and never save. Replays
+    // (see frc.robot.sim.Replay) do this so every run starts the same way.
+    public static volatile boolean persistenceAllowed = true;
+
+    private static final String[] names = new String[MAX_VALUES];
+    private static final byte[] types = new byte[MAX_VALUES];
+    private static volatile double[] values = new double[0];
+    private static int count;
+
+    private static Path file;
+    private static Map<String, TuningFile.Value> saved;
+    private static ScheduledExecutorService saver;
+    private static ScheduledFuture<?> pendingSave;
+
+    private Tuning() { }
+
+    /**
+     * Picks the file to keep the values in, and reads it. This happens
+     * automatically (with the file in the deploy directory) the first time
+     * anything is registered, so you only need it to use a different file.
+     */
+    public static synchronized void load(Path path) {
+        file = path;
+        saved = Collections.emptyMap();
+        if (!Files.exists(path)) {
+            return;
+        }
+        try {
+            saved = TuningFile.read(path);
+        } catch (IOException e) {
+            DriverStation.reportWarning("Couldn't load the tuning values, using the defaults: " + e.getMessage(), false);
+        }
+    }
+
+    /**
+     * Registers a group of values to show on the dashboard, just like
+     * Telemetry.putData, and remembers any that can be changed. Call this
+     * from robotInit.
+     *
+     * @param robot the robot the values belong to (they're remembered
+     * separately for each kind of robot)
+     */
+    public static void putData(TimedRobot robot, String name, TelemetrySource source) {
+        putData(robot, name, null, source, null);
+    }
+
+    /**
+     * Shows a PIDController on the dashboard (like SmartDashboard.putData
+     * does), and remembers its gains.
+     */
+    public static void putPid(TimedRobot robot, String name, PIDController pid) {
+        putData(robot, name, "PIDController", (builder) -> {
+            builder.addDoubleProperty("p", pid::getP, pid::setP);
+            builder.addDoubleProperty("i", pid::getI, pid::setI);
+            builder.addDoubleProperty("d", pid::getD, pid::setD);
+        }, (builder) -> {
+            builder.addDoubleProperty("setpoint", pid::getSetpoint, pid::setSetpoint);
+        });
+    }
+
+    /**
+     * Shows a ProfiledPIDController on the dashboard (like
+     * SmartDashboard.putData does), and remembers its gains.
+     */
+    public static void putPid(TimedRobot robot, String name, ProfiledPIDController pid) {
+        putData(robot, name, "ProfiledPIDController", (builder) -> {
+            builder.addDoubleProperty("p", pid::getP, pid::setP);
+            builder.addDoubleProperty("i", pid::getI, pid::setI);
+            builder.addDoubleProperty("d", pid::getD, pid::setD);
+        }, (builder) -> {
+            builder.addDoubleProperty("goal", () -> pid.getGoal().position, pid::setGoal);
+        });
+    }
+
+    /**
+     * @param source the values to remember (if they can be changed)
+     * @param forgotten values that can be changed, but aren't remembered (or null)
+     */
+    private static void putData(TimedRobot robot, String name, String type, TelemetrySource source,
+            TelemetrySource forgotten) {
+        String prefix = robot.getClass().getSimpleName() + "/" + name + "/";
+        Telemetry.putData(name, type, (builder) -> {
+            if (forgotten != null) {
+                forgotten.initTelemetry(builder);
+            }
+            source.initTelemetry(remembering(prefix, builder));
+        });
+    }
+
+    // Passes values on to the real builder, remembering any that can be changed
+    private static TelemetryBuilder remembering(String prefix, TelemetryBuilder builder) {
+        return new TelemetryBuilder() {
+
+            @Override
+            public void addDoubleProperty(String key, DoubleSupplier getter, DoubleConsumer setter) {
+                if (setter == null) {
+                    builder.addDoubleProperty(key, getter, null);
+                    return;
+                }
+
+                String fullName = prefix + key;
+                TuningFile.Value restored = restore(fullName, TuningFile.DOUBLE);
+                if (restored != null) {
+                    setter.accept(restored.value);
+                }
+
+                int index = register(fullName, TuningFile.DOUBLE, getter.getAsDouble());
+                builder.addDoubleProperty(key, getter, (v) -> {
+                    setter.accept(v);
+                    changed(index, v);
+                });
+            }
+
+            @Override
+            public void addBooleanProperty(String key, BooleanSupplier getter, BooleanConsumer setter) {
+                if (setter == null) {
+                    builder.addBooleanProperty(key, getter, null);
+                    return;
+                }
+
+                String fullName = prefix + key;
+                TuningFile.Value restored = restore(fullName, TuningFile.BOOLEAN);
+                if (restored != null) {
+                    setter.accept(restored.value != 0);
+                }
+
+                int index = register(fullName, TuningFile.BOOLEAN, getter.getAsBoolean() ? 1 : 0);
+                builder.addBooleanProperty(key, getter, (v) -> {
+                    setter.accept(v);
+                    changed(index, v ? 1 : 0);
+                });
+            }
+        };
+    }
+
+    /**
+     * Saves any changes straight away, instead of waiting for the delay.
+     */
+    public static void save() {
+        Path path;
+        Map<String, TuningFile.Value> all;
+        synchronized (Tuning.class) {
+            if (pendingSave != null) {
+                pendingSave.cancel(false);
+                pendingSave = null;
+            }
+            if (file == null) {
+                return;
+            }
+
+            // Keep the values from any other robots in the file, too
+            double[] current = values;
+            all = new LinkedHashMap<>(saved);
+            for (int i = 0; i < count; i++) {
+                all.put(names[i], new TuningFile.Value(types[i], current[i]));
+            }
+            saved = all;
+            path = file;
+        }
+
+        try {
+            TuningFile.write(path, all);
+        } catch (IOException e) {
+            DriverStation.reportWarning("Couldn't save the tuning values: " + e.getMessage(), false);
+        }
+    }
+
+    // The saved value for a name, if there is one of the right type
+    private static synchronized TuningFile.Value restore(String name, byte type) {
+        if (!persistenceAllowed) {
+            return null;
+        }
+        if (saved == null) {
+            load(Filesystem.getDeployDirectory().toPath().resolve(FILE_NAME));
+        }
+        TuningFile.Value value = saved.get(name);
+        return value != null && value.type == type ? value : null;
+    }
+
+    // Starts keeping track of a value, and returns where it's kept (or -1 if we aren't)
+    private static synchronized int register(String name, byte type, double value) {
+        if (!persistenceAllowed) {
+            return -1;
+        }
+        if (count == MAX_VALUES) {
+            throw new IllegalStateException("too many tuning values (max " + MAX_VALUES + ")");
+        }
+
+        int index = count;
+        names[index] = name;
+        types[index] = type;
+        double[] next = Arrays.copyOf(values, index + 1);
+        next[index] = value;
+        values = next;
+        count = index + 1;
+        return index;
+    }
+
+    // Called on the robot thread when a value is changed from the dashboard
+    private static synchronized void changed(int index, double value) {
+        if (index < 0 || values[index] == value) {
+            return;
+        }
+
+        double[] next = values.clone();
+        next[index] = value;
+        values = next;
+
+        // Start the wait over again
+        if (saver == null) {
+            saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Tuning");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        if (pendingSave != null) {
+            pendingSave.cancel(false);
+        }
+        pendingSave = saver.schedule(Tuning::save, (long) (SAVE_DELAY * 1000), TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,111 @@
+package frc.robot.tuning;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ *
+ * Reads and writes the file {@link Tuning} keeps its values in.
+ *
+ * The layout is:
+ *
+ * - a header: MAGIC, VERSION and how many values there are
+ * - then for each value: its name (like "Pad Driver/Max Speed (in/s)"), a
+ * byte that says whether it's a number or a true/false, and the value itself
+ *
+ */
+public final class TuningFile {
+
+    // "TUNE", so we don't try to read some other file
+    public static final int MAGIC = 0x54554E45;
+    public static final int VERSION = 1;
+
+    // What kind of value each one is
+    public static final byte DOUBLE = 0;
+    public static final byte BOOLEAN = 1;
+
+    /**
+     * One saved value.
+     */
+    public static final class Value {
+
+        public final byte type;
+        public final double value;
+
+        public Value(byte type, double value) {
+            this.type = type;
+            this.value = value;
+        }
+    }
+
+    private TuningFile() { }
+
+    /**
+     * Saves the values. The file is written under a temporary name and then
+     * renamed, so if the robot is switched off halfway through, the old file
+     * is still there and still complete.
+     */
+    public static void write(Path file, Map<String, Value> values) throws IOException {
+
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+
+        try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(temp));
+             DataOutputStream out = new DataOutputStream(stream)) {
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(values.size());
+            for (Map.Entry<String, Value> entry : values.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeByte(entry.getValue().type);
+                out.writeDouble(entry.getValue().value);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the values from a file, in one pass.
+     *
+     * @return the values by name, in the order they were saved
+     * @throws IOException if the file can't be read, or isn't a tuning file
+     */
+    public static Map<String, Value> read(Path file) throws IOException {
+
+        // It's only a few KB, so read it in one go
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)));
+
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a tuning file: " + file);
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("unknown tuning file version " + version + ": " + file);
+        }
+
+        int count = in.readInt();
+        Map<String, Value> values = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            byte type = in.readByte();
+            double value = in.readDouble();
+            values.put(name, new Value(type, value));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,50 @@
+package frc.robot.vision;
+
+import org.opencv.core.Mat;
+
+import edu.wpi.first.cameraserver.CameraServer;
+import edu.wpi.first.cscore.CvSink;
+import edu.wpi.first.util.WPIUtilJNI;
+
+/**
+ *
+ * Gets pictures from the camera, using CameraServer. cscore copies each
+ * picture straight into our Mat, so once the Mat is the right size, grabbing
+ * a frame doesn't need any new memory.
+ *
+ */
+public class CameraFrameSource implements FrameSource {
+
+    private final CvSink sink;
+
+    /**
+     * Starts the first USB camera (using the settings from the Pi's web
+     * dashboard, if there are any).
+     */
+    public CameraFrameSource() {
+        CameraServer.startAutomaticCapture();
+        sink = CameraServer.getVideo();
+    }
+
+    @Override
+    public long grabFrame(Mat frame) {
+        return sink.grabFrame(frame);
+    }
+
+    @Override
+    public long now() {
+
+        // cscore stamps pictures using WPILib's clock
+        return WPIUtilJNI.now();
+    }
+
+    @Override
+    public String getError() {
+        return sink.getError();
+    }
+
+    @Override
+    public boolean isFinished() {
+        return false;
+    }
+}
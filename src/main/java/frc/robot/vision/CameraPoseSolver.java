@@ -0,0 +1,550 @@
+package frc.robot.vision;
+
+import java.util.Arrays;
+
+/**
+ *
+ * Works out where the camera is on the field, from all the tags it can see
+ * at once.
+ *
+ * The old Python script worked out each tag's pose on its own (50 rounds of
+ * orthogonal iteration per tag), even though every tag in the picture was
+ * seen by the same camera from the same place. Putting all their corners
+ * into one fit uses everything we know: a tag on the far side of the
+ * picture pins down the camera's angle much better than the four corners
+ * of one small tag can.
+ *
+ * The fit is Levenberg-Marquardt: start from a guess of where the camera is,
+ * see how far the tag corners are from where they'd be in the picture if
+ * that was right, nudge the guess to make them closer, and repeat. The
+ * robot doesn't move far between frames, so the answer from the last frame
+ * is a very good guess ("warm start") and usually only takes a round or two.
+ * We only start from scratch (using the biggest single tag, which is what
+ * the Python script did for every tag) on the first frame, or if the last
+ * answer doesn't fit any more.
+ *
+ * With only one tag in sight it's the same fit with four corners, which is
+ * the single tag estimate; the result says how many tags were used, so the
+ * robot can decide how much to trust it.
+ *
+ * Everything is plain Java with its arrays made up front, so solving doesn't
+ * create any garbage. Like the rest of a {@link VisionProcessor}, a solver
+ * must only be used by one thread at a time, and it remembers the last
+ * frame, so each of the pipeline's workers has their own.
+ *
+ */
+public class CameraPoseSolver {
+
+    // Give up on a fit after this many rounds
+    public static final int MAX_ITERATIONS = 50;
+
+    // An answer whose corners are further than this from where the tags were
+    // seen (on average, in pixels) is thrown away
+    public static final double DEFAULT_MAX_ERROR = 4;
+
+    // Stop once a round improves the fit by less than this fraction, or by
+    // less than this many square pixels per corner (the detector's corners
+    // are only good to a fraction of a pixel, so there's no point going on)
+    private static final double CONVERGED = 1e-6;
+    private static final double MIN_IMPROVEMENT = 1e-2;
+
+    private static final double START_DAMPING = 1e-3;
+    private static final double MIN_DAMPING = 1e-9;
+    private static final double MAX_DAMPING = 1e9;
+
+    private final TagLayout layout;
+    private final double fx;
+    private final double fy;
+    private final double centerX;
+    private final double centerY;
+    private boolean warmStart = true;
+    private double maxError = DEFAULT_MAX_ERROR;
+
+    // The current guess: field points go to camera points by
+    // camera = rotation * field + translation (rotation is 3x3, row by row).
+    // The camera has x to the right, y down and z forward, like OpenCV's.
+    private final double[] rotation = new double[9];
+    private final double[] translation = new double[3];
+    private double cost;
+
+    // The last good answer, for the next frame's warm start
+    private final double[] lastRotation = new double[9];
+    private final double[] lastTranslation = new double[3];
+    private boolean haveLast;
+
+    // Where each corner is on the field (x, y, z) and in the picture (x, y)
+    private final double[] fieldPoints = new double[VisionProcessor.MAX_TAGS * 12];
+    private final double[] imagePoints = new double[VisionProcessor.MAX_TAGS * 8];
+    private double cx;
+    private double cy;
+
+    // Scratch space for each round of the fit
+    private final double[] normal = new double[36];
+    private final double[] gradient = new double[6];
+    private final double[] system = new double[64];
+    private final double[] step = new double[8];
+    private final double[] ju = new double[6];
+    private final double[] jv = new double[6];
+    private final double[] nudge = new double[9];
+    private final double[] trialRotation = new double[9];
+    private final double[] trialTranslation = new double[3];
+    private final double[] tagRotation = new double[9];
+    private final double[] tagTranslation = new double[3];
+    private final double[] tagCorners = new double[8];
+
+    /**
+     * @param layout where the tags are on the field
+     * @param fx the camera's focal length across, in pixels
+     * @param fy the camera's focal length down, in pixels
+     * @param cx the middle of the camera's picture, in pixels, or NaN for
+     * the middle of whatever size picture comes along
+     * @param cy the middle of the camera's picture, in pixels, or NaN for
+     * the middle of whatever size picture comes along
+     */
+    public CameraPoseSolver(TagLayout layout, double fx, double fy, double cx, double cy) {
+        this.layout = layout;
+        this.fx = fx;
+        this.fy = fy;
+        this.centerX = cx;
+        this.centerY = cy;
+
+        // The corners of a tag, as TagLayout and TagPoseEstimator have them
+        double half = layout.getTagSize() / 2;
+        double[] corners = {-half, half, half, half, half, -half, -half, -half};
+        System.arraycopy(corners, 0, tagCorners, 0, 8);
+    }
+
+    /**
+     * Turns starting from the last frame's answer on or off (it's on to
+     * start with). Turning it off makes every frame start from scratch,
+     * which is only useful for comparing the two.
+     */
+    public void setWarmStart(boolean warmStart) {
+        this.warmStart = warmStart;
+    }
+
+    public void setMaxError(double maxError) {
+        this.maxError = maxError;
+    }
+
+    /**
+     * Forgets the last frame's answer, e.g. when switching to a different
+     * camera or recording.
+     */
+    public void reset() {
+        haveLast = false;
+    }
+
+    /**
+     * Works out where the camera is from the tags in a result, and saves it
+     * in the result's camera pose.
+     *
+     * @param result the tags found in a picture, with their corners in full
+     * size pixels. Tags that aren't in the layout are ignored.
+     * @return true if it worked
+     */
+    public boolean solve(VisionResult result) {
+        cx = Double.isNaN(centerX) ? result.width / 2.0 : centerX;
+        cy = Double.isNaN(centerY) ? result.height / 2.0 : centerY;
+
+        // Collect the corners of every tag we know the position of, and
+        // find the biggest one in case we have to start from scratch
+        int tags = 0;
+        int biggest = -1;
+        double biggestArea = 0;
+        for (int i = 0; i < result.tagCount; i++) {
+            TagDetection tag = result.tags[i];
+            if (!layout.contains(tag.id)) {
+                continue;
+            }
+            System.arraycopy(layout.getCorners(tag.id), 0, fieldPoints, tags * 12, 12);
+            System.arraycopy(tag.corners, 0, imagePoints, tags * 8, 8);
+            double area = area(tag.corners);
+            if (area > biggestArea) {
+                biggestArea = area;
+                biggest = i;
+            }
+            tags++;
+        }
+        result.clearCameraPose();
+        if (tags == 0 || biggest < 0) {
+            return false;
+        }
+        int points = tags * 4;
+
+        int iterations = 0;
+        boolean solved = false;
+        if (warmStart && haveLast) {
+            System.arraycopy(lastRotation, 0, rotation, 0, 9);
+            System.arraycopy(lastTranslation, 0, translation, 0, 3);
+            iterations += refine(points);
+            solved = fits(points);
+        }
+        if (!solved && seedFrom(result.tags[biggest])) {
+            iterations += refine(points);
+            solved = fits(points);
+        }
+        result.cameraIterations = iterations;
+        if (!solved) {
+            haveLast = false;
+            return false;
+        }
+
+        System.arraycopy(rotation, 0, lastRotation, 0, 9);
+        System.arraycopy(translation, 0, lastTranslation, 0, 3);
+        haveLast = true;
+
+        // The camera is where the field's origin ends up after undoing the
+        // rotation and translation, and its forward, right and down
+        // directions on the field are the rows of the rotation
+        double[] r = rotation;
+        double[] t = translation;
+        result.cameraTags = tags;
+        result.cameraX = -(r[0] * t[0] + r[3] * t[1] + r[6] * t[2]);
+        result.cameraY = -(r[1] * t[0] + r[4] * t[1] + r[7] * t[2]);
+        result.cameraZ = -(r[2] * t[0] + r[5] * t[1] + r[8] * t[2]);
+        result.cameraYaw = Math.atan2(r[7], r[6]);
+        result.cameraPitch = Math.asin(Math.max(-1, Math.min(1, r[8])));
+        result.cameraRoll = Math.atan2(-r[2], -r[5]);
+        result.cameraError = Math.sqrt(cost / points);
+        return true;
+    }
+
+    private boolean fits(int points) {
+        return !Double.isInfinite(cost) && Math.sqrt(cost / points) <= maxError;
+    }
+
+    /**
+     * Makes a first guess from one tag on its own. Its four corners are a
+     * square on a flat wall, so there's a "homography" (a 3x3 matrix) that
+     * takes the square to where the corners are in the picture, and the
+     * first two columns of it are the tag's x and y axes as the camera
+     * sees them.
+     */
+    private boolean seedFrom(TagDetection tag) {
+        // Solve for the homography from the tag to the picture (with the
+        // bottom right number fixed at 1), in the camera's units rather than
+        // pixels: two equations for each corner
+        double[] a = system;
+        double[] h = step;
+        for (int i = 0; i < 4; i++) {
+            double x = tagCorners[i * 2];
+            double y = tagCorners[i * 2 + 1];
+            double u = (tag.corners[i * 2] - cx) / fx;
+            double v = (tag.corners[i * 2 + 1] - cy) / fy;
+            int row = i * 16;
+            a[row] = x;
+            a[row + 1] = y;
+            a[row + 2] = 1;
+            a[row + 3] = 0;
+            a[row + 4] = 0;
+            a[row + 5] = 0;
+            a[row + 6] = -u * x;
+            a[row + 7] = -u * y;
+            a[row + 8] = 0;
+            a[row + 9] = 0;
+            a[row + 10] = 0;
+            a[row + 11] = x;
+            a[row + 12] = y;
+            a[row + 13] = 1;
+            a[row + 14] = -v * x;
+            a[row + 15] = -v * y;
+            h[i * 2] = u;
+            h[i * 2 + 1] = v;
+        }
+        if (!solveLinear(a, h, 8)) {
+            return false;
+        }
+
+        // The columns are the tag's axes and its middle, all scaled by the
+        // same amount. Undo the scale (the axes should be 1 long), then
+        // straighten the axes up so they're at right angles. The bottom
+        // right number was 1, so the tag ends up in front of the camera.
+        double scale = 2 / (Math.sqrt(h[0] * h[0] + h[3] * h[3] + h[6] * h[6])
+                + Math.sqrt(h[1] * h[1] + h[4] * h[4] + h[7] * h[7]));
+        if (Double.isNaN(scale) || Double.isInfinite(scale)) {
+            return false;
+        }
+        double[] m = tagRotation;
+        double x0 = h[0];
+        double x1 = h[3];
+        double x2 = h[6];
+        double xLength = Math.sqrt(x0 * x0 + x1 * x1 + x2 * x2);
+        x0 /= xLength;
+        x1 /= xLength;
+        x2 /= xLength;
+        double y0 = h[1];
+        double y1 = h[4];
+        double y2 = h[7];
+        double dot = x0 * y0 + x1 * y1 + x2 * y2;
+        y0 -= dot * x0;
+        y1 -= dot * x1;
+        y2 -= dot * x2;
+        double yLength = Math.sqrt(y0 * y0 + y1 * y1 + y2 * y2);
+        y0 /= yLength;
+        y1 /= yLength;
+        y2 /= yLength;
+        m[0] = x0;
+        m[3] = x1;
+        m[6] = x2;
+        m[1] = y0;
+        m[4] = y1;
+        m[7] = y2;
+        m[2] = x1 * y2 - x2 * y1;
+        m[5] = x2 * y0 - x0 * y2;
+        m[8] = x0 * y1 - x1 * y0;
+        tagTranslation[0] = scale * h[2];
+        tagTranslation[1] = scale * h[5];
+        tagTranslation[2] = scale;
+
+        // That's the tag as the camera sees it. The layout says how the tag
+        // sits on the field, so combine the two to get the field as the
+        // camera sees it.
+        double[] axes = layout.getAxes(tag.id);
+        double[] center = layout.getCenter(tag.id);
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                rotation[row * 3 + col] = m[row * 3] * axes[col * 3]
+                        + m[row * 3 + 1] * axes[col * 3 + 1]
+                        + m[row * 3 + 2] * axes[col * 3 + 2];
+            }
+        }
+        for (int row = 0; row < 3; row++) {
+            translation[row] = tagTranslation[row] - (rotation[row * 3] * center[0]
+                    + rotation[row * 3 + 1] * center[1] + rotation[row * 3 + 2] * center[2]);
+        }
+        return true;
+    }
+
+    /**
+     * Improves the current guess until it stops getting better.
+     *
+     * @return how many rounds it took
+     */
+    private int refine(int points) {
+        cost = cost(rotation, translation, points);
+        if (Double.isInfinite(cost)) {
+            return 0;
+        }
+
+        double damping = START_DAMPING;
+        int iterations = 0;
+        while (iterations < MAX_ITERATIONS && cost > 1e-12) {
+            iterations++;
+            buildNormalEquations(points);
+
+            // Try a step. If it makes things worse, lean more towards small
+            // steps downhill and try again (that's the "damping").
+            boolean improved = false;
+            double improvement = 0;
+            while (!improved && damping < MAX_DAMPING) {
+                System.arraycopy(normal, 0, system, 0, 36);
+                for (int i = 0; i < 6; i++) {
+                    system[i * 7] += damping * (normal[i * 7] + 1e-9);
+                    step[i] = -gradient[i];
+                }
+                if (solveLinear(system, step, 6)) {
+                    applyStep();
+                    double trialCost = cost(trialRotation, trialTranslation, points);
+                    if (trialCost < cost) {
+                        System.arraycopy(trialRotation, 0, rotation, 0, 9);
+                        System.arraycopy(trialTranslation, 0, translation, 0, 3);
+                        improvement = cost - trialCost;
+                        cost = trialCost;
+                        damping = Math.max(MIN_DAMPING, damping / 10);
+                        improved = true;
+                        continue;
+                    }
+                }
+                damping *= 10;
+            }
+            if (!improved || improvement <= CONVERGED * (cost + improvement)
+                    || improvement < MIN_IMPROVEMENT * points) {
+                break;
+            }
+        }
+        return iterations;
+    }
+
+    /**
+     * @return the sum of the squared distances (in pixels) between where the
+     * corners are and where they'd be, or infinity if any are behind the
+     * camera
+     */
+    private double cost(double[] r, double[] t, int points) {
+        double sum = 0;
+        for (int i = 0; i < points; i++) {
+            double fieldX = fieldPoints[i * 3];
+            double fieldY = fieldPoints[i * 3 + 1];
+            double fieldZ = fieldPoints[i * 3 + 2];
+            double x = r[0] * fieldX + r[1] * fieldY + r[2] * fieldZ + t[0];
+            double y = r[3] * fieldX + r[4] * fieldY + r[5] * fieldZ + t[1];
+            double z = r[6] * fieldX + r[7] * fieldY + r[8] * fieldZ + t[2];
+            if (z < 1e-6) {
+                return Double.POSITIVE_INFINITY;
+            }
+            double du = fx * x / z + cx - imagePoints[i * 2];
+            double dv = fy * y / z + cy - imagePoints[i * 2 + 1];
+            sum += du * du + dv * dv;
+        }
+        return sum;
+    }
+
+    /**
+     * Works out how each corner's position in the picture changes as the
+     * guess is nudged (turned a little about each axis, or moved a little
+     * along each axis), and sums them up into the equations for the best
+     * nudge.
+     */
+    private void buildNormalEquations(int points) {
+        Arrays.fill(normal, 0);
+        Arrays.fill(gradient, 0);
+        double[] r = rotation;
+        double[] t = translation;
+        for (int i = 0; i < points; i++) {
+            double fieldX = fieldPoints[i * 3];
+            double fieldY = fieldPoints[i * 3 + 1];
+            double fieldZ = fieldPoints[i * 3 + 2];
+            double qx = r[0] * fieldX + r[1] * fieldY + r[2] * fieldZ;
+            double qy = r[3] * fieldX + r[4] * fieldY + r[5] * fieldZ;
+            double qz = r[6] * fieldX + r[7] * fieldY + r[8] * fieldZ;
+            double x = qx + t[0];
+            double y = qy + t[1];
+            double z = qz + t[2];
+            double iz = 1 / z;
+            double du = fx * x * iz + cx - imagePoints[i * 2];
+            double dv = fy * y * iz + cy - imagePoints[i * 2 + 1];
+
+            // How the pixel moves as the camera point moves...
+            double ux = fx * iz;
+            double uz = -fx * x * iz * iz;
+            double vy = fy * iz;
+            double vz = -fy * y * iz * iz;
+
+            // ...and so as the guess turns (q cross that) and moves
+            ju[0] = qy * uz;
+            ju[1] = qz * ux - qx * uz;
+            ju[2] = -qy * ux;
+            ju[3] = ux;
+            ju[4] = 0;
+            ju[5] = uz;
+            jv[0] = qy * vz - qz * vy;
+            jv[1] = -qx * vz;
+            jv[2] = qx * vy;
+            jv[3] = 0;
+            jv[4] = vy;
+            jv[5] = vz;
+
+            for (int row = 0; row < 6; row++) {
+                for (int col = row; col < 6; col++) {
+                    normal[row * 6 + col] += ju[row] * ju[col] + jv[row] * jv[col];
+                }
+                gradient[row] += ju[row] * du + jv[row] * dv;
+            }
+        }
+        for (int row = 1; row < 6; row++) {
+            for (int col = 0; col < row; col++) {
+                normal[row * 6 + col] = normal[col * 6 + row];
+            }
+        }
+    }
+
+    /**
+     * Nudges the guess by the step: turns it by the first three numbers (a
+     * rotation vector, turned into a matrix with Rodrigues' formula) and
+     * moves it by the last three.
+     */
+    private void applyStep() {
+        double wx = step[0];
+        double wy = step[1];
+        double wz = step[2];
+        double angle = Math.sqrt(wx * wx + wy * wy + wz * wz);
+        double sin = 1;
+        double oneMinusCos = 0;
+        if (angle > 1e-12) {
+            wx /= angle;
+            wy /= angle;
+            wz /= angle;
+            sin = Math.sin(angle);
+            oneMinusCos = 1 - Math.cos(angle);
+        }
+        double[] n = nudge;
+        n[0] = 1 - oneMinusCos * (wy * wy + wz * wz);
+        n[1] = -sin * wz + oneMinusCos * wx * wy;
+        n[2] = sin * wy + oneMinusCos * wx * wz;
+        n[3] = sin * wz + oneMinusCos * wx * wy;
+        n[4] = 1 - oneMinusCos * (wx * wx + wz * wz);
+        n[5] = -sin * wx + oneMinusCos * wy * wz;
+        n[6] = -sin * wy + oneMinusCos * wx * wz;
+        n[7] = sin * wx + oneMinusCos * wy * wz;
+        n[8] = 1 - oneMinusCos * (wx * wx + wy * wy);
+
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                trialRotation[row * 3 + col] = n[row * 3] * rotation[col]
+                        + n[row * 3 + 1] * rotation[3 + col]
+                        + n[row * 3 + 2] * rotation[6 + col];
+            }
+            trialTranslation[row] = translation[row] + step[3 + row];
+        }
+    }
+
+    /**
+     * @return how big a tag looks in the picture, in square pixels
+     */
+    private static double area(double[] corners) {
+        double sum = 0;
+        for (int i = 0; i < 4; i++) {
+            int j = (i + 1) % 4;
+            sum += corners[i * 2] * corners[j * 2 + 1] - corners[j * 2] * corners[i * 2 + 1];
+        }
+        return Math.abs(sum) / 2;
+    }
+
+    /**
+     * Solves a x = b for x by Gaussian elimination, in place: a is n by n
+     * (row by row) and gets scrambled, and b becomes the answer.
+     *
+     * @return false if there's no single answer
+     */
+    private static boolean solveLinear(double[] a, double[] b, int n) {
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < n; row++) {
+                if (Math.abs(a[row * n + col]) > Math.abs(a[pivot * n + col])) {
+                    pivot = row;
+                }
+            }
+            if (Math.abs(a[pivot * n + col]) < 1e-15) {
+                return false;
+            }
+            if (pivot != col) {
+                for (int k = 0; k < n; k++) {
+                    double swap = a[col * n + k];
+                    a[col * n + k] = a[pivot * n + k];
+                    a[pivot * n + k] = swap;
+                }
+                double swap = b[col];
+                b[col] = b[pivot];
+                b[pivot] = swap;
+            }
+            for (int row = col + 1; row < n; row++) {
+                double factor = a[row * n + col] / a[col * n + col];
+                if (factor != 0) {
+                    for (int k = col; k < n; k++) {
+                        a[row * n + k] -= factor * a[col * n + k];
+                    }
+                    b[row] -= factor * b[col];
+                }
+            }
+        }
+        for (int row = n - 1; row >= 0; row--) {
+            double sum = b[row];
+            for (int k = row + 1; k < n; k++) {
+                sum -= a[row * n + k] * b[k];
+            }
+            b[row] = sum / a[row * n + row];
+        }
+        return true;
+    }
+}
@@ -0,0 +1,40 @@
+package frc.robot.vision;
+
+import org.opencv.core.Mat;
+
+/**
+ *
+ * Somewhere camera pictures come from: a real camera (see
+ * {@link CameraFrameSource}), or a folder of saved pictures, so the vision
+ * code can be tried out with no camera plugged in (see
+ * {@link ImageFolderSource}).
+ *
+ */
+public interface FrameSource {
+
+    /**
+     * Waits for the next picture, and copies it into frame. The frame is
+     * reused: if it's already the right size, no new memory is needed.
+     *
+     * @param frame where to put the picture (in BGR color)
+     * @return when the picture was taken, in microseconds (see {@link #now()}),
+     * or 0 if something went wrong (see {@link #getError()})
+     */
+    long grabFrame(Mat frame);
+
+    /**
+     * @return the time now, in microseconds, by the same clock as the times
+     * from {@link #grabFrame}
+     */
+    long now();
+
+    /**
+     * @return what went wrong with the last {@link #grabFrame}
+     */
+    String getError();
+
+    /**
+     * @return true once there aren't going to be any more pictures
+     */
+    boolean isFinished();
+}
@@ -0,0 +1,121 @@
+package frc.robot.vision;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+/**
+ *
+ * Plays back a folder of saved camera pictures (.png, .jpg or .bmp), in
+ * name order, as if they were coming from the camera.
+ *
+ * All of the pictures are loaded when this is made, so that reading files
+ * doesn't get counted as vision processing time. Keep the folder to a few
+ * hundred pictures.
+ *
+ */
+public class ImageFolderSource implements FrameSource {
+
+    private final List<Path> files;
+    private final List<Mat> images;
+    private final boolean loop;
+    private int next;
+    private int current = -1;
+
+    /**
+     * @param folder where the pictures are
+     * @param loop true to start again from the first picture after the last
+     * one, instead of finishing
+     */
+    public ImageFolderSource(Path folder, boolean loop) throws IOException {
+        this.loop = loop;
+        try (Stream<Path> list = Files.list(folder)) {
+            files = list.filter(ImageFolderSource::isImage).sorted().collect(Collectors.toList());
+        }
+        if (files.isEmpty()) {
+            throw new IOException("There aren't any pictures in " + folder);
+        }
+
+        images = new ArrayList<>(files.size());
+        for (Path file : files) {
+            Mat image = Imgcodecs.imread(file.toString(), Imgcodecs.IMREAD_COLOR);
+            if (image.empty()) {
+                throw new IOException("Couldn't read " + file);
+            }
+            images.add(image);
+        }
+    }
+
+    private static boolean isImage(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg")
+                || name.endsWith(".bmp");
+    }
+
+    @Override
+    public long grabFrame(Mat frame) {
+        if (isFinished()) {
+            return 0;
+        }
+        current = next;
+        images.get(current).copyTo(frame);
+        next++;
+        if (loop && next == images.size()) {
+            next = 0;
+        }
+        return Math.max(1, now());
+    }
+
+    @Override
+    public long now() {
+        return System.nanoTime() / 1000;
+    }
+
+    @Override
+    public String getError() {
+        return isFinished() ? "No more pictures" : "";
+    }
+
+    @Override
+    public boolean isFinished() {
+        return next >= images.size();
+    }
+
+    /**
+     * Starts again from the first picture.
+     */
+    public void rewind() {
+        next = 0;
+        current = -1;
+    }
+
+    /**
+     * @return how many pictures there are
+     */
+    public int getFrameCount() {
+        return images.size();
+    }
+
+    /**
+     * @return the file name of the last picture, without the folder
+     */
+    public String getFrameName() {
+        return current < 0 ? "" : getFrameName(current);
+    }
+
+    /**
+     * @param index which picture (0 for the first one). Past the end, this
+     * wraps around, like the pictures do when looping.
+     * @return the picture's file name, without the folder
+     */
+    public String getFrameName(long index) {
+        return files.get((int) (index % files.size())).getFileName().toString();
+    }
+}
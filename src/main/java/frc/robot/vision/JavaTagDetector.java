@@ -0,0 +1,875 @@
+package frc.robot.vision;
+
+import org.opencv.core.Mat;
+
+/**
+ *
+ * A tag16h5 AprilTag detector written in plain Java, so the vision code works
+ * without WPILib 2023's AprilTag library (see {@link TagDetector}). It's the
+ * default detector for VisionService and VisionBenchmark.
+ *
+ * It works the same way as the AprilTag library, just with fewer tricks:
+ *
+ * 1. Threshold: split the picture into 4x4 pixel tiles, find the darkest and
+ * brightest pixel around each tile, and call each pixel black or white
+ * depending on which it's closer to. Pixels in flat areas (not enough
+ * difference between dark and bright) are neither.
+ * 2. Join up the black pixels that touch into blobs. Every tag's black
+ * border is one blob.
+ * 3. For each blob of the right size, find the four corners of its outline
+ * (the biggest four sided shape that fits its convex hull), and throw it
+ * out if the outline isn't close enough to a four sided shape.
+ * 4. Move each side onto the real edge in the picture (where the brightness
+ * changes fastest), which puts the corners within a fraction of a pixel.
+ * 5. Read the tag: look at the middle of each of the 16 squares inside the
+ * border, and compare with the black border and the white edge around the
+ * tag to decide which are black and which are white.
+ * 6. Look the pattern up (turned all four ways) in the list of tag16h5 codes.
+ * A pattern that's a bit wrong still counts, if it's no more than
+ * {@link #MAX_HAMMING} squares off (the codes are all at least 5 squares
+ * different from each other, so it can't be close to two of them).
+ *
+ * Each tag's corners come back counter-clockwise from the bottom left, as
+ * the tag is printed (like the AprilTag library), and its middle is where
+ * the diagonals cross.
+ *
+ * The decision margin is worked out like the AprilTag library's: how far the
+ * squares are from the black/white threshold on average (for the black ones
+ * and the white ones, whichever is smaller), out of 255. That's about half
+ * the difference between the tag's black and white, so a sharp, well lit tag
+ * gets over 100 (VisionProcessor's usual cut off), and a dim or blurry one
+ * less.
+ *
+ * All the working space is kept and reused, so once it's seen a picture of
+ * the same size, finding tags doesn't create any garbage. One detector must
+ * only be used by one thread at a time.
+ *
+ */
+public class JavaTagDetector implements TagDetector {
+
+    public static final String FAMILY = "tag16h5";
+
+    // The tag16h5 codes, by id. Each one is the 4x4 squares inside the black
+    // border, row by row from the top left (the first square is the top bit),
+    // with white as 1.
+    private static final int[] CODES = {
+        0x231b, 0x2ea5, 0x346a, 0x45b9, 0x79a6, 0x7f6b, 0xb358, 0xe745, 0xfe59, 0x156d,
+        0x380b, 0xf0ab, 0x0d84, 0x4736, 0x8c72, 0xaf10, 0x093c, 0x93b4, 0xa503, 0x468f,
+        0xe137, 0x5795, 0xdf42, 0x1c1d, 0xe9dc, 0x73ad, 0xad5f, 0xd530, 0x07ca, 0xaf2e,
+    };
+
+    // How many squares of a tag's pattern can be wrong and still count.
+    // The codes are at least 5 apart, but tag16h5 is small enough that real
+    // pictures often have something that's 2 away from a tag.
+    public static final int MAX_HAMMING = 1;
+
+    // The black border is 6 squares across: a square of border on each side
+    // and 4 squares of pattern
+    private static final int BORDER_CELLS = 6;
+    private static final int DATA_CELLS = 4;
+
+    // Tiles for the threshold, in pixels
+    private static final int TILE = 4;
+
+    // Tiles where the darkest and brightest pixels are closer than this
+    // aren't part of any edge, so their pixels are left out
+    public static final int MIN_CONTRAST = 20;
+
+    // The smallest tag we look for, across its black border in pixels
+    public static final int MIN_TAG_WIDTH = 8;
+
+    // How much of a blob's convex hull its four corners have to cover
+    private static final double MIN_QUAD_FILL = 0.85;
+
+    // Blobs with more hull corners than this aren't four sided
+    private static final int MAX_HULL = 400;
+
+    // How far (as a fraction of the side) corners can move when the sides are
+    // fitted to the edges, before we decide the fit went wrong
+    private static final double MAX_REFINE_MOVE = 0.2;
+
+    private static final int BLACK = 0;
+    private static final int WHITE = 1;
+    private static final int UNKNOWN = 2;
+
+    private int width;
+    private int height;
+    private byte[] pixels = new byte[0];
+    private byte[] binary = new byte[0];
+    private int[] tileMin = new int[0];
+    private int[] tileMax = new int[0];
+    private int[] parent = new int[0];
+    private int[] boundaryStart = new int[0];
+    private int[] boundary = new int[0];
+    private int[] hull = new int[2 * MAX_HULL + 2];
+
+    // The four corners of the quad being looked at (x, y each), the edge
+    // lines fitted to them, and its projection from the tag's squares
+    private final double[] quad = new double[8];
+    private final double[] refined = new double[8];
+    private final double[] lines = new double[12];
+    private final double[] projection = new double[8];
+    private final double[] point = new double[2];
+
+    // The gray picture being looked at, while detect() runs
+    private byte[] gray;
+
+    /**
+     * @param family the tag family to look for. Only tag16h5 is supported.
+     */
+    public JavaTagDetector(String family) {
+        if (!FAMILY.equals(family)) {
+            throw new IllegalArgumentException("JavaTagDetector only finds " + FAMILY + " tags, not " + family);
+        }
+    }
+
+    @Override
+    public int detect(Mat gray, TagDetection[] results) {
+        int size = gray.cols() * gray.rows();
+        if (pixels.length < size) {
+            pixels = new byte[size];
+        }
+        gray.get(0, 0, pixels);
+        return detect(pixels, gray.cols(), gray.rows(), results);
+    }
+
+    /**
+     * Finds the tags in a picture.
+     *
+     * @param gray the picture, one byte per pixel, row by row
+     * @param width how many pixels across it is
+     * @param height how many pixels down it is
+     * @param results where to put the tags that were found
+     * @return how many tags were put in results
+     */
+    public int detect(byte[] gray, int width, int height, TagDetection[] results) {
+        if (width < MIN_TAG_WIDTH || height < MIN_TAG_WIDTH) {
+            return 0;
+        }
+        this.gray = gray;
+        this.width = width;
+        this.height = height;
+        allocate(width * height);
+
+        threshold();
+        joinBlobs();
+        int blobs = collectBoundaries();
+
+        int count = 0;
+        for (int b = 0; b < blobs && count < results.length; b++) {
+            int start = boundaryStart[b];
+            int end = boundaryStart[b + 1];
+            if (end - start >= 4 * MIN_TAG_WIDTH - 4 && findQuad(start, end)
+                    && decode(results[count])) {
+                count++;
+            }
+        }
+        this.gray = null;
+        return count;
+    }
+
+    @Override
+    public void close() {
+        pixels = new byte[0];
+        binary = new byte[0];
+        parent = new int[0];
+        boundaryStart = new int[0];
+        boundary = new int[0];
+    }
+
+    private void allocate(int size) {
+        if (binary.length < size) {
+            binary = new byte[size];
+            parent = new int[size];
+            boundaryStart = new int[size + 2];
+            boundary = new int[size];
+        }
+        int tiles = ((width + TILE - 1) / TILE) * ((height + TILE - 1) / TILE);
+        if (tileMin.length < 2 * tiles) {
+            tileMin = new int[2 * tiles];
+            tileMax = new int[2 * tiles];
+        }
+    }
+
+    private int pixel(int i) {
+        return gray[i] & 0xff;
+    }
+
+    /**
+     * Step 1: black, white or neither for every pixel, from the darkest and
+     * brightest pixels in the 3x3 tiles around it.
+     */
+    private void threshold() {
+        int tilesX = (width + TILE - 1) / TILE;
+        int tilesY = (height + TILE - 1) / TILE;
+        int tiles = tilesX * tilesY;
+
+        for (int ty = 0; ty < tilesY; ty++) {
+            for (int tx = 0; tx < tilesX; tx++) {
+                int min = 255;
+                int max = 0;
+                for (int y = ty * TILE; y < Math.min(height, ty * TILE + TILE); y++) {
+                    for (int x = tx * TILE; x < Math.min(width, tx * TILE + TILE); x++) {
+                        int value = pixel(y * width + x);
+                        min = Math.min(min, value);
+                        max = Math.max(max, value);
+                    }
+                }
+                tileMin[ty * tilesX + tx] = min;
+                tileMax[ty * tilesX + tx] = max;
+            }
+        }
+
+        // Spread each tile's darkest and brightest to its neighbours, so an
+        // edge right on a tile boundary still sees both sides (the spread
+        // values go in the second half of the arrays)
+        for (int ty = 0; ty < tilesY; ty++) {
+            for (int tx = 0; tx < tilesX; tx++) {
+                int min = 255;
+                int max = 0;
+                for (int y = Math.max(0, ty - 1); y <= Math.min(tilesY - 1, ty + 1); y++) {
+                    for (int x = Math.max(0, tx - 1); x <= Math.min(tilesX - 1, tx + 1); x++) {
+                        min = Math.min(min, tileMin[y * tilesX + x]);
+                        max = Math.max(max, tileMax[y * tilesX + x]);
+                    }
+                }
+                tileMin[tiles + ty * tilesX + tx] = min;
+                tileMax[tiles + ty * tilesX + tx] = max;
+            }
+        }
+
+        for (int y = 0; y < height; y++) {
+            int row = tiles + (y / TILE) * tilesX;
+            for (int x = 0; x < width; x++) {
+                int min = tileMin[row + x / TILE];
+                int max = tileMax[row + x / TILE];
+                int i = y * width + x;
+                if (max - min < MIN_CONTRAST) {
+                    binary[i] = UNKNOWN;
+                } else {
+                    binary[i] = pixel(i) > min + (max - min) / 2 ? (byte) WHITE : (byte) BLACK;
+                }
+            }
+        }
+    }
+
+    /**
+     * Step 2: joins up touching black pixels (side by side, not corner to
+     * corner), so each blob's pixels all lead to the same root pixel.
+     */
+    private void joinBlobs() {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = y * width + x;
+                parent[i] = i;
+                if (binary[i] != BLACK) {
+                    continue;
+                }
+                if (x > 0 && binary[i - 1] == BLACK) {
+                    union(i, i - 1);
+                }
+                if (y > 0 && binary[i - width] == BLACK) {
+                    union(i, i - width);
+                }
+            }
+        }
+    }
+
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA != rootB) {
+            // Keep the first pixel as the root, so roots come in picture order
+            if (rootA < rootB) {
+                parent[rootB] = rootA;
+            } else {
+                parent[rootA] = rootB;
+            }
+        }
+    }
+
+    private boolean isEdge(int i, int x, int y) {
+        return (x > 0 && binary[i - 1] == WHITE)
+                || (x < width - 1 && binary[i + 1] == WHITE)
+                || (y > 0 && binary[i - width] == WHITE)
+                || (y < height - 1 && binary[i + width] == WHITE);
+    }
+
+    /**
+     * Gathers each blob's outline (black pixels next to a white one) into
+     * {@link #boundary}, blob by blob. Blob b's pixels are from
+     * boundaryStart[b] to boundaryStart[b + 1], in picture order (top to
+     * bottom, then left to right). There can be at most half as many blobs
+     * as pixels (every other pixel), so the second half of boundaryStart
+     * always has room to keep track of where each blob is up to.
+     *
+     * @return how many blobs have an outline
+     */
+    private int collectBoundaries() {
+        int size = width * height;
+
+        // First count each blob's outline pixels, and number the blobs. The
+        // root pixel's parent entry isn't needed any more once everything
+        // points straight at it, so it's borrowed for the blob number.
+        for (int i = 0; i < size; i++) {
+            if (binary[i] == BLACK) {
+                parent[i] = find(i);
+            }
+        }
+        int blobs = 0;
+        for (int i = 0; i < size; i++) {
+            boundaryStart[i] = 0;
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = y * width + x;
+                if (binary[i] == BLACK && isEdge(i, x, y)) {
+                    boundaryStart[parent[i]]++;
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (binary[i] == BLACK && parent[i] == i) {
+                int count = boundaryStart[i];
+                boundaryStart[i] = 0;
+                if (count > 0) {
+                    boundary[blobs] = count;
+                    parent[i] = -1 - blobs;
+                    blobs++;
+                }
+            }
+        }
+
+        // Turn the counts into where each blob's outline starts
+        int total = 0;
+        for (int b = 0; b < blobs; b++) {
+            int count = boundary[b];
+            boundaryStart[b] = total;
+            total += count;
+        }
+        boundaryStart[blobs] = total;
+
+        // Then fill them in. Each blob's next free spot is kept in the
+        // second half of boundaryStart while we go.
+        for (int b = 0; b < blobs; b++) {
+            boundaryStart[blobs + 1 + b] = boundaryStart[b];
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = y * width + x;
+                if (binary[i] == BLACK && isEdge(i, x, y)) {
+                    int root = parent[i] < 0 ? i : parent[i];
+                    int blob = -1 - parent[root];
+                    boundary[boundaryStart[blobs + 1 + blob]++] = i;
+                }
+            }
+        }
+        return blobs;
+    }
+
+    /**
+     * Step 3 and 4: finds the four corners of a blob's outline and fits them
+     * to the edges in the picture, leaving them in {@link #quad} going
+     * clockwise (as seen in the picture).
+     *
+     * @return false if the blob isn't four sided, or is too small
+     */
+    private boolean findQuad(int start, int end) {
+        int corners = convexHull(start, end);
+        if (corners < 4 || corners > MAX_HULL) {
+            return false;
+        }
+
+        // The two hull corners furthest apart are opposite corners of the quad
+        int a = 0;
+        int c = 0;
+        double furthest = 0;
+        for (int i = 0; i < corners; i++) {
+            for (int j = i + 1; j < corners; j++) {
+                double dx = hull[j * 2] - hull[i * 2];
+                double dy = hull[j * 2 + 1] - hull[i * 2 + 1];
+                if (dx * dx + dy * dy > furthest) {
+                    furthest = dx * dx + dy * dy;
+                    a = i;
+                    c = j;
+                }
+            }
+        }
+
+        // And the other two are the furthest from that diagonal, one on each
+        // side (going around the hull from a to c, and from c back to a)
+        int b = furthestFrom(a, c, a, c, corners);
+        int d = furthestFrom(a, c, c, a, corners);
+        if (b < 0 || d < 0) {
+            return false;
+        }
+        setCorner(0, a);
+        setCorner(1, b);
+        setCorner(2, c);
+        setCorner(3, d);
+
+        // A four sided blob's hull is almost all covered by its corners
+        double quadArea = area(quad, 4);
+        if (Math.abs(quadArea) < MIN_QUAD_FILL * Math.abs(hullArea(corners))) {
+            return false;
+        }
+        for (int i = 0; i < 4; i++) {
+            if (side(quad, i) < MIN_TAG_WIDTH - 2) {
+                return false;
+            }
+        }
+
+        // Make them go clockwise in the picture (which, with y going down,
+        // is a positive area)
+        if (quadArea < 0) {
+            swap(quad, 1, 3);
+        }
+        return refineEdges();
+    }
+
+    /**
+     * Finds the convex hull of some outline pixels (which are in picture
+     * order, so they're already sorted for Andrew's monotone chain), into
+     * {@link #hull}.
+     *
+     * @return how many corners it has, or MAX_HULL + 1 if it has too many
+     */
+    private int convexHull(int start, int end) {
+        int count = 0;
+
+        // Down the left side, then back up the right side
+        for (int pass = 0; pass < 2; pass++) {
+            int first = count;
+            for (int k = 0; k < end - start; k++) {
+                int i = boundary[pass == 0 ? start + k : end - 1 - k];
+                int x = i % width;
+                int y = i / width;
+                while (count >= first + 2 && cross(hull[count * 2 - 4], hull[count * 2 - 3],
+                        hull[count * 2 - 2], hull[count * 2 - 1], x, y) <= 0) {
+                    count--;
+                }
+                if (count > MAX_HULL) {
+                    return MAX_HULL + 1;
+                }
+                hull[count * 2] = x;
+                hull[count * 2 + 1] = y;
+                count++;
+            }
+
+            // The last point is the first one of the other half
+            count--;
+        }
+        return count;
+    }
+
+    private static long cross(int ax, int ay, int bx, int by, int cx, int cy) {
+        return (long) (bx - ax) * (cy - ay) - (long) (by - ay) * (cx - ax);
+    }
+
+    /**
+     * @return the hull corner between from and to (going around the hull)
+     * that's furthest from the line through hull corners a and c, or -1 if
+     * there aren't any in between
+     */
+    private int furthestFrom(int a, int c, int from, int to, int corners) {
+        double ax = hull[a * 2];
+        double ay = hull[a * 2 + 1];
+        double dx = hull[c * 2] - ax;
+        double dy = hull[c * 2 + 1] - ay;
+        int best = -1;
+        double furthest = 0;
+        for (int i = (from + 1) % corners; i != to; i = (i + 1) % corners) {
+            double distance = Math.abs(dx * (hull[i * 2 + 1] - ay) - dy * (hull[i * 2] - ax));
+            if (distance > furthest) {
+                furthest = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private void setCorner(int index, int hullIndex) {
+        quad[index * 2] = hull[hullIndex * 2];
+        quad[index * 2 + 1] = hull[hullIndex * 2 + 1];
+    }
+
+    private double hullArea(int corners) {
+        double sum = 0;
+        for (int i = 0; i < corners; i++) {
+            int j = (i + 1) % corners;
+            sum += (double) hull[i * 2] * hull[j * 2 + 1] - (double) hull[j * 2] * hull[i * 2 + 1];
+        }
+        return sum / 2;
+    }
+
+    private static double area(double[] points, int count) {
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            int j = (i + 1) % count;
+            sum += points[i * 2] * points[j * 2 + 1] - points[j * 2] * points[i * 2 + 1];
+        }
+        return sum / 2;
+    }
+
+    private static double side(double[] quad, int i) {
+        int j = (i + 1) % 4;
+        return Math.hypot(quad[j * 2] - quad[i * 2], quad[j * 2 + 1] - quad[i * 2 + 1]);
+    }
+
+    private static void swap(double[] quad, int i, int j) {
+        double x = quad[i * 2];
+        double y = quad[i * 2 + 1];
+        quad[i * 2] = quad[j * 2];
+        quad[i * 2 + 1] = quad[j * 2 + 1];
+        quad[j * 2] = x;
+        quad[j * 2 + 1] = y;
+    }
+
+    /**
+     * Step 4: the outline pixels are the black pixels just inside the edge,
+     * so the corners are a little off. For each side, look across the edge
+     * at points along it for where the brightness changes fastest, fit a
+     * line through those, and put the corners where the lines cross.
+     *
+     * @return false if the lines don't make sense
+     */
+    private boolean refineEdges() {
+        double centerX = (quad[0] + quad[2] + quad[4] + quad[6]) / 4;
+        double centerY = (quad[1] + quad[3] + quad[5] + quad[7]) / 4;
+
+        for (int i = 0; i < 4; i++) {
+            int j = (i + 1) % 4;
+            double x0 = quad[i * 2];
+            double y0 = quad[i * 2 + 1];
+            double length = side(quad, i);
+            double dx = (quad[j * 2] - x0) / length;
+            double dy = (quad[j * 2 + 1] - y0) / length;
+
+            // Which way is out of the tag?
+            double nx = -dy;
+            double ny = dx;
+            if (nx * (x0 - centerX) + ny * (y0 - centerY) < 0) {
+                nx = -nx;
+                ny = -ny;
+            }
+
+            // Add up the edge points, weighted by how strong the edge is
+            double weight = 0;
+            double sumX = 0;
+            double sumY = 0;
+            double sumXX = 0;
+            double sumXY = 0;
+            double sumYY = 0;
+            int samples = Math.max(4, Math.min(50, (int) (length / 2)));
+            double reach = Math.max(2, length / 20);
+            for (int k = 1; k < samples; k++) {
+                double t = length * (0.1 + 0.8 * k / samples);
+                double px = x0 + dx * t;
+                double py = y0 + dy * t;
+
+                // Walk out across the edge, from inside to outside, and find
+                // the middle of where it gets brighter
+                double edgeWeight = 0;
+                double edgeSum = 0;
+                double last = sample(px - nx * reach, py - ny * reach);
+                for (double s = -reach + 0.5; s <= reach; s += 0.5) {
+                    double value = sample(px + nx * s, py + ny * s);
+                    double rise = value - last;
+                    last = value;
+                    if (rise > 0) {
+                        edgeWeight += rise;
+                        edgeSum += rise * (s - 0.25);
+                    }
+                }
+                if (edgeWeight <= 0) {
+                    continue;
+                }
+                double ex = px + nx * edgeSum / edgeWeight;
+                double ey = py + ny * edgeSum / edgeWeight;
+                weight += edgeWeight;
+                sumX += edgeWeight * ex;
+                sumY += edgeWeight * ey;
+                sumXX += edgeWeight * ex * ex;
+                sumXY += edgeWeight * ex * ey;
+                sumYY += edgeWeight * ey * ey;
+            }
+            if (weight <= 0) {
+                return false;
+            }
+
+            // The best line goes through the middle of the points, along the
+            // direction they're most spread out in
+            double meanX = sumX / weight;
+            double meanY = sumY / weight;
+            double xx = sumXX / weight - meanX * meanX;
+            double xy = sumXY / weight - meanX * meanY;
+            double yy = sumYY / weight - meanY * meanY;
+            double angle = 0.5 * Math.atan2(2 * xy, xx - yy);
+            lines[i * 3] = meanX;
+            lines[i * 3 + 1] = meanY;
+            lines[i * 3 + 2] = angle;
+        }
+
+        // Each corner is where the sides on either side of it cross
+        for (int i = 0; i < 4; i++) {
+            int before = (i + 3) % 4;
+            if (!intersect(before, i, refined, i)) {
+                return false;
+            }
+            double move = Math.hypot(refined[i * 2] - quad[i * 2], refined[i * 2 + 1] - quad[i * 2 + 1]);
+            if (move > MAX_REFINE_MOVE * Math.min(side(quad, i), side(quad, before)) + 1) {
+                return false;
+            }
+        }
+        System.arraycopy(refined, 0, quad, 0, 8);
+        return area(quad, 4) > 0;
+    }
+
+    private boolean intersect(int first, int second, double[] out, int index) {
+        double ax = lines[first * 3];
+        double ay = lines[first * 3 + 1];
+        double adx = Math.cos(lines[first * 3 + 2]);
+        double ady = Math.sin(lines[first * 3 + 2]);
+        double bx = lines[second * 3];
+        double by = lines[second * 3 + 1];
+        double bdx = Math.cos(lines[second * 3 + 2]);
+        double bdy = Math.sin(lines[second * 3 + 2]);
+        double determinant = adx * bdy - ady * bdx;
+        if (Math.abs(determinant) < 1e-6) {
+            return false;
+        }
+        double t = ((bx - ax) * bdy - (by - ay) * bdx) / determinant;
+        out[index * 2] = ax + adx * t;
+        out[index * 2 + 1] = ay + ady * t;
+        return true;
+    }
+
+    /**
+     * @return the brightness at a point in the picture, between pixels
+     * (pixel centers are at whole numbers), or NaN if it's off the picture
+     */
+    private double sample(double x, double y) {
+        if (x < 0 || y < 0 || x > width - 1 || y > height - 1) {
+            return Double.NaN;
+        }
+        int x0 = Math.min((int) x, width - 2);
+        int y0 = Math.min((int) y, height - 2);
+        double fx = x - x0;
+        double fy = y - y0;
+        int i = y0 * width + x0;
+        double top = pixel(i) * (1 - fx) + pixel(i + 1) * fx;
+        double bottom = pixel(i + width) * (1 - fx) + pixel(i + width + 1) * fx;
+        return top * (1 - fy) + bottom * fy;
+    }
+
+    /**
+     * Works out the projection from a square (0, 0) to (1, 1) onto the quad,
+     * with (0, 0) at the first corner and (1, 0) at the second. This is
+     * Heckbert's square to quadrilateral mapping.
+     */
+    private void computeProjection() {
+        double x0 = quad[0];
+        double y0 = quad[1];
+        double x1 = quad[2];
+        double y1 = quad[3];
+        double x2 = quad[4];
+        double y2 = quad[5];
+        double x3 = quad[6];
+        double y3 = quad[7];
+        double sx = x0 - x1 + x2 - x3;
+        double sy = y0 - y1 + y2 - y3;
+        double g = 0;
+        double h = 0;
+        if (Math.abs(sx) > 1e-9 || Math.abs(sy) > 1e-9) {
+            double dx1 = x1 - x2;
+            double dx2 = x3 - x2;
+            double dy1 = y1 - y2;
+            double dy2 = y3 - y2;
+            double determinant = dx1 * dy2 - dx2 * dy1;
+            g = (sx * dy2 - dx2 * sy) / determinant;
+            h = (dx1 * sy - sx * dy1) / determinant;
+        }
+        projection[0] = x1 - x0 + g * x1;
+        projection[1] = x3 - x0 + h * x3;
+        projection[2] = x0;
+        projection[3] = y1 - y0 + g * y1;
+        projection[4] = y3 - y0 + h * y3;
+        projection[5] = y0;
+        projection[6] = g;
+        projection[7] = h;
+    }
+
+    private void project(double u, double v, double[] out) {
+        double w = projection[6] * u + projection[7] * v + 1;
+        out[0] = (projection[0] * u + projection[1] * v + projection[2]) / w;
+        out[1] = (projection[3] * u + projection[4] * v + projection[5]) / w;
+    }
+
+    /**
+     * @return the average brightness of the middle of a square of the tag
+     * (counting from the top left of the black border, so -1 is the white
+     * edge outside it), or NaN if it's off the picture
+     */
+    private double cell(int column, int row) {
+        double sum = 0;
+        for (int sy = -1; sy <= 1; sy++) {
+            for (int sx = -1; sx <= 1; sx++) {
+                project((column + 0.5 + sx * 0.2) / BORDER_CELLS, (row + 0.5 + sy * 0.2) / BORDER_CELLS, point);
+                sum += sample(point[0], point[1]);
+            }
+        }
+        return sum / 9;
+    }
+
+    /**
+     * Steps 5 and 6: reads the pattern inside the quad, and looks it up.
+     *
+     * @return true if it's a tag (and tag has been filled in)
+     */
+    private boolean decode(TagDetection tag) {
+        computeProjection();
+
+        // How dark is the border, and how bright is the edge around it?
+        double black = 0;
+        double white = 0;
+        int whiteCount = 0;
+        for (int i = 0; i < BORDER_CELLS; i++) {
+            black += cell(i, 0) + cell(i, BORDER_CELLS - 1);
+            if (i > 0 && i < BORDER_CELLS - 1) {
+                black += cell(0, i) + cell(BORDER_CELLS - 1, i);
+            }
+        }
+        black /= 4 * BORDER_CELLS - 4;
+        for (int i = -1; i <= BORDER_CELLS; i++) {
+
+            // Along the top and bottom, and then down the sides (but not the
+            // corners again). Squares off the picture are left out.
+            boolean corner = i < 0 || i == BORDER_CELLS;
+            for (int k = 0; k < (corner ? 2 : 4); k++) {
+                double value = k == 0 ? cell(i, -1)
+                        : k == 1 ? cell(i, BORDER_CELLS)
+                        : k == 2 ? cell(-1, i)
+                        : cell(BORDER_CELLS, i);
+                if (!Double.isNaN(value)) {
+                    white += value;
+                    whiteCount++;
+                }
+            }
+        }
+        if (Double.isNaN(black) || whiteCount == 0) {
+            return false;
+        }
+        white /= whiteCount;
+        if (white - black < MIN_CONTRAST) {
+            return false;
+        }
+        double threshold = (black + white) / 2;
+
+        // Every square of the border has to be black
+        for (int i = 0; i < BORDER_CELLS; i++) {
+            if (cell(i, 0) > threshold || cell(i, BORDER_CELLS - 1) > threshold
+                    || cell(0, i) > threshold || cell(BORDER_CELLS - 1, i) > threshold) {
+                return false;
+            }
+        }
+
+        // Read the pattern, and see how sure we are about it
+        int code = 0;
+        double whiteScore = 0;
+        double blackScore = 0;
+        int whiteBits = 0;
+        for (int row = 0; row < DATA_CELLS; row++) {
+            for (int column = 0; column < DATA_CELLS; column++) {
+                double value = cell(column + 1, row + 1) - threshold;
+                code <<= 1;
+                if (value > 0) {
+                    code |= 1;
+                    whiteScore += value;
+                    whiteBits++;
+                } else {
+                    blackScore -= value;
+                }
+            }
+        }
+        int blackBits = DATA_CELLS * DATA_CELLS - whiteBits;
+        if (whiteBits == 0 || blackBits == 0) {
+            return false;
+        }
+
+        // Look it up, turned each of the four ways
+        int bestId = -1;
+        int bestHamming = Integer.MAX_VALUE;
+        int bestTurns = 0;
+        for (int turns = 0; turns < 4; turns++) {
+            for (int id = 0; id < CODES.length; id++) {
+                int hamming = Integer.bitCount(code ^ CODES[id]);
+                if (hamming < bestHamming) {
+                    bestHamming = hamming;
+                    bestId = id;
+                    bestTurns = turns;
+                }
+            }
+            code = rotate(code);
+        }
+        if (bestHamming > MAX_HAMMING) {
+            return false;
+        }
+
+        // The pattern matched after turning it clockwise bestTurns times, so
+        // the tag's top left corner is that many corners back from the first
+        // one. Going clockwise from there gives top right, bottom right and
+        // bottom left; the tag's corners go the other way, from bottom left.
+        tag.id = bestId;
+        tag.hamming = bestHamming;
+        tag.decisionMargin = Math.min(whiteScore / whiteBits, blackScore / blackBits);
+        for (int k = 0; k < 4; k++) {
+            int corner = (4 - bestTurns + 3 - k) % 4;
+            tag.corners[k * 2] = quad[corner * 2];
+            tag.corners[k * 2 + 1] = quad[corner * 2 + 1];
+        }
+        project(0.5, 0.5, point);
+        tag.centerX = point[0];
+        tag.centerY = point[1];
+        tag.clearPose();
+        return true;
+    }
+
+    /**
+     * @return how many tags there are in the family
+     */
+    static int getTagCount() {
+        return CODES.length;
+    }
+
+    /**
+     * @return a tag's pattern (see {@link #CODES})
+     */
+    static int getCode(int id) {
+        return CODES[id];
+    }
+
+    /**
+     * @return a 4x4 pattern, turned a quarter turn clockwise
+     */
+    static int rotate(int code) {
+        int turned = 0;
+        for (int row = 0; row < DATA_CELLS; row++) {
+            for (int column = 0; column < DATA_CELLS; column++) {
+
+                // The square that ends up here came from the bottom of this column
+                int from = (DATA_CELLS - 1 - column) * DATA_CELLS + row;
+                int bit = (code >> (DATA_CELLS * DATA_CELLS - 1 - from)) & 1;
+                turned = (turned << 1) | bit;
+            }
+        }
+        return turned;
+    }
+}
@@ -0,0 +1,277 @@
+package frc.robot.vision;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ *
+ * Compares ways of working out where the camera is from the tags, for how
+ * close they get and how long they take:
+ *
+ * - Single tag: only the biggest tag, starting from scratch every frame
+ * (what the Python script did, for each tag)
+ * - All tags, cold: every tag at once, but starting from scratch every frame
+ * - All tags, warm: every tag at once, starting from the last frame's answer
+ * (what {@link CameraPoseSolver} normally does)
+ *
+ * To say how close they get we need to know where the camera really was,
+ * which we don't for pictures from the real camera. So the recording is
+ * made up: the camera drives around in front of the blue grid on the 2023
+ * field, at 30 frames a second, and we work out where each tag's corners
+ * would be in the picture. Like the real detector, the corners are a little
+ * off (about half a pixel), and sometimes a tag gets missed, so some frames
+ * only have one tag in them.
+ *
+ * For each way it prints the position error (average, 95th percentile and
+ * worst, in cm), the heading error (average, in degrees), how many rounds
+ * of fitting it took on average, and how long it took per frame.
+ *
+ * Run it with "./gradlew comparePoseSolvers". -Dvision.layout picks a
+ * different field layout, and -Dvision.fx / -Dvision.fy a different focal
+ * length (see VisionService).
+ *
+ */
+public final class PoseSolverComparison {
+
+    public static final Path DEFAULT_LAYOUT = TagLayout.FIELD_2023;
+
+    // The made up recording
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final double FRAME_RATE = 30;
+    private static final double LENGTH = 20;
+    private static final double PIXEL_NOISE = 0.5;
+    private static final double MISS_CHANCE = 0.2;
+
+    // How many times to run through the recording when timing
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int TIMING_ROUNDS = 50;
+
+    private PoseSolverComparison() { }
+
+    public static void main(String... args) throws IOException {
+        Path layoutFile = Paths.get(System.getProperty("vision.layout", DEFAULT_LAYOUT.toString()));
+        double tagSize = Double.parseDouble(System.getProperty("vision.tagSize", "NaN"));
+        double fx = Double.parseDouble(System.getProperty("vision.fx", "" + TagPoseEstimator.DEFAULT_FOCAL_LENGTH));
+        double fy = Double.parseDouble(System.getProperty("vision.fy", "" + fx));
+        TagLayout layout = TagLayout.load(layoutFile, tagSize);
+
+        List<Frame> frames = record(layout, fx, fy);
+        int[] tagCounts = new int[VisionProcessor.MAX_TAGS + 1];
+        for (Frame frame : frames) {
+            tagCounts[frame.all.tagCount]++;
+        }
+        System.out.printf("%d frames, %.1f tags per frame, %d with only one tag%n%n",
+                frames.size(), frames.stream().mapToInt(f -> f.all.tagCount).average().orElse(0),
+                tagCounts[1]);
+
+        System.out.println("Method              Solved  Position error (cm)        Heading   Rounds   ms/frame");
+        System.out.println("                            avg      p95      max      avg (deg)");
+        compare("Single tag", layout, fx, fy, frames, true, false);
+        compare("All tags, cold", layout, fx, fy, frames, false, false);
+        compare("All tags, warm", layout, fx, fy, frames, false, true);
+    }
+
+    /**
+     * A frame of the recording: the tags that were seen (all of them, and
+     * just the biggest one), and where the camera really was.
+     */
+    private static class Frame {
+        final VisionResult all = new VisionResult();
+        final VisionResult biggest = new VisionResult();
+        double x;
+        double y;
+        double yaw;
+    }
+
+    private static void compare(String name, TagLayout layout, double fx, double fy,
+            List<Frame> frames, boolean singleTag, boolean warmStart) {
+        CameraPoseSolver solver = new CameraPoseSolver(layout, fx, fy, Double.NaN, Double.NaN);
+        solver.setWarmStart(warmStart);
+
+        // How close it gets
+        double[] errors = new double[frames.size()];
+        int solved = 0;
+        double headingError = 0;
+        long rounds = 0;
+        for (Frame frame : frames) {
+            VisionResult result = singleTag ? frame.biggest : frame.all;
+            if (solver.solve(result)) {
+                errors[solved++] = Math.hypot(result.cameraX - frame.x, result.cameraY - frame.y);
+                headingError += Math.abs(Math.IEEEremainder(result.cameraYaw - frame.yaw, 2 * Math.PI));
+            }
+            rounds += result.cameraIterations;
+        }
+        Arrays.sort(errors, 0, solved);
+        double average = 0;
+        for (int i = 0; i < solved; i++) {
+            average += errors[i];
+        }
+
+        // How long it takes. Warm the JIT up first, and start every run
+        // through the recording from scratch, like a new match.
+        int checksum = 0;
+        long elapsed = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + TIMING_ROUNDS; round++) {
+            solver.reset();
+            long start = System.nanoTime();
+            for (Frame frame : frames) {
+                checksum += solver.solve(singleTag ? frame.biggest : frame.all) ? 1 : 0;
+            }
+            if (round >= WARMUP_ROUNDS) {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+        if (checksum < 0) {
+            System.out.println(checksum);
+        }
+
+        System.out.printf("%-18s %5.1f%%  %7.2f  %7.2f  %7.2f   %7.3f   %6.2f   %8.4f%n",
+                name, 100.0 * solved / frames.size(),
+                100 * average / Math.max(1, solved),
+                100 * percentile(errors, solved, 0.95),
+                100 * (solved > 0 ? errors[solved - 1] : Double.NaN),
+                Math.toDegrees(headingError / Math.max(1, solved)),
+                (double) rounds / frames.size(),
+                elapsed / 1e6 / TIMING_ROUNDS / frames.size());
+    }
+
+    private static double percentile(double[] sorted, int count, double fraction) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        return sorted[Math.min(count - 1, (int) Math.floor(fraction * count))];
+    }
+
+    /**
+     * Makes up the recording.
+     */
+    private static List<Frame> record(TagLayout layout, double fx, double fy) {
+
+        // Always the same "random" noise and missed tags, so every run is the same
+        Random random = new Random(3373);
+        List<Frame> frames = new ArrayList<>();
+        double[] camera = new double[12];
+        for (int i = 0; i < LENGTH * FRAME_RATE; i++) {
+            double time = i / FRAME_RATE;
+
+            // Weave around between 2 and 4.5 m from the grid, looking back at it
+            Frame frame = new Frame();
+            frame.x = 3.25 + 1.25 * Math.sin(0.4 * time);
+            frame.y = 2.75 + 1.5 * Math.sin(0.25 * time);
+            frame.yaw = Math.IEEEremainder(Math.PI + Math.toRadians(20) * Math.sin(0.5 * time), 2 * Math.PI);
+            double z = 0.5;
+            double pitch = Math.toRadians(5);
+            cameraRotation(frame.yaw, pitch, camera);
+            camera[9] = -(camera[0] * frame.x + camera[1] * frame.y + camera[2] * z);
+            camera[10] = -(camera[3] * frame.x + camera[4] * frame.y + camera[5] * z);
+            camera[11] = -(camera[6] * frame.x + camera[7] * frame.y + camera[8] * z);
+
+            VisionResult result = frame.all;
+            result.frameId = i;
+            result.width = WIDTH;
+            result.height = HEIGHT;
+            for (int id = 0; id <= layout.getMaxId() && result.tagCount < VisionProcessor.MAX_TAGS; id++) {
+                if (!layout.contains(id)) {
+                    continue;
+                }
+                TagDetection tag = result.tags[result.tagCount];
+                if (project(layout.getCorners(id), camera, fx, fy, tag.corners)
+                        && random.nextDouble() >= MISS_CHANCE) {
+                    tag.id = id;
+                    tag.decisionMargin = 150;
+                    tag.centerX = 0;
+                    tag.centerY = 0;
+                    for (int c = 0; c < 4; c++) {
+                        tag.corners[c * 2] += PIXEL_NOISE * random.nextGaussian();
+                        tag.corners[c * 2 + 1] += PIXEL_NOISE * random.nextGaussian();
+                        tag.centerX += tag.corners[c * 2] / 4;
+                        tag.centerY += tag.corners[c * 2 + 1] / 4;
+                    }
+                    result.tagCount++;
+                }
+            }
+            if (result.tagCount == 0) {
+                continue;
+            }
+
+            // The single tag way only gets the biggest (closest) tag
+            int biggest = 0;
+            for (int t = 1; t < result.tagCount; t++) {
+                if (width(result.tags[t]) > width(result.tags[biggest])) {
+                    biggest = t;
+                }
+            }
+            frame.biggest.frameId = i;
+            frame.biggest.width = WIDTH;
+            frame.biggest.height = HEIGHT;
+            frame.biggest.tagCount = 1;
+            frame.biggest.tags[0].copyFrom(result.tags[biggest]);
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    /**
+     * Works out the rotation from the field to a camera pointing in a
+     * direction: the camera's right, down and forward directions on the
+     * field, as rows.
+     */
+    private static void cameraRotation(double yaw, double pitch, double[] rotation) {
+        double forwardX = Math.cos(yaw) * Math.cos(pitch);
+        double forwardY = Math.sin(yaw) * Math.cos(pitch);
+        double forwardZ = Math.sin(pitch);
+        double rightX = Math.sin(yaw);
+        double rightY = -Math.cos(yaw);
+        double rightZ = 0;
+        rotation[0] = rightX;
+        rotation[1] = rightY;
+        rotation[2] = rightZ;
+        rotation[3] = forwardY * rightZ - forwardZ * rightY;
+        rotation[4] = forwardZ * rightX - forwardX * rightZ;
+        rotation[5] = forwardX * rightY - forwardY * rightX;
+        rotation[6] = forwardX;
+        rotation[7] = forwardY;
+        rotation[8] = forwardZ;
+    }
+
+    /**
+     * Works out where a tag's corners are in the picture.
+     *
+     * @return false if any of them are behind the camera or out of the
+     * picture, or we're looking at the back of the tag
+     */
+    private static boolean project(double[] corners, double[] camera, double fx, double fy, double[] pixels) {
+        for (int i = 0; i < 4; i++) {
+            double fieldX = corners[i * 3];
+            double fieldY = corners[i * 3 + 1];
+            double fieldZ = corners[i * 3 + 2];
+            double x = camera[0] * fieldX + camera[1] * fieldY + camera[2] * fieldZ + camera[9];
+            double y = camera[3] * fieldX + camera[4] * fieldY + camera[5] * fieldZ + camera[10];
+            double z = camera[6] * fieldX + camera[7] * fieldY + camera[8] * fieldZ + camera[11];
+            if (z < 0.1) {
+                return false;
+            }
+            pixels[i * 2] = fx * x / z + WIDTH / 2.0;
+            pixels[i * 2 + 1] = fy * y / z + HEIGHT / 2.0;
+            if (pixels[i * 2] < 0 || pixels[i * 2] >= WIDTH || pixels[i * 2 + 1] < 0 || pixels[i * 2 + 1] >= HEIGHT) {
+                return false;
+            }
+        }
+
+        // Seen from the front, the corners go around counter-clockwise in
+        // the picture (bottom left, bottom right, top right, top left)
+        double turn = (pixels[2] - pixels[0]) * (pixels[5] - pixels[1])
+                - (pixels[3] - pixels[1]) * (pixels[4] - pixels[0]);
+        return turn < 0;
+    }
+
+    private static double width(TagDetection tag) {
+        return Math.abs(tag.corners[2] - tag.corners[0]);
+    }
+}
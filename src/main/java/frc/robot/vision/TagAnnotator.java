@@ -0,0 +1,75 @@
+package frc.robot.vision;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ *
+ * Draws a box around each tag found in a picture, labelled with its id, so
+ * the driver can see what the camera is finding.
+ *
+ * This draws straight on the camera's picture. The old Python script copied
+ * every picture first, but there's no need: it gets overwritten by the next
+ * frame anyway.
+ *
+ */
+public class TagAnnotator {
+
+    // Tags 1 to 8 are the ones on the 2023 field: they get green boxes,
+    // everything else gets red ones
+    private static final int FIRST_FIELD_TAG = 1;
+    private static final int LAST_FIELD_TAG = 8;
+
+    private static final Scalar FIELD_BOX_COLOR = new Scalar(0, 255, 0);
+    private static final Scalar FIELD_TEXT_COLOR = new Scalar(255, 255, 255);
+    private static final Scalar OTHER_BOX_COLOR = new Scalar(0, 0, 255);
+    private static final Scalar OTHER_TEXT_COLOR = new Scalar(0, 255, 255);
+
+    // Reused for every frame
+    private final Point from;
+    private final Point to;
+    private final String[] labels;
+
+    public TagAnnotator() {
+        from = new Point();
+        to = new Point();
+        labels = new String[64];
+    }
+
+    /**
+     * Draws the tags in a result onto the picture they were found in.
+     */
+    public void annotate(Mat frame, VisionResult result) {
+        for (int i = 0; i < result.tagCount; i++) {
+            TagDetection tag = result.tags[i];
+            boolean fieldTag = tag.id >= FIRST_FIELD_TAG && tag.id <= LAST_FIELD_TAG;
+            Scalar boxColor = fieldTag ? FIELD_BOX_COLOR : OTHER_BOX_COLOR;
+            Scalar textColor = fieldTag ? FIELD_TEXT_COLOR : OTHER_TEXT_COLOR;
+
+            for (int corner = 0; corner < 4; corner++) {
+                int nextCorner = (corner + 1) % 4;
+                from.x = tag.corners[corner * 2];
+                from.y = tag.corners[corner * 2 + 1];
+                to.x = tag.corners[nextCorner * 2];
+                to.y = tag.corners[nextCorner * 2 + 1];
+                Imgproc.line(frame, from, to, boxColor, 2);
+            }
+
+            from.x = tag.centerX;
+            from.y = tag.centerY;
+            Imgproc.putText(frame, labelFor(tag.id), from, Imgproc.FONT_HERSHEY_SIMPLEX, 1, textColor, 2);
+        }
+    }
+
+    private String labelFor(int id) {
+        if (id < 0 || id >= labels.length) {
+            return Integer.toString(id);
+        }
+        if (labels[id] == null) {
+            labels[id] = Integer.toString(id);
+        }
+        return labels[id];
+    }
+}
@@ -0,0 +1,99 @@
+package frc.robot.vision;
+
+/**
+ *
+ * One AprilTag found in a camera picture.
+ *
+ * The detector fills these in, and they're reused for every frame (so
+ * finding tags doesn't create any garbage for Java to clean up). If you need
+ * to keep one, make a copy with {@link #copyFrom}.
+ *
+ * Positions are in pixels, with (0, 0) in the top left corner of the picture.
+ *
+ */
+public class TagDetection {
+
+    // Which tag it is
+    public int id;
+
+    // Where the middle of the tag is
+    public double centerX;
+    public double centerY;
+
+    // The four corners, as x0, y0, x1, y1, x2, y2, x3, y3 (going
+    // counter-clockwise from the bottom left, like the AprilTag library)
+    public final double[] corners = new double[8];
+
+    // How sure the detector is that this really is a tag (bigger is better)
+    public double decisionMargin;
+
+    // How many bits of the tag's pattern had to be fixed up to recognise it
+    public int hamming;
+
+    // Where the tag is from the camera, in meters (see TagPoseEstimator): x
+    // is to the right, y is down and z is straight ahead. NaN if we don't
+    // know.
+    public double poseX = Double.NaN;
+    public double poseY = Double.NaN;
+    public double poseZ = Double.NaN;
+
+    // Which way the tag is turned, as a rotation vector: it points along the
+    // axis of the rotation, and its length is the angle (in radians)
+    public double rotationX = Double.NaN;
+    public double rotationY = Double.NaN;
+    public double rotationZ = Double.NaN;
+
+    /**
+     * Copies everything from another detection.
+     */
+    public void copyFrom(TagDetection other) {
+        id = other.id;
+        centerX = other.centerX;
+        centerY = other.centerY;
+        System.arraycopy(other.corners, 0, corners, 0, corners.length);
+        decisionMargin = other.decisionMargin;
+        hamming = other.hamming;
+        poseX = other.poseX;
+        poseY = other.poseY;
+        poseZ = other.poseZ;
+        rotationX = other.rotationX;
+        rotationY = other.rotationY;
+        rotationZ = other.rotationZ;
+    }
+
+    /**
+     * @return true if we know where the tag is (see TagPoseEstimator)
+     */
+    public boolean hasPose() {
+        return !Double.isNaN(poseZ);
+    }
+
+    /**
+     * Forgets where the tag is.
+     */
+    public void clearPose() {
+        poseX = Double.NaN;
+        poseY = Double.NaN;
+        poseZ = Double.NaN;
+        rotationX = Double.NaN;
+        rotationY = Double.NaN;
+        rotationZ = Double.NaN;
+    }
+
+    /**
+     * Moves the positions from a smaller (or cropped) picture back to where
+     * they are in the whole picture.
+     *
+     * @param scale how much the picture was shrunk by (0.5 is half size)
+     * @param offsetX where the cropped part started in the whole picture
+     * @param offsetY where the cropped part started in the whole picture
+     */
+    public void unscale(double scale, double offsetX, double offsetY) {
+        centerX = centerX / scale + offsetX;
+        centerY = centerY / scale + offsetY;
+        for (int i = 0; i < corners.length; i += 2) {
+            corners[i] = corners[i] / scale + offsetX;
+            corners[i + 1] = corners[i + 1] / scale + offsetY;
+        }
+    }
+}
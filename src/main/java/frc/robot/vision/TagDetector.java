@@ -0,0 +1,44 @@
+package frc.robot.vision;
+
+import org.opencv.core.Mat;
+
+/**
+ *
+ * Finds AprilTags in a grayscale picture.
+ *
+ * WPILib's own AprilTag library (edu.wpi.first.apriltag) only arrives in the
+ * 2023 release, and this project is still on 2022, so the vision code talks
+ * to the detector through this interface. Once we move to 2023, wrapping an
+ * AprilTagDetector in one of these is a few lines: call detect() and copy
+ * each AprilTagDetection's id, center, corners, decision margin and hamming
+ * into the results.
+ *
+ * A detector is expensive to set up (it builds big lookup tables for the tag
+ * family), so make one when the program starts and keep using it. One
+ * detector must only be used by one thread at a time.
+ *
+ * Until then, {@link JavaTagDetector} finds tag16h5 tags (the ones on the
+ * field) in plain Java, and it's the one used unless another is picked with
+ * -Dvision.detector=<class name> (see {@link VisionService#createDetector}).
+ * The class needs a constructor that takes the tag family name, like
+ * "tag16h5", and throws IllegalArgumentException for a family it can't find.
+ *
+ */
+public interface TagDetector extends AutoCloseable {
+
+    /**
+     * Finds the tags in a picture.
+     *
+     * @param gray the picture, one byte per pixel
+     * @param results where to put the tags that were found. If there are more
+     * tags than this has room for, the extra ones are left out.
+     * @return how many tags were put in results
+     */
+    int detect(Mat gray, TagDetection[] results);
+
+    /**
+     * Frees up the detector's native memory.
+     */
+    @Override
+    void close();
+}
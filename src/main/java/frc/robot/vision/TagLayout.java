@@ -0,0 +1,188 @@
+package frc.robot.vision;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *
+ * Where the AprilTags are on the field, so the camera's position can be
+ * worked out from them (see {@link CameraPoseSolver}).
+ *
+ * Field positions are in meters, with x along the field, y to the left and
+ * z up (like the rest of WPILib's field maths). Each tag's "yaw" is the way
+ * its face points, in degrees counter-clockwise from the x axis.
+ *
+ * Layout files have one tag per line: id, x, y, z, yaw (lines starting
+ * with # are comments). A line "size, meters" says how big the tags are
+ * (the black square); files that don't say are taken to have the 2023
+ * field's tags. See data/vision/field-2023.csv.
+ *
+ */
+public class TagLayout {
+
+    // The 2023 field's tags, and how big they are (6 inches)
+    public static final Path FIELD_2023 = Paths.get("data", "vision", "field-2023.csv");
+    public static final double FIELD_2023_TAG_SIZE = 0.1524;
+
+    private final double tagSize;
+
+    // Looked up by tag id. Each tag has its middle, its axes (as a 3x3
+    // rotation from the tag to the field, row by row) and its corners.
+    private double[][] centers;
+    private double[][] axes;
+    private double[][] corners;
+
+    /**
+     * @param tagSize how big the tags are (the black square), in meters
+     */
+    public TagLayout(double tagSize) {
+        this.tagSize = tagSize;
+        centers = new double[0][];
+        axes = new double[0][];
+        corners = new double[0][];
+    }
+
+    /**
+     * Reads a layout file, with the tags the size the file says.
+     */
+    public static TagLayout load(Path file) throws IOException {
+        return load(file, Double.NaN);
+    }
+
+    /**
+     * Reads a layout file, with the tags a different size from what the file
+     * says (or NaN to use the file's size).
+     */
+    public static TagLayout load(Path file, double tagSize) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+
+        // Find the size first, since the corners depend on it
+        double fileTagSize = FIELD_2023_TAG_SIZE;
+        for (int i = 0; i < lines.size(); i++) {
+            String[] parts = lines.get(i).trim().split(",");
+            if (parts.length == 2 && parts[0].trim().equals("size")) {
+                try {
+                    fileTagSize = Double.parseDouble(parts[1].trim());
+                } catch (NumberFormatException e) {
+                    throw new IOException(file + " line " + (i + 1) + ": " + e.getMessage(), e);
+                }
+            }
+        }
+
+        TagLayout layout = new TagLayout(Double.isNaN(tagSize) ? fileTagSize : tagSize);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("size")) {
+                continue;
+            }
+            String[] parts = line.split(",");
+            if (parts.length != 5) {
+                throw new IOException(file + " line " + (i + 1) + ": expected id, x, y, z, yaw");
+            }
+            try {
+                layout.add(Integer.parseInt(parts[0].trim()),
+                        Double.parseDouble(parts[1].trim()),
+                        Double.parseDouble(parts[2].trim()),
+                        Double.parseDouble(parts[3].trim()),
+                        Double.parseDouble(parts[4].trim()));
+            } catch (NumberFormatException e) {
+                throw new IOException(file + " line " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return layout;
+    }
+
+    /**
+     * Adds a tag.
+     *
+     * @param id which tag
+     * @param x where its middle is, in meters
+     * @param y where its middle is, in meters
+     * @param z how high its middle is, in meters
+     * @param yawDegrees which way it faces (counter-clockwise from the x axis)
+     */
+    public void add(int id, double x, double y, double z, double yawDegrees) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Tag ids can't be negative");
+        }
+        if (id >= centers.length) {
+            int size = id + 1;
+            centers = Arrays.copyOf(centers, size);
+            axes = Arrays.copyOf(axes, size);
+            corners = Arrays.copyOf(corners, size);
+        }
+
+        // Someone looking at the tag sees its x axis going to their right
+        // and its y axis going down, so its z axis points into the wall
+        // (this is how the detector and TagPoseEstimator see tags too)
+        double yaw = Math.toRadians(yawDegrees);
+        double cos = Math.cos(yaw);
+        double sin = Math.sin(yaw);
+        double[] rotation = {
+            -sin, 0, -cos,
+            cos, 0, -sin,
+            0, -1, 0,
+        };
+
+        // The corners go around from the bottom left, as the detector gives them
+        double half = tagSize / 2;
+        double[] local = {-half, half, half, half, half, -half, -half, -half};
+        double[] tagCorners = new double[12];
+        for (int i = 0; i < 4; i++) {
+            double u = local[i * 2];
+            double v = local[i * 2 + 1];
+            tagCorners[i * 3] = x + rotation[0] * u + rotation[1] * v;
+            tagCorners[i * 3 + 1] = y + rotation[3] * u + rotation[4] * v;
+            tagCorners[i * 3 + 2] = z + rotation[6] * u + rotation[7] * v;
+        }
+
+        centers[id] = new double[] {x, y, z};
+        axes[id] = rotation;
+        corners[id] = tagCorners;
+    }
+
+    /**
+     * @return true if we know where a tag is
+     */
+    public boolean contains(int id) {
+        return id >= 0 && id < centers.length && centers[id] != null;
+    }
+
+    /**
+     * @return where a tag's middle is on the field (x, y, z)
+     */
+    public double[] getCenter(int id) {
+        return centers[id];
+    }
+
+    /**
+     * @return which way the tag's axes point, as a rotation from the tag to
+     * the field (a 3x3 matrix, row by row)
+     */
+    public double[] getAxes(int id) {
+        return axes[id];
+    }
+
+    /**
+     * @return where a tag's four corners are on the field (x, y, z for each),
+     * in the same order as TagDetection's corners
+     */
+    public double[] getCorners(int id) {
+        return corners[id];
+    }
+
+    public double getTagSize() {
+        return tagSize;
+    }
+
+    /**
+     * @return the highest tag id in the layout (or -1 if it's empty)
+     */
+    public int getMaxId() {
+        return centers.length - 1;
+    }
+}
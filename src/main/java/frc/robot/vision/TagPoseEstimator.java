@@ -0,0 +1,149 @@
+package frc.robot.vision;
+
+import org.opencv.calib3d.Calib3d;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.MatOfPoint3f;
+import org.opencv.core.Point3;
+
+/**
+ *
+ * Works out where a tag is from the camera (how far away, which way, and how
+ * it's turned), from where its four corners are in the picture.
+ *
+ * We know how big the tag really is, and (from the camera's "intrinsics")
+ * how big things look at each distance, so there's only one place the tag
+ * can be for its corners to end up where they did. OpenCV's solvePnP finds
+ * it. The old Python script used the AprilTag library's orthogonal
+ * iteration, 50 rounds for every tag. For a flat square like a tag,
+ * solvePnP has a special method (IPPE_SQUARE) that works out the answer
+ * directly, with no iterating.
+ *
+ * Like everything else in the pipeline, the OpenCV buffers are made once and
+ * reused, so one estimator must only be used by one thread at a time.
+ *
+ */
+public class TagPoseEstimator {
+
+    // How big the tags are (the black square), in meters, and the camera's
+    // focal length in pixels. These are what the Python script used.
+    public static final double DEFAULT_TAG_SIZE = 0.2;
+    public static final double DEFAULT_FOCAL_LENGTH = 500;
+
+    private final double fx;
+    private final double fy;
+    private final double cx;
+    private final double cy;
+
+    private final MatOfPoint3f objectPoints;
+    private final MatOfPoint2f imagePoints;
+    private final float[] pixels;
+    private final Mat cameraMatrix;
+    private final MatOfDouble distortion;
+    private final Mat rotation;
+    private final Mat translation;
+    private final double[] vector;
+    private int width;
+    private int height;
+
+    /**
+     * @param tagSize how big the tags are, in meters
+     * @param fx the camera's focal length across, in pixels
+     * @param fy the camera's focal length down, in pixels
+     * @param cx the middle of the camera's picture, in pixels, or NaN for
+     * the middle of whatever size picture comes along
+     * @param cy the middle of the camera's picture, in pixels, or NaN for
+     * the middle of whatever size picture comes along
+     */
+    public TagPoseEstimator(double tagSize, double fx, double fy, double cx, double cy) {
+        this.fx = fx;
+        this.fy = fy;
+        this.cx = cx;
+        this.cy = cy;
+
+        // The corners of the tag, in the order the detector gives them and
+        // IPPE_SQUARE wants them: going around from the bottom left, with y
+        // pointing down the tag
+        double half = tagSize / 2;
+        objectPoints = new MatOfPoint3f(
+                new Point3(-half, half, 0),
+                new Point3(half, half, 0),
+                new Point3(half, -half, 0),
+                new Point3(-half, -half, 0));
+        imagePoints = new MatOfPoint2f();
+        imagePoints.alloc(4);
+        pixels = new float[8];
+
+        cameraMatrix = new Mat(3, 3, CvType.CV_64F);
+        distortion = new MatOfDouble();
+        rotation = new Mat(3, 1, CvType.CV_64F);
+        translation = new Mat(3, 1, CvType.CV_64F);
+        vector = new double[3];
+    }
+
+    /**
+     * Makes an estimator with the same settings as the Python script.
+     */
+    public TagPoseEstimator() {
+        this(DEFAULT_TAG_SIZE, DEFAULT_FOCAL_LENGTH, DEFAULT_FOCAL_LENGTH, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Works out where a tag is, and saves it in the tag's pose.
+     *
+     * @param tag the tag, with its corners in full size pixels
+     * @param width how wide the picture is, in pixels
+     * @param height how tall the picture is, in pixels
+     * @return true if it worked
+     */
+    public boolean estimate(TagDetection tag, int width, int height) {
+        updateCameraMatrix(width, height);
+
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (float) tag.corners[i];
+        }
+        imagePoints.put(0, 0, pixels);
+
+        if (!Calib3d.solvePnP(objectPoints, imagePoints, cameraMatrix, distortion,
+                rotation, translation, false, Calib3d.SOLVEPNP_IPPE_SQUARE)) {
+            tag.clearPose();
+            return false;
+        }
+
+        translation.get(0, 0, vector);
+        tag.poseX = vector[0];
+        tag.poseY = vector[1];
+        tag.poseZ = vector[2];
+        rotation.get(0, 0, vector);
+        tag.rotationX = vector[0];
+        tag.rotationY = vector[1];
+        tag.rotationZ = vector[2];
+        return true;
+    }
+
+    private void updateCameraMatrix(int width, int height) {
+        if (width == this.width && height == this.height) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+        cameraMatrix.put(0, 0,
+                fx, 0, Double.isNaN(cx) ? width / 2.0 : cx,
+                0, fy, Double.isNaN(cy) ? height / 2.0 : cy,
+                0, 0, 1);
+    }
+
+    /**
+     * Frees up the OpenCV buffers.
+     */
+    public void close() {
+        objectPoints.release();
+        imagePoints.release();
+        cameraMatrix.release();
+        distortion.release();
+        rotation.release();
+        translation.release();
+    }
+}
@@ -0,0 +1,331 @@
+package frc.robot.vision;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.opencv.core.Mat;
+
+import edu.wpi.first.cscore.CameraServerCvJNI;
+import frc.robot.timing.LatencyHistogram;
+
+/**
+ *
+ * Runs the vision pipeline over a folder of saved camera pictures, with
+ * every combination of tag family, picture scale and number of detection
+ * workers, and reports for each:
+ *
+ * - Throughput: pictures per second, all the way through the pipeline
+ * - How long each stage took (p50, p90, p99 and max, see {@link VisionStage})
+ * - Recall: how many of the tags that are really in the pictures were found
+ * (and how many were found that aren't there), if the pictures are labelled
+ *
+ * Until now the only way to see how fast the vision was, was to watch the
+ * FPS the Python script drew on its pictures. This gives us numbers to pick
+ * the scale (a smaller picture is faster but misses small tags), region and
+ * number of workers with.
+ *
+ * The labels are a file (labels.csv in the pictures folder, or
+ * vision.labels) with one tag per line: the picture's file name, the tag
+ * family, the tag id, and optionally where its middle is in the full size
+ * picture (x, y in pixels). Lines starting with # are comments. A picture
+ * with no lines has no tags in it. A tag counts as found if a tag with the
+ * same id was found within {@link #MAX_CENTER_ERROR} pixels of it.
+ *
+ * Settings are system properties, as well as VisionService's (detector,
+ * region, margin and so on):
+ *
+ * - vision.frames: the folder of saved pictures (default data/vision/frames,
+ * a few labelled pictures of tag16h5 tags made by TagFrames in the tests)
+ * - vision.families: the tag families to try (default tag16h5). Families
+ * the detector can't find (JavaTagDetector only finds tag16h5) are skipped.
+ * - vision.scales: the scales to try (default 1,0.5,0.25)
+ * - vision.threads: how many detection workers to try (default 1, 2, 4 and
+ * so on, up to one less than the number of cores)
+ * - vision.count: how many pictures to run through each time, going around
+ * the folder again if it's smaller (default 300, or the whole folder)
+ * - vision.labels: the labels file (default labels.csv in the folder)
+ *
+ * For instance:
+ *   ./gradlew benchmarkVision -Dvision.scales=1,0.5 -Dvision.threads=1
+ *
+ */
+public final class VisionBenchmark {
+
+    public static final String DEFAULT_FRAMES = "data/vision/frames";
+    public static final String DEFAULT_FAMILIES = VisionService.DEFAULT_FAMILY;
+    public static final String DEFAULT_SCALES = "1,0.5,0.25";
+    public static final int DEFAULT_COUNT = 300;
+
+    // How far (in full size pixels) a found tag can be from where the label
+    // says it is, and still count
+    public static final double MAX_CENTER_ERROR = 10;
+
+    private static final VisionStage[] STAGES = VisionStage.values();
+
+    private VisionBenchmark() { }
+
+    public static void main(String... args) throws Exception {
+        CameraServerCvJNI.forceLoad();
+
+        Path folder = Paths.get(System.getProperty("vision.frames", DEFAULT_FRAMES));
+        ImageFolderSource pictures = new ImageFolderSource(folder, true);
+        int count = Integer.getInteger("vision.count", Math.max(DEFAULT_COUNT, pictures.getFrameCount()));
+
+        Path labelFile = Paths.get(System.getProperty("vision.labels", folder.resolve("labels.csv").toString()));
+        Map<String, List<Label>> labels = null;
+        if (Files.exists(labelFile)) {
+            labels = loadLabels(labelFile);
+        } else {
+            System.out.println("No labels (" + labelFile + "), so no recall");
+        }
+
+        String[] families = System.getProperty("vision.families", DEFAULT_FAMILIES).split(",");
+        String[] scales = System.getProperty("vision.scales", DEFAULT_SCALES).split(",");
+        List<Integer> threads = threadCounts(System.getProperty("vision.threads"));
+
+        System.out.printf("%d pictures in %s, %d per run%n%n", pictures.getFrameCount(), folder, count);
+        for (String family : families) {
+            family = family.trim();
+            if (!canFind(family)) {
+                continue;
+            }
+            for (String scale : scales) {
+                for (int workers : threads) {
+                    run(pictures, count, family, Double.parseDouble(scale.trim()), workers, labels);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the pipeline over the pictures once, and prints the results.
+     */
+    private static void run(ImageFolderSource pictures, int count, String family, double scale,
+            int workers, Map<String, List<Label>> labels) throws Exception {
+        VisionProcessor[] processors = new VisionProcessor[workers];
+        for (int i = 0; i < workers; i++) {
+            processors[i] = VisionService.createProcessor(family, scale);
+        }
+
+        // The pipeline numbers its frames from 0, so frame n is picture
+        // n (going around the folder)
+        pictures.rewind();
+        Recall recall = new Recall(family, labels);
+        VisionPipeline pipeline = new VisionPipeline(new LimitedSource(pictures, count), processors,
+                null, false, false);
+        pipeline.setListener(result -> recall.check(pictures.getFrameName(result.frameId), result));
+
+        long start = System.nanoTime();
+        pipeline.start();
+        pipeline.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        for (VisionProcessor processor : processors) {
+            processor.close();
+        }
+
+        VisionTiming timing = pipeline.getTiming();
+        System.out.printf("%s, scale %.2f, %d worker%s: %.1f pictures per second",
+                family, scale, workers, workers == 1 ? "" : "s", timing.getPublished() / seconds);
+        if (labels != null) {
+            System.out.printf(", recall %.1f%% (%d of %d), %d not really there",
+                    100.0 * recall.found / Math.max(1, recall.labelled), recall.found, recall.labelled,
+                    recall.extra);
+        }
+        System.out.println();
+
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        for (VisionStage stage : STAGES) {
+            LatencyHistogram histogram = timing.get(stage);
+            histogram.copyCounts(counts);
+            long total = 0;
+            for (long bucket : counts) {
+                total += bucket;
+            }
+            System.out.printf("  %-8s p50 %7.2f ms   p90 %7.2f ms   p99 %7.2f ms   max %7.2f ms%n",
+                    stage.label,
+                    LatencyHistogram.percentile(counts, total, 50.0) / 1e6,
+                    LatencyHistogram.percentile(counts, total, 90.0) / 1e6,
+                    LatencyHistogram.percentile(counts, total, 99.0) / 1e6,
+                    histogram.takeMax() / 1e6);
+        }
+        System.out.println();
+    }
+
+    /**
+     * @return whether the detector can find a tag family (if not, it says
+     * so and the family is skipped)
+     */
+    private static boolean canFind(String family) throws ReflectiveOperationException {
+        try (TagDetector detector = VisionService.createDetector(System.getProperty("vision.detector"), family)) {
+            return true;
+        } catch (IllegalArgumentException e) {
+            System.out.println("Skipping " + family + ": " + e.getMessage());
+            System.out.println();
+            return false;
+        }
+    }
+
+    /**
+     * @return the numbers of workers to try
+     */
+    private static List<Integer> threadCounts(String setting) {
+        TreeSet<Integer> counts = new TreeSet<>();
+        if (setting != null) {
+            for (String part : setting.split(",")) {
+                counts.add(Math.max(1, Integer.parseInt(part.trim())));
+            }
+        } else {
+            int most = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            for (int n = 1; n < most; n *= 2) {
+                counts.add(n);
+            }
+            counts.add(most);
+        }
+        return new ArrayList<>(counts);
+    }
+
+    /**
+     * A tag that's really in a picture.
+     */
+    private static class Label {
+
+        final String family;
+        final int id;
+        final double x;
+        final double y;
+
+        Label(String family, int id, double x, double y) {
+            this.family = family;
+            this.id = id;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /**
+     * Reads the labels file.
+     *
+     * @return the labels for each picture, by file name
+     */
+    private static Map<String, List<Label>> loadLabels(Path file) throws IOException {
+        Map<String, List<Label>> labels = new HashMap<>();
+        List<String> lines = Files.readAllLines(file);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split(",");
+            if (parts.length != 3 && parts.length != 5) {
+                throw new IOException(file + " line " + (i + 1) + ": expected picture, family, id[, x, y]");
+            }
+            try {
+                double x = parts.length == 5 ? Double.parseDouble(parts[3].trim()) : Double.NaN;
+                double y = parts.length == 5 ? Double.parseDouble(parts[4].trim()) : Double.NaN;
+                labels.computeIfAbsent(parts[0].trim(), name -> new ArrayList<>())
+                        .add(new Label(parts[1].trim(), Integer.parseInt(parts[2].trim()), x, y));
+            } catch (NumberFormatException e) {
+                throw new IOException(file + " line " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Counts how many of the labelled tags were found. Only used from the
+     * pipeline's publish thread, and read after it's finished.
+     */
+    private static class Recall {
+
+        private final String family;
+        private final Map<String, List<Label>> labels;
+        private final boolean[] matched = new boolean[VisionProcessor.MAX_TAGS];
+        int labelled;
+        int found;
+        int extra;
+
+        Recall(String family, Map<String, List<Label>> labels) {
+            this.family = family;
+            this.labels = labels;
+        }
+
+        void check(String picture, VisionResult result) {
+            if (labels == null) {
+                return;
+            }
+            List<Label> tags = labels.get(picture);
+            int used = 0;
+            Arrays.fill(matched, false);
+            if (tags != null) {
+                for (Label label : tags) {
+                    if (!label.family.equals(family)) {
+                        continue;
+                    }
+                    labelled++;
+                    for (int i = 0; i < result.tagCount; i++) {
+                        if (!matched[i] && matches(label, result.tags[i])) {
+                            matched[i] = true;
+                            used++;
+                            found++;
+                            break;
+                        }
+                    }
+                }
+            }
+            extra += result.tagCount - used;
+        }
+
+        private static boolean matches(Label label, TagDetection tag) {
+            return tag.id == label.id && (Double.isNaN(label.x)
+                    || Math.hypot(tag.centerX - label.x, tag.centerY - label.y) <= MAX_CENTER_ERROR);
+        }
+    }
+
+    /**
+     * Plays a looping folder of pictures until a number of them have been
+     * played.
+     */
+    private static class LimitedSource implements FrameSource {
+
+        private final ImageFolderSource pictures;
+        private int remaining;
+
+        LimitedSource(ImageFolderSource pictures, int count) {
+            this.pictures = pictures;
+            remaining = count;
+        }
+
+        @Override
+        public long grabFrame(Mat frame) {
+            if (isFinished()) {
+                return 0;
+            }
+            remaining--;
+            return pictures.grabFrame(frame);
+        }
+
+        @Override
+        public long now() {
+            return pictures.now();
+        }
+
+        @Override
+        public String getError() {
+            return isFinished() ? "No more pictures" : pictures.getError();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return remaining <= 0;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package frc.robot.vision;
+
+/**
+ *
+ * Packs everything found in one camera picture into a single block of bytes,
+ * and unpacks it again on the robot.
+ *
+ * The Python script sent three separate arrays (target_x, target_y and
+ * target_id). They don't arrive together, so the robot could read the x's
+ * from one frame and the ids from another, and there was no room for when
+ * the picture was taken or where each tag is. One message per frame fixes
+ * both, and is a lot smaller than three arrays of doubles.
+ *
+ * The layout (all numbers big-endian, like DataOutputStream) is:
+ *
+ * - VERSION (1 byte), how many tags (1 byte)
+ * - the picture's width and height in pixels (2 bytes each)
+ * - the frame id (4 bytes), the capture time in microseconds (8 bytes), and
+ * the latency in microseconds (4 bytes)
+ * - where the camera is on the field: how many tags that was worked out from
+ * (1 byte, 0 if we don't know), then the fit's error, x, y, z, yaw, pitch
+ * and roll as floats (4 bytes each). See {@link CameraPoseSolver}.
+ * - then for each tag: its id (2 bytes), then its center x and y, decision
+ * margin, pose x, y and z, and rotation x, y and z, as floats (4 bytes
+ * each). See {@link TagDetection} for what they all mean.
+ *
+ * Unpacking doesn't create anything new: the numbers go into arrays that
+ * are made once, so the robot can do it every loop.
+ *
+ */
+public class VisionMessage {
+
+    public static final int VERSION = 2;
+
+    public static final int HEADER_BYTES = 51;
+    public static final int TAG_BYTES = 38;
+    public static final int MAX_BYTES = HEADER_BYTES + VisionProcessor.MAX_TAGS * TAG_BYTES;
+
+    // The unpacked message (see VisionResult and TagDetection)
+    public long frameId;
+    public long captureTime;
+    public double latency;
+    public int width;
+    public int height;
+    public int cameraTags;
+    public double cameraError;
+    public double cameraX;
+    public double cameraY;
+    public double cameraZ;
+    public double cameraYaw;
+    public double cameraPitch;
+    public double cameraRoll;
+    public int tagCount;
+    public final int[] id;
+    public final double[] centerX;
+    public final double[] centerY;
+    public final double[] decisionMargin;
+    public final double[] poseX;
+    public final double[] poseY;
+    public final double[] poseZ;
+    public final double[] rotationX;
+    public final double[] rotationY;
+    public final double[] rotationZ;
+
+    public VisionMessage() {
+        int size = VisionProcessor.MAX_TAGS;
+        id = new int[size];
+        centerX = new double[size];
+        centerY = new double[size];
+        decisionMargin = new double[size];
+        poseX = new double[size];
+        poseY = new double[size];
+        poseZ = new double[size];
+        rotationX = new double[size];
+        rotationY = new double[size];
+        rotationZ = new double[size];
+    }
+
+    /**
+     * Packs a result.
+     *
+     * @param result what was found in the picture (including its latency)
+     * @param data where to put the message, with room for at least
+     * {@link #MAX_BYTES}
+     * @return how many bytes the message is
+     */
+    public static int encode(VisionResult result, byte[] data) {
+        int count = Math.min(result.tagCount, VisionProcessor.MAX_TAGS);
+        data[0] = (byte) VERSION;
+        data[1] = (byte) count;
+        putShort(data, 2, result.width);
+        putShort(data, 4, result.height);
+        putInt(data, 6, (int) result.frameId);
+        putLong(data, 10, result.captureTime);
+        putInt(data, 18, (int) Math.min(Integer.MAX_VALUE, Math.round(result.latency * 1e6)));
+        data[22] = (byte) result.cameraTags;
+        putFloat(data, 23, result.cameraError);
+        putFloat(data, 27, result.cameraX);
+        putFloat(data, 31, result.cameraY);
+        putFloat(data, 35, result.cameraZ);
+        putFloat(data, 39, result.cameraYaw);
+        putFloat(data, 43, result.cameraPitch);
+        putFloat(data, 47, result.cameraRoll);
+
+        int offset = HEADER_BYTES;
+        for (int i = 0; i < count; i++) {
+            TagDetection tag = result.tags[i];
+            putShort(data, offset, tag.id);
+            putFloat(data, offset + 2, tag.centerX);
+            putFloat(data, offset + 6, tag.centerY);
+            putFloat(data, offset + 10, tag.decisionMargin);
+            putFloat(data, offset + 14, tag.poseX);
+            putFloat(data, offset + 18, tag.poseY);
+            putFloat(data, offset + 22, tag.poseZ);
+            putFloat(data, offset + 26, tag.rotationX);
+            putFloat(data, offset + 30, tag.rotationY);
+            putFloat(data, offset + 34, tag.rotationZ);
+            offset += TAG_BYTES;
+        }
+        return offset;
+    }
+
+    /**
+     * Unpacks a message.
+     *
+     * @return false (and leaves this alone) if the message isn't one we
+     * understand, or is cut short
+     */
+    public boolean decode(byte[] data, int length) {
+        if (length < HEADER_BYTES || data[0] != VERSION) {
+            return false;
+        }
+        int count = data[1] & 0xFF;
+        if (count > VisionProcessor.MAX_TAGS || length < HEADER_BYTES + count * TAG_BYTES) {
+            return false;
+        }
+
+        tagCount = count;
+        width = getShort(data, 2);
+        height = getShort(data, 4);
+        frameId = getInt(data, 6) & 0xFFFFFFFFL;
+        captureTime = getLong(data, 10);
+        latency = getInt(data, 18) / 1e6;
+        cameraTags = data[22] & 0xFF;
+        cameraError = getFloat(data, 23);
+        cameraX = getFloat(data, 27);
+        cameraY = getFloat(data, 31);
+        cameraZ = getFloat(data, 35);
+        cameraYaw = getFloat(data, 39);
+        cameraPitch = getFloat(data, 43);
+        cameraRoll = getFloat(data, 47);
+
+        int offset = HEADER_BYTES;
+        for (int i = 0; i < count; i++) {
+            id[i] = getShort(data, offset);
+            centerX[i] = getFloat(data, offset + 2);
+            centerY[i] = getFloat(data, offset + 6);
+            decisionMargin[i] = getFloat(data, offset + 10);
+            poseX[i] = getFloat(data, offset + 14);
+            poseY[i] = getFloat(data, offset + 18);
+            poseZ[i] = getFloat(data, offset + 22);
+            rotationX[i] = getFloat(data, offset + 26);
+            rotationY[i] = getFloat(data, offset + 30);
+            rotationZ[i] = getFloat(data, offset + 34);
+            offset += TAG_BYTES;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if we know where a tag is from the camera
+     */
+    public boolean hasPose(int index) {
+        return !Double.isNaN(poseZ[index]);
+    }
+
+    /**
+     * @return how far across the picture a tag is, from -1 (left edge) to 1
+     * (right edge)
+     */
+    public double getTargetX(int index) {
+        return (centerX[index] - width / 2.0) / (width / 2.0);
+    }
+
+    private static void putShort(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 8);
+        data[offset + 1] = (byte) value;
+    }
+
+    private static void putInt(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+
+    private static void putLong(byte[] data, int offset, long value) {
+        putInt(data, offset, (int) (value >>> 32));
+        putInt(data, offset + 4, (int) value);
+    }
+
+    private static void putFloat(byte[] data, int offset, double value) {
+        putInt(data, offset, Float.floatToIntBits((float) value));
+    }
+
+    private static int getShort(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+    }
+
+    private static int getInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+                | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+
+    private static long getLong(byte[] data, int offset) {
+        return ((long) getInt(data, offset) << 32) | (getInt(data, offset + 4) & 0xFFFFFFFFL);
+    }
+
+    private static float getFloat(byte[] data, int offset) {
+        return Float.intBitsToFloat(getInt(data, offset));
+    }
+}
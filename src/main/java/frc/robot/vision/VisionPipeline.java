@@ -0,0 +1,277 @@
+package frc.robot.vision;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.opencv.core.Mat;
+
+import edu.wpi.first.cameraserver.CameraServer;
+import edu.wpi.first.cscore.CvSource;
+
+/**
+ *
+ * Runs the vision code as a pipeline, so the slow parts can happen at the
+ * same time as each other instead of one after another:
+ *
+ *   capture thread -> detection workers -> publish thread
+ *
+ * - The capture thread just grabs pictures from the camera.
+ * - Each detection worker has its own {@link VisionProcessor} (detectors
+ * can't be shared between threads), so with several workers, several
+ * pictures can be searched for tags at once.
+ * - The publish thread sends each result to the robot, then draws on the
+ * picture and streams it.
+ *
+ * The stages are joined by queues that hold just one picture. If a stage
+ * falls behind, the waiting picture is thrown away and replaced by the newer
+ * one ("latest frame wins"): the robot would much rather have a fresh result
+ * than every result. Results that finish out of order (a worker with an
+ * easy picture can overtake one with a hard picture) are thrown away too,
+ * so the robot never goes back in time. When nothing is to be dropped (for
+ * saved pictures), the stages wait for each other instead, and results can
+ * come out in a different order than the pictures went in.
+ *
+ * Pictures are never copied between stages: a fixed set of buffers is
+ * passed along the pipeline and then handed back to the capture thread.
+ *
+ * How long each stage takes is recorded in a {@link VisionTiming}.
+ *
+ */
+public class VisionPipeline {
+
+    // How long the workers wait for a picture before checking whether
+    // they've been told to stop, in milliseconds
+    private static final long POLL_MILLIS = 50;
+
+    // A picture buffer, and what was found in it
+    private static class Frame {
+
+        final Mat image = new Mat();
+        final VisionResult result = new VisionResult();
+
+        // When the capture thread got the picture (from System.nanoTime())
+        long grabbedNanos;
+    }
+
+    private final FrameSource source;
+    private final VisionProcessor[] processors;
+    private final VisionPublisher publisher;
+    private final VisionTiming timing;
+    private final boolean dropFrames;
+    private final boolean stream;
+
+    private final BlockingQueue<Frame> free;
+    private final BlockingQueue<Frame> toDetect;
+    private final BlockingQueue<Frame> toPublish;
+    private final Thread[] threads;
+    private final AtomicInteger detecting;
+
+    private Consumer<VisionResult> listener;
+    private volatile boolean running;
+    private volatile boolean captureDone;
+
+    /**
+     * @param source where the pictures come from
+     * @param processors one processor for each detection worker
+     * @param publisher sends the results to the robot (or null to not send them)
+     * @param dropFrames true to skip pictures when a stage falls behind (for
+     * a real camera), false to wait so every picture is processed (for
+     * saved pictures and benchmarks)
+     * @param stream true to draw the tags and stream the pictures as "Processed"
+     */
+    public VisionPipeline(FrameSource source, VisionProcessor[] processors, VisionPublisher publisher,
+            boolean dropFrames, boolean stream) {
+        if (processors.length == 0) {
+            throw new IllegalArgumentException("The pipeline needs at least one processor");
+        }
+        this.source = source;
+        this.processors = processors.clone();
+        this.publisher = publisher;
+        this.dropFrames = dropFrames;
+        this.stream = stream;
+        timing = new VisionTiming();
+
+        // One picture being captured, one waiting for a worker, one for each
+        // worker, one waiting to be published and one being published
+        int buffers = processors.length + 4;
+        free = new ArrayBlockingQueue<>(buffers);
+        for (int i = 0; i < buffers; i++) {
+            free.add(new Frame());
+        }
+        toDetect = new ArrayBlockingQueue<>(1);
+        toPublish = new ArrayBlockingQueue<>(1);
+        detecting = new AtomicInteger(processors.length);
+
+        threads = new Thread[processors.length + 2];
+        threads[0] = new Thread(this::capture, "Vision Capture");
+        for (int i = 1; i <= processors.length; i++) {
+            VisionProcessor processor = this.processors[i - 1];
+            threads[i] = new Thread(() -> detect(processor), "Vision Detect " + i);
+        }
+        threads[threads.length - 1] = new Thread(this::publish, "Vision Publish");
+        for (Thread thread : threads) {
+            thread.setDaemon(true);
+        }
+    }
+
+    /**
+     * Calls a listener (on the publish thread) with every result, after it's
+     * been published. The result gets reused, so copy anything you need to
+     * keep. Set this before {@link #start()}.
+     */
+    public void setListener(Consumer<VisionResult> listener) {
+        this.listener = listener;
+    }
+
+    public VisionTiming getTiming() {
+        return timing;
+    }
+
+    /**
+     * Starts all of the threads.
+     */
+    public void start() {
+        running = true;
+        for (Thread thread : threads) {
+            thread.start();
+        }
+    }
+
+    /**
+     * Tells all of the threads to stop (pictures already on their way through
+     * are dropped).
+     */
+    public void stop() {
+        running = false;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Waits until the last picture has been published: for a camera, that's
+     * forever (or until {@link #stop()}).
+     */
+    public void join() throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private void capture() {
+        long frameId = 0;
+        try {
+            while (running && !source.isFinished()) {
+                Frame frame = free.take();
+                long start = System.nanoTime();
+                long time = source.grabFrame(frame.image);
+                frame.grabbedNanos = timing.record(VisionStage.CAPTURE, start);
+                if (time == 0) {
+                    free.add(frame);
+                    continue;
+                }
+                timing.countCaptured();
+                frame.result.frameId = frameId++;
+                frame.result.captureTime = time;
+                pass(frame, toDetect);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            captureDone = true;
+        }
+    }
+
+    private void detect(VisionProcessor processor) {
+        try {
+            while (running) {
+                Frame frame = toDetect.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (frame == null) {
+                    if (captureDone && toDetect.isEmpty()) {
+                        break;
+                    }
+                    continue;
+                }
+                long start = timing.record(VisionStage.QUEUE, frame.grabbedNanos);
+                processor.process(frame.image, frame.result);
+                timing.record(VisionStage.DETECT, start);
+                pass(frame, toPublish);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            detecting.decrementAndGet();
+        }
+    }
+
+    private void publish() {
+        TagAnnotator annotator = new TagAnnotator();
+        CvSource output = null;
+        long lastFrameId = -1;
+
+        try {
+            while (running) {
+                Frame frame = toPublish.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (frame == null) {
+                    if (detecting.get() == 0 && toPublish.isEmpty()) {
+                        break;
+                    }
+                    continue;
+                }
+
+                VisionResult result = frame.result;
+                if (dropFrames && result.frameId < lastFrameId) {
+                    timing.countDropped();
+                    free.add(frame);
+                    continue;
+                }
+                lastFrameId = result.frameId;
+
+                long start = System.nanoTime();
+                result.latency = (source.now() - result.captureTime) / 1e6;
+                if (publisher != null) {
+                    publisher.publish(result);
+                }
+                timing.countPublished();
+                timing.record(VisionStage.TOTAL, frame.grabbedNanos);
+
+                if (stream) {
+                    if (output == null) {
+                        output = CameraServer.putVideo("Processed", frame.image.cols(), frame.image.rows());
+                    }
+                    annotator.annotate(frame.image, result);
+                    output.putFrame(frame.image);
+                }
+                if (listener != null) {
+                    listener.accept(result);
+                }
+                timing.record(VisionStage.PUBLISH, start);
+                free.add(frame);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Hands a picture on to the next stage. If there's already one waiting
+     * there, and we're allowed to drop pictures, the old one is thrown away
+     * (its buffer goes back to the capture thread).
+     */
+    private void pass(Frame frame, BlockingQueue<Frame> next) throws InterruptedException {
+        if (!dropFrames) {
+            next.put(frame);
+            return;
+        }
+        while (!next.offer(frame)) {
+            Frame old = next.poll();
+            if (old != null) {
+                timing.countDropped();
+                free.add(old);
+            }
+        }
+    }
+}
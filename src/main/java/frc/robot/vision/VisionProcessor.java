@@ -0,0 +1,208 @@
+package frc.robot.vision;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ *
+ * Finds the AprilTags in camera pictures, one picture at a time.
+ *
+ * The old Python script made a brand new detector for every picture, which
+ * is slow, so this keeps one detector and one set of image buffers and
+ * reuses them for every frame. Once the first frame has been seen, processing a frame
+ * doesn't create any garbage for Java to clean up.
+ *
+ * Two settings make the detector's job smaller, at the cost of missing
+ * small or far away tags:
+ *
+ * - {@link #setScale}: shrink the picture before looking for tags (a half
+ * size picture has a quarter of the pixels)
+ * - {@link #setRegion}: only look in part of the picture (e.g. skip the
+ * floor, where there won't be any tags)
+ *
+ * Tag positions always come back in pixels of the whole, full size picture.
+ *
+ * A processor (and its detector) must only be used by one thread at a time,
+ * so {@link VisionPipeline} gives each of its workers their own.
+ *
+ */
+public class VisionProcessor {
+
+    // Tags the detector isn't at least this sure about are ignored
+    public static final double DEFAULT_MIN_DECISION_MARGIN = 100;
+
+    // The most tags we report from one picture
+    public static final int MAX_TAGS = 16;
+
+    private static final Size NO_SIZE = new Size();
+
+    private final TagDetector detector;
+    private TagPoseEstimator poseEstimator;
+    private CameraPoseSolver cameraPoseSolver;
+    private final TagDetection[] found;
+
+    // Reused for every frame
+    private final Mat gray;
+    private final Mat scaled;
+    private Mat regionView;
+    private Rect regionInView;
+    private int regionViewWidth;
+    private int regionViewHeight;
+
+    private double scale = 1;
+    private Rect region;
+    private double minDecisionMargin = DEFAULT_MIN_DECISION_MARGIN;
+
+    /**
+     * @param detector the detector to use. It's only ever used from whichever
+     * thread calls {@link #process}.
+     */
+    public VisionProcessor(TagDetector detector) {
+        this.detector = detector;
+        found = new TagDetection[MAX_TAGS];
+        for (int i = 0; i < MAX_TAGS; i++) {
+            found[i] = new TagDetection();
+        }
+        gray = new Mat();
+        scaled = new Mat();
+    }
+
+    /**
+     * Shrinks pictures before looking for tags.
+     *
+     * @param scale how big the picture the detector sees is, compared to the
+     * camera's (1 for full size, 0.5 for half size and so on)
+     */
+    public void setScale(double scale) {
+        if (scale <= 0 || scale > 1) {
+            throw new IllegalArgumentException("The scale must be more than 0 and at most 1");
+        }
+        this.scale = scale;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * Only looks for tags in part of the picture.
+     *
+     * @param region the part to look in, in full size pixels, or null to look
+     * everywhere
+     */
+    public void setRegion(Rect region) {
+        this.region = region == null ? null : new Rect(region.x, region.y, region.width, region.height);
+        releaseRegionView();
+    }
+
+    /**
+     * Works out where each tag is from the camera, as well as where it is in
+     * the picture.
+     *
+     * @param poseEstimator how to work it out, or null to not bother
+     */
+    public void setPoseEstimator(TagPoseEstimator poseEstimator) {
+        this.poseEstimator = poseEstimator;
+    }
+
+    /**
+     * Works out where the camera is on the field, from all the tags at once.
+     *
+     * @param cameraPoseSolver how to work it out (it must only be used by
+     * this processor), or null to not bother
+     */
+    public void setCameraPoseSolver(CameraPoseSolver cameraPoseSolver) {
+        this.cameraPoseSolver = cameraPoseSolver;
+    }
+
+    public void setMinDecisionMargin(double minDecisionMargin) {
+        this.minDecisionMargin = minDecisionMargin;
+    }
+
+    /**
+     * Finds the tags in a picture.
+     *
+     * @param frame the picture from the camera, in BGR color
+     * @param result where to put the tags that were found (the frame id and
+     * capture time are left alone)
+     * @return how many tags were found
+     */
+    public int process(Mat frame, VisionResult result) {
+        result.width = frame.cols();
+        result.height = frame.rows();
+        Imgproc.cvtColor(frame, gray, Imgproc.COLOR_BGR2GRAY);
+
+        Mat image = gray;
+        int offsetX = 0;
+        int offsetY = 0;
+        if (region != null) {
+            image = regionOf(gray);
+            offsetX = regionInView.x;
+            offsetY = regionInView.y;
+        }
+        if (scale < 1) {
+            Imgproc.resize(image, scaled, NO_SIZE, scale, scale, Imgproc.INTER_AREA);
+            image = scaled;
+        }
+
+        int count = detector.detect(image, found);
+        int tagCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (found[i].decisionMargin > minDecisionMargin) {
+                TagDetection tag = result.tags[tagCount++];
+                tag.copyFrom(found[i]);
+                tag.unscale(scale, offsetX, offsetY);
+                if (poseEstimator == null || !poseEstimator.estimate(tag, result.width, result.height)) {
+                    tag.clearPose();
+                }
+            }
+        }
+        result.tagCount = tagCount;
+        if (cameraPoseSolver == null || !cameraPoseSolver.solve(result)) {
+            result.clearCameraPose();
+        }
+        return tagCount;
+    }
+
+    /**
+     * A submat is a "view" of part of another Mat, which shares its pixels.
+     * Making one costs an allocation, so we only make a new one if the
+     * picture size changes. The region gets trimmed to fit in the picture.
+     */
+    private Mat regionOf(Mat image) {
+        if (regionView == null || regionViewWidth != image.cols() || regionViewHeight != image.rows()) {
+            releaseRegionView();
+            int x = Math.max(0, Math.min(region.x, image.cols() - 1));
+            int y = Math.max(0, Math.min(region.y, image.rows() - 1));
+            int w = Math.max(1, Math.min(region.width, image.cols() - x));
+            int h = Math.max(1, Math.min(region.height, image.rows() - y));
+            regionInView = new Rect(x, y, w, h);
+            regionView = image.submat(regionInView);
+            regionViewWidth = image.cols();
+            regionViewHeight = image.rows();
+        }
+        return regionView;
+    }
+
+    private void releaseRegionView() {
+        if (regionView != null) {
+            regionView.release();
+            regionView = null;
+        }
+    }
+
+    /**
+     * Frees up the image buffers, the detector and the pose estimator.
+     */
+    public void close() {
+        if (poseEstimator != null) {
+            poseEstimator.close();
+        }
+        releaseRegionView();
+        gray.release();
+        scaled.release();
+        detector.close();
+    }
+}
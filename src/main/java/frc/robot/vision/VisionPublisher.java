@@ -0,0 +1,45 @@
+package frc.robot.vision;
+
+import java.nio.ByteBuffer;
+
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+/**
+ *
+ * Sends what was found in each picture to the robot, as one
+ * {@link VisionMessage} in the "Vision/frame" entry.
+ *
+ * Every message has a different frame id, so NetworkTables always sees it
+ * as a change and passes it on, even when the same tags are seen frame
+ * after frame.
+ *
+ */
+public class VisionPublisher {
+
+    private final NetworkTableInstance instance;
+    private final NetworkTableEntry frame;
+
+    // Reused for every message
+    private final byte[] data;
+    private final ByteBuffer buffer;
+
+    public VisionPublisher(NetworkTableInstance instance) {
+        this.instance = instance;
+        frame = instance.getTable("Vision").getEntry("frame");
+        data = new byte[VisionMessage.MAX_BYTES];
+        buffer = ByteBuffer.wrap(data);
+    }
+
+    /**
+     * Sends the tags found in one picture.
+     */
+    public void publish(VisionResult result) {
+        int length = VisionMessage.encode(result, data);
+        frame.setRaw(buffer, length);
+
+        // NetworkTables normally only sends changes 10 times a second. The
+        // robot wants each frame as soon as possible, so send it right away.
+        instance.flush();
+    }
+}
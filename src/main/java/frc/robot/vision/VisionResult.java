@@ -0,0 +1,86 @@
+package frc.robot.vision;
+
+/**
+ *
+ * Everything we found in one camera picture, and when the picture was
+ * taken. These get reused frame after frame, like {@link TagDetection}.
+ *
+ */
+public class VisionResult {
+
+    // Counts up by one for every picture the camera gives us, so pictures
+    // that got skipped (or finished out of order) can be spotted
+    public long frameId;
+
+    // When the picture was taken, in microseconds (see FrameSource#now)
+    public long captureTime;
+
+    // How long it took from the picture being taken to the result being
+    // sent, in seconds. This is filled in just before it's sent.
+    public double latency;
+
+    // How big the picture was, in pixels
+    public int width;
+    public int height;
+
+    // The tags we found
+    public int tagCount;
+    public final TagDetection[] tags;
+
+    // Where the camera is on the field, worked out from all the tags at once
+    // (see CameraPoseSolver). Meters, with x along the field, y to the left
+    // and z up, and radians (yaw counter-clockwise, pitch up, roll clockwise
+    // as seen from behind the camera). cameraTags is how many tags it used,
+    // or 0 if we don't know where the camera is.
+    public int cameraTags;
+    public double cameraX;
+    public double cameraY;
+    public double cameraZ;
+    public double cameraYaw;
+    public double cameraPitch;
+    public double cameraRoll;
+
+    // How far (on average) the tag corners are from where they'd be if the
+    // camera really was there, in pixels, and how many rounds it took
+    public double cameraError;
+    public int cameraIterations;
+
+    public VisionResult() {
+        tags = new TagDetection[VisionProcessor.MAX_TAGS];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = new TagDetection();
+        }
+        clearCameraPose();
+    }
+
+    /**
+     * Forgets where the camera is.
+     */
+    public void clearCameraPose() {
+        cameraTags = 0;
+        cameraX = Double.NaN;
+        cameraY = Double.NaN;
+        cameraZ = Double.NaN;
+        cameraYaw = Double.NaN;
+        cameraPitch = Double.NaN;
+        cameraRoll = Double.NaN;
+        cameraError = Double.NaN;
+        cameraIterations = 0;
+    }
+
+    /**
+     * @return how far across the picture a tag is, from -1 (left edge) to 1
+     * (right edge)
+     */
+    public double getTargetX(int index) {
+        return (tags[index].centerX - width / 2.0) / (width / 2.0);
+    }
+
+    /**
+     * @return how far down the picture a tag is, from -1 (top edge) to 1
+     * (bottom edge)
+     */
+    public double getTargetY(int index) {
+        return (tags[index].centerY - height / 2.0) / (height / 2.0);
+    }
+}
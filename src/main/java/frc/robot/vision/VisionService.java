@@ -0,0 +1,209 @@
+package frc.robot.vision;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Paths;
+
+import org.opencv.core.Rect;
+
+import edu.wpi.first.cscore.CameraServerCvJNI;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+/**
+ *
+ * The Java version of detectChiefDelphi.py: finds AprilTags in the camera's
+ * pictures and sends them to the robot. It runs on the Raspberry Pi (or on a
+ * laptop, with saved pictures instead of a camera).
+ *
+ * How long each stage takes is published under "Vision Timing" (see
+ * {@link VisionTiming}). To compare settings on saved pictures, see
+ * {@link VisionBenchmark}.
+ *
+ * Settings are system properties:
+ *
+ * - vision.detector: the {@link TagDetector} class to use (default
+ * {@link JavaTagDetector})
+ * - vision.family: the tag family to look for (default tag16h5)
+ * - vision.team: our team number, to find the robot (default 3373)
+ * - vision.frames: a folder of saved pictures to use instead of the camera.
+ * The tags found are printed instead of being sent to the robot.
+ * - vision.scale: shrink pictures by this much before looking for tags
+ * (default 1, see {@link VisionProcessor#setScale})
+ * - vision.region: only look in part of the picture, as x,y,width,height in
+ * pixels (see {@link VisionProcessor#setRegion})
+ * - vision.margin: the smallest decision margin we believe (default 100)
+ * - vision.tagSize: how big the tags are, in meters (default: what the
+ * layout says, or 0.1524 for the 2023 field's tags)
+ * - vision.fx, vision.fy: the camera's focal length in pixels (default 500),
+ * and vision.cx, vision.cy: the middle of its picture (default: the middle
+ * of each picture). See {@link TagPoseEstimator}.
+ * - vision.layout: a file saying where the tags are on the field (see
+ * {@link TagLayout}), to work out where the camera is from all of them at
+ * once (see {@link CameraPoseSolver}). Default: don't.
+ * - vision.threads: how many pictures to search for tags at once (default:
+ * one less than the number of cores, see {@link VisionPipeline})
+ *
+ * For instance:
+ *   ./gradlew replayVision -Dvision.frames=data/vision/frames
+ *
+ */
+public final class VisionService {
+
+    public static final String DEFAULT_DETECTOR = JavaTagDetector.class.getName();
+    public static final String DEFAULT_FAMILY = "tag16h5";
+    public static final int DEFAULT_TEAM = 3373;
+
+    // How often the stage timings are published, in seconds
+    public static final double TIMING_PERIOD = 1.0;
+
+    private VisionService() { }
+
+    public static void main(String... args) throws Exception {
+        CameraServerCvJNI.forceLoad();
+
+        int workers = Integer.getInteger("vision.threads",
+                Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        VisionProcessor[] processors = new VisionProcessor[workers];
+        for (int i = 0; i < workers; i++) {
+            processors[i] = createProcessor();
+        }
+
+        String frames = System.getProperty("vision.frames");
+        if (frames != null) {
+            replay(new ImageFolderSource(Paths.get(frames), false), processors);
+        } else {
+            NetworkTableInstance nt = NetworkTableInstance.getDefault();
+            int team = Integer.getInteger("vision.team", DEFAULT_TEAM);
+            System.out.println("Setting up NetworkTables client for team " + team);
+            nt.startClientTeam(team);
+            nt.startDSClient();
+
+            VisionPipeline pipeline = new VisionPipeline(new CameraFrameSource(), processors,
+                    new VisionPublisher(nt), true, true);
+            pipeline.getTiming().start(nt.getTable("Vision Timing"), TIMING_PERIOD);
+            pipeline.start();
+            pipeline.join();
+        }
+
+        for (VisionProcessor processor : processors) {
+            processor.close();
+        }
+    }
+
+    /**
+     * Makes a processor with the detector and settings from the system
+     * properties.
+     */
+    public static VisionProcessor createProcessor() throws ReflectiveOperationException, IOException {
+        return createProcessor(System.getProperty("vision.family", DEFAULT_FAMILY), setting("scale", 1));
+    }
+
+    /**
+     * Makes a processor with the detector and settings from the system
+     * properties, but looking for a different tag family at a different
+     * scale (see VisionBenchmark).
+     */
+    public static VisionProcessor createProcessor(String family, double scale)
+            throws ReflectiveOperationException, IOException {
+        TagDetector detector = createDetector(System.getProperty("vision.detector"), family);
+        VisionProcessor processor = new VisionProcessor(detector);
+        processor.setScale(scale);
+        processor.setMinDecisionMargin(Double.parseDouble(System.getProperty("vision.margin",
+                Double.toString(VisionProcessor.DEFAULT_MIN_DECISION_MARGIN))));
+        // The single tag estimates and the whole field solve have to agree on
+        // how big the tags are, so they both use the layout's size (unless
+        // we've been told otherwise)
+        String layoutFile = System.getProperty("vision.layout");
+        TagLayout layout = layoutFile == null ? null : TagLayout.load(Paths.get(layoutFile));
+        double tagSize = setting("tagSize", layout == null ? TagLayout.FIELD_2023_TAG_SIZE : layout.getTagSize());
+        if (layout != null && tagSize != layout.getTagSize()) {
+            layout = TagLayout.load(Paths.get(layoutFile), tagSize);
+        }
+
+        double fx = setting("fx", TagPoseEstimator.DEFAULT_FOCAL_LENGTH);
+        double fy = setting("fy", TagPoseEstimator.DEFAULT_FOCAL_LENGTH);
+        double cx = setting("cx", Double.NaN);
+        double cy = setting("cy", Double.NaN);
+        processor.setPoseEstimator(new TagPoseEstimator(tagSize, fx, fy, cx, cy));
+        if (layout != null) {
+            processor.setCameraPoseSolver(new CameraPoseSolver(layout, fx, fy, cx, cy));
+        }
+
+        String region = System.getProperty("vision.region");
+        if (region != null) {
+            String[] parts = region.split(",");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("vision.region should be x,y,width,height");
+            }
+            processor.setRegion(new Rect(
+                    Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+                    Integer.parseInt(parts[2].trim()), Integer.parseInt(parts[3].trim())));
+        }
+        return processor;
+    }
+
+    private static double setting(String name, double defaultValue) {
+        return Double.parseDouble(System.getProperty("vision." + name, Double.toString(defaultValue)));
+    }
+
+    /**
+     * Makes a detector, once, for the whole run.
+     *
+     * @param className the {@link TagDetector} class, or null for
+     * {@link #DEFAULT_DETECTOR}
+     * @param family the tag family to look for, like "tag16h5" or "tag36h11"
+     * @throws IllegalArgumentException if the detector can't find that family
+     */
+    public static TagDetector createDetector(String className, String family)
+            throws ReflectiveOperationException {
+        if (className == null) {
+            className = DEFAULT_DETECTOR;
+        }
+        try {
+            return Class.forName(className)
+                    .asSubclass(TagDetector.class)
+                    .getConstructor(String.class)
+                    .newInstance(family);
+        } catch (InvocationTargetException e) {
+            // Pass on the detector's own complaint, like an unknown family
+            if (e.getCause() instanceof IllegalArgumentException) {
+                throw (IllegalArgumentException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Finds the tags in a folder of saved pictures, and prints what it finds
+     * and how long each stage took.
+     */
+    public static void replay(ImageFolderSource source, VisionProcessor[] processors)
+            throws InterruptedException {
+        VisionPipeline pipeline = new VisionPipeline(source, processors, null, false, false);
+        pipeline.setListener(result -> {
+            StringBuilder line = new StringBuilder(source.getFrameName(result.frameId)).append(':');
+            for (int i = 0; i < result.tagCount; i++) {
+                TagDetection tag = result.tags[i];
+                line.append(String.format(" %d (%.1f, %.1f)", tag.id, tag.centerX, tag.centerY));
+                if (tag.hasPose()) {
+                    line.append(String.format(" at (%.2f, %.2f, %.2f) m", tag.poseX, tag.poseY, tag.poseZ));
+                }
+            }
+            if (result.cameraTags > 0) {
+                line.append(String.format(" camera at (%.2f, %.2f) m facing %.1f deg from %d tags",
+                        result.cameraX, result.cameraY, Math.toDegrees(result.cameraYaw), result.cameraTags));
+            }
+            System.out.println(line);
+        });
+
+        long start = System.nanoTime();
+        pipeline.start();
+        pipeline.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        VisionTiming timing = pipeline.getTiming();
+        System.out.printf("%d workers, %.1f pictures per second%n",
+                processors.length, timing.getPublished() / seconds);
+        System.out.print(timing.report());
+    }
+}
@@ -0,0 +1,31 @@
+package frc.robot.vision;
+
+/**
+ *
+ * The parts of the vision pipeline that we time (see {@link VisionTiming}).
+ *
+ */
+public enum VisionStage {
+
+    // Waiting for the camera to hand over a picture
+    CAPTURE("Capture"),
+
+    // From getting a picture to a detection worker starting on it
+    QUEUE("Queue"),
+
+    // Finding the tags (grayscale, shrinking and the detector itself)
+    DETECT("Detect"),
+
+    // Sending the result to the robot, and drawing and streaming the picture
+    PUBLISH("Publish"),
+
+    // From getting a picture to its result being sent. This is the delay
+    // that matters to the robot.
+    TOTAL("Total");
+
+    public final String label;
+
+    private VisionStage(String label) {
+        this.label = label;
+    }
+}
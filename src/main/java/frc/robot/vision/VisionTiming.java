@@ -0,0 +1,163 @@
+package frc.robot.vision;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import frc.robot.timing.LatencyHistogram;
+import frc.robot.timing.LatencySummary;
+
+/**
+ *
+ * Keeps track of how long each {@link VisionStage} takes, and how many
+ * pictures made it all the way through the pipeline.
+ *
+ * The old Python script worked out its FPS from the time between the starts
+ * of its loops, which says nothing about how old a result is by the time the
+ * robot gets it. For the robot, the delay ({@link VisionStage#TOTAL}) is what
+ * matters: a fast camera is no help if every result is 200ms old.
+ *
+ * Like frc.robot.timing.LoopTiming, the numbers can be published every so
+ * often (see {@link #start}), covering just the time since the last update.
+ *
+ */
+public class VisionTiming {
+
+    private static final VisionStage[] STAGES = VisionStage.values();
+
+    private final LatencyHistogram[] histograms;
+    private final AtomicLong captured;
+    private final AtomicLong dropped;
+    private final AtomicLong published;
+    private ScheduledExecutorService publisher;
+
+    public VisionTiming() {
+        histograms = new LatencyHistogram[STAGES.length];
+        for (int i = 0; i < STAGES.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        captured = new AtomicLong();
+        dropped = new AtomicLong();
+        published = new AtomicLong();
+    }
+
+    /**
+     * Records how long a stage took, given the time it started (from
+     * System.nanoTime()).
+     *
+     * @return the time now, so it can be used as the start of the next stage
+     */
+    public long record(VisionStage stage, long startNanos) {
+        long now = System.nanoTime();
+        histograms[stage.ordinal()].record(now - startNanos);
+        return now;
+    }
+
+    /**
+     * @return the histogram for a stage
+     */
+    public LatencyHistogram get(VisionStage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    public void countCaptured() {
+        captured.incrementAndGet();
+    }
+
+    /**
+     * Counts a picture that was skipped because a newer one came along
+     * before it could be finished.
+     */
+    public void countDropped() {
+        dropped.incrementAndGet();
+    }
+
+    public void countPublished() {
+        published.incrementAndGet();
+    }
+
+    public long getCaptured() {
+        return captured.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getPublished() {
+        return published.get();
+    }
+
+    /**
+     * Publishes a summary of each stage, and the frame counts, every so
+     * often (on a background thread).
+     *
+     * @param table where to publish
+     * @param publishPeriod how often to publish, in seconds
+     */
+    public synchronized void start(NetworkTable table, double publishPeriod) {
+        if (publisher != null) {
+            return;
+        }
+
+        LatencySummary[] summaries = new LatencySummary[STAGES.length];
+        for (int i = 0; i < STAGES.length; i++) {
+            summaries[i] = new LatencySummary(histograms[i], table.getSubTable(STAGES[i].label));
+        }
+        NetworkTableEntry capturedEntry = table.getEntry("Captured");
+        NetworkTableEntry droppedEntry = table.getEntry("Dropped");
+        NetworkTableEntry publishedEntry = table.getEntry("Published");
+        NetworkTableEntry fpsEntry = table.getEntry("FPS");
+        long[] lastPublished = new long[1];
+
+        publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Vision Timing");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long micros = (long) (publishPeriod * 1_000_000);
+        publisher.scheduleAtFixedRate(() -> {
+            for (LatencySummary summary : summaries) {
+                summary.publish();
+            }
+            long count = published.get();
+            capturedEntry.setDouble(captured.get());
+            droppedEntry.setDouble(dropped.get());
+            publishedEntry.setDouble(count);
+            fpsEntry.setDouble((count - lastPublished[0]) / publishPeriod);
+            lastPublished[0] = count;
+        }, micros, micros, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Stops publishing.
+     */
+    public synchronized void stop() {
+        if (publisher != null) {
+            publisher.shutdownNow();
+            publisher = null;
+        }
+    }
+
+    /**
+     * @return a few lines describing everything recorded so far, for
+     * printing. Don't mix this with {@link #start}: they'd each reset the
+     * other's max.
+     */
+    public String report() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%d pictures captured, %d dropped, %d published%n",
+                captured.get(), dropped.get(), published.get()));
+        for (int i = 0; i < STAGES.length; i++) {
+            LatencySummary summary = new LatencySummary(histograms[i], null);
+            summary.update();
+            text.append(String.format("%-8s p50 %7.2f ms   p99 %7.2f ms   max %7.2f ms%n",
+                    STAGES[i].label, summary.getP50() / 1e6, summary.getP99() / 1e6,
+                    summary.getMax() / 1e6));
+        }
+        return text.toString();
+    }
+}
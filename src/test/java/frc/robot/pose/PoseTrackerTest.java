@@ -0,0 +1,69 @@
+package frc.robot.pose;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import edu.wpi.first.math.util.Units;
+import frc.robot.RobotParts;
+import frc.robot.SensorSnapshot;
+
+/**
+ *
+ * Checks the odometry in {@link PoseTracker} by driving the robot round a
+ * circle, where we know exactly where it should be at every point.
+ *
+ * The gyro's angle wraps round from 180 to -180 degrees half way, which is
+ * the easy place for odometry to lose track of a step.
+ *
+ */
+public class PoseTrackerTest {
+
+    // How big the circle is, in meters
+    private static final double RADIUS = 1.0;
+
+    // How far the robot turns each loop, in degrees
+    private static final double STEP_DEGREES = 2.0;
+
+    // How far off the position can be, in meters. Each step is an exact arc,
+    // so this is only rounding.
+    private static final double TOLERANCE = 1e-6;
+
+    @Test
+    public void followsAnArcThroughHalfATurnLeft() {
+        driveArc(1);
+    }
+
+    @Test
+    public void followsAnArcThroughHalfATurnRight() {
+        driveArc(-1);
+    }
+
+    /**
+     * Drives three quarters of the way round a circle, checking the position
+     * after every step.
+     *
+     * @param direction 1 to turn left (counter-clockwise), -1 to turn right
+     */
+    private static void driveArc(int direction) {
+        PoseTracker tracker = new PoseTracker();
+        SensorSnapshot sensors = new SensorSnapshot();
+        double halfTrack = Units.inchesToMeters(RobotParts.TRACK_WIDTH_INCHES) / 2;
+
+        for (double degrees = 0; degrees <= 270; degrees += STEP_DEGREES) {
+            double turned = Math.toRadians(degrees);
+            sensors.timestamp = degrees / STEP_DEGREES * 0.02;
+            sensors.leftDistance = Units.metersToInches((RADIUS - direction * halfTrack) * turned);
+            sensors.rightDistance = Units.metersToInches((RADIUS + direction * halfTrack) * turned);
+
+            // Like RobotParts: clockwise positive, between -180 and 180
+            double angle = -direction * degrees;
+            sensors.angle = Math.IEEEremainder(angle, 360);
+            tracker.update(sensors);
+
+            String where = "after " + degrees + " degrees";
+            assertEquals(where + ", x", RADIUS * Math.sin(turned), tracker.getX(), TOLERANCE);
+            assertEquals(where + ", y", direction * RADIUS * (1 - Math.cos(turned)), tracker.getY(), TOLERANCE);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package frc.robot.sim;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.XboxControllerSim;
+import frc.robot.examples.PIDPositionControlledRobot;
+import frc.robot.examples.PIDTurningControlledRobot;
+
+/**
+ *
+ * Checks what running the PID math faster does for the PID example robots.
+ * For each control rate, we run the robot itself in the simulator on a
+ * {@link RomiPlant}, press Y, and check how long the move took to settle
+ * and how far it overshot (see {@link StepResponse}):
+ *
+ * - Position: the PIDPositionControlledRobot driving forward 12 inches
+ * - Turning: the PIDTurningControlledRobot turning 90 degrees
+ *
+ * With the gains in the examples, the moves are mostly limited by the max
+ * speed, so the control rate only changes things by a few hundredths of a
+ * second. Whatever the rate, a faster loop shouldn't make a move any worse,
+ * so the ITAE at every rate has to be no worse than at 50Hz.
+ *
+ * Every move runs in its own program (see {@link RobotProcess}).
+ *
+ */
+public class ControlRateTest {
+
+    // The rates we try, in Hz (50Hz is the normal TimedRobot loop)
+    private static final double[] RATES = { 50, 100, 200, 500, 1000 };
+
+    // How much worse than at 50Hz the ITAE can be, for rounding
+    private static final double ITAE_MARGIN = 1.01;
+
+    // How long we let each move run, in seconds
+    private static final double DURATION = 5.0;
+
+    // How far apart the physics updates are, at most (in seconds)
+    private static final double STEP = 0.005;
+
+    // How long the driver holds the button down
+    private static final double PRESS = 0.1;
+
+    private static final String POSITION = "position";
+    private static final String TURN = "turn";
+
+    @Test
+    public void positionSettlesWithinTwoSeconds() {
+        MoveResult slowest = null;
+        for (double rate : RATES) {
+            MoveResult result = run(POSITION, rate);
+            result.checkSettling(2.0);
+            result.checkOvershoot(1.0);
+            slowest = result.checkItae(slowest);
+        }
+    }
+
+    @Test
+    public void turnSettlesWithinOneSecond() {
+        MoveResult slowest = null;
+        for (double rate : RATES) {
+            MoveResult result = run(TURN, rate);
+            result.checkSettling(1.0);
+            result.checkOvershoot(1.0);
+            slowest = result.checkItae(slowest);
+        }
+    }
+
+    private static MoveResult run(String move, double rate) {
+        String[] printed = RobotProcess.run(ControlRateTest.class, move, Double.toString(rate)).get(0);
+        return new MoveResult(move, rate, Boolean.parseBoolean(printed[0]), Double.parseDouble(printed[1]),
+                Double.parseDouble(printed[2]), Double.parseDouble(printed[3]));
+    }
+
+    /**
+     * Runs one of the example robots through one move, and prints how it
+     * went: whether it settled, the settling time, the overshoot and the
+     * ITAE.
+     *
+     * @param args the move (position or turn), and the control rate in Hz
+     */
+    public static void main(String... args) throws InterruptedException {
+
+        // Nobody connects to these robots, and the other tests may want the
+        // NetworkTables port
+        NetworkTableInstance.getDefault().startLocal();
+
+        boolean turn = TURN.equals(args[0]);
+        double period = 1.0 / Double.parseDouble(args[1]);
+        double step = Math.min(period, STEP);
+        Supplier<TimedRobot> factory;
+        if (turn) {
+            factory = () -> new PIDTurningControlledRobot(period);
+        } else {
+            factory = () -> new PIDPositionControlledRobot(period);
+        }
+
+        RomiPlant plant = new RomiPlant();
+        XboxControllerSim controller = new XboxControllerSim(0);
+        try (SimulatedRobot sim = new SimulatedRobot(factory)) {
+            sim.zeroEncoders(0, 0);
+            sim.step(sim.getRobot().getPeriod());
+            sim.setEnabled(true);
+
+            // Give teleopInit a chance to reset everything
+            sim.step(plant, 5 * sim.getRobot().getPeriod());
+
+            // The move starts when the driver presses Y
+            double start = plant.getTime();
+            double startValue = turn ? plant.getHeading() : distance(plant);
+            StepResponse response = new StepResponse(0, turn ? 90 : 12, turn ? 1.0 : 0.5);
+            controller.setYButton(true);
+            controller.notifyNewData();
+            while (plant.getTime() - start < DURATION) {
+                if (plant.getTime() - start >= PRESS) {
+                    controller.setYButton(false);
+                    controller.notifyNewData();
+                }
+                sim.step(plant, step);
+                double value = turn ? plant.getHeading() : distance(plant);
+                response.sample(plant.getTime() - start, value - startValue);
+            }
+
+            System.out.printf(Locale.ROOT, "%s %b %.4f %.4f %.6f%n", RobotProcess.RESULT_PREFIX,
+                    response.isSettled(), response.getSettlingTime(), response.getOvershootPercent(),
+                    response.getItae());
+        }
+    }
+
+    // How far the middle of the robot has gone, in inches
+    private static double distance(RomiPlant plant) {
+        return (plant.getLeftDistance() + plant.getRightDistance()) / 2;
+    }
+
+    /**
+     * How a move went, as the robot's program printed it.
+     */
+    private static class MoveResult {
+
+        final String move;
+        final double rate;
+        final boolean settled;
+        final double settlingTime;
+        final double overshoot;
+        final double itae;
+
+        MoveResult(String move, double rate, boolean settled, double settlingTime, double overshoot,
+                double itae) {
+            this.move = move;
+            this.rate = rate;
+            this.settled = settled;
+            this.settlingTime = settlingTime;
+            this.overshoot = overshoot;
+            this.itae = itae;
+        }
+
+        void checkSettling(double seconds) {
+            assertTrue(move + " at " + rate + "Hz never settled", settled);
+            assertTrue(move + " at " + rate + "Hz took " + settlingTime + "s to settle", settlingTime <= seconds);
+        }
+
+        void checkOvershoot(double percent) {
+            assertTrue(move + " at " + rate + "Hz overshot by " + overshoot + "%", overshoot <= percent);
+        }
+
+        /**
+         * @return the 50Hz response, to compare the faster ones with
+         */
+        MoveResult checkItae(MoveResult slowest) {
+            if (slowest == null) {
+                return this;
+            }
+            assertTrue(move + " at " + rate + "Hz has ITAE " + itae + ", worse than " + slowest.itae + " at "
+                    + slowest.rate + "Hz", itae <= slowest.itae * ITAE_MARGIN);
+            return slowest;
+        }
+    }
+}
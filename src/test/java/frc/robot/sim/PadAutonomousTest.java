@@ -0,0 +1,103 @@
+package frc.robot.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+
+import org.junit.Test;
+
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.examples.PadDrivingRobot;
+import frc.robot.subsystems.Drivetrain;
+
+/**
+ *
+ * Checks that the PadDrivingRobot's autonomous square (a DriveDistanceCommand
+ * and a TurnToAngleCommand for each side) brings the robot back to where it
+ * started, facing the same way, and stops.
+ *
+ * The robot runs in the simulator on a {@link RomiPlant}, in a program of
+ * its own (see {@link RobotProcess}). We work out where it is on the floor
+ * from the plant's wheels and heading.
+ *
+ */
+public class PadAutonomousTest {
+
+    // How long autonomous runs for, in seconds (a square takes about 7)
+    private static final double DURATION = 12.0;
+
+    // How far apart the physics updates are (in seconds)
+    private static final double STEP = 0.005;
+
+    // How far from the start (in inches) counts as back where we started
+    private static final double POSITION_TOLERANCE = 0.5;
+
+    // How far the sides of the square are, in inches (the robot's drive increment)
+    private static final double SIDE = 12.0;
+
+    @Test
+    public void drivesRoundASquareAndBack() {
+        String[] result = RobotProcess.run(PadAutonomousTest.class).get(0);
+        double x = Double.parseDouble(result[0]);
+        double y = Double.parseDouble(result[1]);
+        double heading = Double.parseDouble(result[2]);
+        double farthest = Double.parseDouble(result[3]);
+        double left = Double.parseDouble(result[4]);
+        double right = Double.parseDouble(result[5]);
+
+        // It has to have really been round the square (the far corner is
+        // the diagonal away)
+        assertEquals("farthest from the start", SIDE * Math.sqrt(2), farthest, 1.0);
+
+        assertTrue("ended up " + Math.hypot(x, y) + " inches from the start",
+                Math.hypot(x, y) <= POSITION_TOLERANCE);
+        assertTrue("ended up facing " + heading + " degrees from the start",
+                Math.abs(heading) <= Drivetrain.TURN_TOLERANCE);
+        assertEquals("left motor at the end", 0, left, 1e-9);
+        assertEquals("right motor at the end", 0, right, 1e-9);
+    }
+
+    /**
+     * Runs the PadDrivingRobot's autonomous, and prints where the robot
+     * ended up (x and y in inches, and the heading in degrees, from where it
+     * started, after four right turns), how far from the start it got, and
+     * the motor outputs at the end.
+     */
+    public static void main(String... args) throws InterruptedException {
+
+        // Nobody connects to this robot, and the other tests may want the
+        // NetworkTables port
+        NetworkTableInstance.getDefault().startLocal();
+
+        RomiPlant plant = new RomiPlant();
+        try (SimulatedRobot sim = new SimulatedRobot(PadDrivingRobot::new)) {
+            sim.zeroEncoders(0, 0);
+            sim.step(sim.getRobot().getPeriod());
+            sim.setAutonomous(true);
+            sim.setEnabled(true);
+
+            // Work out where we are on the floor, with x straight ahead
+            // from the start and y to the left
+            double x = 0;
+            double y = 0;
+            double farthest = 0;
+            double lastDistance = 0;
+            double start = plant.getTime();
+            while (plant.getTime() - start < DURATION) {
+                sim.step(plant, STEP);
+
+                double distance = (plant.getLeftDistance() + plant.getRightDistance()) / 2;
+                double heading = Math.toRadians(plant.getHeading());
+                x += (distance - lastDistance) * Math.cos(heading);
+                y -= (distance - lastDistance) * Math.sin(heading);
+                lastDistance = distance;
+                farthest = Math.max(farthest, Math.hypot(x, y));
+            }
+
+            System.out.printf(Locale.ROOT, "%s %.4f %.4f %.4f %.4f %.6f %.6f%n", RobotProcess.RESULT_PREFIX,
+                    x, y, Math.IEEEremainder(plant.getHeading(), 360), farthest,
+                    sim.getLeftOutput(), sim.getRightOutput());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package frc.robot.sim;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.XboxControllerSim;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import edu.wpi.first.wpilibj2.command.FunctionalCommand;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.examples.PIDPositionControlledRobot;
+import frc.robot.examples.PadDrivingRobot;
+import frc.robot.examples.TankDrivingRobot;
+
+/**
+ *
+ * Checks that the example robots don't make any garbage once they've warmed
+ * up, by driving them in the simulator (on a {@link RomiPlant}) with someone
+ * pressing buttons and pushing sticks, and counting how many bytes the
+ * robot's thread asks for across the loops.
+ *
+ * Garbage doesn't hurt straight away, but sooner or later the garbage
+ * collector has to stop and clean it up, and if that happens in the middle
+ * of a loop the loop is late.
+ *
+ * WPILib's own loop makes a little garbage (its loop timer keeps its times
+ * as Longs, and the command scheduler makes some bookkeeping every time a
+ * command starts), so each robot is compared with a robot that does nothing
+ * at all. Each robot runs in its own program (see {@link RobotProcess}).
+ *
+ */
+public class RobotLoopAllocationTest {
+
+    // How far apart the physics updates are (in seconds), as often as the
+    // PID examples' control loops run
+    private static final double STEP = 0.005;
+
+    // Simulated seconds to drive for before measuring, so anything that's
+    // set up the first time it's used has been set up (and the JIT compiler
+    // has had a go at the loop), and then the seconds we measure
+    private static final double WARMUP = 30;
+    private static final double MEASURED = 30;
+
+    // How many bytes a loop a robot can make on top of the robot that does
+    // nothing. This is less than the smallest Java object, so a robot that
+    // makes anything at all every loop fails, but the scheduler starting a
+    // command every second or so doesn't.
+    private static final double SLACK = 8;
+
+    // What the robots we compare with are called in the other program
+    private static final String BARE = "bare";
+    private static final String BARE_COMMANDS = "bare-commands";
+
+    @Test
+    public void pidPositionControlledRobotMakesNoGarbage() {
+        assertNoGarbage(PIDPositionControlledRobot.class.getName(), BARE);
+    }
+
+    @Test
+    public void padDrivingRobotMakesNoGarbage() {
+        assertNoGarbage(PadDrivingRobot.class.getName(), BARE_COMMANDS);
+    }
+
+    @Test
+    public void tankDrivingRobotMakesNoGarbage() {
+        assertNoGarbage(TankDrivingRobot.class.getName(), BARE);
+    }
+
+    private static void assertNoGarbage(String robot, String bare) {
+        double bytes = bytesPerLoop(robot);
+        double bareBytes = bytesPerLoop(bare);
+        assertTrue(String.format(Locale.ROOT, "%s makes %.1f bytes a loop, a robot that does nothing makes %.1f",
+                robot, bytes, bareBytes), bytes <= bareBytes + SLACK);
+    }
+
+    private static double bytesPerLoop(String robot) {
+        return Double.parseDouble(RobotProcess.run(RobotLoopAllocationTest.class, robot).get(0)[0]);
+    }
+
+    /**
+     * Drives one robot and prints how many bytes its thread made per loop.
+     *
+     * @param args the robot class, or one of the robots that do nothing
+     */
+    public static void main(String... args) throws InterruptedException {
+
+        // Nobody connects to these robots, and the other tests may want the
+        // NetworkTables port
+        NetworkTableInstance.getDefault().startLocal();
+
+        String robot = args[0];
+        Supplier<? extends TimedRobot> factory;
+        if (BARE.equals(robot)) {
+            factory = TimedRobot::new;
+        } else if (BARE_COMMANDS.equals(robot)) {
+            factory = BareCommandRobot::new;
+        } else {
+            factory = SimulatedRobot.forClass(robot);
+        }
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        RomiPlant plant = new RomiPlant();
+        XboxControllerSim controller = new XboxControllerSim(0);
+        try (SimulatedRobot sim = new SimulatedRobot(factory)) {
+            sim.zeroEncoders(0, 0);
+            sim.step(sim.getRobot().getPeriod());
+            sim.setEnabled(true);
+
+            drive(sim, plant, controller, WARMUP);
+
+            long thread = sim.getThreadId();
+            long loops = sim.getLoopCount();
+            long bytes = threads.getThreadAllocatedBytes(thread);
+            drive(sim, plant, controller, MEASURED);
+            bytes = threads.getThreadAllocatedBytes(thread) - bytes;
+            loops = sim.getLoopCount() - loops;
+
+            System.out.printf(Locale.ROOT, "%s %.3f%n", RobotProcess.RESULT_PREFIX, (double) bytes / loops);
+        }
+    }
+
+    /**
+     * Drives for a while. Every couple of seconds the driver taps the next
+     * of Y, B, A and X (a move or a new setpoint for the button robots), and
+     * the sticks go from straight ahead to a gentle curve and back (for the
+     * tank robot).
+     */
+    private static void drive(SimulatedRobot sim, RomiPlant plant, XboxControllerSim controller, double seconds) {
+        double end = plant.getTime() + seconds;
+        while (plant.getTime() < end) {
+            double time = plant.getTime();
+            int press = (int) (time / 2);
+            boolean down = time - 2 * press < 0.1;
+            controller.setYButton(down && press % 4 == 0);
+            controller.setBButton(down && press % 4 == 1);
+            controller.setAButton(down && press % 4 == 2);
+            controller.setXButton(down && press % 4 == 3);
+            controller.setLeftY(-0.5);
+            controller.setRightY(press % 2 == 0 ? -0.5 : -0.4);
+            controller.notifyNewData();
+
+            sim.step(plant, STEP);
+        }
+    }
+
+    /**
+     * A command based robot that does nothing but run the scheduler, with a
+     * subsystem and a command that never finishes.
+     */
+    public static class BareCommandRobot extends TimedRobot {
+
+        @Override
+        public void teleopInit() {
+            SubsystemBase subsystem = new SubsystemBase() { };
+            CommandScheduler.getInstance().schedule(
+                    new FunctionalCommand(() -> { }, () -> { }, interrupted -> { }, () -> false, subsystem));
+        }
+
+        @Override
+        public void robotPeriodic() {
+            CommandScheduler.getInstance().run();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package frc.robot.sim;
+
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * Runs a test's simulated robot in a Java process of its own, like
+ * {@link SimFarm} does. A robot claims the simulated hardware (and the
+ * command scheduler) for as long as the program runs, so tests that try
+ * more than one robot have to give each one a fresh program.
+ *
+ * The process runs the main method of the class it's given, and prints its
+ * results on lines starting with {@link #RESULT_PREFIX}.
+ *
+ */
+public final class RobotProcess {
+
+    // The start of the lines with the results
+    public static final String RESULT_PREFIX = "RESULT";
+
+    private RobotProcess() { }
+
+    /**
+     * Runs a class's main method in a new Java process, with the same
+     * classes and native libraries we have, in a working directory under
+     * build/robot-tests, and waits for it to finish.
+     *
+     * @return the process's result lines (without the prefix), split on
+     * spaces. If the process fails, this fails the test with its output.
+     */
+    public static List<String[]> run(Class<?> main, String... args) {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("-Djava.library.path=" + System.getProperty("java.library.path"));
+        command.add(main.getName());
+        command.addAll(List.of(args));
+
+        try {
+            Path dir = Paths.get("build", "robot-tests", main.getSimpleName()).toAbsolutePath();
+            Files.createDirectories(dir);
+            Path output = Files.createTempFile(dir, "output", ".txt");
+
+            Process process = new ProcessBuilder(command)
+                    .directory(dir.toFile())
+                    .redirectErrorStream(true)
+                    .redirectOutput(output.toFile())
+                    .start();
+            int exit = process.waitFor();
+
+            List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+            List<String[]> results = new ArrayList<>();
+            for (String line : lines) {
+                if (line.startsWith(RESULT_PREFIX + " ")) {
+                    results.add(line.substring(RESULT_PREFIX.length() + 1).trim().split(" "));
+                }
+            }
+            if (exit != 0 || results.isEmpty()) {
+                fail(main.getSimpleName() + " " + String.join(" ", args) + " failed (exit code " + exit + "):\n"
+                        + String.join("\n", lines));
+            }
+            return results;
+        } catch (IOException e) {
+            throw new AssertionError("can't run " + main.getSimpleName(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AssertionError("interrupted running " + main.getSimpleName(), e);
+        }
+    }
+}
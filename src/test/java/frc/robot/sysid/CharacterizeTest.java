@@ -0,0 +1,132 @@
+package frc.robot.sysid;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import frc.robot.sim.RomiPlant;
+
+/**
+ *
+ * Checks the characterization in two ways:
+ *
+ * - On test runs recorded from a {@link RomiPlant}, where we know the real
+ * Ks, Kv and Ka, {@link FeedforwardAnalysis} has to get them back.
+ *
+ * - On the data/dadbot-3000 test runs, {@link Characterize} has to keep
+ * giving the gains in that folder's characterization.md.
+ *
+ * The gains for the dadbot-3000 runs aren't quite the ones SysId got (see
+ * summary.md): Kv and the feedback gains agree to a few percent, but Ks is
+ * about 0.025 V lower and Ka is 10-20% off, in different directions for
+ * the two files. We haven't found the step in SysId's clean-up that makes
+ * the difference, so we don't check against SysId's numbers. What we check
+ * is the method described in {@link FeedforwardAnalysis}, which gets the
+ * right answer when we know what it is.
+ *
+ */
+public class CharacterizeTest {
+
+    private static final Path DATA = Paths.get("data", "dadbot-3000");
+
+    // How close the gains from the plant have to be to the plant's own gains
+    // (Ks in volts, the rest as a fraction). Ks and Kv come back exactly, but
+    // the plant works out its physics in little steps instead of exactly,
+    // which makes Ka come back about 0.25% low.
+    private static final double PLANT_KS_TOLERANCE = 1e-6;
+    private static final double PLANT_KV_TOLERANCE = 1e-6;
+    private static final double PLANT_KA_TOLERANCE = 0.005;
+
+    // How close the gains for the dadbot-3000 runs have to be to the ones in
+    // characterization.md, which are rounded to 5 or 6 digits
+    private static final double TOLERANCE = 1e-4;
+
+    // How the recorded tests drive the plant, like SysId's defaults: the
+    // quasistatic tests ramp up the voltage slowly, and the dynamic tests
+    // jump straight to a fixed voltage
+    private static final double SAMPLE_PERIOD = 0.005;
+    private static final double RAMP_RATE = 0.25;
+    private static final double QUASISTATIC_DURATION = 16;
+    private static final double STEP_VOLTS = 7;
+    private static final double DYNAMIC_DURATION = 3;
+
+    // Anything slower than this (rotations/second) is left out of the fit
+    private static final double VELOCITY_THRESHOLD = 0.01;
+
+    @Test
+    public void findsThePlantGains() {
+        FeedforwardAnalysis analysis = new FeedforwardAnalysis(VELOCITY_THRESHOLD, 1, 0);
+        analysis.add(record(SysIdData.SLOW_FORWARD));
+        analysis.add(record(SysIdData.SLOW_BACKWARD));
+        analysis.add(record(SysIdData.FAST_FORWARD));
+        analysis.add(record(SysIdData.FAST_BACKWARD));
+        FeedforwardGains gains = analysis.solve();
+
+        assertEquals("Ks", RomiPlant.KS, gains.ks, PLANT_KS_TOLERANCE);
+        assertEquals("Kv", RomiPlant.KV, gains.kv, RomiPlant.KV * PLANT_KV_TOLERANCE);
+        assertEquals("Ka", RomiPlant.KA, gains.ka, RomiPlant.KA * PLANT_KA_TOLERANCE);
+    }
+
+    @Test
+    public void smallFileGains() throws IOException {
+        check("sysid_data20221106-172256.json",
+                -0.16858, 2.82296, 0.49077, 3.6362, 48.1904, 6.4804);
+    }
+
+    @Test
+    public void largeFileGains() throws IOException {
+        check("sysid_data20221106-174834.json",
+                0.10682, 2.33931, 0.26409, 2.8567, 45.1802, 4.6518);
+    }
+
+    private static void check(String file, double ks, double kv, double ka,
+            double velocityKp, double positionKp, double positionKd) throws IOException {
+        Characterize.Result result = Characterize.characterize(DATA.resolve(file));
+        assertEquals(file + " Ks", ks, result.feedforward.ks, Math.abs(ks) * TOLERANCE);
+        assertEquals(file + " Kv", kv, result.feedforward.kv, kv * TOLERANCE);
+        assertEquals(file + " Ka", ka, result.feedforward.ka, ka * TOLERANCE);
+        assertEquals(file + " velocity Kp", velocityKp, result.velocity.kp, velocityKp * TOLERANCE);
+        assertEquals(file + " position Kp", positionKp, result.position.kp, positionKp * TOLERANCE);
+        assertEquals(file + " position Kd", positionKd, result.position.kd, positionKd * TOLERANCE);
+    }
+
+    /**
+     * Drives a {@link RomiPlant} (with both wheels the same) through one
+     * SysId test, and records it the way SysId does. Each row has the
+     * voltage we're about to put out, and the wheels as they are before it.
+     */
+    private static SysIdRun record(String name) {
+        SysIdRun run = new SysIdRun(name);
+        double direction = run.isForward() ? 1 : -1;
+        double duration = run.isQuasistatic() ? QUASISTATIC_DURATION : DYNAMIC_DURATION;
+
+        RomiPlant plant = new RomiPlant();
+        double[] row = new double[SysIdRun.COLUMNS];
+        while (plant.getTime() < duration) {
+            double time = plant.getTime();
+            double volts = direction * (run.isQuasistatic() ? RAMP_RATE * time : STEP_VOLTS);
+            double position = plant.getLeftDistance() / RomiPlant.INCHES_PER_ROTATION;
+            double velocity = plant.getLeftRate() / RomiPlant.INCHES_PER_ROTATION;
+
+            row[SysIdRun.TIMESTAMP] = time;
+            row[SysIdRun.LEFT_VOLTS] = volts;
+            row[SysIdRun.RIGHT_VOLTS] = volts;
+            row[SysIdRun.LEFT_POSITION] = position;
+            row[SysIdRun.RIGHT_POSITION] = position;
+            row[SysIdRun.LEFT_VELOCITY] = velocity;
+            row[SysIdRun.RIGHT_VELOCITY] = velocity;
+            row[SysIdRun.GYRO_ANGLE] = 0;
+            row[SysIdRun.GYRO_RATE] = 0;
+            run.add(row);
+
+            plant.setOutputs(volts / RomiPlant.BATTERY_VOLTS, volts / RomiPlant.BATTERY_VOLTS);
+            plant.step(SAMPLE_PERIOD);
+        }
+        run.trim();
+        return run;
+    }
+}
@@ -0,0 +1,141 @@
+package frc.robot.vision;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+/**
+ *
+ * Checks that {@link JavaTagDetector} finds the tags in the saved pictures in
+ * data/vision/frames (made by {@link TagFrames}), in the right places and
+ * with nothing extra, and that it gives the corners in the same order as the
+ * AprilTag library however the tag is turned.
+ *
+ * The detector is plain Java, so unlike the rest of the vision code this
+ * doesn't need OpenCV: the pictures are read with ImageIO.
+ *
+ */
+public class JavaTagDetectorTest {
+
+    // How far (in pixels) the middle and corners can be from where they
+    // really are. JPEG and the noise move the edges around a little.
+    private static final double MAX_CENTER_ERROR = 0.5;
+    private static final double MAX_CORNER_ERROR = 0.5;
+
+    // How big the pictures of single tags are, in pixels
+    private static final int SIZE = 200;
+
+    private final JavaTagDetector detector = new JavaTagDetector(JavaTagDetector.FAMILY);
+    private final TagDetection[] results = new TagDetection[VisionProcessor.MAX_TAGS];
+
+    public JavaTagDetectorTest() {
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new TagDetection();
+        }
+    }
+
+    @Test
+    public void findsTheTagsInTheSavedPictures() throws IOException {
+        List<String> labels = Files.readAllLines(TagFrames.FOLDER.resolve("labels.csv"));
+        List<Path> pictures;
+        try (Stream<Path> files = Files.list(TagFrames.FOLDER)) {
+            pictures = files.filter(file -> file.toString().endsWith(".jpg"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        assertEquals("saved pictures", TagFrames.savedFrames().length, pictures.size());
+
+        for (Path picture : pictures) {
+            String name = picture.getFileName().toString();
+            List<String[]> tags = new ArrayList<>();
+            for (String line : labels) {
+                if (line.startsWith(name + ",")) {
+                    tags.add(line.split(","));
+                }
+            }
+
+            BufferedImage image = ImageIO.read(picture.toFile());
+            int count = detector.detect(toGray(image), image.getWidth(), image.getHeight(), results);
+            assertEquals(name + " tags", tags.size(), count);
+            for (String[] tag : tags) {
+                int id = Integer.parseInt(tag[2]);
+                TagDetection found = find(id, count);
+                assertTrue(name + " is missing tag " + id, found != null);
+                double error = Math.hypot(found.centerX - Double.parseDouble(tag[3]),
+                        found.centerY - Double.parseDouble(tag[4]));
+                assertTrue(name + " tag " + id + " is " + error + " pixels out", error <= MAX_CENTER_ERROR);
+                assertEquals(name + " tag " + id + " hamming", 0, found.hamming);
+                assertTrue(name + " tag " + id + " decision margin " + found.decisionMargin,
+                        found.decisionMargin > VisionProcessor.DEFAULT_MIN_DECISION_MARGIN);
+            }
+        }
+    }
+
+    @Test
+    public void cornersGoCounterClockwiseFromBottomLeft() {
+        Random random = new Random(3373);
+        for (int id = 0; id < JavaTagDetector.getTagCount(); id++) {
+            for (int turn = 0; turn < 360; turn += 45) {
+                TagFrames.Placement tag = new TagFrames.Placement(id, SIZE / 2 + random.nextDouble(),
+                        SIZE / 2 + random.nextDouble(), SIZE / 2, turn + 10 * random.nextDouble(), 20, -10);
+                double[] image = new double[SIZE * SIZE];
+                TagFrames.drawBackground(image, SIZE, SIZE, 128, 128);
+                TagFrames.drawTag(image, SIZE, SIZE, tag);
+                int count = detector.detect(TagFrames.toBytes(image, random, 2), SIZE, SIZE, results);
+
+                String what = "tag " + id + " turned " + turn;
+                assertEquals(what + " tags", 1, count);
+                assertEquals(what + " id", id, results[0].id);
+                for (int i = 0; i < 8; i++) {
+                    assertEquals(what + " corner " + i / 2, tag.corners[i], results[0].corners[i],
+                            MAX_CORNER_ERROR);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void findsNothingInABlankPicture() {
+        byte[] gray = new byte[TagFrames.WIDTH * TagFrames.HEIGHT];
+        assertEquals(0, detector.detect(gray, TagFrames.WIDTH, TagFrames.HEIGHT, results));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void onlyFindsTag16h5() {
+        new JavaTagDetector("tag36h11");
+    }
+
+    private TagDetection find(int id, int count) {
+        for (int i = 0; i < count; i++) {
+            if (results[i].id == id) {
+                return results[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the picture's pixels, one gray byte each
+     */
+    private static byte[] toGray(BufferedImage image) {
+        BufferedImage gray = image;
+        if (image.getType() != BufferedImage.TYPE_BYTE_GRAY) {
+            gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+            gray.getGraphics().drawImage(image, 0, 0, null);
+        }
+        return (byte[]) gray.getRaster().getDataElements(0, 0, gray.getWidth(), gray.getHeight(), null);
+    }
+}
@@ -0,0 +1,373 @@
+package frc.robot.vision;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+/**
+ *
+ * Draws pretend camera pictures of tag16h5 tags, for testing the detector
+ * with. The pictures in data/vision/frames were made with this (run main()
+ * to make them again), along with their labels.csv, which says which tags
+ * are in each picture and where their middles are.
+ *
+ * Each tag is a flat square seen through a pinhole camera, so it can be
+ * turned, tipped and shrunk like a real one. The pixels are worked out from
+ * 4x4 points each so the edges are smooth, then a little noise is added
+ * and they're saved as JPEGs, like a real camera's.
+ *
+ */
+final class TagFrames {
+
+    public static final Path FOLDER = Paths.get("data", "vision", "frames");
+    public static final int WIDTH = 640;
+    public static final int HEIGHT = 480;
+
+    // How dark and light the tags are printed (the field's tags are black
+    // on white paper, under bright lights)
+    public static final double BLACK = 15;
+    public static final double WHITE = 245;
+
+    // Focal length of the pretend camera, in pixels
+    private static final double FOCAL_LENGTH = 500;
+
+    // Samples across each pixel, each way
+    private static final int SAMPLES = 4;
+
+    private TagFrames() { }
+
+    /**
+     * A tag in a picture.
+     */
+    static class Placement {
+
+        final int id;
+        final double centerX;
+        final double centerY;
+
+        // Corners of the black square, like TagDetection's
+        final double[] corners;
+
+        /**
+         * @param size how wide the black square is, in pixels, if it faced
+         * the camera
+         * @param roll how far it's turned (counter-clockwise, as you look at
+         * it), in degrees
+         * @param yaw how far it's turned to the side, in degrees
+         * @param pitch how far it's tipped back, in degrees
+         */
+        Placement(int id, double centerX, double centerY, double size, double roll, double yaw, double pitch) {
+            this.id = id;
+            this.centerX = centerX;
+            this.centerY = centerY;
+            corners = corners(centerX, centerY, size, roll, yaw, pitch);
+        }
+    }
+
+    /**
+     * Works out where the corners of a tag end up in the picture.
+     *
+     * @return the corners of the black square, counter-clockwise from
+     * bottom left like {@link TagDetection#corners}
+     */
+    static double[] corners(double centerX, double centerY, double size, double roll, double yaw, double pitch) {
+        double distance = 2 * FOCAL_LENGTH / size;
+        double cr = Math.cos(Math.toRadians(roll));
+        double sr = Math.sin(Math.toRadians(roll));
+        double cy = Math.cos(Math.toRadians(yaw));
+        double sy = Math.sin(Math.toRadians(yaw));
+        double cp = Math.cos(Math.toRadians(pitch));
+        double sp = Math.sin(Math.toRadians(pitch));
+
+        // The square is 2 wide, with y going down the tag like in the picture
+        double[] square = { -1, 1, 1, 1, 1, -1, -1, -1 };
+        double[] corners = new double[8];
+        for (int i = 0; i < 4; i++) {
+            // Roll (counter-clockwise on the screen, where y goes down)
+            double x = square[i * 2] * cr + square[i * 2 + 1] * sr;
+            double y = -square[i * 2] * sr + square[i * 2 + 1] * cr;
+            double z = 0;
+            // Yaw, around the up and down axis
+            double x2 = x * cy + z * sy;
+            double z2 = -x * sy + z * cy;
+            // Pitch, around the sideways axis
+            double y3 = y * cp - z2 * sp;
+            double z3 = y * sp + z2 * cp + distance;
+            corners[i * 2] = centerX + FOCAL_LENGTH * x2 / z3;
+            corners[i * 2 + 1] = centerY + FOCAL_LENGTH * y3 / z3;
+        }
+        return corners;
+    }
+
+    /**
+     * Fills the picture with a smooth gradient, like a lit wall.
+     */
+    static void drawBackground(double[] image, int width, int height, double left, double right) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image[y * width + x] = left + (right - left) * x / (width - 1);
+            }
+        }
+    }
+
+    /**
+     * Draws a filled rectangle.
+     */
+    static void drawRectangle(double[] image, int width, int left, int top, int w, int h, double value) {
+        int height = image.length / width;
+        for (int y = Math.max(0, top); y < Math.min(height, top + h); y++) {
+            for (int x = Math.max(0, left); x < Math.min(width, left + w); x++) {
+                image[y * width + x] = value;
+            }
+        }
+    }
+
+    /**
+     * Draws a chessboard, which has plenty of black squares that aren't
+     * tags.
+     */
+    static void drawChessboard(double[] image, int width, int left, int top, int squares, int size) {
+        for (int row = 0; row < squares; row++) {
+            for (int col = 0; col < squares; col++) {
+                drawRectangle(image, width, left + col * size, top + row * size, size, size,
+                        (row + col) % 2 == 0 ? BLACK : WHITE);
+            }
+        }
+    }
+
+    /**
+     * Draws a tag, with its white border.
+     */
+    static void drawTag(double[] image, int width, int height, Placement tag) {
+        int code = JavaTagDetector.getCode(tag.id);
+        double[] c = tag.corners;
+
+        // Picture from tag: the black square goes from 0 to 1, with 0, 0 at
+        // the top left, and the white border goes out another cell (1/6)
+        double[] h = squareToQuad(c[6], c[7], c[4], c[5], c[2], c[3], c[0], c[1]);
+        double[] inverse = invert(h);
+
+        double border = 1.0 / 6;
+        double minX = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            double u = (i == 1 || i == 2) ? 1 + border : -border;
+            double v = i >= 2 ? 1 + border : -border;
+            double w = h[6] * u + h[7] * v + h[8];
+            double x = (h[0] * u + h[1] * v + h[2]) / w;
+            double y = (h[3] * u + h[4] * v + h[5]) / w;
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+
+        for (int py = Math.max(0, (int) minY - 1); py <= Math.min(height - 1, (int) maxY + 1); py++) {
+            for (int px = Math.max(0, (int) minX - 1); px <= Math.min(width - 1, (int) maxX + 1); px++) {
+                double sum = 0;
+                int inside = 0;
+                for (int sy = 0; sy < SAMPLES; sy++) {
+                    for (int sx = 0; sx < SAMPLES; sx++) {
+                        double x = px + (sx + 0.5) / SAMPLES - 0.5;
+                        double y = py + (sy + 0.5) / SAMPLES - 0.5;
+                        double w = inverse[6] * x + inverse[7] * y + inverse[8];
+                        double u = (inverse[0] * x + inverse[1] * y + inverse[2]) / w;
+                        double v = (inverse[3] * x + inverse[4] * y + inverse[5]) / w;
+                        if (u < -border || u >= 1 + border || v < -border || v >= 1 + border) {
+                            continue;
+                        }
+                        inside++;
+                        sum += isWhite(code, (int) Math.floor(u * 6), (int) Math.floor(v * 6)) ? WHITE : BLACK;
+                    }
+                }
+                if (inside > 0) {
+                    int i = py * width + px;
+                    image[i] = (sum + image[i] * (SAMPLES * SAMPLES - inside)) / (SAMPLES * SAMPLES);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether a cell of a tag is white (-1 and 6 are the white
+     * border, 0 and 5 the black border)
+     */
+    private static boolean isWhite(int code, int col, int row) {
+        if (col < 0 || col > 5 || row < 0 || row > 5) {
+            return true;
+        }
+        if (col == 0 || col == 5 || row == 0 || row == 5) {
+            return false;
+        }
+        int bit = (row - 1) * 4 + (col - 1);
+        return ((code >> (15 - bit)) & 1) != 0;
+    }
+
+    /**
+     * @return the picture as gray bytes, with some noise
+     */
+    static byte[] toBytes(double[] image, Random random, double noise) {
+        byte[] pixels = new byte[image.length];
+        for (int i = 0; i < image.length; i++) {
+            long value = Math.round(image[i] + random.nextGaussian() * noise);
+            pixels[i] = (byte) Math.max(0, Math.min(255, value));
+        }
+        return pixels;
+    }
+
+    /**
+     * The tags in each of the saved pictures.
+     */
+    static Placement[][] savedFrames() {
+        return new Placement[][] {
+            // One big tag, straight on
+            { new Placement(1, 320, 240, 160, 5, 0, 0) },
+            // A few, turned different ways
+            {
+                new Placement(2, 150, 200, 90, -20, 20, 0),
+                new Placement(3, 330, 300, 70, 35, -15, 10),
+                new Placement(4, 510, 170, 110, 80, 0, -20),
+            },
+            // Seen from well off to the side, and a small one far away
+            {
+                new Placement(5, 230, 240, 120, 10, 55, 0),
+                new Placement(6, 500, 340, 24, -30, 0, 0),
+            },
+            // No tags, only things that look a bit like them
+            { },
+            // A row, like along a wall, one of them upside down
+            {
+                new Placement(7, 120, 130, 50, 0, 0, 0),
+                new Placement(8, 260, 130, 50, 0, 0, 0),
+                new Placement(9, 400, 130, 50, 0, 0, 0),
+                new Placement(10, 540, 130, 50, 180, 0, 0),
+                new Placement(11, 320, 340, 36, 45, 30, 20),
+            },
+            // Close up and tipped, and a small one in the corner
+            {
+                new Placement(12, 330, 230, 200, 135, -35, 15),
+                new Placement(13, 70, 410, 40, 0, 0, 0),
+            },
+        };
+    }
+
+    /**
+     * Draws one of the saved pictures.
+     */
+    static byte[] drawFrame(int frame, Placement[] tags) {
+        Random random = new Random(1114 + frame);
+        double[] image = new double[WIDTH * HEIGHT];
+        drawBackground(image, WIDTH, HEIGHT, 90 + random.nextInt(40), 150 + random.nextInt(40));
+        // Some clutter, kept where the tags aren't
+        for (int i = 0; i < 6; i++) {
+            int left = random.nextInt(WIDTH - 60);
+            int top = random.nextInt(HEIGHT - 60);
+            if (!isClear(tags, left, top, 60, 60)) {
+                continue;
+            }
+            drawRectangle(image, WIDTH, left, top, 20 + random.nextInt(40), 20 + random.nextInt(40),
+                    BLACK + random.nextInt((int) (WHITE - BLACK)));
+        }
+        if (isClear(tags, 20, 300, 160, 160)) {
+            drawChessboard(image, WIDTH, 20, 300, 8, 20);
+        }
+        for (Placement tag : tags) {
+            drawTag(image, WIDTH, HEIGHT, tag);
+        }
+        return toBytes(image, random, 2);
+    }
+
+    /**
+     * @return whether a rectangle is well away from all the tags
+     */
+    private static boolean isClear(Placement[] tags, int left, int top, int w, int h) {
+        for (Placement tag : tags) {
+            double reach = 0;
+            for (int i = 0; i < 4; i++) {
+                reach = Math.max(reach, Math.hypot(tag.corners[i * 2] - tag.centerX,
+                        tag.corners[i * 2 + 1] - tag.centerY));
+            }
+            // The white border makes the tag a third bigger
+            reach = reach * 4 / 3 + 10;
+            double x = Math.max(left, Math.min(left + w, tag.centerX));
+            double y = Math.max(top, Math.min(top + h, tag.centerY));
+            if (Math.hypot(x - tag.centerX, y - tag.centerY) < reach) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the file name of a saved picture
+     */
+    static String frameName(int frame) {
+        return String.format("frame-%02d.jpg", frame);
+    }
+
+    /**
+     * Makes the saved pictures and their labels again.
+     */
+    public static void main(String... args) throws IOException {
+        Path folder = args.length > 0 ? Paths.get(args[0]) : FOLDER;
+        Files.createDirectories(folder);
+        Placement[][] frames = savedFrames();
+        try (PrintWriter labels = new PrintWriter(Files.newBufferedWriter(folder.resolve("labels.csv")))) {
+            labels.println("# picture,family,id,x,y (made by TagFrames in the tests)");
+            for (int frame = 0; frame < frames.length; frame++) {
+                String name = frameName(frame);
+                BufferedImage picture = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+                picture.getRaster().setDataElements(0, 0, WIDTH, HEIGHT, drawFrame(frame, frames[frame]));
+                ImageIO.write(picture, "jpg", folder.resolve(name).toFile());
+                for (Placement tag : frames[frame]) {
+                    labels.printf("%s,%s,%d,%.1f,%.1f%n", name, JavaTagDetector.FAMILY, tag.id,
+                            tag.centerX, tag.centerY);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the projection (3x3, row by row) that takes the corners of a
+     * 1x1 square to the given corners (see Heckbert, "Fundamentals of
+     * Texture Mapping and Image Warping")
+     */
+    static double[] squareToQuad(double x0, double y0, double x1, double y1,
+            double x2, double y2, double x3, double y3) {
+        // 0 is (0, 0), 1 is (1, 0), 2 is (1, 1) and 3 is (0, 1)
+        double sx = x0 - x1 + x2 - x3;
+        double sy = y0 - y1 + y2 - y3;
+        double dx1 = x1 - x2;
+        double dx2 = x3 - x2;
+        double dy1 = y1 - y2;
+        double dy2 = y3 - y2;
+        double det = dx1 * dy2 - dx2 * dy1;
+        double g = (sx * dy2 - dx2 * sy) / det;
+        double h = (dx1 * sy - sx * dy1) / det;
+        return new double[] {
+            x1 - x0 + g * x1, x3 - x0 + h * x3, x0,
+            y1 - y0 + g * y1, y3 - y0 + h * y3, y0,
+            g, h, 1,
+        };
+    }
+
+    /**
+     * @return the inverse of a 3x3 matrix (up to scale, which doesn't
+     * matter for a projection)
+     */
+    static double[] invert(double[] m) {
+        return new double[] {
+            m[4] * m[8] - m[5] * m[7], m[2] * m[7] - m[1] * m[8], m[1] * m[5] - m[2] * m[4],
+            m[5] * m[6] - m[3] * m[8], m[0] * m[8] - m[2] * m[6], m[2] * m[3] - m[0] * m[5],
+            m[3] * m[7] - m[4] * m[6], m[1] * m[6] - m[0] * m[7], m[0] * m[4] - m[1] * m[3],
+        };
+    }
+}